@@ -0,0 +1,63 @@
+package ch.epfl.javelo;
+
+import java.util.function.DoubleUnaryOperator;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A function obtained by linear interpolation between values spaced regularly from 0 to a maximum,
+ * interpolating directly on an array of floats.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class SampledFunction implements DoubleUnaryOperator {
+
+    private final float[] samples;
+    private final double xMax;
+    private final double gap;
+
+    /**
+     * Constructor of a sampled function, which copies the given samples.
+     *
+     * @param samples table containing values spaced regularly.
+     * @param xMax    the maximum value taken by the function.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if xMax is not strictly positive
+     *                                  or if there are less than two samples.
+     */
+    public SampledFunction(float[] samples, double xMax) {
+        checkArgument(xMax > 0 && samples.length >= 2);
+        this.samples = samples.clone();
+        this.xMax = xMax;
+        this.gap = xMax / (samples.length - 1);
+    }
+
+    /**
+     * This method allows us to evaluate the function.
+     *
+     * @param x The value at which the function is evaluated.
+     * @return The interpolation of the samples around x, the first sample if x is negative and
+     * the last one if x is larger than the maximum.
+     */
+    @Override
+    public double applyAsDouble(double x) {
+        if (x < 0) return samples[0];
+        if (x >= xMax) return samples[samples.length - 1];
+        int borneInf = (int) (x / gap);
+        return Math2.interpolate(samples[borneInf],
+                samples[Math2.clamp(0, borneInf + 1, samples.length - 1)],
+                ((x - borneInf * gap) / gap));
+    }
+
+    /**
+     * This method allows us to evaluate the function at several values at once.
+     *
+     * @param xs          The values at which the function is evaluated.
+     * @param destination The array receiving the value of the function at every value of xs, at the same index.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the destination is shorter than xs.
+     */
+    public void applyAll(double[] xs, float[] destination) {
+        checkArgument(destination.length >= xs.length);
+        for (int i = 0; i < xs.length; i++) destination[i] = (float) applyAsDouble(xs[i]);
+    }
+}
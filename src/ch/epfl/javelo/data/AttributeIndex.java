@@ -0,0 +1,144 @@
+package ch.epfl.javelo.data;
+
+import java.util.List;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * An inverted index giving the edges of a graph having a given set of attributes, or a given attribute.
+ * It is built in a single pass over the edges, and combining its sets allows us to filter the edges
+ * without reading their attributes again.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class AttributeIndex {
+
+    private final int edgeCount;
+    private final List<AttributeSet> attributeSets;
+    private final EdgeBitmap[] edgesOfSets;
+    private final EdgeBitmap[] edgesOfAttributes;
+
+    /**
+     * Private constructor, the index is built using the method of(GraphEdges, List).
+     *
+     * @param edgeCount         The number of edges of the graph.
+     * @param attributeSets     The sets of attributes of the graph.
+     * @param edgesOfSets       The edges of each set of attributes.
+     * @param edgesOfAttributes The edges of each attribute.
+     */
+    private AttributeIndex(int edgeCount, List<AttributeSet> attributeSets,
+                           EdgeBitmap[] edgesOfSets, EdgeBitmap[] edgesOfAttributes) {
+        this.edgeCount = edgeCount;
+        this.attributeSets = attributeSets;
+        this.edgesOfSets = edgesOfSets;
+        this.edgesOfAttributes = edgesOfAttributes;
+    }
+
+    /**
+     * This method allows us to build the index of the edges of a graph.
+     *
+     * @param edges         The edges of the graph.
+     * @param attributeSets The sets of attributes of the graph.
+     * @return The index of the edges.
+     */
+    public static AttributeIndex of(GraphEdges edges, List<AttributeSet> attributeSets) {
+        int edgeCount = edges.count();
+        EdgeBitmap.Builder[] builders = new EdgeBitmap.Builder[attributeSets.size()];
+        for (int i = 0; i < builders.length; i++) builders[i] = new EdgeBitmap.Builder();
+        for (int edgeId = 0; edgeId < edgeCount; edgeId++) builders[edges.attributesIndex(edgeId)].add(edgeId);
+
+        EdgeBitmap[] edgesOfSets = new EdgeBitmap[builders.length];
+        for (int i = 0; i < builders.length; i++) edgesOfSets[i] = builders[i].build();
+        EdgeBitmap[] edgesOfAttributes = new EdgeBitmap[Attribute.COUNT];
+        for (Attribute attribute : Attribute.ALL) {
+            EdgeBitmap attributeEdges = EdgeBitmap.empty();
+            for (int i = 0; i < edgesOfSets.length; i++) {
+                if (attributeSets.get(i).contains(attribute)) attributeEdges = attributeEdges.or(edgesOfSets[i]);
+            }
+            edgesOfAttributes[attribute.ordinal()] = attributeEdges;
+        }
+        return new AttributeIndex(edgeCount, List.copyOf(attributeSets), edgesOfSets, edgesOfAttributes);
+    }
+
+    /**
+     * This method allows us to know the number of indexed edges.
+     *
+     * @return The number of edges of the graph.
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * This method allows us to know the number of indexed sets of attributes.
+     *
+     * @return The number of sets of attributes of the graph.
+     */
+    public int attributeSetCount() {
+        return edgesOfSets.length;
+    }
+
+    /**
+     * This method allows us to get the edges having a given attribute.
+     *
+     * @param attribute The attribute.
+     * @return The edges whose set of attributes contains the attribute.
+     */
+    public EdgeBitmap edges(Attribute attribute) {
+        return edgesOfAttributes[attribute.ordinal()];
+    }
+
+    /**
+     * This method allows us to get the edges having a given set of attributes.
+     *
+     * @param attributesIndex The index of the set of attributes inside attributes.bin.
+     * @return The edges whose set of attributes is the one of the given index.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the index is invalid.
+     */
+    public EdgeBitmap edgesOfSet(int attributesIndex) {
+        checkArgument(0 <= attributesIndex && attributesIndex < edgesOfSets.length);
+        return edgesOfSets[attributesIndex];
+    }
+
+    /**
+     * This method allows us to get the edges having at least one attribute of a set.
+     *
+     * @param attributes The set of attributes.
+     * @return The edges whose set of attributes intersects the given one.
+     */
+    public EdgeBitmap edgesWithAny(AttributeSet attributes) {
+        EdgeBitmap result = EdgeBitmap.empty();
+        for (int i = 0; i < edgesOfSets.length; i++) {
+            if (attributeSets.get(i).intersects(attributes)) result = result.or(edgesOfSets[i]);
+        }
+        return result;
+    }
+
+    /**
+     * This method allows us to get the edges having every attribute of a set.
+     *
+     * @param attributes The set of attributes.
+     * @return The edges whose set of attributes contains the given one.
+     */
+    public EdgeBitmap edgesWithAll(AttributeSet attributes) {
+        EdgeBitmap result = EdgeBitmap.empty();
+        for (int i = 0; i < edgesOfSets.length; i++) {
+            if ((attributeSets.get(i).bits() & attributes.bits()) == attributes.bits())
+                result = result.or(edgesOfSets[i]);
+        }
+        return result;
+    }
+
+    /**
+     * This method allows us to get the edges having every attribute of a set and none of another one,
+     * as needed to filter the edges on which a route may go.
+     *
+     * @param required  The attributes the edges must have.
+     * @param forbidden The attributes the edges must not have.
+     * @return The matching edges.
+     */
+    public EdgeBitmap edgesMatching(AttributeSet required, AttributeSet forbidden) {
+        return edgesWithAll(required).andNot(edgesWithAny(forbidden));
+    }
+}
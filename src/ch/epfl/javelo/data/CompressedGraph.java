@@ -0,0 +1,577 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.Q28_4;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A graph whose nodes, edges and profile identities are kept in memory in a compressed form, to reduce
+ * the memory needed to host it. The nodes and the edges are stored in blocks of consecutive variable-length
+ * integers: the coordinates of a node are stored relative to the previous node, which is usually in the same
+ * sector, and the target of an edge relative to the node it leaves. The position of each block is indexed,
+ * so that reading a node or an edge only decodes the beginning of its block.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class CompressedGraph implements RoutingGraph {
+
+    /**
+     * The number of nodes or edges of a block, a power of 2.
+     */
+    private static final int BLOCK_SIZE = 32;
+    /**
+     * The shift giving the block of a node or an edge.
+     */
+    private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_SIZE);
+    /**
+     * The number of bits of the position of the first sample inside a profile identity.
+     */
+    private static final int SAMPLE_LENGTH = 29;
+    /**
+     * The number of bits of the type inside a profile identity.
+     */
+    private static final int PROFILE_TYPE_SHIFT = 30;
+    /**
+     * The number of bits of the type of a profile.
+     */
+    private static final int PROFILE_TYPE_BITS = 2;
+    /**
+     * The number of Q4.4 differences stored in a short of a profile of type 2.
+     */
+    private static final int Q4_4_PER_SHORT = 2;
+    /**
+     * The number of Q0.4 differences stored in a short of a profile of type 3.
+     */
+    private static final int Q0_4_PER_SHORT = 4;
+    /**
+     * The number of bits storing the 7 lowest bits of a value in each byte of a variable-length integer.
+     */
+    private static final int VARINT_BITS = 7;
+    /**
+     * The bit telling that a variable-length integer continues on the next byte.
+     */
+    private static final int VARINT_MORE = 1 << VARINT_BITS;
+    /**
+     * The number of bytes of a node in the uncompressed format.
+     */
+    private static final int NODE_BYTES = 3 * Integer.BYTES;
+    /**
+     * The number of bytes of an edge in the uncompressed format, with its profile identity.
+     */
+    private static final int EDGE_BYTES = 10 + Integer.BYTES;
+
+    private final int nodeCount;
+    private final int edgeCount;
+    private final byte[] nodeData;
+    private final int[] nodeBlocks;
+    private final byte[] edgeData;
+    private final int[] edgeBlocks;
+    private final GraphSectors sectors;
+    private final ShortBuffer elevations;
+    private final List<AttributeSet> attributeSets;
+
+    /**
+     * A position inside compressed data.
+     */
+    private static class Cursor {
+        int position;
+    }
+
+    /**
+     * The decoded data of a node, whose fields are updated while its block is read.
+     */
+    private static final class NodeCursor extends Cursor {
+        private int e;
+        private int n;
+        private int outDegree;
+        private int firstEdgeId;
+    }
+
+    /**
+     * The decoded data of an edge, whose fields are updated while its block is read.
+     */
+    private static final class EdgeCursor extends Cursor {
+        private int sourceNodeId;
+        private int targetNodeId;
+        private boolean inverted;
+        private int length;
+        private int elevationGain;
+        private int attributesIndex;
+        private int profileType;
+        private int firstSample;
+        private int nextSample;
+    }
+
+    /**
+     * This method is the private constructor of the class CompressedGraph.
+     *
+     * @param nodeCount     The number of nodes.
+     * @param edgeCount     The number of edges.
+     * @param nodeData      The compressed nodes.
+     * @param nodeBlocks    The position of each block of nodes inside nodeData.
+     * @param edgeData      The compressed edges and profile identities.
+     * @param edgeBlocks    The position of each block of edges inside edgeData.
+     * @param sectors       The sectors of the graph.
+     * @param elevations    The samples of the profiles.
+     * @param attributeSets The sets of attributes of the graph.
+     */
+    private CompressedGraph(int nodeCount, int edgeCount, byte[] nodeData, int[] nodeBlocks, byte[] edgeData,
+                            int[] edgeBlocks, GraphSectors sectors, ShortBuffer elevations,
+                            List<AttributeSet> attributeSets) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.nodeData = nodeData;
+        this.nodeBlocks = nodeBlocks;
+        this.edgeData = edgeData;
+        this.edgeBlocks = edgeBlocks;
+        this.sectors = sectors;
+        this.elevations = elevations;
+        this.attributeSets = List.copyOf(attributeSets);
+    }
+
+    /**
+     * This method allows us to compress the nodes, edges and profile identities of a graph.
+     *
+     * @param nodes         The nodes of the graph.
+     * @param sectors       The sectors of the graph.
+     * @param edges         The edges of the graph, whose profiles are kept in their buffer.
+     * @param attributeSets The sets of attributes of the graph.
+     * @return The compressed graph.
+     */
+    public static CompressedGraph of(GraphNodes nodes, GraphSectors sectors, GraphEdges edges,
+                                     List<AttributeSet> attributeSets) {
+        int nodeCount = nodes.count();
+        int edgeCount = edges.count();
+        int[] sourceNodeIds = new int[edgeCount];
+        ByteArrayOutputStream nodeData = new ByteArrayOutputStream(4 * nodeCount);
+        int[] nodeBlocks = new int[(nodeCount + BLOCK_SIZE - 1) >> BLOCK_SHIFT];
+        int previousE = 0;
+        int previousN = 0;
+        int expectedEdgeId = 0;
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            if ((nodeId & (BLOCK_SIZE - 1)) == 0) {
+                nodeBlocks[nodeId >> BLOCK_SHIFT] = nodeData.size();
+                previousE = 0;
+                previousN = 0;
+                expectedEdgeId = 0;
+            }
+            int e = toQ28_4(nodes.nodeE(nodeId));
+            int n = toQ28_4(nodes.nodeN(nodeId));
+            int outDegree = nodes.outDegree(nodeId);
+            int firstEdgeId = nodes.firstEdgeId(nodeId);
+            writeVarInt(nodeData, zigZag(e - previousE));
+            writeVarInt(nodeData, zigZag(n - previousN));
+            writeVarInt(nodeData, outDegree);
+            writeVarInt(nodeData, zigZag(firstEdgeId - expectedEdgeId));
+            for (int edgeId = firstEdgeId; edgeId < firstEdgeId + outDegree; edgeId++) sourceNodeIds[edgeId] = nodeId;
+            previousE = e;
+            previousN = n;
+            expectedEdgeId = firstEdgeId + outDegree;
+        }
+
+        ByteArrayOutputStream edgeData = new ByteArrayOutputStream(6 * edgeCount);
+        int[] edgeBlocks = new int[(edgeCount + BLOCK_SIZE - 1) >> BLOCK_SHIFT];
+        int previousSource = 0;
+        int nextSample = 0;
+        for (int edgeId = 0; edgeId < edgeCount; edgeId++) {
+            if ((edgeId & (BLOCK_SIZE - 1)) == 0) {
+                edgeBlocks[edgeId >> BLOCK_SHIFT] = edgeData.size();
+                previousSource = 0;
+                nextSample = 0;
+            }
+            int source = sourceNodeIds[edgeId];
+            int profileId = edges.profileIds().get(edgeId);
+            int profileType = profileId >>> PROFILE_TYPE_SHIFT;
+            int sample = profileType == 0 ? nextSample : profileId & ((1 << SAMPLE_LENGTH) - 1);
+            writeVarInt(edgeData, zigZag(source - previousSource));
+            writeVarLong(edgeData, (zigZag(edges.targetNodeId(edgeId) - source) & 0xFFFF_FFFFL) << 1
+                    | (edges.isInverted(edgeId) ? 1 : 0));
+            writeVarInt(edgeData, edges.lengthQ28_4(edgeId));
+            writeVarInt(edgeData, toQ28_4(edges.elevationGain(edgeId)));
+            writeVarInt(edgeData, edges.attributesIndex(edgeId));
+            writeVarLong(edgeData, (zigZag(sample - nextSample) & 0xFFFF_FFFFL) << PROFILE_TYPE_BITS | profileType);
+            previousSource = source;
+            nextSample = sample + profileShorts(profileType, edges.lengthQ28_4(edgeId));
+        }
+        return new CompressedGraph(nodeCount, edgeCount, nodeData.toByteArray(), nodeBlocks,
+                edgeData.toByteArray(), edgeBlocks, sectors, edges.elevations(), attributeSets);
+    }
+
+    /**
+     * This method allows us to read the files of a graph and to compress its nodes, edges and profile identities.
+     * The sectors and the elevations stay mapped in memory.
+     *
+     * @param basePath The path of the directory containing the files of the graph.
+     * @return The compressed graph.
+     * @throws IOException Throws an exception if it was unable to open one of the files.
+     */
+    public static CompressedGraph loadFrom(Path basePath) throws IOException {
+        IntBuffer nodes = GraphFiles.map(basePath.resolve(GraphFiles.NODES)).asIntBuffer();
+        ByteBuffer sectors = GraphFiles.map(basePath.resolve(GraphFiles.SECTORS));
+        ByteBuffer edges = GraphFiles.map(basePath.resolve(GraphFiles.EDGES));
+        IntBuffer profileIds = GraphFiles.map(basePath.resolve(GraphFiles.PROFILE_IDS)).asIntBuffer();
+        ShortBuffer elevations = GraphFiles.map(basePath.resolve(GraphFiles.ELEVATIONS)).asShortBuffer();
+        LongBuffer attributes = GraphFiles.map(basePath.resolve(GraphFiles.ATTRIBUTES)).asLongBuffer();
+        List<AttributeSet> attributeSets = new ArrayList<>(attributes.capacity());
+        for (int i = 0; i < attributes.capacity(); i++) attributeSets.add(new AttributeSet(attributes.get(i)));
+        return of(new GraphNodes(nodes), new GraphSectors(sectors),
+                new GraphEdges(edges, profileIds, elevations), attributeSets);
+    }
+
+    /**
+     * This method allows us to know the number of bytes of the compressed nodes, edges and profile identities,
+     * with the positions of their blocks.
+     *
+     * @return The number of bytes used in memory.
+     */
+    public long compressedBytes() {
+        return nodeData.length + edgeData.length + (long) Integer.BYTES * (nodeBlocks.length + edgeBlocks.length);
+    }
+
+    /**
+     * This method allows us to know the number of bytes of the same nodes, edges and profile identities
+     * in the uncompressed format.
+     *
+     * @return The number of bytes of the uncompressed format.
+     */
+    public long uncompressedBytes() {
+        return (long) NODE_BYTES * nodeCount + (long) EDGE_BYTES * edgeCount;
+    }
+
+    /**
+     * This method allows us to know the number of edges in this graph.
+     *
+     * @return The number of edges in this graph.
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * This method allows us to know the number of nodes in this graph.
+     *
+     * @return The number of nodes in this graph.
+     */
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * This method allows us to get the position of the given node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The position of the given node.
+     */
+    @Override
+    public PointCh nodePoint(int nodeId) {
+        NodeCursor node = node(nodeId);
+        return new PointCh(Q28_4.asDouble(node.e), Q28_4.asDouble(node.n));
+    }
+
+    /**
+     * This method allows us to get the number of leaving edges of the given node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The number of leaving edges of this node.
+     */
+    @Override
+    public int nodeOutDegree(int nodeId) {
+        return node(nodeId).outDegree;
+    }
+
+    /**
+     * This method allows us to get the identity of a leaving edge with the id of its node and
+     * its index in the list of edges leaving this specific node.
+     *
+     * @param nodeId    The identity of the node.
+     * @param edgeIndex The index of the edge in the list of edges leaving this node.
+     * @return The identity of the edge.
+     */
+    @Override
+    public int nodeOutEdgeId(int nodeId, int edgeIndex) {
+        NodeCursor node = node(nodeId);
+        assert 0 <= edgeIndex && edgeIndex < node.outDegree;
+        return node.firstEdgeId + edgeIndex;
+    }
+
+    /**
+     * This method allows us to determine the closest node to a given point at a given distance,
+     * decoding the nodes of the sectors around the point one after the other.
+     *
+     * @param point          The point from which we're trying to determine the closest node.
+     * @param searchDistance The search distance.
+     * @return The identity of the closest node to the given point, or -1 if no nodes satisfy criteria.
+     */
+    @Override
+    public int nodeClosestTo(PointCh point, double searchDistance) {
+        double bestDistance = searchDistance * searchDistance;
+        int closestNodeId = -1;
+        NodeCursor node = new NodeCursor();
+        for (GraphSectors.Sector sector : sectors.sectorsInArea(point, searchDistance)) {
+            for (int nodeId = sector.startNodeId(); nodeId < sector.endNodeId(); nodeId++) {
+                if (nodeId == sector.startNodeId() || (nodeId & (BLOCK_SIZE - 1)) == 0) seek(nodeId, node);
+                else readNode(node);
+                double dE = Q28_4.asDouble(node.e) - point.e();
+                double dN = Q28_4.asDouble(node.n) - point.n();
+                double distance = dE * dE + dN * dN;
+                if (distance <= bestDistance) {
+                    bestDistance = distance;
+                    closestNodeId = nodeId;
+                }
+            }
+        }
+        return closestNodeId;
+    }
+
+    /**
+     * This method allows us to get the index of the node targeted by the given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The index of the node targeted by the given edge.
+     */
+    @Override
+    public int edgeTargetNodeId(int edgeId) {
+        return edge(edgeId).targetNodeId;
+    }
+
+    /**
+     * This method allows us to know if the given edge goes in the opposite way of the OSM path it comes from.
+     *
+     * @param edgeId The identity of the edge.
+     * @return True iff the edge is inverted.
+     */
+    @Override
+    public boolean edgeIsInverted(int edgeId) {
+        return edge(edgeId).inverted;
+    }
+
+    /**
+     * This method allows us to get the set of attributes corresponding to the given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return A set of the attributes corresponding to the given edge.
+     */
+    @Override
+    public AttributeSet edgeAttributes(int edgeId) {
+        return attributeSets.get(edge(edgeId).attributesIndex);
+    }
+
+    /**
+     * This method allows us to get an edge's length.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The length of the given edge.
+     */
+    @Override
+    public double edgeLength(int edgeId) {
+        return Q28_4.asDouble(edge(edgeId).length);
+    }
+
+    /**
+     * This method allows us to get the elevation gain of a given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The elevation gain of the given edge.
+     */
+    @Override
+    public double edgeElevationGain(int edgeId) {
+        return Q28_4.asDouble(edge(edgeId).elevationGain);
+    }
+
+    /**
+     * This method allows us to get the profile of a given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The profile of the edge, a function always returning NaN if it does not have one.
+     */
+    @Override
+    public DoubleUnaryOperator edgeProfile(int edgeId) {
+        EdgeCursor edge = edge(edgeId);
+        if (edge.profileType == 0) return Functions.constant(Double.NaN);
+        double length = Q28_4.asDouble(edge.length);
+        float[] samples = new float[1 + (int) Math.ceil(length / 2)];
+        GraphEdges.profileSamples(elevations, edge.profileType << PROFILE_TYPE_SHIFT | edge.firstSample, length,
+                edge.inverted, samples, 0);
+        return Functions.sampled(samples, length);
+    }
+
+    /**
+     * This private method allows us to decode a node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The decoded node.
+     */
+    private NodeCursor node(int nodeId) {
+        NodeCursor node = new NodeCursor();
+        seek(nodeId, node);
+        return node;
+    }
+
+    /**
+     * This private method allows us to decode a node from the beginning of its block.
+     *
+     * @param nodeId The identity of the node.
+     * @param node   The cursor receiving the node, placed after it.
+     */
+    private void seek(int nodeId, NodeCursor node) {
+        node.position = nodeBlocks[nodeId >> BLOCK_SHIFT];
+        node.e = 0;
+        node.n = 0;
+        node.outDegree = 0;
+        node.firstEdgeId = 0;
+        for (int i = 0; i <= (nodeId & (BLOCK_SIZE - 1)); i++) readNode(node);
+    }
+
+    /**
+     * This private method allows us to decode the node following the one of a cursor, in the same block.
+     *
+     * @param node The cursor, placed after the previous node.
+     */
+    private void readNode(NodeCursor node) {
+        int expectedEdgeId = node.firstEdgeId + node.outDegree;
+        node.e += unZigZag(readVarInt(nodeData, node));
+        node.n += unZigZag(readVarInt(nodeData, node));
+        node.outDegree = readVarInt(nodeData, node);
+        node.firstEdgeId = expectedEdgeId + unZigZag(readVarInt(nodeData, node));
+    }
+
+    /**
+     * This private method allows us to decode an edge from the beginning of its block.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The decoded edge.
+     */
+    private EdgeCursor edge(int edgeId) {
+        EdgeCursor edge = new EdgeCursor();
+        edge.position = edgeBlocks[edgeId >> BLOCK_SHIFT];
+        for (int i = 0; i <= (edgeId & (BLOCK_SIZE - 1)); i++) {
+            edge.sourceNodeId += unZigZag(readVarInt(edgeData, edge));
+            long target = readVarLong(edgeData, edge);
+            edge.targetNodeId = edge.sourceNodeId + unZigZag((int) (target >>> 1));
+            edge.inverted = (target & 1) != 0;
+            edge.length = readVarInt(edgeData, edge);
+            edge.elevationGain = readVarInt(edgeData, edge);
+            edge.attributesIndex = readVarInt(edgeData, edge);
+            long profile = readVarLong(edgeData, edge);
+            edge.profileType = (int) (profile & ((1 << PROFILE_TYPE_BITS) - 1));
+            edge.firstSample = edge.nextSample + unZigZag((int) (profile >>> PROFILE_TYPE_BITS));
+            edge.nextSample = edge.firstSample + profileShorts(edge.profileType, edge.length);
+        }
+        return edge;
+    }
+
+    /**
+     * This private method allows us to know the number of shorts of the elevations taken by a profile,
+     * as the profiles of consecutive edges usually follow each other.
+     *
+     * @param profileType The type of the profile.
+     * @param lengthQ28_4 The length of the edge of the profile, in Q28.4.
+     * @return The number of shorts of the profile.
+     */
+    private static int profileShorts(int profileType, int lengthQ28_4) {
+        if (profileType == 0) return 0;
+        int quantity = 1 + (int) Math.ceil(Q28_4.asDouble(lengthQ28_4) / 2);
+        if (profileType == 1) return quantity;
+        int perShort = profileType == 2 ? Q4_4_PER_SHORT : Q0_4_PER_SHORT;
+        return 1 + (quantity - 1 + perShort - 1) / perShort;
+    }
+
+    /**
+     * This private method allows us to read a variable-length integer at the position of a cursor.
+     *
+     * @param data   The compressed data.
+     * @param cursor The cursor, placed after the integer.
+     * @return The integer read.
+     */
+    private static int readVarInt(byte[] data, Cursor cursor) {
+        return (int) readVarLong(data, cursor);
+    }
+
+    /**
+     * This private method allows us to read a variable-length long at the position of a cursor.
+     *
+     * @param data   The compressed data.
+     * @param cursor The cursor, placed after the long.
+     * @return The long read.
+     */
+    private static long readVarLong(byte[] data, Cursor cursor) {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = data[cursor.position++];
+            value |= (long) (b & (VARINT_MORE - 1)) << shift;
+            shift += VARINT_BITS;
+        } while ((b & VARINT_MORE) != 0);
+        return value;
+    }
+
+    /**
+     * This private method allows us to write a non-negative integer using as few bytes as possible.
+     *
+     * @param out   The compressed data.
+     * @param value The integer, read as unsigned.
+     */
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        writeVarLong(out, value & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * This private method allows us to write a non-negative long using as few bytes as possible.
+     *
+     * @param out   The compressed data.
+     * @param value The long.
+     */
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~(long) (VARINT_MORE - 1)) != 0) {
+            out.write((int) (value & (VARINT_MORE - 1)) | VARINT_MORE);
+            value >>>= VARINT_BITS;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * This private method allows us to map the signed integers to unsigned ones, small in absolute value
+     * integers giving small unsigned ones.
+     *
+     * @param value The signed integer.
+     * @return The unsigned integer.
+     */
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> (Integer.SIZE - 1));
+    }
+
+    /**
+     * This private method allows us to get back the signed integer mapped by zigZag.
+     *
+     * @param value The unsigned integer.
+     * @return The signed integer.
+     */
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * This private method allows us to get the Q28.4 representation of a value read from a buffer,
+     * which is exact as the value was stored in Q28.4.
+     *
+     * @param value The value.
+     * @return The value in Q28.4.
+     */
+    private static int toQ28_4(double value) {
+        return (int) Math.scalb(value, 4);
+    }
+}
@@ -0,0 +1,469 @@
+package ch.epfl.javelo.data;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * An immutable compressed set of edge identities. The identities are split in chunks of 65536 according to
+ * their 16 highest bits, each non-empty chunk storing its 16 lowest bits either in a sorted array when it
+ * contains few identities, or in a bitmap of 65536 bits otherwise.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class EdgeBitmap {
+
+    /**
+     * The number of identities of a chunk.
+     */
+    private static final int CHUNK_SIZE = 1 << Character.SIZE;
+    /**
+     * The number of longs of the bitmap of a chunk.
+     */
+    private static final int BITMAP_LONGS = CHUNK_SIZE / Long.SIZE;
+    /**
+     * The largest number of identities of a chunk stored in a sorted array, which then takes at most
+     * as much memory as a bitmap.
+     */
+    private static final int ARRAY_MAX = 4096;
+    /**
+     * The empty set.
+     */
+    private static final EdgeBitmap EMPTY = new EdgeBitmap(new char[0], new Object[0]);
+
+    private final char[] keys;
+    private final Object[] chunks;
+
+    /**
+     * This method is the private constructor of the class EdgeBitmap.
+     *
+     * @param keys   The 16 highest bits of the identities of each chunk, sorted.
+     * @param chunks The 16 lowest bits of the identities of each chunk, either a char[] or a long[].
+     */
+    private EdgeBitmap(char[] keys, Object[] chunks) {
+        this.keys = keys;
+        this.chunks = chunks;
+    }
+
+    /**
+     * A builder of an EdgeBitmap, to which the identities are added in increasing order.
+     */
+    public static final class Builder {
+        private char[] keys = new char[4];
+        private Object[] chunks = new Object[4];
+        private int chunkCount;
+        private char[] values = new char[16];
+        private int valueCount;
+        private long[] bitmap;
+        private int currentKey = -1;
+        private int lastId = -1;
+
+        /**
+         * This method allows us to add an identity to the set being built.
+         *
+         * @param id The identity, greater than the previous ones.
+         * @return This builder.
+         * @throws IllegalArgumentException (checkArgument) Throws an exception if the identity is negative or not
+         *                                  greater than the previous one.
+         */
+        public Builder add(int id) {
+            checkArgument(id > lastId);
+            lastId = id;
+            int key = id >>> Character.SIZE;
+            if (key != currentKey) {
+                flush();
+                currentKey = key;
+            }
+            char low = (char) id;
+            if (bitmap != null) {
+                bitmap[low >>> 6] |= 1L << low;
+            } else if (valueCount < ARRAY_MAX) {
+                if (valueCount == values.length) values = Arrays.copyOf(values, 2 * valueCount);
+                values[valueCount++] = low;
+            } else {
+                bitmap = toBitmap(values, valueCount);
+                bitmap[low >>> 6] |= 1L << low;
+            }
+            return this;
+        }
+
+        /**
+         * This private method allows us to store the chunk being built.
+         */
+        private void flush() {
+            if (currentKey < 0 || (bitmap == null && valueCount == 0)) return;
+            if (chunkCount == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * chunkCount);
+                chunks = Arrays.copyOf(chunks, 2 * chunkCount);
+            }
+            keys[chunkCount] = (char) currentKey;
+            chunks[chunkCount++] = bitmap != null ? bitmap : Arrays.copyOf(values, valueCount);
+            bitmap = null;
+            valueCount = 0;
+        }
+
+        /**
+         * This method allows us to build the set of the added identities.
+         *
+         * @return The set of the added identities.
+         */
+        public EdgeBitmap build() {
+            flush();
+            currentKey = -1;
+            return chunkCount == 0 ? EMPTY : new EdgeBitmap(Arrays.copyOf(keys, chunkCount),
+                    Arrays.copyOf(chunks, chunkCount));
+        }
+    }
+
+    /**
+     * This method allows us to get the empty set.
+     *
+     * @return The empty set.
+     */
+    public static EdgeBitmap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * This method allows us to get the set of the given identities.
+     *
+     * @param ids The identities, in any order and possibly repeated.
+     * @return The set of the identities.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if an identity is negative.
+     */
+    public static EdgeBitmap of(int... ids) {
+        Builder builder = new Builder();
+        IntStream.of(ids).sorted().distinct().forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * This method allows us to get the set of the identities from 0 (included) to a given bound (excluded).
+     *
+     * @param count The number of identities.
+     * @return The set of the identities smaller than count.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if count is negative.
+     */
+    public static EdgeBitmap range(int count) {
+        checkArgument(count >= 0);
+        int chunkCount = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        char[] keys = new char[chunkCount];
+        Object[] chunks = new Object[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            keys[i] = (char) i;
+            long[] bitmap = new long[BITMAP_LONGS];
+            int size = Math.min(CHUNK_SIZE, count - i * CHUNK_SIZE);
+            Arrays.fill(bitmap, 0, size / Long.SIZE, -1L);
+            if (size % Long.SIZE != 0) bitmap[size / Long.SIZE] = (1L << size) - 1;
+            chunks[i] = normalize(bitmap);
+        }
+        return new EdgeBitmap(keys, chunks);
+    }
+
+    /**
+     * This method allows us to know whether an identity belongs to this set.
+     *
+     * @param id The identity.
+     * @return True iff the identity belongs to this set.
+     */
+    public boolean contains(int id) {
+        int index = Arrays.binarySearch(keys, (char) (id >>> Character.SIZE));
+        if (id < 0 || index < 0) return false;
+        char low = (char) id;
+        return chunks[index] instanceof long[] bitmap
+                ? (bitmap[low >>> 6] & (1L << low)) != 0
+                : Arrays.binarySearch((char[]) chunks[index], low) >= 0;
+    }
+
+    /**
+     * This method allows us to know the number of identities of this set.
+     *
+     * @return The number of identities.
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (Object chunk : chunks) cardinality += cardinality(chunk);
+        return cardinality;
+    }
+
+    /**
+     * This method allows us to know whether this set is empty.
+     *
+     * @return True iff this set contains no identities.
+     */
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * This method allows us to get the identities of this set.
+     *
+     * @return The identities, in increasing order.
+     */
+    public int[] toArray() {
+        int[] ids = new int[cardinality()];
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int high = keys[i] << Character.SIZE;
+            if (chunks[i] instanceof long[] bitmap) {
+                for (int word = 0; word < BITMAP_LONGS; word++) {
+                    for (long bits = bitmap[word]; bits != 0; bits &= bits - 1)
+                        ids[count++] = high | word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                }
+            } else {
+                for (char low : (char[]) chunks[i]) ids[count++] = high | low;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * This method allows us to get the identities of this set as a stream.
+     *
+     * @return The identities, in increasing order.
+     */
+    public IntStream stream() {
+        return IntStream.of(toArray());
+    }
+
+    /**
+     * This method allows us to get the identities belonging to this set and to another one.
+     *
+     * @param that The other set.
+     * @return The intersection of the two sets.
+     */
+    public EdgeBitmap and(EdgeBitmap that) {
+        char[] newKeys = new char[Math.min(keys.length, that.keys.length)];
+        Object[] newChunks = new Object[newKeys.length];
+        int count = 0;
+        for (int i = 0, j = 0; i < keys.length && j < that.keys.length; ) {
+            if (keys[i] < that.keys[j]) i++;
+            else if (keys[i] > that.keys[j]) j++;
+            else {
+                Object chunk = and(chunks[i++], that.chunks[j++]);
+                if (chunk != null) {
+                    newKeys[count] = keys[i - 1];
+                    newChunks[count++] = chunk;
+                }
+            }
+        }
+        return of(newKeys, newChunks, count);
+    }
+
+    /**
+     * This method allows us to get the identities belonging to this set or to another one.
+     *
+     * @param that The other set.
+     * @return The union of the two sets.
+     */
+    public EdgeBitmap or(EdgeBitmap that) {
+        char[] newKeys = new char[keys.length + that.keys.length];
+        Object[] newChunks = new Object[newKeys.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < that.keys.length) {
+            if (j == that.keys.length || (i < keys.length && keys[i] < that.keys[j])) {
+                newKeys[count] = keys[i];
+                newChunks[count++] = chunks[i++];
+            } else if (i == keys.length || keys[i] > that.keys[j]) {
+                newKeys[count] = that.keys[j];
+                newChunks[count++] = that.chunks[j++];
+            } else {
+                newKeys[count] = keys[i];
+                newChunks[count++] = or(chunks[i++], that.chunks[j++]);
+            }
+        }
+        return of(newKeys, newChunks, count);
+    }
+
+    /**
+     * This method allows us to get the identities belonging to this set but not to another one.
+     *
+     * @param that The other set.
+     * @return The difference of the two sets.
+     */
+    public EdgeBitmap andNot(EdgeBitmap that) {
+        char[] newKeys = new char[keys.length];
+        Object[] newChunks = new Object[newKeys.length];
+        int count = 0;
+        for (int i = 0, j = 0; i < keys.length; i++) {
+            while (j < that.keys.length && that.keys[j] < keys[i]) j++;
+            Object chunk = j < that.keys.length && that.keys[j] == keys[i]
+                    ? andNot(chunks[i], that.chunks[j])
+                    : chunks[i];
+            if (chunk != null) {
+                newKeys[count] = keys[i];
+                newChunks[count++] = chunk;
+            }
+        }
+        return of(newKeys, newChunks, count);
+    }
+
+    /**
+     * This method allows us to get the identities smaller than a bound which do not belong to this set.
+     *
+     * @param count The number of identities, usually the number of edges of the graph.
+     * @return The complement of this set among the identities smaller than count.
+     */
+    public EdgeBitmap not(int count) {
+        return range(count).andNot(this);
+    }
+
+    /**
+     * This private method allows us to build a set from the first chunks of arrays.
+     *
+     * @param keys   The keys of the chunks.
+     * @param chunks The chunks.
+     * @param count  The number of chunks.
+     * @return The set.
+     */
+    private static EdgeBitmap of(char[] keys, Object[] chunks, int count) {
+        return count == 0 ? EMPTY : new EdgeBitmap(Arrays.copyOf(keys, count), Arrays.copyOf(chunks, count));
+    }
+
+    /**
+     * This private method allows us to know the number of identities of a chunk.
+     *
+     * @param chunk The chunk.
+     * @return The number of identities.
+     */
+    private static int cardinality(Object chunk) {
+        if (chunk instanceof char[] values) return values.length;
+        int cardinality = 0;
+        for (long word : (long[]) chunk) cardinality += Long.bitCount(word);
+        return cardinality;
+    }
+
+    /**
+     * This private method allows us to convert a sorted array of identities to a bitmap.
+     *
+     * @param values The identities.
+     * @param count  The number of identities.
+     * @return The bitmap.
+     */
+    private static long[] toBitmap(char[] values, int count) {
+        long[] bitmap = new long[BITMAP_LONGS];
+        for (int i = 0; i < count; i++) bitmap[values[i] >>> 6] |= 1L << values[i];
+        return bitmap;
+    }
+
+    /**
+     * This private method allows us to store a bitmap in the smallest form.
+     *
+     * @param bitmap The bitmap.
+     * @return Null if the bitmap is empty, a sorted array if it contains few identities, the bitmap otherwise.
+     */
+    private static Object normalize(long[] bitmap) {
+        int cardinality = cardinality(bitmap);
+        if (cardinality == 0) return null;
+        if (cardinality > ARRAY_MAX) return bitmap;
+        char[] values = new char[cardinality];
+        int count = 0;
+        for (int word = 0; word < BITMAP_LONGS; word++) {
+            for (long bits = bitmap[word]; bits != 0; bits &= bits - 1)
+                values[count++] = (char) (word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+        }
+        return values;
+    }
+
+    /**
+     * This private method allows us to intersect two chunks.
+     *
+     * @param a The first chunk.
+     * @param b The second chunk.
+     * @return The intersection, or null if it is empty.
+     */
+    private static Object and(Object a, Object b) {
+        if (a instanceof long[] bitmapA && b instanceof long[] bitmapB) {
+            long[] bitmap = new long[BITMAP_LONGS];
+            for (int i = 0; i < BITMAP_LONGS; i++) bitmap[i] = bitmapA[i] & bitmapB[i];
+            return normalize(bitmap);
+        }
+        if (a instanceof long[]) return and(b, a);
+        char[] values = (char[]) a;
+        char[] result = new char[values.length];
+        int count = 0;
+        if (b instanceof long[] bitmap) {
+            for (char value : values) if ((bitmap[value >>> 6] & (1L << value)) != 0) result[count++] = value;
+        } else {
+            char[] others = (char[]) b;
+            for (int i = 0, j = 0; i < values.length && j < others.length; ) {
+                if (values[i] < others[j]) i++;
+                else if (values[i] > others[j]) j++;
+                else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+        }
+        return count == 0 ? null : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * This private method allows us to unite two chunks.
+     *
+     * @param a The first chunk.
+     * @param b The second chunk.
+     * @return The union.
+     */
+    private static Object or(Object a, Object b) {
+        if (a instanceof char[] valuesA && b instanceof char[] valuesB) {
+            char[] result = new char[valuesA.length + valuesB.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < valuesA.length || j < valuesB.length) {
+                if (j == valuesB.length || (i < valuesA.length && valuesA[i] < valuesB[j])) result[count++] = valuesA[i++];
+                else if (i == valuesA.length || valuesA[i] > valuesB[j]) result[count++] = valuesB[j++];
+                else {
+                    result[count++] = valuesA[i++];
+                    j++;
+                }
+            }
+            return count > ARRAY_MAX ? toBitmap(result, count) : Arrays.copyOf(result, count);
+        }
+        long[] bitmap = a instanceof long[] bitmapA ? bitmapA.clone() : toBitmap((char[]) a, ((char[]) a).length);
+        if (b instanceof long[] bitmapB) {
+            for (int i = 0; i < BITMAP_LONGS; i++) bitmap[i] |= bitmapB[i];
+        } else {
+            for (char value : (char[]) b) bitmap[value >>> 6] |= 1L << value;
+        }
+        return bitmap;
+    }
+
+    /**
+     * This private method allows us to remove the identities of a chunk from another one.
+     *
+     * @param a The chunk whose identities are kept.
+     * @param b The chunk whose identities are removed.
+     * @return The difference, or null if it is empty.
+     */
+    private static Object andNot(Object a, Object b) {
+        if (a instanceof long[] bitmapA) {
+            long[] bitmap = bitmapA.clone();
+            if (b instanceof long[] bitmapB) {
+                for (int i = 0; i < BITMAP_LONGS; i++) bitmap[i] &= ~bitmapB[i];
+            } else {
+                for (char value : (char[]) b) bitmap[value >>> 6] &= ~(1L << value);
+            }
+            return normalize(bitmap);
+        }
+        char[] values = (char[]) a;
+        char[] result = new char[values.length];
+        int count = 0;
+        if (b instanceof long[] bitmap) {
+            for (char value : values) if ((bitmap[value >>> 6] & (1L << value)) == 0) result[count++] = value;
+        } else {
+            char[] others = (char[]) b;
+            int j = 0;
+            for (char value : values) {
+                while (j < others.length && others[j] < value) j++;
+                if (j == others.length || others[j] != value) result[count++] = value;
+            }
+        }
+        return count == 0 ? null : Arrays.copyOf(result, count);
+    }
+}
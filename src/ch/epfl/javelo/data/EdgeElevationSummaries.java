@@ -0,0 +1,282 @@
+package ch.epfl.javelo.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * The summaries of the profiles of all the edges of a graph, computed once from their samples so that
+ * the statistics of a route can be obtained from the identities of its edges without decoding any sample.
+ * For each edge, its descent, its lowest and highest samples and the number of pieces between two samples
+ * of each class of grade are stored in buffers, one after the other, so that the summaries can be written
+ * to a file and memory-mapped afterwards. The file starts with a key computed from the profiles of the edges,
+ * so that summaries written for another version of a graph are not used.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class EdgeElevationSummaries {
+
+    /**
+     * The grades separating two classes of grades, a grade equal to one of them belonging to the upper class.
+     */
+    private static final double[] GRADE_BOUNDS = {-0.10, -0.06, -0.03, 0, 0.03, 0.06, 0.10};
+
+    /**
+     * The number of classes of grades.
+     */
+    public static final int GRADE_CLASSES = GRADE_BOUNDS.length + 1;
+
+    /**
+     * The number of bytes used to represent the summary of an edge.
+     */
+    private static final int EDGE_BYTES = 3 * Float.BYTES + GRADE_CLASSES * Character.BYTES;
+
+    /**
+     * The number of edges whose summaries are computed by the same thread one after the other.
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * The number of bytes of the key written before the summaries.
+     */
+    private static final int KEY_BYTES = Long.BYTES;
+
+    private final long key;
+    private final FloatBuffer descents;
+    private final FloatBuffer minElevations;
+    private final FloatBuffer maxElevations;
+    private final CharBuffer gradePieces;
+
+    /**
+     * Private constructor, the summaries are built using the methods of(GraphEdges) and loadFrom(Path).
+     *
+     * @param key    The key of the edges whose profiles are summarized.
+     * @param buffer The buffer containing the descents, the lowest samples, the highest samples and
+     *               the numbers of pieces of each class of grade of the edges.
+     */
+    private EdgeElevationSummaries(long key, ByteBuffer buffer) {
+        checkArgument(buffer.capacity() % EDGE_BYTES == 0);
+        this.key = key;
+        int count = buffer.capacity() / EDGE_BYTES;
+        int floatsBytes = count * Float.BYTES;
+        this.descents = buffer.slice(0, floatsBytes).asFloatBuffer();
+        this.minElevations = buffer.slice(floatsBytes, floatsBytes).asFloatBuffer();
+        this.maxElevations = buffer.slice(2 * floatsBytes, floatsBytes).asFloatBuffer();
+        this.gradePieces = buffer.slice(3 * floatsBytes, count * GRADE_CLASSES * Character.BYTES).asCharBuffer();
+    }
+
+    /**
+     * This method allows us to compute the summaries of the profiles of all the given edges,
+     * the edges being split in chunks whose summaries are computed in parallel.
+     *
+     * @param edges The edges of a graph.
+     * @return The summaries of their profiles.
+     */
+    public static EdgeElevationSummaries of(GraphEdges edges) {
+        int count = edges.count();
+        EdgeElevationSummaries summaries =
+                new EdgeElevationSummaries(keyOf(edges), ByteBuffer.allocate(count * EDGE_BYTES));
+        IntStream.range(0, (count + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel().forEach(chunk -> {
+            float[] samples = new float[0];
+            for (int edgeId = chunk * CHUNK_SIZE; edgeId < Math.min(count, (chunk + 1) * CHUNK_SIZE); edgeId++) {
+                int sampleCount = edges.sampleCount(edgeId);
+                if (samples.length < sampleCount) samples = new float[sampleCount];
+                edges.profileSamples(edgeId, samples, 0);
+                summaries.summarize(edgeId, samples, sampleCount, edges.length(edgeId));
+            }
+        });
+        return summaries;
+    }
+
+    /**
+     * This private method allows us to compute the key of the edges of a graph, which changes when the graph
+     * is imported again with other profiles: it combines the number of samples with the identities of
+     * the profiles, which give the type of compression and the first sample of each edge.
+     *
+     * @param edges The edges of a graph.
+     * @return The key of the edges.
+     */
+    private static long keyOf(GraphEdges edges) {
+        long key = edges.elevations().capacity();
+        IntBuffer profileIds = edges.profileIds();
+        for (int i = 0; i < profileIds.capacity(); i++) key = 31 * key + profileIds.get(i);
+        return key;
+    }
+
+    /**
+     * This private method allows us to compute and store the summary of the profile of an edge.
+     * An edge with a single sample, whose length is 0, has a lowest and a highest sample but no piece.
+     *
+     * @param edgeId      The identity of the edge.
+     * @param samples     The array containing the samples of the edge from its index 0.
+     * @param sampleCount The number of samples of the edge, 0 if it has no profile.
+     * @param length      The length of the edge.
+     */
+    private void summarize(int edgeId, float[] samples, int sampleCount, double length) {
+        if (sampleCount == 0) {
+            minElevations.put(edgeId, Float.NaN);
+            maxElevations.put(edgeId, Float.NaN);
+            return;
+        }
+        double pieceLength = sampleCount < 2 ? 0 : length / (sampleCount - 1);
+        float min = samples[0];
+        float max = samples[0];
+        double descent = 0;
+        int[] pieces = new int[GRADE_CLASSES];
+        for (int i = 1; i < sampleCount; i++) {
+            float difference = samples[i] - samples[i - 1];
+            if (difference < 0) descent -= difference;
+            min = Math.min(min, samples[i]);
+            max = Math.max(max, samples[i]);
+            pieces[gradeClassOf(difference / pieceLength)] += 1;
+        }
+        descents.put(edgeId, (float) descent);
+        minElevations.put(edgeId, min);
+        maxElevations.put(edgeId, max);
+        for (int c = 0; c < GRADE_CLASSES; c++) gradePieces.put(edgeId * GRADE_CLASSES + c, (char) pieces[c]);
+    }
+
+    /**
+     * This method allows us to open summaries previously written with writeTo, by memory-mapping their file.
+     *
+     * @param path The path of the file.
+     * @return The summaries contained in the file.
+     * @throws IOException Throws an exception if it was unable to open the given file.
+     */
+    public static EdgeElevationSummaries loadFrom(Path path) throws IOException {
+        ByteBuffer buffer = GraphFiles.map(path);
+        checkArgument(buffer.capacity() >= KEY_BYTES);
+        return new EdgeElevationSummaries(buffer.getLong(0), buffer.slice(KEY_BYTES, buffer.capacity() - KEY_BYTES));
+    }
+
+    /**
+     * This method allows us to write these summaries to a file, so that they can later be opened with loadFrom.
+     *
+     * @param path The path of the file.
+     * @throws IOException Throws an exception if it was unable to write the given file.
+     */
+    public void writeTo(Path path) throws IOException {
+        int count = count();
+        ByteBuffer file = ByteBuffer.allocate(KEY_BYTES + count * EDGE_BYTES).putLong(0, key);
+        ByteBuffer bytes = file.slice(KEY_BYTES, count * EDGE_BYTES);
+        int floatsBytes = count * Float.BYTES;
+        bytes.slice(0, floatsBytes).asFloatBuffer().put(descents.duplicate().rewind());
+        bytes.slice(floatsBytes, floatsBytes).asFloatBuffer().put(minElevations.duplicate().rewind());
+        bytes.slice(2 * floatsBytes, floatsBytes).asFloatBuffer().put(maxElevations.duplicate().rewind());
+        bytes.slice(3 * floatsBytes, count * GRADE_CLASSES * Character.BYTES).asCharBuffer()
+                .put(gradePieces.duplicate().rewind());
+        GraphFiles.write(path, file);
+    }
+
+    /**
+     * This method allows us to know if these summaries were computed from the given edges, and not from
+     * another version of their graph.
+     *
+     * @param edges The edges of a graph.
+     * @return True if the summaries have the number and the key of the edges.
+     */
+    public boolean areSummariesOf(GraphEdges edges) {
+        return count() == edges.count() && key == keyOf(edges);
+    }
+
+    /**
+     * This method allows us to get the number of edges whose summaries are stored.
+     *
+     * @return The number of edges.
+     */
+    public int count() {
+        return descents.capacity();
+    }
+
+    /**
+     * This method allows us to get the descent of an edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The sum of the altitude losses between two samples of the edge, positive, 0 if it has no profile.
+     */
+    public double descent(int edgeId) {
+        return descents.get(edgeId);
+    }
+
+    /**
+     * This method allows us to get the lowest sample of an edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The lowest sample of the edge, NaN if it has no profile.
+     */
+    public double minElevation(int edgeId) {
+        return minElevations.get(edgeId);
+    }
+
+    /**
+     * This method allows us to get the highest sample of an edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The highest sample of the edge, NaN if it has no profile.
+     */
+    public double maxElevation(int edgeId) {
+        return maxElevations.get(edgeId);
+    }
+
+    /**
+     * This method allows us to get the number of pieces between two samples of an edge having a class of grade.
+     *
+     * @param edgeId     The identity of the edge.
+     * @param gradeClass The class of grade, between 0 and GRADE_CLASSES excluded.
+     * @return The number of pieces of the edge whose grade belongs to the class.
+     */
+    public int gradePieces(int edgeId, int gradeClass) {
+        return gradePieces.get(edgeId * GRADE_CLASSES + gradeClass);
+    }
+
+    /**
+     * This method allows us to get the class of a grade.
+     *
+     * @param grade The grade, as a ratio.
+     * @return The class of the grade, from 0 for the steepest descents to GRADE_CLASSES - 1 for the steepest
+     * ascents.
+     */
+    public static int gradeClassOf(double grade) {
+        int gradeClass = 0;
+        while (gradeClass < GRADE_BOUNDS.length && grade >= GRADE_BOUNDS[gradeClass]) gradeClass++;
+        return gradeClass;
+    }
+
+    /**
+     * This method allows us to aggregate the summaries of the edges of a route, without decoding any sample.
+     *
+     * @param edges   The edges of the graph, giving the length and the elevation gain of each edge.
+     * @param edgeIds The identities of the edges of the route, in order.
+     * @return The summary of the route.
+     */
+    public ElevationSummary summaryOf(GraphEdges edges, int[] edgeIds) {
+        double length = 0;
+        double ascent = 0;
+        double descent = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double[] gradeLengths = new double[GRADE_CLASSES];
+        for (int edgeId : edgeIds) {
+            double edgeLength = edges.length(edgeId);
+            length += edgeLength;
+            int sampleCount = edges.sampleCount(edgeId);
+            if (sampleCount == 0) continue;
+            ascent += edges.elevationGain(edgeId);
+            descent += descent(edgeId);
+            min = Math.min(min, minElevation(edgeId));
+            max = Math.max(max, maxElevation(edgeId));
+            if (sampleCount < 2) continue;
+            double pieceLength = edgeLength / (sampleCount - 1);
+            for (int c = 0; c < GRADE_CLASSES; c++) gradeLengths[c] += gradePieces(edgeId, c) * pieceLength;
+        }
+        if (min > max) min = max = Double.NaN;
+        return new ElevationSummary(length, ascent, descent, min, max, gradeLengths);
+    }
+}
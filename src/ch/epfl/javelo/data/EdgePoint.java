@@ -0,0 +1,17 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.projection.PointCh;
+
+/**
+ * Record EdgePoint represents a point located somewhere along an edge of the graph.
+ *
+ * @param edgeId              The identity of the edge.
+ * @param fromNodeId          The identity of the node the edge is leaving.
+ * @param point               The point on the edge.
+ * @param position            The position of the point along the edge, in meters from its starting node.
+ * @param distanceToReference The distance (in meters) between the point and the reference.
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public record EdgePoint(int edgeId, int fromNodeId, PointCh point, double position, double distanceToReference) {
+}
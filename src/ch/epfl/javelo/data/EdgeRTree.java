@@ -0,0 +1,310 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.Q28_4;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A packed R-tree over the edges of a graph, bulk loaded with the Sort-Tile-Recursive algorithm,
+ * allowing us to find the closest point of any edge to a given point.
+ * <p>
+ * The tree is stored in an IntBuffer which can be written to a file and memory-mapped back.
+ * The buffer starts with the number of levels L followed by the L + 1 indexes of the first entry of each level,
+ * the leaves being the level 0. Then come the entries, each one made of 6 integers:
+ * for a leaf, the Q28.4 coordinates of both extremities of the edge, its identity and the identity of its
+ * starting node; for a node, the Q28.4 coordinates of its bounding box, the index of its first child and
+ * the number of its children.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class EdgeRTree {
+
+    /**
+     * The maximum number of children of a node of the tree.
+     */
+    private static final int NODE_CAPACITY = 16;
+
+    /**
+     * The number of integers used to represent an entry.
+     */
+    private static final int ENTRY_INTS = 6;
+
+    /**
+     * The offsets of the fields of an entry.
+     */
+    private static final int OFFSET_MIN_E = 0, OFFSET_MIN_N = 1, OFFSET_MAX_E = 2, OFFSET_MAX_N = 3;
+    private static final int OFFSET_REF = 4, OFFSET_COUNT = 5;
+
+    /**
+     * The length in meters of one unit of a Q28.4 coordinate.
+     */
+    private static final double UNIT = Q28_4.asDouble(1);
+
+    private final Graph graph;
+    private final IntBuffer buffer;
+    private final int levels;
+
+    /**
+     * The state of a search for the closest point, created by each call of closestPoint so that several
+     * threads can search the same tree at the same time.
+     */
+    private static final class Search {
+        private double bestDistance;
+        private int bestEntry = -1;
+        private double bestFraction;
+    }
+
+    /**
+     * The constructor of the tree.
+     *
+     * @param graph  The graph whose edges are contained in the tree.
+     * @param buffer The buffer containing the tree, in the format described above.
+     */
+    public EdgeRTree(Graph graph, IntBuffer buffer) {
+        this.graph = graph;
+        this.buffer = buffer;
+        this.levels = buffer.get(0);
+    }
+
+    /**
+     * This method allows us to build the tree of all the edges of a given graph.
+     *
+     * @param graph The graph.
+     * @return The tree containing every edge of the graph.
+     */
+    public static EdgeRTree of(Graph graph) {
+        int edgeCount = 0;
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) edgeCount += graph.nodeOutDegree(nodeId);
+
+        int[] leaves = new int[edgeCount * ENTRY_INTS];
+        int index = 0;
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            PointCh from = graph.nodePoint(nodeId);
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                PointCh to = graph.nodePoint(graph.edgeTargetNodeId(edgeId));
+                leaves[index + OFFSET_MIN_E] = toQ28_4(from.e());
+                leaves[index + OFFSET_MIN_N] = toQ28_4(from.n());
+                leaves[index + OFFSET_MAX_E] = toQ28_4(to.e());
+                leaves[index + OFFSET_MAX_N] = toQ28_4(to.n());
+                leaves[index + OFFSET_REF] = edgeId;
+                leaves[index + OFFSET_COUNT] = nodeId;
+                index += ENTRY_INTS;
+            }
+        }
+
+        int[][] levelEntries = new int[Math.max(1, levelCount(edgeCount))][];
+        levelEntries[0] = sortTileRecursive(leaves);
+        int start = 0;
+        for (int level = 1; level < levelEntries.length; level++) {
+            int[] children = levelEntries[level - 1];
+            int childCount = children.length / ENTRY_INTS;
+            int[] parents = new int[Math2.ceilDiv(childCount, NODE_CAPACITY) * ENTRY_INTS];
+            for (int p = 0; p < parents.length / ENTRY_INTS; p++) {
+                int first = p * NODE_CAPACITY;
+                int count = Math.min(NODE_CAPACITY, childCount - first);
+                int minE = Integer.MAX_VALUE, minN = Integer.MAX_VALUE;
+                int maxE = Integer.MIN_VALUE, maxN = Integer.MIN_VALUE;
+                for (int c = first; c < first + count; c++) {
+                    int base = c * ENTRY_INTS;
+                    minE = Math.min(minE, Math.min(children[base + OFFSET_MIN_E], children[base + OFFSET_MAX_E]));
+                    maxE = Math.max(maxE, Math.max(children[base + OFFSET_MIN_E], children[base + OFFSET_MAX_E]));
+                    minN = Math.min(minN, Math.min(children[base + OFFSET_MIN_N], children[base + OFFSET_MAX_N]));
+                    maxN = Math.max(maxN, Math.max(children[base + OFFSET_MIN_N], children[base + OFFSET_MAX_N]));
+                }
+                int base = p * ENTRY_INTS;
+                parents[base + OFFSET_MIN_E] = minE;
+                parents[base + OFFSET_MIN_N] = minN;
+                parents[base + OFFSET_MAX_E] = maxE;
+                parents[base + OFFSET_MAX_N] = maxN;
+                parents[base + OFFSET_REF] = start + first;
+                parents[base + OFFSET_COUNT] = count;
+            }
+            start += childCount;
+            levelEntries[level] = sortTileRecursive(parents);
+        }
+
+        int levels = levelEntries.length;
+        int totalEntries = 0;
+        for (int[] entries : levelEntries) totalEntries += entries.length / ENTRY_INTS;
+        IntBuffer buffer = IntBuffer.allocate(levels + 2 + totalEntries * ENTRY_INTS);
+        buffer.put(levels);
+        int first = 0;
+        for (int[] entries : levelEntries) {
+            buffer.put(first);
+            first += entries.length / ENTRY_INTS;
+        }
+        buffer.put(first);
+        for (int[] entries : levelEntries) buffer.put(entries);
+        return new EdgeRTree(graph, buffer.rewind());
+    }
+
+    /**
+     * This method allows us to open a tree previously written to a file, by memory-mapping it.
+     *
+     * @param graph The graph whose edges are contained in the tree.
+     * @param path  The path of the file.
+     * @return The tree contained in the file.
+     * @throws IOException Throws an exception if it was unable to open the given file.
+     */
+    public static EdgeRTree loadFrom(Graph graph, Path path) throws IOException {
+        return new EdgeRTree(graph, GraphFiles.map(path).asIntBuffer());
+    }
+
+    /**
+     * This method allows us to write this tree to a file, so that it can later be opened with loadFrom.
+     *
+     * @param path The path of the file.
+     * @throws IOException Throws an exception if it was unable to write the given file.
+     */
+    public void writeTo(Path path) throws IOException {
+        GraphFiles.write(path, buffer);
+    }
+
+    /**
+     * This method allows us to find the closest point of any edge to a given point at a given distance.
+     *
+     * @param point          The point of reference.
+     * @param searchDistance The search distance.
+     * @return The closest point on an edge, or null if no edge is at the search distance.
+     */
+    public EdgePoint closestPoint(PointCh point, double searchDistance) {
+        checkArgument(searchDistance >= 0);
+        Search search = new Search();
+        search.bestDistance = searchDistance * searchDistance;
+        int top = levels - 1;
+        int first = buffer.get(1 + top);
+        search(search, top, first, buffer.get(2 + top) - first, point.e(), point.n());
+        if (search.bestEntry == -1) return null;
+
+        double bestFraction = search.bestFraction;
+        int base = entryBase(search.bestEntry);
+        double fromE = buffer.get(base + OFFSET_MIN_E) * UNIT, fromN = buffer.get(base + OFFSET_MIN_N) * UNIT;
+        double toE = buffer.get(base + OFFSET_MAX_E) * UNIT, toN = buffer.get(base + OFFSET_MAX_N) * UNIT;
+        int edgeId = buffer.get(base + OFFSET_REF);
+        PointCh closest = new PointCh(Math2.interpolate(fromE, toE, bestFraction),
+                Math2.interpolate(fromN, toN, bestFraction));
+        return new EdgePoint(edgeId, buffer.get(base + OFFSET_COUNT), closest,
+                bestFraction * graph.edgeLength(edgeId), Math.sqrt(search.bestDistance));
+    }
+
+    /**
+     * This method looks recursively through the given entries for an edge closer than the best found so far.
+     *
+     * @param search The state of the search, updated when a closer edge is found.
+     * @param level  The level of the entries.
+     * @param first  The index of the first entry.
+     * @param count  The number of entries.
+     * @param e      The east coordinate of the point of reference.
+     * @param n      The north coordinate of the point of reference.
+     */
+    private void search(Search search, int level, int first, int count, double e, double n) {
+        for (int entry = first; entry < first + count; entry++) {
+            int base = entryBase(entry);
+            double aE = buffer.get(base + OFFSET_MIN_E) * UNIT, aN = buffer.get(base + OFFSET_MIN_N) * UNIT;
+            double bE = buffer.get(base + OFFSET_MAX_E) * UNIT, bN = buffer.get(base + OFFSET_MAX_N) * UNIT;
+            double dE = Math.max(0, Math.max(Math.min(aE, bE) - e, e - Math.max(aE, bE)));
+            double dN = Math.max(0, Math.max(Math.min(aN, bN) - n, n - Math.max(aN, bN)));
+            if (Math2.squaredNorm(dE, dN) > search.bestDistance) continue;
+
+            if (level > 0) {
+                search(search, level - 1, buffer.get(base + OFFSET_REF), buffer.get(base + OFFSET_COUNT), e, n);
+            } else {
+                double squaredLength = Math2.squaredNorm(bE - aE, bN - aN);
+                double fraction = squaredLength == 0 ? 0 :
+                        Math2.clamp(0, Math2.dotProduct(e - aE, n - aN, bE - aE, bN - aN) / squaredLength, 1);
+                double distance = Math2.squaredNorm(Math2.interpolate(aE, bE, fraction) - e,
+                        Math2.interpolate(aN, bN, fraction) - n);
+                if (distance < search.bestDistance || (distance == search.bestDistance && search.bestEntry == -1)) {
+                    search.bestDistance = distance;
+                    search.bestEntry = entry;
+                    search.bestFraction = fraction;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method allows us to get the index inside the buffer of the first integer of an entry.
+     *
+     * @param entry The index of the entry.
+     * @return The index of its first integer.
+     */
+    private int entryBase(int entry) {
+        return levels + 2 + entry * ENTRY_INTS;
+    }
+
+    /**
+     * This method allows us to compute the number of levels of a tree containing the given number of leaves.
+     *
+     * @param leafCount The number of leaves.
+     * @return The number of levels, the last one containing a single node.
+     */
+    private static int levelCount(int leafCount) {
+        int levels = 1;
+        for (int count = leafCount; count > 1; count = Math2.ceilDiv(count, NODE_CAPACITY)) levels++;
+        return levels;
+    }
+
+    /**
+     * This method allows us to order entries with the Sort-Tile-Recursive algorithm:
+     * they are sorted by east coordinate, cut into vertical slices, and each slice is sorted by north coordinate,
+     * so that each group of NODE_CAPACITY consecutive entries covers a small area.
+     *
+     * @param entries The entries to order.
+     * @return The ordered entries.
+     */
+    private static int[] sortTileRecursive(int[] entries) {
+        int count = entries.length / ENTRY_INTS;
+        int pages = Math2.ceilDiv(count, NODE_CAPACITY);
+        int sliceSize = (int) Math.ceil(Math.sqrt(pages)) * NODE_CAPACITY;
+
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) keys[i] = sortKey(entries, i, OFFSET_MIN_E, OFFSET_MAX_E);
+        Arrays.sort(keys);
+        for (int start = 0; start < count; start += sliceSize) {
+            int end = Math.min(count, start + sliceSize);
+            for (int i = start; i < end; i++) keys[i] = sortKey(entries, (int) keys[i], OFFSET_MIN_N, OFFSET_MAX_N);
+            Arrays.sort(keys, start, end);
+        }
+
+        int[] sorted = new int[entries.length];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(entries, (int) keys[i] * ENTRY_INTS, sorted, i * ENTRY_INTS, ENTRY_INTS);
+        }
+        return sorted;
+    }
+
+    /**
+     * This method allows us to build a key sorting the entries by the center of one of their coordinates,
+     * the index of the entry being stored in the lower 32 bits.
+     *
+     * @param entries The entries.
+     * @param entry   The index of the entry.
+     * @param offset1 The offset of the first bound of the coordinate.
+     * @param offset2 The offset of the second bound of the coordinate.
+     * @return The key.
+     */
+    private static long sortKey(int[] entries, int entry, int offset1, int offset2) {
+        long center = (long) entries[entry * ENTRY_INTS + offset1] + entries[entry * ENTRY_INTS + offset2];
+        return (center << Integer.SIZE) | entry;
+    }
+
+    /**
+     * This method allows us to convert a coordinate to its Q28.4 representation.
+     *
+     * @param coordinate The coordinate in meters.
+     * @return Its Q28.4 representation.
+     */
+    private static int toQ28_4(double coordinate) {
+        return (int) Math.round(coordinate / UNIT);
+    }
+}
@@ -0,0 +1,23 @@
+package ch.epfl.javelo.data;
+
+/**
+ * A function called for each edge of a graph during a scan, receiving the data of the edge
+ * as primitive values so that no object is created per edge.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+@FunctionalInterface
+public interface EdgeVisitor {
+
+    /**
+     * This method allows us to visit an edge.
+     *
+     * @param edgeId          The identity of the edge.
+     * @param fromNodeId      The identity of the node the edge leaves.
+     * @param toNodeId        The identity of the node the edge reaches.
+     * @param lengthQ28_4     The length of the edge in meter, in Q28.4.
+     * @param attributesIndex The index of the set of attributes of the edge inside attributes.bin.
+     */
+    void visit(int edgeId, int fromNodeId, int toNodeId, int lengthQ28_4, int attributesIndex);
+}
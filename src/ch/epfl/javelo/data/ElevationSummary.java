@@ -0,0 +1,46 @@
+package ch.epfl.javelo.data;
+
+/**
+ * Record ElevationSummary represent the statistics of the profile of a route, aggregated from the summaries
+ * of its edges.
+ *
+ * @param length       The length of the route, in meters.
+ * @param ascent       The sum of the elevation gains of the edges, in meters.
+ * @param descent      The sum of the descents of the edges, positive, in meters.
+ * @param minElevation The lowest sample of the edges, NaN if none of them has a profile.
+ * @param maxElevation The highest sample of the edges, NaN if none of them has a profile.
+ * @param gradeLengths The length of the route, in meters, whose grade belongs to each class
+ *                     of EdgeElevationSummaries, the edges without profile being counted in none of them.
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public record ElevationSummary(double length, double ascent, double descent, double minElevation,
+                               double maxElevation, double[] gradeLengths) {
+
+    /**
+     * Compact constructor, copying the lengths of the classes of grades.
+     */
+    public ElevationSummary {
+        gradeLengths = gradeLengths.clone();
+    }
+
+    /**
+     * This method allows us to get the length of the route whose grade belongs to each class.
+     *
+     * @return A copy of the lengths, in meters.
+     */
+    @Override
+    public double[] gradeLengths() {
+        return gradeLengths.clone();
+    }
+
+    /**
+     * This method allows us to get the length of the route whose grade belongs to a class.
+     *
+     * @param gradeClass The class of grade, between 0 and EdgeElevationSummaries.GRADE_CLASSES excluded.
+     * @return The length, in meters.
+     */
+    public double gradeLength(int gradeClass) {
+        return gradeLengths[gradeClass];
+    }
+}
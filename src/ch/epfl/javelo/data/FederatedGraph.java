@@ -0,0 +1,449 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.DoubleUnaryOperator;
+
+import static ch.epfl.javelo.Math2.clamp;
+import static ch.epfl.javelo.Preconditions.checkArgument;
+import static ch.epfl.javelo.projection.SwissBounds.*;
+
+/**
+ * A graph made of the graphs of several directories, called regions, whose nodes and edges are numbered
+ * one region after the other. Only the sizes of the files of the regions and the sectors containing nodes
+ * are read when it is opened, each region being mapped in memory the first time one of its nodes or edges
+ * is accessed.
+ * <p>
+ * A node of a region lying at the same position as a node of another region, as happens on the border of
+ * two regions extracted from the same data, gets an additional leaving edge of length zero towards it,
+ * so that routes can go from one region to the other. When a position is shared by more than two regions,
+ * the nodes are linked in the order of the regions, the last one being linked to the first one.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class FederatedGraph implements RoutingGraph {
+
+    /**
+     * The number of bytes taken by a node in the file of the nodes.
+     */
+    private static final int NODE_BYTES = 3 * Integer.BYTES;
+    /**
+     * The number of bytes taken by an edge in the file of the edges.
+     */
+    private static final int EDGE_BYTES = Integer.BYTES + 3 * Short.BYTES;
+    /**
+     * The number of bytes taken by a sector in the file of the sectors.
+     */
+    private static final int SECTOR_BYTES = Integer.BYTES + Short.BYTES;
+    /**
+     * The offset of the number of nodes of a sector.
+     */
+    private static final int SECTOR_COUNT_OFFSET = Integer.BYTES;
+    /**
+     * The number of sectors by side of the Swiss cartography.
+     */
+    private static final int SECTOR_BY_SIDE = 128;
+    /**
+     * The largest distance, in meters, between two nodes of different regions considered at the same position,
+     * which is the precision of the coordinates of the nodes.
+     */
+    private static final double STITCH_DISTANCE = 1d / 16;
+    /**
+     * The value used for the nodes whose link to another region has not been searched yet.
+     */
+    private static final int UNKNOWN_STITCH = -2;
+    /**
+     * The attributes of the edges linking two regions.
+     */
+    private static final AttributeSet STITCH_ATTRIBUTES = new AttributeSet(0);
+
+    private final List<Path> basePaths;
+    private final int[] nodeOffsets;
+    private final int[] edgeOffsets;
+    private final long[][] occupiedSectors;
+    private final AtomicReferenceArray<Graph> regions;
+    private final AtomicReferenceArray<int[]> stitches;
+
+    /**
+     * This method is the private constructor of the class FederatedGraph.
+     *
+     * @param basePaths       The directories of the regions.
+     * @param nodeOffsets     The identity of the first node of each region, followed by the number of nodes.
+     * @param edgeOffsets     The identity of the first edge of each region, followed by the number of edges
+     *                        of the regions.
+     * @param occupiedSectors The set of the sectors containing nodes of each region, one bit per sector.
+     */
+    private FederatedGraph(List<Path> basePaths, int[] nodeOffsets, int[] edgeOffsets, long[][] occupiedSectors) {
+        this.basePaths = basePaths;
+        this.nodeOffsets = nodeOffsets;
+        this.edgeOffsets = edgeOffsets;
+        this.occupiedSectors = occupiedSectors;
+        this.regions = new AtomicReferenceArray<>(basePaths.size());
+        this.stitches = new AtomicReferenceArray<>(basePaths.size());
+    }
+
+    /**
+     * This method allows us to open the graph made of the graphs of the given directories, without mapping them.
+     *
+     * @param basePaths The directories of the regions, in the order in which their nodes and edges are numbered.
+     * @return The graph made of the graphs of the given directories.
+     * @throws IOException              Throws an exception if it was unable to read the files of a region.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if there are no directories,
+     *                                  or if the identities of the nodes and edges would not fit an int.
+     */
+    public static FederatedGraph loadFrom(List<Path> basePaths) throws IOException {
+        checkArgument(!basePaths.isEmpty());
+        int count = basePaths.size();
+        int[] nodeOffsets = new int[count + 1];
+        int[] edgeOffsets = new int[count + 1];
+        long[][] occupiedSectors = new long[count][];
+        long nodeCount = 0;
+        long edgeCount = 0;
+        for (int region = 0; region < count; region++) {
+            Path basePath = basePaths.get(region);
+            nodeCount += Files.size(basePath.resolve(GraphFiles.NODES)) / NODE_BYTES;
+            edgeCount += Files.size(basePath.resolve(GraphFiles.EDGES)) / EDGE_BYTES;
+            // The edges linking the regions are numbered after the others, one per node
+            checkArgument(edgeCount + nodeCount <= Integer.MAX_VALUE);
+            nodeOffsets[region + 1] = (int) nodeCount;
+            edgeOffsets[region + 1] = (int) edgeCount;
+            occupiedSectors[region] = occupiedSectors(basePath.resolve(GraphFiles.SECTORS));
+        }
+        return new FederatedGraph(List.copyOf(basePaths), nodeOffsets, edgeOffsets, occupiedSectors);
+    }
+
+    /**
+     * This private method allows us to read the sectors of a region containing at least one node.
+     *
+     * @param path The path of the file of the sectors.
+     * @return The set of the sectors containing nodes, one bit per sector.
+     * @throws IOException Throws an exception if it was unable to read the file.
+     */
+    private static long[] occupiedSectors(Path path) throws IOException {
+        ByteBuffer sectors = ByteBuffer.wrap(Files.readAllBytes(path));
+        long[] occupied = new long[SECTOR_BY_SIDE * SECTOR_BY_SIDE / Long.SIZE];
+        for (int sector = 0; sector < SECTOR_BY_SIDE * SECTOR_BY_SIDE; sector++) {
+            if (sectors.getShort(sector * SECTOR_BYTES + SECTOR_COUNT_OFFSET) != 0)
+                occupied[sector / Long.SIZE] |= 1L << sector;
+        }
+        return occupied;
+    }
+
+    /**
+     * This method allows us to know the number of regions of this graph.
+     *
+     * @return The number of regions.
+     */
+    public int regionCount() {
+        return basePaths.size();
+    }
+
+    /**
+     * This method allows us to know whether a region has already been mapped in memory.
+     *
+     * @param regionIndex The index of the region.
+     * @return True iff the region has been mapped.
+     */
+    public boolean regionIsLoaded(int regionIndex) {
+        return regions.get(regionIndex) != null;
+    }
+
+    /**
+     * This method allows us to get the graph of a region, mapping it on the first call.
+     *
+     * @param regionIndex The index of the region.
+     * @return The graph of the region, whose identities are local to it.
+     * @throws UncheckedIOException Throws an exception if it was unable to open the files of the region.
+     */
+    public Graph region(int regionIndex) {
+        Graph graph = regions.get(regionIndex);
+        if (graph == null) {
+            synchronized (this) {
+                if (regions.get(regionIndex) == null) {
+                    try {
+                        graph = Graph.loadFrom(basePaths.get(regionIndex));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    int[] regionStitches = new int[graph.nodeCount()];
+                    Arrays.fill(regionStitches, UNKNOWN_STITCH);
+                    stitches.set(regionIndex, regionStitches);
+                    regions.set(regionIndex, graph);
+                }
+                graph = regions.get(regionIndex);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * This method allows us to get the index of the region containing the given node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The index of the region of the node.
+     */
+    public int regionOfNode(int nodeId) {
+        return regionOf(nodeOffsets, nodeId);
+    }
+
+    /**
+     * This private method allows us to find the last region whose first identity is smaller or equal
+     * to the given one, which skips the empty regions.
+     *
+     * @param offsets The first identity of each region, followed by the total.
+     * @param id      The identity of the node or edge.
+     * @return The index of the region containing the identity.
+     */
+    private static int regionOf(int[] offsets, int id) {
+        int low = 0;
+        int high = offsets.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= id) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+
+    /**
+     * This private method allows us to know whether a region has nodes in the sectors of a square area.
+     *
+     * @param regionIndex The index of the region.
+     * @param center      The center of the square.
+     * @param distance    The distance from the center to the sides of the square.
+     * @return True iff one of the sectors of the area contains nodes of the region.
+     */
+    private boolean occupiesArea(int regionIndex, PointCh center, double distance) {
+        double sectorWidth = WIDTH / SECTOR_BY_SIDE;
+        double sectorHeight = HEIGHT / SECTOR_BY_SIDE;
+        int minX = sectorCoordinate((center.e() - distance - MIN_E) / sectorWidth);
+        int maxX = sectorCoordinate((center.e() + distance - MIN_E) / sectorWidth);
+        int minY = sectorCoordinate((center.n() - distance - MIN_N) / sectorHeight);
+        int maxY = sectorCoordinate((center.n() + distance - MIN_N) / sectorHeight);
+        long[] occupied = occupiedSectors[regionIndex];
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int sector = y * SECTOR_BY_SIDE + x;
+                if ((occupied[sector / Long.SIZE] & (1L << sector)) != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This private method allows us to get the index of the row or column of sectors containing a coordinate.
+     *
+     * @param coordinate The coordinate, in number of sectors from the border of the cartography.
+     * @return The index of the row or column, between 0 and 127.
+     */
+    private static int sectorCoordinate(double coordinate) {
+        return (int) clamp(0, Math.floor(coordinate), SECTOR_BY_SIDE - 1);
+    }
+
+    /**
+     * This private method allows us to get the node of another region at the same position as the given node,
+     * searching it on the first call.
+     *
+     * @param nodeId The identity of the node.
+     * @return The identity of the node of the next region sharing its position, or -1 if there is none.
+     */
+    private int stitchTarget(int nodeId) {
+        int regionIndex = regionOfNode(nodeId);
+        Graph graph = region(regionIndex);
+        int localId = nodeId - nodeOffsets[regionIndex];
+        int[] regionStitches = stitches.get(regionIndex);
+        int target = regionStitches[localId];
+        if (target == UNKNOWN_STITCH) {
+            PointCh point = graph.nodePoint(localId);
+            target = -1;
+            for (int i = 1; i < regionCount() && target == -1; i++) {
+                int otherIndex = (regionIndex + i) % regionCount();
+                if (!occupiesArea(otherIndex, point, STITCH_DISTANCE)) continue;
+                int otherId = region(otherIndex).nodeClosestTo(point, STITCH_DISTANCE);
+                if (otherId != -1) target = nodeOffsets[otherIndex] + otherId;
+            }
+            regionStitches[localId] = target;
+        }
+        return target;
+    }
+
+    /**
+     * This private method allows us to know whether an edge links two regions.
+     *
+     * @param edgeId The identity of the edge.
+     * @return True iff the edge links two regions.
+     */
+    private boolean isStitch(int edgeId) {
+        return edgeId >= edgeOffsets[regionCount()];
+    }
+
+    /**
+     * This method allows us to know the number of nodes in all the regions.
+     *
+     * @return The number of nodes in this graph.
+     */
+    @Override
+    public int nodeCount() {
+        return nodeOffsets[regionCount()];
+    }
+
+    /**
+     * This method allows us to get the position of the given node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The position of the given node.
+     */
+    @Override
+    public PointCh nodePoint(int nodeId) {
+        int regionIndex = regionOfNode(nodeId);
+        return region(regionIndex).nodePoint(nodeId - nodeOffsets[regionIndex]);
+    }
+
+    /**
+     * This method allows us to get the number of leaving edges of the given node, including the edge
+     * linking it to another region if there is one.
+     *
+     * @param nodeId The identity of the node.
+     * @return The number of leaving edges of this node.
+     */
+    @Override
+    public int nodeOutDegree(int nodeId) {
+        int regionIndex = regionOfNode(nodeId);
+        int degree = region(regionIndex).nodeOutDegree(nodeId - nodeOffsets[regionIndex]);
+        return stitchTarget(nodeId) == -1 ? degree : degree + 1;
+    }
+
+    /**
+     * This method allows us to get the identity of a leaving edge with the id of its node and
+     * its index in the list of edges leaving this specific node, the edge linking the node to another
+     * region, if any, coming after the edges of its region.
+     *
+     * @param nodeId    The identity of the node.
+     * @param edgeIndex The index of the edge in the list of edges leaving this specific node.
+     * @return The identity of the given edge.
+     */
+    @Override
+    public int nodeOutEdgeId(int nodeId, int edgeIndex) {
+        int regionIndex = regionOfNode(nodeId);
+        Graph graph = region(regionIndex);
+        int localId = nodeId - nodeOffsets[regionIndex];
+        return edgeIndex < graph.nodeOutDegree(localId)
+                ? edgeOffsets[regionIndex] + graph.nodeOutEdgeId(localId, edgeIndex)
+                : edgeOffsets[regionCount()] + nodeId;
+    }
+
+    /**
+     * This method allows us to determine the closest node to a given point at a given distance,
+     * only mapping the regions having nodes in the sectors around the point.
+     *
+     * @param point          The point from which we're trying to determine the closest node.
+     * @param searchDistance The search distance.
+     * @return The identity of the closest node to the given point, or -1 if no nodes satisfy criteria.
+     */
+    @Override
+    public int nodeClosestTo(PointCh point, double searchDistance) {
+        int closestNodeId = -1;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int regionIndex = 0; regionIndex < regionCount(); regionIndex++) {
+            if (!occupiesArea(regionIndex, point, searchDistance)) continue;
+            Graph graph = region(regionIndex);
+            int localId = graph.nodeClosestTo(point, searchDistance);
+            if (localId == -1) continue;
+            double distance = graph.nodePoint(localId).squaredDistanceTo(point);
+            if (distance < closestDistance) {
+                closestDistance = distance;
+                closestNodeId = nodeOffsets[regionIndex] + localId;
+            }
+        }
+        return closestNodeId;
+    }
+
+    /**
+     * This method allows us to get the identity of the node targeted by the given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The identity of the node targeted by the given edge.
+     */
+    @Override
+    public int edgeTargetNodeId(int edgeId) {
+        if (isStitch(edgeId)) return stitchTarget(edgeId - edgeOffsets[regionCount()]);
+        int regionIndex = regionOf(edgeOffsets, edgeId);
+        return nodeOffsets[regionIndex] + region(regionIndex).edgeTargetNodeId(edgeId - edgeOffsets[regionIndex]);
+    }
+
+    /**
+     * This method allows us to determine whether this edge is inverted or not.
+     *
+     * @param edgeId The identity of the edge.
+     * @return True iff the edge is facing the opposite direction as the way it comes from,
+     * false for the edges linking two regions.
+     */
+    @Override
+    public boolean edgeIsInverted(int edgeId) {
+        if (isStitch(edgeId)) return false;
+        int regionIndex = regionOf(edgeOffsets, edgeId);
+        return region(regionIndex).edgeIsInverted(edgeId - edgeOffsets[regionIndex]);
+    }
+
+    /**
+     * This method allows us to get the set of attributes corresponding to the given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return A set of the attributes of the edge, empty for the edges linking two regions.
+     */
+    @Override
+    public AttributeSet edgeAttributes(int edgeId) {
+        if (isStitch(edgeId)) return STITCH_ATTRIBUTES;
+        int regionIndex = regionOf(edgeOffsets, edgeId);
+        return region(regionIndex).edgeAttributes(edgeId - edgeOffsets[regionIndex]);
+    }
+
+    /**
+     * This method allows us to get an edge's length.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The length of the given edge, zero for the edges linking two regions.
+     */
+    @Override
+    public double edgeLength(int edgeId) {
+        if (isStitch(edgeId)) return 0;
+        int regionIndex = regionOf(edgeOffsets, edgeId);
+        return region(regionIndex).edgeLength(edgeId - edgeOffsets[regionIndex]);
+    }
+
+    /**
+     * This method allows us to get the elevation gain of a given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The elevation gain of the given edge, zero for the edges linking two regions.
+     */
+    @Override
+    public double edgeElevationGain(int edgeId) {
+        if (isStitch(edgeId)) return 0;
+        int regionIndex = regionOf(edgeOffsets, edgeId);
+        return region(regionIndex).edgeElevationGain(edgeId - edgeOffsets[regionIndex]);
+    }
+
+    /**
+     * This method allows us to get the profile of a given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The profile of the edge, which is not defined for the edges linking two regions.
+     */
+    @Override
+    public DoubleUnaryOperator edgeProfile(int edgeId) {
+        if (isStitch(edgeId)) return Functions.constant(Double.NaN);
+        int regionIndex = regionOf(edgeOffsets, edgeId);
+        return region(regionIndex).edgeProfile(edgeId - edgeOffsets[regionIndex]);
+    }
+}
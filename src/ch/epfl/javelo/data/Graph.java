@@ -4,17 +4,21 @@ import ch.epfl.javelo.Functions;
 import ch.epfl.javelo.projection.PointCh;
 
 import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.DoubleUnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
 
 /**
  * A Buffer containing multiple data of a map.
@@ -22,37 +26,30 @@ import java.util.stream.IntStream;
  * @author Gaspard Thoral (345230)
  * @author Alexandre Mourot (346365)
  */
-public final class Graph {
+public final class Graph implements RoutingGraph {
 
     /**
-     * The path to the file containing the nodes' data.
-     */
-    private static final String NODES_PATH = "nodes.bin";
-    /**
-     * The path to the file containing the sectors' data.
-     */
-    private static final String SECTORS_PATH = "sectors.bin";
-    /**
-     * The path to the file containing the edges' data.
-     */
-    private static final String EDGES_PATH = "edges.bin";
-    /**
-     * The path to the file containing the profiles' data.
-     */
-    private static final String PROFILES_PATH = "profile_ids.bin";
-    /**
-     * The path to the file containing the elevations' data.
+     * The size in bytes of a page of memory, the unit in which the mapped files are read from the disk.
      */
-    private static final String ELEVATIONS_PATH = "elevations.bin";
+    private static final int PAGE_BYTES = 4096;
     /**
-     * The path to the file containing the attributes' data.
+     * The names of the files of a graph which are mapped in memory.
      */
-    private static final String ATTRIBUTES_PATH = "attributes.bin";
+    public static final List<String> MAPPED_FILES =
+            List.of(GraphFiles.NODES, GraphFiles.SECTORS, GraphFiles.EDGES, GraphFiles.PROFILE_IDS,
+                    GraphFiles.ELEVATIONS, GraphFiles.OSM_IDS);
 
     private final GraphNodes nodes;
     private final GraphSectors sectors;
     private final GraphEdges edges;
     private final List<AttributeSet> attributeSets;
+    private final LongBuffer nodesOsmIds;
+    private volatile NodeGrid nodeGrid;
+    private volatile NodeCoordinates nodeCoordinates;
+    private volatile OsmNodeIndex osmNodeIndex;
+    private volatile AttributeIndex attributeIndex;
+    private volatile EdgeElevationSummaries elevationSummaries;
+    private volatile long prefaultChecksum;
 
     /**
      * This method is the constructor of the class Graph.
@@ -63,44 +60,134 @@ public final class Graph {
      * @param attributeSets A list of AttributeSets.
      */
     public Graph(GraphNodes nodes, GraphSectors sectors, GraphEdges edges, List<AttributeSet> attributeSets) {
+        this(nodes, sectors, edges, attributeSets, LongBuffer.allocate(0));
+    }
+
+    /**
+     * This method is the constructor of the class Graph, for a graph whose nodes come with their
+     * OpenStreetMap identities.
+     *
+     * @param nodes         A buffer of nodes contained in an area.
+     * @param sectors       A buffer of sectors contained in an area.
+     * @param edges         A buffer of edges contained in an area.
+     * @param attributeSets A list of AttributeSets.
+     * @param nodesOsmIds   A buffer containing the OpenStreetMap identity of each node, or an empty buffer.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the buffer is neither empty
+     *                                  nor of the size of the number of nodes.
+     */
+    public Graph(GraphNodes nodes, GraphSectors sectors, GraphEdges edges, List<AttributeSet> attributeSets,
+                 LongBuffer nodesOsmIds) {
+        checkArgument(nodesOsmIds.capacity() == 0 || nodesOsmIds.capacity() == nodes.count());
         this.nodes = nodes;
         this.sectors = sectors;
         this.edges = edges;
         this.attributeSets = List.copyOf(attributeSets);
+        this.nodesOsmIds = nodesOsmIds;
     }
 
     /**
      * This method allows us to easily read data from a file and to extract, if they exist, a buffer of nodes,
      * a buffer of sectors, a buffer of edges, a buffer of profileIds, a buffer of elevations and a buffer of attributes.
+     * The OpenStreetMap identities of the nodes and their index, and the summaries of the profiles of the edges,
+     * are also opened if their files exist.
      *
      * @param basePath The file's path.
      * @return A graph composed of the extracted data.
      * @throws IOException Throws an exception if it was unable to open the given file.
      */
     public static Graph loadFrom(Path basePath) throws IOException {
-        IntBuffer nodes = tryAndOpen(basePath.resolve(NODES_PATH)).asIntBuffer();
-        ByteBuffer sectors = tryAndOpen(basePath.resolve(SECTORS_PATH));
-        ByteBuffer edges = tryAndOpen(basePath.resolve(EDGES_PATH));
-        IntBuffer profileIds = tryAndOpen(basePath.resolve(PROFILES_PATH)).asIntBuffer();
-        ShortBuffer elevations = tryAndOpen(basePath.resolve(ELEVATIONS_PATH)).asShortBuffer();
-        LongBuffer attributes = tryAndOpen(basePath.resolve(ATTRIBUTES_PATH)).asLongBuffer();
+        IntBuffer nodes = GraphFiles.map(basePath.resolve(GraphFiles.NODES)).asIntBuffer();
+        ByteBuffer sectors = GraphFiles.map(basePath.resolve(GraphFiles.SECTORS));
+        ByteBuffer edges = GraphFiles.map(basePath.resolve(GraphFiles.EDGES));
+        IntBuffer profileIds = GraphFiles.map(basePath.resolve(GraphFiles.PROFILE_IDS)).asIntBuffer();
+        ShortBuffer elevations = GraphFiles.map(basePath.resolve(GraphFiles.ELEVATIONS)).asShortBuffer();
+        LongBuffer attributes = GraphFiles.map(basePath.resolve(GraphFiles.ATTRIBUTES)).asLongBuffer();
         List<AttributeSet> attributeSets = IntStream.range(0, attributes.capacity()).mapToObj(i -> new AttributeSet(attributes.get(i))).collect(Collectors.toCollection(() -> new ArrayList<>(attributes.capacity())));
-        return new Graph(new GraphNodes(nodes),
+        Path osmIdsPath = basePath.resolve(GraphFiles.OSM_IDS);
+        LongBuffer osmIds = Files.exists(osmIdsPath)
+                ? GraphFiles.map(osmIdsPath).asLongBuffer()
+                : LongBuffer.allocate(0);
+        Graph graph = new Graph(new GraphNodes(nodes),
                 new GraphSectors(sectors),
-                new GraphEdges(edges, profileIds, elevations), attributeSets);
+                new GraphEdges(edges, profileIds, elevations), attributeSets, osmIds);
+        Path osmIndexPath = basePath.resolve(GraphFiles.OSM_INDEX);
+        if (osmIds.capacity() > 0 && Files.exists(osmIndexPath)) {
+            OsmNodeIndex index = OsmNodeIndex.loadFrom(osmIndexPath);
+            if (index.count() == osmIds.capacity()) graph.osmNodeIndex = index;
+        }
+        Path summariesPath = basePath.resolve(GraphFiles.ELEVATION_SUMMARIES);
+        if (Files.exists(summariesPath)) {
+            EdgeElevationSummaries summaries = EdgeElevationSummaries.loadFrom(summariesPath);
+            if (summaries.areSummariesOf(graph.edges)) graph.elevationSummaries = summaries;
+        }
+        return graph;
     }
 
     /**
-     * This private method allows us to open a given file while checking if it can access it.
+     * This method allows us to write the index of the OpenStreetMap identities of the nodes of this graph
+     * next to its other files, so that loadFrom opens it instead of having it built again.
      *
-     * @param path The file's path.
-     * @return A mapped ByteBuffer containing the file's data.
-     * @throws IOException Throws an exception if it was unable to open the given file.
+     * @param basePath The path of the directory containing the files of this graph.
+     * @throws IOException Throws an exception if it was unable to write the file.
      */
-    private static ByteBuffer tryAndOpen(Path path) throws IOException {
-        try (FileChannel channel = FileChannel.open(path)) {
-            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-        }
+    public void writeOsmNodeIndex(Path basePath) throws IOException {
+        osmNodeIndex().writeTo(basePath.resolve(GraphFiles.OSM_INDEX));
+    }
+
+    /**
+     * This method allows us to write the summaries of the profiles of the edges of this graph next to its
+     * other files, so that loadFrom opens them instead of having them computed again.
+     *
+     * @param basePath The path of the directory containing the files of this graph.
+     * @throws IOException Throws an exception if it was unable to write the file.
+     */
+    public void writeElevationSummaries(Path basePath) throws IOException {
+        elevationSummaries().writeTo(basePath.resolve(GraphFiles.ELEVATION_SUMMARIES));
+    }
+
+    /**
+     * This method allows us to read a mapped file of this graph in advance, one value per page of memory,
+     * the pages being read in parallel, so that the first searches do not wait for the disk.
+     *
+     * @param fileName The name of the file, one of MAPPED_FILES.
+     * @return The number of bytes of the file.
+     * @throws IllegalArgumentException Throws an exception if the file is not one of MAPPED_FILES.
+     */
+    public long prefault(String fileName) {
+        Buffer buffer = switch (fileName) {
+            case GraphFiles.NODES -> nodes.buffer();
+            case GraphFiles.SECTORS -> sectors.buffer();
+            case GraphFiles.EDGES -> edges.edgesBuffer();
+            case GraphFiles.PROFILE_IDS -> edges.profileIds();
+            case GraphFiles.ELEVATIONS -> edges.elevations();
+            case GraphFiles.OSM_IDS -> nodesOsmIds;
+            default -> throw new IllegalArgumentException(fileName);
+        };
+        int elementBytes = buffer instanceof ByteBuffer ? Byte.BYTES
+                : buffer instanceof ShortBuffer ? Short.BYTES
+                : buffer instanceof IntBuffer ? Integer.BYTES
+                : Long.BYTES;
+        int stride = PAGE_BYTES / elementBytes;
+        int pages = (buffer.capacity() + stride - 1) / stride;
+        // Keeping the sum of the values read prevents the reads from being removed
+        prefaultChecksum = IntStream.range(0, pages).parallel()
+                .mapToLong(page -> valueAt(buffer, page * stride))
+                .sum();
+        return (long) buffer.capacity() * elementBytes;
+    }
+
+    /**
+     * This private method allows us to read a value of a buffer, whatever its type.
+     *
+     * @param buffer The buffer.
+     * @param index  The index of the value.
+     * @return The value.
+     */
+    private static long valueAt(Buffer buffer, int index) {
+        if (buffer instanceof ByteBuffer bytes) return bytes.get(index);
+        if (buffer instanceof ShortBuffer shorts) return shorts.get(index);
+        if (buffer instanceof IntBuffer ints) return ints.get(index);
+        return ((LongBuffer) buffer).get(index);
     }
 
     /**
@@ -108,6 +195,7 @@ public final class Graph {
      *
      * @return The number of nodes in this graph.
      */
+    @Override
     public int nodeCount() {
         return nodes.count();
     }
@@ -118,6 +206,7 @@ public final class Graph {
      * @param nodeId The identity of the node.
      * @return The position of the given node.
      */
+    @Override
     public PointCh nodePoint(int nodeId) {
         return new PointCh(nodes.nodeE(nodeId), nodes.nodeN(nodeId));
     }
@@ -128,6 +217,7 @@ public final class Graph {
      * @param nodeId The identity of the node.
      * @return The number of leaving edges of this node.
      */
+    @Override
     public int nodeOutDegree(int nodeId) {
         return nodes.outDegree(nodeId);
     }
@@ -140,23 +230,158 @@ public final class Graph {
      * @param edgeIndex The index of the edges in a list consisting only of edges leaving this specific node.
      * @return The global index of the given edge.
      */
+    @Override
     public int nodeOutEdgeId(int nodeId, int edgeIndex) {
         return nodes.edgeId(nodeId, edgeIndex);
     }
 
+    /**
+     * This method allows us to get the OpenStreetMap identity of the given node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The OpenStreetMap identity of the node, or -1 if the graph has no OpenStreetMap identities.
+     */
+    public long nodeOsmId(int nodeId) {
+        return nodesOsmIds.capacity() == 0 ? -1 : nodesOsmIds.get(nodeId);
+    }
+
+    /**
+     * This method allows us to get the identity of the node having the given OpenStreetMap identity.
+     *
+     * @param osmId The OpenStreetMap identity of the node.
+     * @return The identity of the node, or -1 if no node of this graph has this OpenStreetMap identity.
+     */
+    public int nodeIdOfOsmId(long osmId) {
+        return osmNodeIndex().nodeId(osmId);
+    }
+
+    /**
+     * This method allows us to get the index of the OpenStreetMap identities of the nodes of this graph,
+     * building it on the first call if it was not opened with the graph.
+     *
+     * @return The index of the OpenStreetMap identities of the nodes.
+     */
+    public OsmNodeIndex osmNodeIndex() {
+        OsmNodeIndex index = osmNodeIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (osmNodeIndex == null) osmNodeIndex = OsmNodeIndex.of(nodesOsmIds);
+                index = osmNodeIndex;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * This method allows us to get the summaries of the profiles of the edges of this graph,
+     * computing them in parallel on the first call if they were not opened with the graph.
+     *
+     * @return The summaries of the profiles of the edges.
+     */
+    public EdgeElevationSummaries elevationSummaries() {
+        EdgeElevationSummaries summaries = elevationSummaries;
+        if (summaries == null) {
+            synchronized (this) {
+                if (elevationSummaries == null) elevationSummaries = EdgeElevationSummaries.of(edges);
+                summaries = elevationSummaries;
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * This method allows us to get the statistics of the profile of a route from the identities of its edges,
+     * in a time proportional to their number and without decoding any sample.
+     *
+     * @param edgeIds The identities of the edges of the route, in order.
+     * @return The summary of the profile of the route.
+     */
+    public ElevationSummary elevationSummary(int[] edgeIds) {
+        return elevationSummaries().summaryOf(edges, edgeIds);
+    }
+
+    /**
+     * This method allows us to get the spatial index of the nodes of this graph, building it on the first call.
+     * Once it has been built, it is also used by nodeClosestTo.
+     *
+     * @return The grid containing all the nodes of this graph.
+     */
+    public NodeGrid nodeGrid() {
+        NodeGrid grid = nodeGrid;
+        if (grid == null) {
+            synchronized (this) {
+                if (nodeGrid == null) nodeGrid = NodeGrid.of(nodes);
+                grid = nodeGrid;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * This method allows us to get the inverted index giving the edges of each attribute of this graph,
+     * building it on the first call.
+     *
+     * @return The index of the edges by attribute.
+     */
+    public AttributeIndex attributeIndex() {
+        AttributeIndex index = attributeIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (attributeIndex == null) attributeIndex = AttributeIndex.of(edges, attributeSets);
+                index = attributeIndex;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * This method allows us to get the copy of the coordinates of the nodes of this graph stored as arrays,
+     * building it on the first call. Once it has been built, it is used when scanning the sectors.
+     *
+     * @return The coordinates of all the nodes of this graph.
+     */
+    public NodeCoordinates nodeCoordinates() {
+        NodeCoordinates coordinates = nodeCoordinates;
+        if (coordinates == null) {
+            synchronized (this) {
+                if (nodeCoordinates == null) nodeCoordinates = NodeCoordinates.of(nodes);
+                coordinates = nodeCoordinates;
+            }
+        }
+        return coordinates;
+    }
+
     /**
      * This method allows us to determine the closest node to a given point at a given distance.
+     * The spatial index of the nodes is used if it has already been built, the sectors are scanned otherwise.
      *
      * @param point The point from which we're trying to determine the closest node.
      * @param searchDistance The search distance.
      * @return The identity of the closest node to the given point, or -1 if no nodes satisfy criteria.
      */
+    @Override
     public int nodeClosestTo(PointCh point, double searchDistance) {
+        NodeGrid grid = nodeGrid;
+        if (grid != null) return grid.nodeClosestTo(point, searchDistance);
         double newSearchDistance = searchDistance * searchDistance;
         return getClosestNodeId(point, newSearchDistance, sectors.sectorsInArea(point, searchDistance));
     }
 
     /**
+     * This method allows us to get the sectors of this graph intersecting a square area, whose nodes
+     * have consecutive identities.
+     *
+     * @param center   The center of the square.
+     * @param distance The distance from the center to the sides of the square.
+     * @return The list of the sectors intersecting the square.
+     */
+    public List<GraphSectors.Sector> sectorsInArea(PointCh center, double distance) {
+        return sectors.sectorsInArea(center, distance);
+    }
+
+    /**
+     * This method allows us to scan the nodes of the given sectors to find the closest one to a point,
+     * using the copy of the coordinates of the nodes if it has been built.
      *
      * @param point The point from which we're trying to determine the closest node.
      * @param newSearchDistance The squared search distance.
@@ -164,25 +389,102 @@ public final class Graph {
      * @return The ID of the closest node.
      */
     private int getClosestNodeId(PointCh point, double newSearchDistance, List<GraphSectors.Sector> sectorsInArea) {
+        NodeCoordinates coordinates = nodeCoordinates;
+        double e = point.e();
+        double n = point.n();
         int closestNodeId = -1;
         for (GraphSectors.Sector sect : sectorsInArea) {
-            for (int i = sect.startNodeId(); i < sect.endNodeId(); ++i) {
-                double tempDistance = point.squaredDistanceTo(nodePoint(i));
-                if ((tempDistance <= newSearchDistance)) {
-                    newSearchDistance = tempDistance;
-                    closestNodeId = i;
+            if (coordinates != null) {
+                int id = coordinates.closestNodeId(sect.startNodeId(), sect.endNodeId(), e, n, newSearchDistance);
+                if (id != -1) {
+                    closestNodeId = id;
+                    newSearchDistance = coordinates.squaredDistance(id, e, n);
+                }
+            } else {
+                for (int i = sect.startNodeId(); i < sect.endNodeId(); ++i) {
+                    double dE = nodes.nodeE(i) - e;
+                    double dN = nodes.nodeN(i) - n;
+                    double tempDistance = dE * dE + dN * dN;
+                    if ((tempDistance <= newSearchDistance)) {
+                        newSearchDistance = tempDistance;
+                        closestNodeId = i;
+                    }
                 }
             }
         }
         return closestNodeId;
     }
 
+    /**
+     * This method allows us to know the number of edges of this graph.
+     *
+     * @return The number of edges.
+     */
+    public int edgeCount() {
+        return edges.count();
+    }
+
+    /**
+     * This method allows us to get the identities of the nodes of this graph as a stream which can be
+     * made parallel, the nodes being split in ranges having about the same number of edges.
+     *
+     * @return The identities of the nodes, in increasing order.
+     */
+    public IntStream nodeIds() {
+        return StreamSupport.intStream(new NodeSpliterator(nodes, edges.count(), 0, nodes.count()), false);
+    }
+
+    /**
+     * This method allows us to get the identities of the edges of this graph as a stream which can be
+     * made parallel.
+     *
+     * @return The identities of the edges, in increasing order.
+     */
+    public IntStream edgeIds() {
+        return IntStream.range(0, edges.count());
+    }
+
+    /**
+     * This method allows us to visit every edge of this graph, node after node.
+     *
+     * @param visitor The function called for each edge.
+     */
+    public void forEachEdge(EdgeVisitor visitor) {
+        nodeIds().forEach(nodeId -> visitEdges(nodeId, visitor));
+    }
+
+    /**
+     * This method allows us to visit every edge of this graph using all the available processors,
+     * the edges of a node being visited by the same thread in increasing order.
+     *
+     * @param visitor The function called for each edge, which may be called by several threads at the same time.
+     */
+    public void forEachEdgeInParallel(EdgeVisitor visitor) {
+        nodeIds().parallel().forEach(nodeId -> visitEdges(nodeId, visitor));
+    }
+
+    /**
+     * This private method allows us to visit the edges leaving a node.
+     *
+     * @param nodeId  The identity of the node.
+     * @param visitor The function called for each edge.
+     */
+    private void visitEdges(int nodeId, EdgeVisitor visitor) {
+        int firstEdgeId = nodes.firstEdgeId(nodeId);
+        int endEdgeId = firstEdgeId + nodes.outDegree(nodeId);
+        for (int edgeId = firstEdgeId; edgeId < endEdgeId; edgeId++) {
+            visitor.visit(edgeId, nodeId, edges.targetNodeId(edgeId), edges.lengthQ28_4(edgeId),
+                    edges.attributesIndex(edgeId));
+        }
+    }
+
     /**
      * This method allows us to get the index of the node targeted by the given edge.
      *
      * @param edgeId The id of the edge.
      * @return The index of the node targeted by the given edge.
      */
+    @Override
     public int edgeTargetNodeId(int edgeId) {
         return edges.targetNodeId(edgeId);
     }
@@ -193,6 +495,7 @@ public final class Graph {
      * @param edgeId The identity of the edge.
      * @return True iff the edge is facing the opposite direction as the node it comes from.
      */
+    @Override
     public boolean edgeIsInverted(int edgeId) {
         return edges.isInverted(edgeId);
     }
@@ -203,6 +506,7 @@ public final class Graph {
      * @param edgeId The identity of the edge.
      * @return A set of the attributes corresponding to the given edge.
      */
+    @Override
     public AttributeSet edgeAttributes(int edgeId) {
         return new AttributeSet(attributeSets.get(edges.attributesIndex(edgeId)).bits());
     }
@@ -213,6 +517,7 @@ public final class Graph {
      * @param edgeId The identity of the edge.
      * @return The length of the given edge.
      */
+    @Override
     public double edgeLength(int edgeId) {
         return edges.length(edgeId);
     }
@@ -223,6 +528,7 @@ public final class Graph {
      * @param edgeId The identity of the edge.
      * @return The elevation of the given edge.
      */
+    @Override
     public double edgeElevationGain(int edgeId) {
         return edges.elevationGain(edgeId);
     }
@@ -233,9 +539,24 @@ public final class Graph {
      * @param edgeId The identity of the edge.
      * @return The profile of an edge represented as a function.
      */
+    @Override
     public DoubleUnaryOperator edgeProfile(int edgeId) {
         return (!edges.hasProfile(edgeId)) ?
                 Functions.constant(Double.NaN) :
                 Functions.sampled(edges.profileSamples(edgeId), edges.length(edgeId));
     }
-}
\ No newline at end of file
+
+    /**
+     * This method allows us to decode the profiles of several edges at once inside a single array,
+     * which avoids allocating an array per edge when the samples of a whole route are needed.
+     *
+     * @param edgeIds     The identities of the edges, in order.
+     * @param destination The array receiving the samples, big enough to hold all of them.
+     * @param offsets     The array receiving the index of the first sample of each edge,
+     *                    of length at least edgeIds.length + 1.
+     * @return The total number of samples written.
+     */
+    public int edgesProfileSamples(int[] edgeIds, float[] destination, int[] offsets) {
+        return edges.profileSamples(edgeIds, destination, offsets);
+    }
+}
@@ -6,9 +6,8 @@ import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
-import static ch.epfl.javelo.Bits.extractSigned;
 import static ch.epfl.javelo.Bits.extractUnsigned;
-import static ch.epfl.javelo.Math2.ceilDiv;
+import static ch.epfl.javelo.Preconditions.checkArgument;
 import static java.lang.Short.toUnsignedInt;
 
 
@@ -93,6 +92,15 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
     private static final int ELEVATION_SHIFT = 4;
 
 
+    /**
+     * This method allows us to compute the number of edges contained inside the buffer.
+     *
+     * @return The total number of edges contained in an object GraphEdges.
+     */
+    public int count() {
+        return edgesBuffer.capacity() / EDGES_INTS;
+    }
+
     /**
      * This method allows us to know if an edge goes in the same direction as the OMS path it comes from.
      *
@@ -124,6 +132,16 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
         return Q28_4.asDouble(toUnsignedInt(edgesBuffer.getShort(EDGES_INTS * edgeId + OFFSET_LENGTH)));
     }
 
+    /**
+     * This method allows us to know the length of a given edge without converting it.
+     *
+     * @param edgeId The ID (or position) of the edge inside edgesBuffer.
+     * @return The length in meter of the given edge, in Q28.4.
+     */
+    public int lengthQ28_4(int edgeId) {
+        return toUnsignedInt(edgesBuffer.getShort(EDGES_INTS * edgeId + OFFSET_LENGTH));
+    }
+
     /**
      * This method allows us to know the elevation gain of a given edge.
      *
@@ -144,6 +162,16 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
         return extractUnsigned(profileIds.get(edgeId), PROFILE_INDEX, PROFILE_LENGTH) != 0;
     }
 
+    /**
+     * This method allows us to know how many height samples a given edge possesses.
+     *
+     * @param edgeId The ID (or position) of the edge inside profileIds.
+     * @return The number of samples of the given edge, 0 if it does not have a profile.
+     */
+    public int sampleCount(int edgeId) {
+        return hasProfile(edgeId) ? 1 + (int) Math.ceil(length(edgeId) / 2) : 0;
+    }
+
     /**
      * This method allows us to access a given edge's height samples no matter its profile type.
      *
@@ -151,36 +179,85 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * @return An array of floats consisting of the different heights of a given edge.
      */
     public float[] profileSamples(int edgeId) {
-        int profileType = extractUnsigned(profileIds.get(edgeId), PROFILE_INDEX, PROFILE_LENGTH);
-        int sampleId = extractUnsigned(profileIds.get(edgeId), SAMPLE_INDEX, SAMPLE_LENGTH);
-        int quantity = 1 + (int) Math.ceil(length(edgeId) / 2);
-        float[] samples = new float[quantity];
+        float[] samples = new float[sampleCount(edgeId)];
+        profileSamples(edgeId, samples, 0);
+        return samples;
+    }
+
+    /**
+     * This method allows us to decode the height samples of several edges at once inside a single array.
+     * The samples of the edge edgeIds[i] are written from destination[offsets[i]] to
+     * destination[offsets[i + 1]] excluded, already reversed if the edge is inverted.
+     *
+     * @param edgeIds     The IDs of the edges to decode, in order.
+     * @param destination The array in which the samples are written, it must be big enough to hold all of them.
+     * @param offsets     The array receiving the index of the first sample of each edge,
+     *                    its length must be at least edgeIds.length + 1.
+     * @return The total number of samples written.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if offsets is too short.
+     */
+    public int profileSamples(int[] edgeIds, float[] destination, int[] offsets) {
+        checkArgument(offsets.length > edgeIds.length);
+        int offset = 0;
+        for (int i = 0; i < edgeIds.length; i++) {
+            offsets[i] = offset;
+            offset += profileSamples(edgeIds[i], destination, offset);
+        }
+        offsets[edgeIds.length] = offset;
+        return offset;
+    }
+
+    /**
+     * This method allows us to decode a given edge's height samples inside an existing array.
+     *
+     * @param edgeId      The ID (or position) of the edge inside profileIds.
+     * @param destination The array in which the samples are written.
+     * @param offset      The index of destination at which the first sample is written.
+     * @return The number of samples written, 0 if the edge does not have a profile.
+     */
+    public int profileSamples(int edgeId, float[] destination, int offset) {
+        return profileSamples(elevations, profileIds.get(edgeId), length(edgeId), isInverted(edgeId),
+                destination, offset);
+    }
+
+    /**
+     * This method allows us to decode the height samples of a profile stored in a buffer of elevations,
+     * so that graphs storing their edges differently can share the profiles of this format.
+     *
+     * @param elevations  The buffer containing the samples of the profiles.
+     * @param profileId   The type of the profile in its 2 highest bits and the index of its first sample.
+     * @param length      The length in meter of the edge of the profile.
+     * @param inverted    True iff the samples have to be reversed.
+     * @param destination The array in which the samples are written.
+     * @param offset      The index of destination at which the first sample is written.
+     * @return The number of samples written, 0 if the profile type is 0.
+     */
+    public static int profileSamples(ShortBuffer elevations, int profileId, double length, boolean inverted,
+                                     float[] destination, int offset) {
+        int profileType = profileId >>> PROFILE_INDEX;
+        if (profileType == 0) return 0;
+        int sampleId = extractUnsigned(profileId, SAMPLE_INDEX, SAMPLE_LENGTH);
+        int quantity = 1 + (int) Math.ceil(length / 2);
+        int end = offset + quantity;
         switch (profileType) {
-            case 0:
-                return new float[0];
             case 1:
-                for (int i = sampleId, index = 0; i < sampleId + quantity; i++, index++) {
-                    samples[index] = Math.scalb(toUnsignedInt(elevations.get(i)), -ELEVATION_SHIFT);
+                for (int i = offset, j = sampleId; i < end; i++, j++) {
+                    destination[i] = Math.scalb(toUnsignedInt(elevations.get(j)), -ELEVATION_SHIFT);
                 }
                 break;
             case 2:
             case 3:
-                int index = 0;
-                samples[index++] = Q28_4.asFloat(toUnsignedInt(elevations.get(sampleId)));
-                int profile_size = (profileType == 2) ? SAMPLE_PROFILE_2 : SAMPLE_PROFILE_3;
-                int profile_length = (profileType == 2) ? EXTRACT_PROFILE_2 : EXTRACT_PROFILE_3;
-                for (int i = sampleId + 1; i <= sampleId + ceilDiv(quantity - 1, profile_size); i++) {
-                    for (int j = 0; j < profile_size; j++) {
-                        samples[index] = samples[index - 1] + Q28_4.asFloat(extractSigned(elevations.get(i),
-                                profile_length * (profile_size - j - 1), profile_length));
-                        if (index++ == samples.length - 1) break;
-                    }
+                destination[offset] = Q28_4.asFloat(toUnsignedInt(elevations.get(sampleId)));
+                unpackDifferences(elevations, profileType, sampleId + 1, destination, offset + 1, end);
+                for (int i = offset + 1; i < end; i++) {
+                    destination[i] += destination[i - 1];
                 }
                 break;
             default:
                 throw new IllegalStateException("Unexpected value: " + profileType);
         }
-        return isInverted(edgeId) ? reverse(samples) : samples;
+        if (inverted) reverse(destination, offset, end);
+        return quantity;
     }
 
     /**
@@ -194,17 +271,49 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
     }
 
     /**
-     * This method allows us to easily reverse a float array which is useful when using the profileSamples method.
+     * This method allows us to write the height differences of a compressed profile inside an array,
+     * one whole short at a time so that the loop body stays free of branches.
+     *
+     * @param elevations  The buffer containing the samples of the profiles.
+     * @param profileType The type of the profile, 2 for Q4.4 differences and 3 for Q0.4 differences.
+     * @param firstShort  The index inside elevations of the first short containing differences.
+     * @param destination The array in which the differences are written.
+     * @param from        The index of destination at which the first difference is written.
+     * @param to          The index of destination after the last difference.
+     */
+    private static void unpackDifferences(ShortBuffer elevations, int profileType, int firstShort,
+                                          float[] destination, int from, int to) {
+        int perShort = (profileType == 2) ? SAMPLE_PROFILE_2 : SAMPLE_PROFILE_3;
+        int bits = (profileType == 2) ? EXTRACT_PROFILE_2 : EXTRACT_PROFILE_3;
+        int fullShorts = (to - from) / perShort;
+        int index = from;
+        for (int i = firstShort; i < firstShort + fullShorts; i++) {
+            int packed = elevations.get(i) << Short.SIZE;
+            for (int j = 0; j < perShort; j++) {
+                destination[index++] = Q28_4.asFloat((packed << (j * bits)) >> (Integer.SIZE - bits));
+            }
+        }
+        if (index < to) {
+            int packed = elevations.get(firstShort + fullShorts) << Short.SIZE;
+            for (int j = 0; index < to; j++) {
+                destination[index++] = Q28_4.asFloat((packed << (j * bits)) >> (Integer.SIZE - bits));
+            }
+        }
+    }
+
+    /**
+     * This method allows us to reverse a part of a float array in place,
+     * which is useful when using the profileSamples method on an inverted edge.
      *
-     * @param l An array of floats.
-     * @return The given float array but reversed.
+     * @param l    An array of floats.
+     * @param from The index of the first element to reverse.
+     * @param to   The index after the last element to reverse.
      */
-    private float[] reverse(float[] l) {
-        for (int i = 0; i < l.length / 2; i++) {
+    private static void reverse(float[] l, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
             float temp1 = l[i];
-            l[i] = l[l.length - i - 1];
-            l[l.length - i - 1] = temp1;
+            l[i] = l[j];
+            l[j] = temp1;
         }
-        return l;
     }
 }
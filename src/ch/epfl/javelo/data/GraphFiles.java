@@ -0,0 +1,106 @@
+package ch.epfl.javelo.data;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The names of the files of a graph and the methods used to map them in memory and to write them.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class GraphFiles {
+
+    /**
+     * The name of the file containing the nodes.
+     */
+    public static final String NODES = "nodes.bin";
+    /**
+     * The name of the file containing the sectors.
+     */
+    public static final String SECTORS = "sectors.bin";
+    /**
+     * The name of the file containing the edges.
+     */
+    public static final String EDGES = "edges.bin";
+    /**
+     * The name of the file containing the profile identities of the edges.
+     */
+    public static final String PROFILE_IDS = "profile_ids.bin";
+    /**
+     * The name of the file containing the samples of the profiles.
+     */
+    public static final String ELEVATIONS = "elevations.bin";
+    /**
+     * The name of the file containing the attribute sets.
+     */
+    public static final String ATTRIBUTES = "attributes.bin";
+    /**
+     * The name of the file containing the OpenStreetMap identities of the nodes.
+     */
+    public static final String OSM_IDS = "nodes_osmid.bin";
+    /**
+     * The name of the file containing the index of the OpenStreetMap identities of the nodes.
+     */
+    public static final String OSM_INDEX = "nodes_osmid_index.bin";
+    /**
+     * The name of the file containing the summaries of the profiles of the edges.
+     */
+    public static final String ELEVATION_SUMMARIES = "elevation_summaries.bin";
+
+    /**
+     * Private constructor.
+     */
+    private GraphFiles() {
+    }
+
+    /**
+     * This method allows us to map a file in memory.
+     *
+     * @param path The path of the file.
+     * @return A buffer containing the data of the file.
+     * @throws IOException Throws an exception if it was unable to open the given file.
+     */
+    public static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * This method allows us to write the content of a buffer to a file.
+     *
+     * @param path   The path of the file.
+     * @param buffer The buffer, whose content from index 0 to its limit is written.
+     * @throws IOException Throws an exception if it was unable to write the file.
+     */
+    public static void write(Path path, Buffer buffer) throws IOException {
+        ByteBuffer bytes;
+        if (buffer instanceof ByteBuffer b) {
+            bytes = b.duplicate().rewind();
+        } else {
+            int size = buffer.limit();
+            if (buffer instanceof IntBuffer ints) {
+                bytes = ByteBuffer.allocate(size * Integer.BYTES);
+                bytes.asIntBuffer().put(ints.duplicate().rewind());
+            } else if (buffer instanceof ShortBuffer shorts) {
+                bytes = ByteBuffer.allocate(size * Short.BYTES);
+                bytes.asShortBuffer().put(shorts.duplicate().rewind());
+            } else {
+                bytes = ByteBuffer.allocate(size * Long.BYTES);
+                bytes.asLongBuffer().put(((LongBuffer) buffer).duplicate().rewind());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) channel.write(bytes);
+        }
+    }
+}
@@ -91,6 +91,18 @@ public record GraphNodes(IntBuffer buffer) {
         return extractUnsigned(idEdge, OUT_DEGREE_INDEX, OUT_DEGREE_LENGTH);
     }
 
+    /**
+     * This method allows us to get the global index of the first edge leaving a node, which is also
+     * the index following the edges of the previous nodes when the node has no leaving edge.
+     *
+     * @param nodeId The identity of the node.
+     * @return The global index of the first edge leaving the node.
+     */
+    public int firstEdgeId(int nodeId) {
+        int idEdge = buffer.get(nodeId * NODE_INTS + OFFSET_OUT_EDGES);
+        return extractUnsigned(idEdge, EDGE_ID_INDEX, EDGE_ID_LENGTH);
+    }
+
     /**
      * This method allows us to get the global index of a leaving edges with the id of its node and
      * its index in the list of edges leaving this specific node.
@@ -0,0 +1,112 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Q28_4;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A copy of the coordinates of the nodes of a graph stored as a structure of arrays,
+ * one array for the east coordinates and one for the north coordinates, both in the Q28.4 representation.
+ * Since the nodes are sorted by sector, the nodes of a sector are a contiguous range of these arrays,
+ * which can be scanned without reading the node buffer nor allocating any point.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class NodeCoordinates {
+
+    /**
+     * The length in meters of one unit of a Q28.4 coordinate.
+     */
+    private static final double UNIT = Q28_4.asDouble(1);
+
+    private final int[] nodesE;
+    private final int[] nodesN;
+
+    /**
+     * Private constructor, the copy is built using the method of(GraphNodes).
+     *
+     * @param nodesE The Q28.4 east coordinates of the nodes.
+     * @param nodesN The Q28.4 north coordinates of the nodes.
+     */
+    private NodeCoordinates(int[] nodesE, int[] nodesN) {
+        this.nodesE = nodesE;
+        this.nodesN = nodesN;
+    }
+
+    /**
+     * This method allows us to copy the coordinates of the given nodes.
+     *
+     * @param nodes The nodes of a graph.
+     * @return The copy of their coordinates.
+     */
+    public static NodeCoordinates of(GraphNodes nodes) {
+        int count = nodes.count();
+        int[] nodesE = new int[count];
+        int[] nodesN = new int[count];
+        for (int i = 0; i < count; i++) {
+            nodesE[i] = (int) Math.round(nodes.nodeE(i) / UNIT);
+            nodesN[i] = (int) Math.round(nodes.nodeN(i) / UNIT);
+        }
+        return new NodeCoordinates(nodesE, nodesN);
+    }
+
+    /**
+     * This method allows us to get the number of nodes.
+     *
+     * @return The number of nodes.
+     */
+    public int count() {
+        return nodesE.length;
+    }
+
+    /**
+     * This method allows us to compute the squared distance between a node and a position.
+     *
+     * @param nodeId The identity of the node.
+     * @param e      The east coordinate of the position.
+     * @param n      The north coordinate of the position.
+     * @return The squared distance in squared meters.
+     */
+    public double squaredDistance(int nodeId, double e, double n) {
+        double dE = nodesE[nodeId] * UNIT - e;
+        double dN = nodesN[nodeId] * UNIT - n;
+        return dE * dE + dN * dN;
+    }
+
+    /**
+     * This method allows us to find, among a range of nodes, the closest one to a given position
+     * which is not farther than a given squared distance. In case of equality the last one is kept,
+     * as done when scanning the sectors of the graph.
+     * The distances are computed in Q28.4 units, which only scales them by a power of two and thus
+     * gives exactly the same comparisons as in meters. The range is scanned twice: a first loop without
+     * any branch computes the smallest distance, which the compiler can vectorize, then a second loop
+     * going backwards looks for the last node at that distance.
+     *
+     * @param startNodeId     The identity of the first node of the range.
+     * @param endNodeId       The identity of the node after the last one of the range.
+     * @param e               The east coordinate of the position.
+     * @param n               The north coordinate of the position.
+     * @param squaredDistance The maximal squared distance.
+     * @return The identity of the closest node, or -1 if no node of the range is close enough.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the range is not valid.
+     */
+    public int closestNodeId(int startNodeId, int endNodeId, double e, double n, double squaredDistance) {
+        checkArgument(0 <= startNodeId && startNodeId <= endNodeId && endNodeId <= nodesE.length);
+        double scaledE = e / UNIT;
+        double scaledN = n / UNIT;
+        double smallest = Double.POSITIVE_INFINITY;
+        for (int i = startNodeId; i < endNodeId; i++) {
+            double dE = nodesE[i] - scaledE;
+            double dN = nodesN[i] - scaledN;
+            smallest = Math.min(smallest, dE * dE + dN * dN);
+        }
+        if (!(smallest <= squaredDistance / (UNIT * UNIT))) return -1;
+        for (int i = endNodeId - 1; i >= startNodeId; i--) {
+            double dE = nodesE[i] - scaledE;
+            double dN = nodesN[i] - scaledN;
+            if (dE * dE + dN * dN == smallest) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,276 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Q28_4;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.util.Arrays;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A fine uniform grid over the nodes of a graph, used to find the nodes closest to a point
+ * without allocating any object. The nodes are copied once, grouped by cell, inside primitive arrays.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class NodeGrid {
+
+    /**
+     * The side of a cell of the grid, in meters.
+     */
+    private static final double CELL_SIZE = 200;
+
+    /**
+     * The length in meters of one unit of a Q28.4 coordinate.
+     */
+    private static final double UNIT = Q28_4.asDouble(1);
+
+    /**
+     * The value returned when no node satisfies the criteria.
+     */
+    private static final int NO_NODE = -1;
+
+    private final double originE;
+    private final double originN;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStarts;
+    private final int[] nodeIds;
+    private final int[] nodesE;
+    private final int[] nodesN;
+
+    /**
+     * Private constructor, the grid is built using the method of(GraphNodes).
+     *
+     * @param originE    The east coordinate of the bottom left corner of the grid.
+     * @param originN    The north coordinate of the bottom left corner of the grid.
+     * @param columns    The number of cells along the east axis.
+     * @param rows       The number of cells along the north axis.
+     * @param cellStarts The index of the first node of each cell, followed by the number of nodes.
+     * @param nodeIds    The identities of the nodes, sorted by cell.
+     * @param nodesE     The Q28.4 east coordinates of the nodes relative to originE, sorted by cell.
+     * @param nodesN     The Q28.4 north coordinates of the nodes relative to originN, sorted by cell.
+     */
+    private NodeGrid(double originE, double originN, int columns, int rows,
+                     int[] cellStarts, int[] nodeIds, int[] nodesE, int[] nodesN) {
+        this.originE = originE;
+        this.originN = originN;
+        this.columns = columns;
+        this.rows = rows;
+        this.cellStarts = cellStarts;
+        this.nodeIds = nodeIds;
+        this.nodesE = nodesE;
+        this.nodesN = nodesN;
+    }
+
+    /**
+     * This method allows us to build the grid of the given nodes, with a counting sort by cell.
+     *
+     * @param nodes The nodes of a graph.
+     * @return The grid containing all the given nodes.
+     */
+    public static NodeGrid of(GraphNodes nodes) {
+        int count = nodes.count();
+        double minE = Double.POSITIVE_INFINITY, minN = Double.POSITIVE_INFINITY;
+        double maxE = Double.NEGATIVE_INFINITY, maxN = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minE = Math.min(minE, nodes.nodeE(i));
+            maxE = Math.max(maxE, nodes.nodeE(i));
+            minN = Math.min(minN, nodes.nodeN(i));
+            maxN = Math.max(maxN, nodes.nodeN(i));
+        }
+        if (count == 0) minE = maxE = minN = maxN = 0;
+
+        int columns = 1 + (int) ((maxE - minE) / CELL_SIZE);
+        int rows = 1 + (int) ((maxN - minN) / CELL_SIZE);
+        int[] cellStarts = new int[columns * rows + 1];
+        int[] cells = new int[count];
+        for (int i = 0; i < count; i++) {
+            int column = (int) ((nodes.nodeE(i) - minE) / CELL_SIZE);
+            int row = (int) ((nodes.nodeN(i) - minN) / CELL_SIZE);
+            cells[i] = row * columns + column;
+            cellStarts[cells[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) cellStarts[c + 1] += cellStarts[c];
+
+        int[] nodeIds = new int[count];
+        int[] nodesE = new int[count];
+        int[] nodesN = new int[count];
+        int[] next = Arrays.copyOf(cellStarts, columns * rows);
+        for (int i = 0; i < count; i++) {
+            int index = next[cells[i]]++;
+            nodeIds[index] = i;
+            nodesE[index] = (int) Math.round((nodes.nodeE(i) - minE) / UNIT);
+            nodesN[index] = (int) Math.round((nodes.nodeN(i) - minN) / UNIT);
+        }
+        return new NodeGrid(minE, minN, columns, rows, cellStarts, nodeIds, nodesE, nodesN);
+    }
+
+    /**
+     * This method allows us to get the number of nodes contained in the grid.
+     *
+     * @return The number of nodes.
+     */
+    public int count() {
+        return nodeIds.length;
+    }
+
+    /**
+     * This method allows us to determine the closest node to a given point at a given distance.
+     *
+     * @param point          The point from which we're trying to determine the closest node.
+     * @param searchDistance The search distance.
+     * @return The identity of the closest node to the given point, or -1 if no nodes satisfy criteria.
+     */
+    public int nodeClosestTo(PointCh point, double searchDistance) {
+        return nodeClosestTo(point.e(), point.n(), searchDistance);
+    }
+
+    /**
+     * This method allows us to determine the closest node to a given position at a given distance.
+     *
+     * @param e              The east coordinate of the position.
+     * @param n              The north coordinate of the position.
+     * @param searchDistance The search distance.
+     * @return The identity of the closest node to the given position, or -1 if no nodes satisfy criteria.
+     */
+    public int nodeClosestTo(double e, double n, double searchDistance) {
+        double x = e - originE;
+        double y = n - originN;
+        int centerColumn = (int) Math.floor(x / CELL_SIZE);
+        int centerRow = (int) Math.floor(y / CELL_SIZE);
+        int maxRing = ringsToSearch(x, y, centerColumn, centerRow, searchDistance);
+
+        double best = searchDistance * searchDistance;
+        int closest = NO_NODE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double bound = ringLowerBound(ring);
+            if (bound * bound > best) break;
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= rows) continue;
+                boolean fullRow = row == centerRow - ring || row == centerRow + ring;
+                int step = fullRow ? 1 : Math.max(1, 2 * ring);
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    if (column < 0 || column >= columns) continue;
+                    int cell = row * columns + column;
+                    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                        double dE = nodesE[i] * UNIT - x;
+                        double dN = nodesN[i] * UNIT - y;
+                        double distance = dE * dE + dN * dN;
+                        if (distance <= best) {
+                            best = distance;
+                            closest = nodeIds[i];
+                        }
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * This method allows us to determine the k closest nodes to a given position at a given distance,
+     * k being the length of the given array of identities. No object is allocated.
+     *
+     * @param e                The east coordinate of the position.
+     * @param n                The north coordinate of the position.
+     * @param searchDistance   The search distance.
+     * @param closestNodeIds   The array receiving the identities of the closest nodes, sorted by distance.
+     * @param squaredDistances The array receiving the squared distances of these nodes,
+     *                         of the same length as closestNodeIds.
+     * @return The number of nodes found, at most the length of closestNodeIds.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the arrays have different lengths.
+     */
+    public int nodesClosestTo(double e, double n, double searchDistance,
+                              int[] closestNodeIds, double[] squaredDistances) {
+        checkArgument(closestNodeIds.length == squaredDistances.length);
+        int k = closestNodeIds.length;
+        if (k == 0) return 0;
+        double x = e - originE;
+        double y = n - originN;
+        int centerColumn = (int) Math.floor(x / CELL_SIZE);
+        int centerRow = (int) Math.floor(y / CELL_SIZE);
+        int maxRing = ringsToSearch(x, y, centerColumn, centerRow, searchDistance);
+
+        double limit = searchDistance * searchDistance;
+        int found = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double bound = ringLowerBound(ring);
+            double worst = (found == k) ? squaredDistances[k - 1] : limit;
+            if (bound * bound > worst) break;
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= rows) continue;
+                boolean fullRow = row == centerRow - ring || row == centerRow + ring;
+                int step = fullRow ? 1 : Math.max(1, 2 * ring);
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    if (column < 0 || column >= columns) continue;
+                    int cell = row * columns + column;
+                    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                        double dE = nodesE[i] * UNIT - x;
+                        double dN = nodesN[i] * UNIT - y;
+                        double distance = dE * dE + dN * dN;
+                        if (distance > limit || (found == k && distance >= squaredDistances[k - 1])) continue;
+                        int j = (found < k) ? found++ : k - 1;
+                        while (j > 0 && squaredDistances[j - 1] > distance) {
+                            squaredDistances[j] = squaredDistances[j - 1];
+                            closestNodeIds[j] = closestNodeIds[j - 1];
+                            j--;
+                        }
+                        squaredDistances[j] = distance;
+                        closestNodeIds[j] = nodeIds[i];
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * This method allows us to snap many positions at once to their closest node.
+     *
+     * @param e              The east coordinates of the positions.
+     * @param n              The north coordinates of the positions.
+     * @param searchDistance The search distance.
+     * @param closestNodeIds The array receiving, for each position, the identity of its closest node or -1.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the arrays have different lengths.
+     */
+    public void nodesClosestTo(double[] e, double[] n, double searchDistance, int[] closestNodeIds) {
+        checkArgument(e.length == n.length && n.length == closestNodeIds.length);
+        for (int i = 0; i < e.length; i++) {
+            closestNodeIds[i] = nodeClosestTo(e[i], n[i], searchDistance);
+        }
+    }
+
+    /**
+     * This method allows us to compute the number of rings of cells around the center cell which can
+     * contain a node at the search distance and which intersect the grid.
+     *
+     * @param x              The east coordinate of the position, relative to the grid's origin.
+     * @param y              The north coordinate of the position, relative to the grid's origin.
+     * @param centerColumn   The column of the cell containing the position.
+     * @param centerRow      The row of the cell containing the position.
+     * @param searchDistance The search distance.
+     * @return The index of the last ring to look through, -1 if none.
+     */
+    private int ringsToSearch(double x, double y, int centerColumn, int centerRow, double searchDistance) {
+        double outsideE = Math.max(0, Math.max(-x, x - columns * CELL_SIZE));
+        double outsideN = Math.max(0, Math.max(-y, y - rows * CELL_SIZE));
+        if (outsideE * outsideE + outsideN * outsideN > searchDistance * searchDistance) return -1;
+        int byDistance = 1 + (int) Math.ceil(searchDistance / CELL_SIZE);
+        int byGrid = Math.max(Math.max(centerColumn, columns - 1 - centerColumn),
+                Math.max(centerRow, rows - 1 - centerRow));
+        return Math.min(byDistance, byGrid);
+    }
+
+    /**
+     * This method allows us to compute a lower bound of the distance between a position and
+     * any node located in a ring of cells around the cell containing this position.
+     *
+     * @param ring The index of the ring, 0 being the cell containing the position.
+     * @return The lower bound of the distance.
+     */
+    private static double ringLowerBound(int ring) {
+        return Math.max(0, ring - 1) * CELL_SIZE;
+    }
+}
@@ -0,0 +1,133 @@
+package ch.epfl.javelo.data;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A spliterator over a range of consecutive nodes of a graph. As the edges of consecutive nodes follow
+ * each other, a range of nodes also covers a range of consecutive edges. A range is split at the first node
+ * whose first edge is in the second half of the edges of the range, so that the parallel scans of the edges
+ * are balanced. The split ignores the sectors, and a sector may therefore be shared by both halves.
+ * Each half keeps at least MIN_SPLIT_NODES nodes.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class NodeSpliterator implements Spliterator.OfInt {
+
+    /**
+     * The number of nodes below which a range is not split anymore.
+     */
+    private static final int MIN_SPLIT_NODES = 1 << 10;
+
+    private final GraphNodes nodes;
+    private final int edgeCount;
+    private int origin;
+    private final int fence;
+
+    /**
+     * This method is the constructor of the class NodeSpliterator.
+     *
+     * @param nodes     The nodes of the graph.
+     * @param edgeCount The number of edges of the graph.
+     * @param origin    The identity of the first node of the range.
+     * @param fence     The identity following the last node of the range.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the range is not inside the nodes.
+     */
+    public NodeSpliterator(GraphNodes nodes, int edgeCount, int origin, int fence) {
+        checkArgument(0 <= origin && origin <= fence && fence <= nodes.count());
+        this.nodes = nodes;
+        this.edgeCount = edgeCount;
+        this.origin = origin;
+        this.fence = fence;
+    }
+
+    /**
+     * This method allows us to give the next node of the range to an action.
+     *
+     * @param action The action.
+     * @return True iff there was a node left.
+     */
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (origin >= fence) return false;
+        action.accept(origin++);
+        return true;
+    }
+
+    /**
+     * This method allows us to give every remaining node of the range to an action.
+     *
+     * @param action The action.
+     */
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        int end = fence;
+        for (int nodeId = origin; nodeId < end; nodeId++) action.accept(nodeId);
+        origin = end;
+    }
+
+    /**
+     * This method allows us to split the range where its edges are halved, the first half being returned.
+     *
+     * @return A spliterator over the first half of the range, or null if the range is too small.
+     */
+    @Override
+    public OfInt trySplit() {
+        if (fence - origin < 2 * MIN_SPLIT_NODES) return null;
+        int low = origin + MIN_SPLIT_NODES;
+        int high = fence - MIN_SPLIT_NODES;
+        long middleEdge = ((long) firstEdgeId(origin) + firstEdgeId(fence)) / 2;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (firstEdgeId(middle) < middleEdge) low = middle + 1;
+            else high = middle;
+        }
+        NodeSpliterator prefix = new NodeSpliterator(nodes, edgeCount, origin, low);
+        origin = low;
+        return prefix;
+    }
+
+    /**
+     * This private method allows us to get the first edge of a node, or the number of edges after the last node.
+     *
+     * @param nodeId The identity of the node, possibly the number of nodes.
+     * @return The identity of the first edge of the node.
+     */
+    private int firstEdgeId(int nodeId) {
+        return nodeId == nodes.count() ? edgeCount : nodes.firstEdgeId(nodeId);
+    }
+
+    /**
+     * This method allows us to know the number of remaining nodes.
+     *
+     * @return The number of remaining nodes.
+     */
+    @Override
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    /**
+     * This method allows us to know the characteristics of the nodes of the range.
+     *
+     * @return The characteristics of the spliterator.
+     */
+    @Override
+    public int characteristics() {
+        return ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * This method allows us to get the order of the nodes, which is the natural one.
+     *
+     * @return null, as the nodes are sorted in their natural order.
+     */
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        return null;
+    }
+}
@@ -0,0 +1,148 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Math2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * An index allowing us to find the identity of a node of the graph from its OpenStreetMap identity.
+ * The OpenStreetMap identities are stored sorted in a buffer, followed by the identities of the corresponding
+ * nodes in the same order, so that the index can be written to a file and memory-mapped afterwards.
+ * A small array containing one identity out of BLOCK_SIZE is kept in memory to start the searches,
+ * so that only the last steps of a search read the buffer.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class OsmNodeIndex {
+
+    /**
+     * The number of bytes used to represent an entry, its OpenStreetMap identity and the identity of its node.
+     */
+    private static final int ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+
+    /**
+     * The number of entries between two identities of the array used to start the searches.
+     */
+    private static final int BLOCK_SIZE = 64;
+
+    private final LongBuffer osmIds;
+    private final IntBuffer nodeIds;
+    private final long[] blockFirstIds;
+
+    /**
+     * Private constructor, the index is built using the methods of(LongBuffer) and loadFrom(Path).
+     *
+     * @param buffer The buffer containing the sorted OpenStreetMap identities followed by the node identities.
+     */
+    private OsmNodeIndex(ByteBuffer buffer) {
+        checkArgument(buffer.capacity() % ENTRY_BYTES == 0);
+        int count = buffer.capacity() / ENTRY_BYTES;
+        this.osmIds = buffer.slice(0, count * Long.BYTES).asLongBuffer();
+        this.nodeIds = buffer.slice(count * Long.BYTES, count * Integer.BYTES).asIntBuffer();
+        this.blockFirstIds = new long[Math2.ceilDiv(count, BLOCK_SIZE)];
+        for (int i = 0; i < blockFirstIds.length; i++) blockFirstIds[i] = osmIds.get(i * BLOCK_SIZE);
+    }
+
+    /**
+     * This method allows us to build the index of the given OpenStreetMap identities,
+     * the one at index i being the OpenStreetMap identity of the node i (as in the file nodes_osmid.bin).
+     *
+     * @param nodesOsmIds The OpenStreetMap identities of the nodes.
+     * @return The index of these identities.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if two nodes have the same identity.
+     */
+    public static OsmNodeIndex of(LongBuffer nodesOsmIds) {
+        int count = nodesOsmIds.capacity();
+        long[] sorted = new long[count];
+        nodesOsmIds.get(0, sorted);
+        Arrays.sort(sorted);
+        for (int i = 1; i < count; i++) checkArgument(sorted[i - 1] != sorted[i]);
+
+        ByteBuffer buffer = ByteBuffer.allocate(count * ENTRY_BYTES);
+        buffer.asLongBuffer().put(sorted);
+        IntBuffer nodeIds = buffer.slice(count * Long.BYTES, count * Integer.BYTES).asIntBuffer();
+        for (int nodeId = 0; nodeId < count; nodeId++)
+            nodeIds.put(Arrays.binarySearch(sorted, nodesOsmIds.get(nodeId)), nodeId);
+        return new OsmNodeIndex(buffer);
+    }
+
+    /**
+     * This method allows us to open an index previously written with writeTo, by memory-mapping its file.
+     *
+     * @param path The path of the file.
+     * @return The index contained in the file.
+     * @throws IOException Throws an exception if it was unable to open the given file.
+     */
+    public static OsmNodeIndex loadFrom(Path path) throws IOException {
+        return new OsmNodeIndex(GraphFiles.map(path));
+    }
+
+    /**
+     * This method allows us to write this index to a file, so that it can later be opened with loadFrom.
+     *
+     * @param path The path of the file.
+     * @throws IOException Throws an exception if it was unable to write the given file.
+     */
+    public void writeTo(Path path) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(count() * ENTRY_BYTES);
+        bytes.asLongBuffer().put(osmIds.duplicate().rewind());
+        bytes.slice(count() * Long.BYTES, count() * Integer.BYTES).asIntBuffer().put(nodeIds.duplicate().rewind());
+        GraphFiles.write(path, bytes);
+    }
+
+    /**
+     * This method allows us to get the number of nodes in the index.
+     *
+     * @return The number of nodes.
+     */
+    public int count() {
+        return osmIds.capacity();
+    }
+
+    /**
+     * This method allows us to find the identity of the node having the given OpenStreetMap identity.
+     * The block which may contain it is found by a binary search in the array kept in memory,
+     * then the identity is looked for by a binary search in this block.
+     * The identities being very unevenly spread (the old ones are much denser than the recent ones),
+     * an interpolation search would need many more steps.
+     *
+     * @param osmId The OpenStreetMap identity of the node.
+     * @return The identity of the node, or -1 if no node has this OpenStreetMap identity.
+     */
+    public int nodeId(long osmId) {
+        int block = Arrays.binarySearch(blockFirstIds, osmId);
+        if (block >= 0) return nodeIds.get(block * BLOCK_SIZE);
+        block = -block - 2;
+        if (block < 0) return -1;
+        int low = block * BLOCK_SIZE + 1;
+        int high = Math.min(low + BLOCK_SIZE - 1, count()) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = osmIds.get(middle);
+            if (middleId == osmId) return nodeIds.get(middle);
+            if (middleId < osmId) low = middle + 1;
+            else high = middle - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * This method allows us to find the identities of the nodes having the given OpenStreetMap identities.
+     *
+     * @param osmIds      The OpenStreetMap identities of the nodes.
+     * @param destination The array in which the identities of the nodes are written, -1 for the unknown ones.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the destination is too small.
+     */
+    public void nodeIds(long[] osmIds, int[] destination) {
+        checkArgument(destination.length >= osmIds.length);
+        for (int i = 0; i < osmIds.length; i++) destination[i] = nodeId(osmIds[i]);
+    }
+}
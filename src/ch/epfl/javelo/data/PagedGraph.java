@@ -0,0 +1,651 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+
+import static ch.epfl.javelo.Bits.extractUnsigned;
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A graph whose nodes and edges are read from the files of a directory only when needed, one page at a time,
+ * instead of being mapped in memory. A page contains the nodes of consecutive sectors, the edges leaving them
+ * and the samples of the profiles of these edges.
+ * <p>
+ * The pages are kept in memory as long as their total size is below a given budget, the pages to remove
+ * being chosen with the clock algorithm: a page used since the hand of the clock last passed it gets
+ * a second chance. Pinned pages are never removed, and may make the total size exceed the budget.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class PagedGraph implements RoutingGraph {
+
+    /**
+     * The number of ints taken by a node.
+     */
+    private static final int NODE_INTS = 3;
+    /**
+     * The index of the int of a node containing its out-degree and the identity of its first edge.
+     */
+    private static final int OFFSET_OUT_EDGES = 2;
+    /**
+     * The number of bytes taken by an edge.
+     */
+    private static final int EDGE_BYTES = Integer.BYTES + 3 * Short.BYTES;
+    /**
+     * The number of bytes taken by a sector.
+     */
+    private static final int SECTOR_BYTES = Integer.BYTES + Short.BYTES;
+    /**
+     * The number of sectors of the Swiss cartography.
+     */
+    private static final int SECTOR_COUNT = 128 * 128;
+    /**
+     * The number of nodes above which consecutive sectors are not grouped in the same page anymore.
+     */
+    private static final int DEFAULT_PAGE_NODES = 1024;
+    /**
+     * The number of bytes counted for a page in addition to its data.
+     */
+    private static final int PAGE_OVERHEAD_BYTES = 256;
+    /**
+     * The number of elevation samples that may separate two profiles read from the file at once.
+     */
+    private static final int PROFILE_MERGE_GAP = 256;
+    /**
+     * The index of the type of a profile in its identity.
+     */
+    private static final int PROFILE_TYPE_INDEX = 30;
+    /**
+     * The length of the index of the first sample of a profile in its identity.
+     */
+    private static final int SAMPLE_INDEX_LENGTH = 29;
+
+    private final Path basePath;
+    private final GraphSectors sectors;
+    private final List<AttributeSet> attributeSets;
+    private final int[] pageFirstNodes;
+    private final int[] pageFirstEdges;
+    private final long memoryBudget;
+    private final AtomicReferenceArray<Page> residentPages;
+    private final boolean[] referenced;
+    private final int[] pinCounts;
+    private final ArrayDeque<Page> clock;
+    private final LongAdder hits;
+    private long faults;
+    private long evictions;
+    private long residentBytes;
+
+    /**
+     * The data of a page, whose edges and profiles are numbered from zero.
+     *
+     * @param index       The index of the page.
+     * @param firstNodeId The identity of the first node of the page.
+     * @param firstEdgeId The identity of the first edge of the page.
+     * @param nodes       The nodes of the page.
+     * @param edges       The edges of the page, whose profiles refer to the samples of the page.
+     * @param bytes       The number of bytes counted for the page.
+     */
+    private record Page(int index, int firstNodeId, int firstEdgeId, GraphNodes nodes, GraphEdges edges,
+                        long bytes) {
+    }
+
+    /**
+     * The counters of the pages read and used by a paged graph.
+     *
+     * @param hits          The number of times a page was already in memory when needed.
+     * @param faults        The number of times a page had to be read from the files.
+     * @param evictions     The number of pages removed from memory to respect the budget.
+     * @param residentPages The number of pages currently in memory.
+     * @param residentBytes The number of bytes counted for the pages currently in memory.
+     */
+    public record Statistics(long hits, long faults, long evictions, int residentPages, long residentBytes) {
+    }
+
+    /**
+     * A set of pages kept in memory until it is closed.
+     */
+    public final class Pin implements AutoCloseable {
+        private int[] pageIndices;
+
+        /**
+         * This method is the private constructor of the class Pin.
+         *
+         * @param pageIndices The indices of the pinned pages.
+         */
+        private Pin(int[] pageIndices) {
+            this.pageIndices = pageIndices;
+        }
+
+        /**
+         * This method allows us to unpin the pages, which can be removed from memory again.
+         * Closing a pin several times has no further effect.
+         */
+        @Override
+        public void close() {
+            synchronized (PagedGraph.this) {
+                for (int index : pageIndices) pinCounts[index]--;
+                pageIndices = new int[0];
+            }
+        }
+    }
+
+    /**
+     * This method is the private constructor of the class PagedGraph.
+     *
+     * @param basePath       The directory of the files of the graph.
+     * @param sectors        The sectors of the graph.
+     * @param attributeSets  The sets of attributes of the edges.
+     * @param pageFirstNodes The identity of the first node of each page, followed by the number of nodes.
+     * @param pageFirstEdges The identity of the first edge of each page, followed by the number of edges.
+     * @param memoryBudget   The number of bytes the pages in memory should not exceed.
+     */
+    private PagedGraph(Path basePath, GraphSectors sectors, List<AttributeSet> attributeSets,
+                       int[] pageFirstNodes, int[] pageFirstEdges, long memoryBudget) {
+        int pageCount = pageFirstNodes.length - 1;
+        this.basePath = basePath;
+        this.sectors = sectors;
+        this.attributeSets = List.copyOf(attributeSets);
+        this.pageFirstNodes = pageFirstNodes;
+        this.pageFirstEdges = pageFirstEdges;
+        this.memoryBudget = memoryBudget;
+        this.residentPages = new AtomicReferenceArray<>(pageCount);
+        this.referenced = new boolean[pageCount];
+        this.pinCounts = new int[pageCount];
+        this.clock = new ArrayDeque<>();
+        this.hits = new LongAdder();
+    }
+
+    /**
+     * This method allows us to open the graph of a directory without reading its nodes and edges.
+     *
+     * @param basePath     The directory of the files of the graph.
+     * @param memoryBudget The number of bytes the pages in memory should not exceed.
+     * @return The paged graph.
+     * @throws IOException              Throws an exception if it was unable to read the files of the graph.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the budget is not positive,
+     *                                  or if the nodes are not ordered by sector and their edges by node.
+     */
+    public static PagedGraph loadFrom(Path basePath, long memoryBudget) throws IOException {
+        return loadFrom(basePath, memoryBudget, DEFAULT_PAGE_NODES);
+    }
+
+    /**
+     * This method allows us to open the graph of a directory without reading its nodes and edges,
+     * choosing the size of the pages.
+     *
+     * @param basePath     The directory of the files of the graph.
+     * @param memoryBudget The number of bytes the pages in memory should not exceed.
+     * @param pageNodes    The number of nodes above which consecutive sectors are not grouped in the same page.
+     * @return The paged graph.
+     * @throws IOException              Throws an exception if it was unable to read the files of the graph.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the budget or the number of nodes
+     *                                  is not positive, or if the nodes are not ordered by sector and their
+     *                                  edges by node.
+     */
+    public static PagedGraph loadFrom(Path basePath, long memoryBudget, int pageNodes) throws IOException {
+        checkArgument(memoryBudget > 0 && pageNodes > 0);
+        ByteBuffer sectorsBuffer = ByteBuffer.wrap(Files.readAllBytes(basePath.resolve(GraphFiles.SECTORS)));
+        LongBuffer attributes =
+                ByteBuffer.wrap(Files.readAllBytes(basePath.resolve(GraphFiles.ATTRIBUTES))).asLongBuffer();
+        List<AttributeSet> attributeSets = new ArrayList<>(attributes.capacity());
+        for (int i = 0; i < attributes.capacity(); i++) attributeSets.add(new AttributeSet(attributes.get(i)));
+        int nodeCount = (int) (Files.size(basePath.resolve(GraphFiles.NODES)) / (NODE_INTS * Integer.BYTES));
+        int edgeCount = (int) (Files.size(basePath.resolve(GraphFiles.EDGES)) / EDGE_BYTES);
+
+        // Groups consecutive sectors, whose nodes follow each other, in pages
+        List<Integer> firstNodes = new ArrayList<>();
+        int pageStart = 0;
+        int nextNodeId = 0;
+        for (int sector = 0; sector < SECTOR_COUNT; sector++) {
+            int start = sectorsBuffer.getInt(sector * SECTOR_BYTES);
+            int count = Short.toUnsignedInt(sectorsBuffer.getShort(sector * SECTOR_BYTES + Integer.BYTES));
+            if (count == 0) continue;
+            checkArgument(start == nextNodeId);
+            if (start > pageStart && start + count - pageStart > pageNodes) {
+                firstNodes.add(pageStart);
+                pageStart = start;
+            }
+            nextNodeId = start + count;
+        }
+        checkArgument(nextNodeId == nodeCount);
+        if (nodeCount > 0) firstNodes.add(pageStart);
+
+        int pageCount = firstNodes.size();
+        int[] pageFirstNodes = new int[pageCount + 1];
+        int[] pageFirstEdges = new int[pageCount + 1];
+        try (FileChannel nodesChannel = FileChannel.open(basePath.resolve(GraphFiles.NODES))) {
+            ByteBuffer outEdges = ByteBuffer.allocate(Integer.BYTES);
+            for (int page = 0; page < pageCount; page++) {
+                pageFirstNodes[page] = firstNodes.get(page);
+                outEdges.clear();
+                read(nodesChannel, outEdges,
+                        ((long) pageFirstNodes[page] * NODE_INTS + OFFSET_OUT_EDGES) * Integer.BYTES);
+                pageFirstEdges[page] = extractUnsigned(outEdges.getInt(0), 0, 28);
+                checkArgument(page == 0 || pageFirstEdges[page] >= pageFirstEdges[page - 1]);
+            }
+        }
+        pageFirstNodes[pageCount] = nodeCount;
+        pageFirstEdges[pageCount] = edgeCount;
+        checkArgument(pageCount == 0 || pageFirstEdges[pageCount - 1] <= edgeCount);
+        return new PagedGraph(basePath, new GraphSectors(sectorsBuffer), attributeSets,
+                pageFirstNodes, pageFirstEdges, memoryBudget);
+    }
+
+    /**
+     * This private method allows us to fill a buffer with the content of a file at a given position.
+     *
+     * @param channel  The channel of the file.
+     * @param buffer   The buffer to fill, from its position to its limit.
+     * @param position The position in the file of the first byte to read.
+     * @throws IOException Throws an exception if it was unable to read the file or if it is too short.
+     */
+    private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) throw new EOFException();
+        }
+    }
+
+    /**
+     * This method allows us to know the number of pages of this graph.
+     *
+     * @return The number of pages.
+     */
+    public int pageCount() {
+        return pageFirstNodes.length - 1;
+    }
+
+    /**
+     * This method allows us to get the counters of the pages read and used by this graph.
+     *
+     * @return The current values of the counters.
+     */
+    public synchronized Statistics statistics() {
+        return new Statistics(hits.sum(), faults, evictions, clock.size(), residentBytes);
+    }
+
+    /**
+     * This method allows us to keep in memory the pages containing the nodes around a point,
+     * for example while computing a route in this area, until the returned pin is closed.
+     *
+     * @param center   The center of the area.
+     * @param distance The distance from the center to the sides of the square area.
+     * @return The pin of the pages, to close once they are not needed anymore.
+     */
+    public Pin pinArea(PointCh center, double distance) {
+        int[] pageIndices = sectors.sectorsInArea(center, distance).stream()
+                .filter(sector -> sector.endNodeId() > sector.startNodeId())
+                .mapToInt(sector -> pageOf(pageFirstNodes, sector.startNodeId()))
+                .distinct()
+                .toArray();
+        synchronized (this) {
+            for (int index : pageIndices) {
+                if (residentPages.get(index) == null) load(index);
+                pinCounts[index]++;
+            }
+        }
+        return new Pin(pageIndices);
+    }
+
+    /**
+     * This private method allows us to find the last page whose first identity is smaller or equal
+     * to the given one, which skips the pages without edges.
+     *
+     * @param firstIds The first identity of each page, followed by the total.
+     * @param id       The identity of the node or edge.
+     * @return The index of the page containing the identity.
+     */
+    private static int pageOf(int[] firstIds, int id) {
+        int low = 0;
+        int high = firstIds.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (firstIds[middle] <= id) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+
+    /**
+     * This private method allows us to get a page, reading it if it is not in memory.
+     * The pages in memory are found without locking, only their reading and removal being synchronized.
+     *
+     * @param index The index of the page.
+     * @return The page.
+     */
+    private Page page(int index) {
+        Page page = residentPages.get(index);
+        if (page == null) {
+            synchronized (this) {
+                page = residentPages.get(index);
+                if (page == null) return load(index);
+            }
+        }
+        referenced[index] = true;
+        hits.increment();
+        return page;
+    }
+
+    /**
+     * This private method allows us to get the page containing a node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The page of the node.
+     */
+    private Page nodePage(int nodeId) {
+        return page(pageOf(pageFirstNodes, nodeId));
+    }
+
+    /**
+     * This private method allows us to get the page containing an edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The page of the edge.
+     */
+    private Page edgePage(int edgeId) {
+        return page(pageOf(pageFirstEdges, edgeId));
+    }
+
+    /**
+     * This private method allows us to read a page, after having removed enough pages from memory for it
+     * to fit in the budget. It must be called while holding the lock of this graph.
+     *
+     * @param index The index of the page.
+     * @return The page.
+     * @throws UncheckedIOException Throws an exception if it was unable to read the files of the graph.
+     */
+    private Page load(int index) {
+        Page page;
+        try {
+            page = read(index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        faults++;
+        makeRoom(page.bytes());
+        residentPages.set(index, page);
+        referenced[index] = true;
+        clock.addLast(page);
+        residentBytes += page.bytes();
+        return page;
+    }
+
+    /**
+     * This private method allows us to remove pages from memory until the given number of bytes fits in
+     * the budget, or until only pinned pages remain. The hand of the clock is the head of the queue.
+     *
+     * @param bytes The number of bytes needed.
+     */
+    private void makeRoom(long bytes) {
+        // Two turns are enough to clear every reference bit
+        int remainingSteps = 2 * clock.size();
+        while (residentBytes + bytes > memoryBudget && !clock.isEmpty() && remainingSteps-- > 0) {
+            Page candidate = clock.pollFirst();
+            int index = candidate.index();
+            if (pinCounts[index] > 0 || referenced[index]) {
+                referenced[index] = false;
+                clock.addLast(candidate);
+            } else {
+                residentPages.set(index, null);
+                residentBytes -= candidate.bytes();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * This private method allows us to read the nodes, edges and profiles of a page from the files.
+     *
+     * @param index The index of the page.
+     * @return The page.
+     * @throws IOException Throws an exception if it was unable to read the files of the graph.
+     */
+    private Page read(int index) throws IOException {
+        int firstNodeId = pageFirstNodes[index];
+        int nodeCount = pageFirstNodes[index + 1] - firstNodeId;
+        int firstEdgeId = pageFirstEdges[index];
+        int edgeCount = pageFirstEdges[index + 1] - firstEdgeId;
+
+        ByteBuffer nodes = ByteBuffer.allocate(nodeCount * NODE_INTS * Integer.BYTES);
+        ByteBuffer edges = ByteBuffer.allocate(edgeCount * EDGE_BYTES);
+        ByteBuffer profiles = ByteBuffer.allocate(edgeCount * Integer.BYTES);
+        try (FileChannel nodesChannel = FileChannel.open(basePath.resolve(GraphFiles.NODES));
+             FileChannel edgesChannel = FileChannel.open(basePath.resolve(GraphFiles.EDGES));
+             FileChannel profilesChannel = FileChannel.open(basePath.resolve(GraphFiles.PROFILE_IDS))) {
+            read(nodesChannel, nodes, (long) firstNodeId * NODE_INTS * Integer.BYTES);
+            read(edgesChannel, edges, (long) firstEdgeId * EDGE_BYTES);
+            read(profilesChannel, profiles, (long) firstEdgeId * Integer.BYTES);
+        }
+        IntBuffer profileIds = profiles.flip().asIntBuffer();
+        GraphEdges fileEdges = new GraphEdges(edges.flip(), profileIds, null);
+
+        // Reads the samples of the profiles, profiles close to each other in the file being read at once
+        long[] ranges = new long[edgeCount];
+        int rangeCount = 0;
+        for (int edgeId = 0; edgeId < edgeCount; edgeId++) {
+            int profileId = profileIds.get(edgeId);
+            int type = profileId >>> PROFILE_TYPE_INDEX;
+            if (type == 0) continue;
+            int sampleCount = fileEdges.sampleCount(edgeId);
+            int perShort = type == 2 ? 2 : 4;
+            int shortCount = type == 1 ? sampleCount : 1 + (sampleCount - 1 + perShort - 1) / perShort;
+            ranges[rangeCount++] = (long) extractUnsigned(profileId, 0, SAMPLE_INDEX_LENGTH) << Integer.SIZE
+                    | shortCount;
+        }
+        Arrays.sort(ranges, 0, rangeCount);
+        int[] runStarts = new int[rangeCount];
+        int[] runEnds = new int[rangeCount];
+        int runCount = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            int start = (int) (ranges[i] >>> Integer.SIZE);
+            int end = start + (int) ranges[i];
+            if (runCount > 0 && start <= runEnds[runCount - 1] + PROFILE_MERGE_GAP) {
+                runEnds[runCount - 1] = Math.max(runEnds[runCount - 1], end);
+            } else {
+                runStarts[runCount] = start;
+                runEnds[runCount] = end;
+                runCount++;
+            }
+        }
+        int[] runOffsets = new int[runCount + 1];
+        for (int run = 0; run < runCount; run++)
+            runOffsets[run + 1] = runOffsets[run] + runEnds[run] - runStarts[run];
+        ByteBuffer samples = ByteBuffer.allocate(Math.max(1, runOffsets[runCount]) * Short.BYTES);
+        if (runCount > 0) {
+            try (FileChannel elevationsChannel = FileChannel.open(basePath.resolve(GraphFiles.ELEVATIONS))) {
+                for (int run = 0; run < runCount; run++) {
+                    samples.limit(runOffsets[run + 1] * Short.BYTES);
+                    read(elevationsChannel, samples, (long) runStarts[run] * Short.BYTES);
+                }
+            }
+        }
+        samples.clear();
+
+        // Makes the profiles refer to the samples of the page
+        for (int edgeId = 0; edgeId < edgeCount; edgeId++) {
+            int profileId = profileIds.get(edgeId);
+            int type = profileId >>> PROFILE_TYPE_INDEX;
+            if (type == 0) continue;
+            int start = extractUnsigned(profileId, 0, SAMPLE_INDEX_LENGTH);
+            int run = Arrays.binarySearch(runStarts, 0, runCount, start);
+            if (run < 0) run = -run - 2;
+            profileIds.put(edgeId, type << PROFILE_TYPE_INDEX | runOffsets[run] + start - runStarts[run]);
+        }
+
+        long bytes = PAGE_OVERHEAD_BYTES + nodes.capacity() + edges.capacity() + profiles.capacity()
+                + samples.capacity();
+        return new Page(index, firstNodeId, firstEdgeId, new GraphNodes(nodes.flip().asIntBuffer()),
+                new GraphEdges(edges, profileIds, samples.asShortBuffer()), bytes);
+    }
+
+    /**
+     * This method allows us to know the number of nodes in this graph.
+     *
+     * @return The number of nodes in this graph.
+     */
+    @Override
+    public int nodeCount() {
+        return pageFirstNodes[pageCount()];
+    }
+
+    /**
+     * This method allows us to get the position of the given node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The position of the given node.
+     */
+    @Override
+    public PointCh nodePoint(int nodeId) {
+        Page page = nodePage(nodeId);
+        int localId = nodeId - page.firstNodeId();
+        return new PointCh(page.nodes().nodeE(localId), page.nodes().nodeN(localId));
+    }
+
+    /**
+     * This method allows us to get the number of leaving edges of the given node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The number of leaving edges of this node.
+     */
+    @Override
+    public int nodeOutDegree(int nodeId) {
+        Page page = nodePage(nodeId);
+        return page.nodes().outDegree(nodeId - page.firstNodeId());
+    }
+
+    /**
+     * This method allows us to get the identity of a leaving edge with the id of its node and
+     * its index in the list of edges leaving this specific node.
+     *
+     * @param nodeId    The identity of the node.
+     * @param edgeIndex The index of the edge in the list of edges leaving this specific node.
+     * @return The identity of the given edge.
+     */
+    @Override
+    public int nodeOutEdgeId(int nodeId, int edgeIndex) {
+        Page page = nodePage(nodeId);
+        return page.nodes().edgeId(nodeId - page.firstNodeId(), edgeIndex);
+    }
+
+    /**
+     * This method allows us to determine the closest node to a given point at a given distance,
+     * reading only the pages of the sectors around the point.
+     *
+     * @param point          The point from which we're trying to determine the closest node.
+     * @param searchDistance The search distance.
+     * @return The identity of the closest node to the given point, or -1 if no nodes satisfy criteria.
+     */
+    @Override
+    public int nodeClosestTo(PointCh point, double searchDistance) {
+        double closestDistance = searchDistance * searchDistance;
+        int closestNodeId = -1;
+        for (GraphSectors.Sector sector : sectors.sectorsInArea(point, searchDistance)) {
+            if (sector.endNodeId() == sector.startNodeId()) continue;
+            Page page = nodePage(sector.startNodeId());
+            for (int nodeId = sector.startNodeId(); nodeId < sector.endNodeId(); nodeId++) {
+                int localId = nodeId - page.firstNodeId();
+                double dE = page.nodes().nodeE(localId) - point.e();
+                double dN = page.nodes().nodeN(localId) - point.n();
+                double distance = dE * dE + dN * dN;
+                if (distance <= closestDistance) {
+                    closestDistance = distance;
+                    closestNodeId = nodeId;
+                }
+            }
+        }
+        return closestNodeId;
+    }
+
+    /**
+     * This method allows us to get the identity of the node targeted by the given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The identity of the node targeted by the given edge.
+     */
+    @Override
+    public int edgeTargetNodeId(int edgeId) {
+        Page page = edgePage(edgeId);
+        return page.edges().targetNodeId(edgeId - page.firstEdgeId());
+    }
+
+    /**
+     * This method allows us to determine whether this edge is inverted or not.
+     *
+     * @param edgeId The identity of the edge.
+     * @return True iff the edge is facing the opposite direction as the way it comes from.
+     */
+    @Override
+    public boolean edgeIsInverted(int edgeId) {
+        Page page = edgePage(edgeId);
+        return page.edges().isInverted(edgeId - page.firstEdgeId());
+    }
+
+    /**
+     * This method allows us to get the set of attributes corresponding to the given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return A set of the attributes corresponding to the given edge.
+     */
+    @Override
+    public AttributeSet edgeAttributes(int edgeId) {
+        Page page = edgePage(edgeId);
+        return attributeSets.get(page.edges().attributesIndex(edgeId - page.firstEdgeId()));
+    }
+
+    /**
+     * This method allows us to get an edge's length.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The length of the given edge.
+     */
+    @Override
+    public double edgeLength(int edgeId) {
+        Page page = edgePage(edgeId);
+        return page.edges().length(edgeId - page.firstEdgeId());
+    }
+
+    /**
+     * This method allows us to get the elevation gain of a given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The elevation gain of the given edge.
+     */
+    @Override
+    public double edgeElevationGain(int edgeId) {
+        Page page = edgePage(edgeId);
+        return page.edges().elevationGain(edgeId - page.firstEdgeId());
+    }
+
+    /**
+     * This method allows us to get the profile of a given edge, whose samples are copied from its page.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The profile of the edge represented as a function.
+     */
+    @Override
+    public DoubleUnaryOperator edgeProfile(int edgeId) {
+        Page page = edgePage(edgeId);
+        int localId = edgeId - page.firstEdgeId();
+        return !page.edges().hasProfile(localId)
+                ? Functions.constant(Double.NaN)
+                : Functions.sampled(page.edges().profileSamples(localId), page.edges().length(localId));
+    }
+}
@@ -0,0 +1,105 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.projection.PointCh;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * This Interface is used to represent the nodes and edges of a graph as they are read to compute routes,
+ * whether they come from a single directory or from several ones.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public interface RoutingGraph {
+
+    /**
+     * This method allows us to know the number of nodes in this graph.
+     *
+     * @return The number of nodes in this graph.
+     */
+    int nodeCount();
+
+    /**
+     * This method allows us to get the position of the given node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The position of the given node.
+     */
+    PointCh nodePoint(int nodeId);
+
+    /**
+     * This method allows us to get the number of leaving edges of the given node.
+     *
+     * @param nodeId The identity of the node.
+     * @return The number of leaving edges of this node.
+     */
+    int nodeOutDegree(int nodeId);
+
+    /**
+     * This method allows us to get the identity of a leaving edge with the id of its node and
+     * its index in the list of edges leaving this specific node.
+     *
+     * @param nodeId    The identity of the node.
+     * @param edgeIndex The index of the edge in the list of edges leaving this specific node.
+     * @return The identity of the given edge.
+     */
+    int nodeOutEdgeId(int nodeId, int edgeIndex);
+
+    /**
+     * This method allows us to determine the closest node to a given point at a given distance.
+     *
+     * @param point          The point from which we're trying to determine the closest node.
+     * @param searchDistance The search distance.
+     * @return The identity of the closest node to the given point, or -1 if no nodes satisfy criteria.
+     */
+    int nodeClosestTo(PointCh point, double searchDistance);
+
+    /**
+     * This method allows us to get the identity of the node targeted by the given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The identity of the node targeted by the given edge.
+     */
+    int edgeTargetNodeId(int edgeId);
+
+    /**
+     * This method allows us to determine whether this edge is inverted or not.
+     *
+     * @param edgeId The identity of the edge.
+     * @return True iff the edge is facing the opposite direction as the way it comes from.
+     */
+    boolean edgeIsInverted(int edgeId);
+
+    /**
+     * This method allows us to get the set of attributes corresponding to the given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return A set of the attributes corresponding to the given edge.
+     */
+    AttributeSet edgeAttributes(int edgeId);
+
+    /**
+     * This method allows us to get an edge's length.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The length of the given edge.
+     */
+    double edgeLength(int edgeId);
+
+    /**
+     * This method allows us to get the elevation gain of a given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The elevation gain of the given edge.
+     */
+    double edgeElevationGain(int edgeId);
+
+    /**
+     * This method allows us to get the profile of a given edge.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The profile of the edge represented as a function.
+     */
+    DoubleUnaryOperator edgeProfile(int edgeId);
+}
@@ -1,6 +1,6 @@
 package ch.epfl.javelo.gui;
 
-import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.RoutingGraph;
 import ch.epfl.javelo.projection.PointCh;
 import ch.epfl.javelo.projection.PointWebMercator;
 import ch.epfl.javelo.routing.RoutePoint;
@@ -9,6 +9,7 @@ import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ObservableValue;
 import javafx.geometry.Point2D;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
@@ -65,7 +66,21 @@ public final class AnnotatedMapManager {
      * @param bean  the route.
      * @param cons  the error consumer.
      */
-    public AnnotatedMapManager(Graph graph, TileManager tiles, RouteBean bean, Consumer<String> cons) {
+    public AnnotatedMapManager(RoutingGraph graph, TileManager tiles, RouteBean bean, Consumer<String> cons) {
+        this(new SimpleObjectProperty<>(graph), tiles, bean, cons);
+    }
+
+    /**
+     * Constructor used when the graph is still being loaded, the map being displayed at once
+     * and the waypoints being queued until the graph is loaded.
+     *
+     * @param graph an observable value containing the graph, null until it is loaded.
+     * @param tiles the tile manager.
+     * @param bean  the route.
+     * @param cons  the error consumer.
+     */
+    public AnnotatedMapManager(ObservableValue<? extends RoutingGraph> graph, TileManager tiles, RouteBean bean,
+                               Consumer<String> cons) {
         RouteManager routeManager = new RouteManager(bean, mapViewParam);
         WaypointsManager waypointsManager = new WaypointsManager(graph, mapViewParam, bean.waypoints, cons);
         BaseMapManager baseMapManager = new BaseMapManager(tiles, waypointsManager, mapViewParam);
@@ -1,6 +1,7 @@
 package ch.epfl.javelo.gui;
 
 import ch.epfl.javelo.routing.ElevationProfile;
+import ch.epfl.javelo.routing.ProfileStatistics;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.*;
 import javafx.geometry.Insets;
@@ -18,11 +19,7 @@ import javafx.scene.transform.Affine;
 import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Transform;
 
-import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static ch.epfl.javelo.Math2.ceilDiv;
 
@@ -103,6 +100,11 @@ public final class ElevationProfileManager {
      */
     private static final String VBOX_ID = "profile_data";
 
+    /**
+     * String leading to the selection graphics.
+     */
+    private static final String SELECTION_ID = "selection";
+
     /**
      * String leading to the BorderPane graphics.
      */
@@ -128,6 +130,18 @@ public final class ElevationProfileManager {
      * Message showing the elevation.
      */
     private static final String STATISTICS_ELEVATION_MESSAGE = "     Altitude : de %.0f m à %.0f m";
+    /**
+     * Message showing the bounds of the selection.
+     */
+    private static final String STATISTICS_SELECTION_MESSAGE = "Sélection : de %.1f km à %.1f km";
+    /**
+     * Message showing the steepest grade of the selection.
+     */
+    private static final String STATISTICS_GRADE_MESSAGE = "     Pente max : %.1f %%";
+    /**
+     * A grade as a ratio in percents.
+     */
+    private static final int PERCENT = 100;
     /**
      * String leading to the minimum Y coordinate of the line showing the highlighted property on the profile.
      */
@@ -169,6 +183,7 @@ public final class ElevationProfileManager {
     private final Group textGroup;
     private final Polygon profileGraph;
     private final Line line;
+    private final Rectangle selection;
     private final Pane pane;
 
     private final Text vboxText;
@@ -179,6 +194,8 @@ public final class ElevationProfileManager {
     private final ObjectProperty<Transform> screenToWorld;
     private final ObjectProperty<Transform> worldToScreen;
 
+    private final DoubleProperty selectionStart;
+    private final DoubleProperty selectionEnd;
 
     /**
      * The constructor. Initialization of the attributes and pane. Attaches events handler and listener too.
@@ -195,6 +212,8 @@ public final class ElevationProfileManager {
         this.rectangle = new SimpleObjectProperty<>();
         this.screenToWorld = new SimpleObjectProperty<>();
         this.worldToScreen = new SimpleObjectProperty<>();
+        this.selectionStart = new SimpleDoubleProperty(Double.NaN);
+        this.selectionEnd = new SimpleDoubleProperty(Double.NaN);
 
         this.vboxText = new Text();
         VBox vbox = new VBox(vboxText);
@@ -209,7 +228,12 @@ public final class ElevationProfileManager {
         this.profileGraph = new Polygon();
         profileGraph.setId(POLYGON_ID);
 
-        this.pane = new Pane(path, textGroup, profileGraph, line);
+        this.selection = new Rectangle();
+        selection.setId(SELECTION_ID);
+        selection.setVisible(false);
+        selection.setMouseTransparent(true);
+
+        this.pane = new Pane(path, textGroup, profileGraph, selection, line);
 
         this.borderPane = new BorderPane(pane, null, null, vbox, null);
         borderPane.setBottom(vbox);
@@ -222,7 +246,10 @@ public final class ElevationProfileManager {
 
         handlerBorderPane();
 
-        elevationProfile.addListener((p, oldS, newS) -> operationsSequence());
+        elevationProfile.addListener((p, oldS, newS) -> {
+            clearSelection();
+            operationsSequence();
+        });
     }
 
     /**
@@ -255,6 +282,21 @@ public final class ElevationProfileManager {
             } else mousePositionOnProfileProperty.set(Double.NaN);
         });
 
+        borderPane.setOnMousePressed(e -> {
+            clearSelection();
+            createStats();
+            if (rectangle.get().contains(new Point2D(e.getX(), e.getY())))
+                selectionStart.set(screenToWorld.get().transform(e.getX(), e.getY()).getX());
+        });
+
+        borderPane.setOnMouseDragged(e -> {
+            if (Double.isNaN(selectionStart.get())) return;
+            double x = Math.max(rectangle.get().getMinX(), Math.min(e.getX(), rectangle.get().getMaxX()));
+            selectionEnd.set(screenToWorld.get().transform(x, e.getY()).getX());
+            mousePositionOnProfileProperty.set(selectionEnd.get());
+            updateSelection();
+        });
+
         borderPane.setOnMouseExited(event -> {
             if (!rectangle.get().contains(new Point2D(event.getX(), event.getY()))) {
                 mousePositionOnProfileProperty.set(Double.NaN);
@@ -262,6 +304,32 @@ public final class ElevationProfileManager {
         });
     }
 
+    /**
+     * This method forgets the selected range of the profile, and hides it.
+     */
+    private void clearSelection() {
+        selectionStart.set(Double.NaN);
+        selectionEnd.set(Double.NaN);
+        selection.setVisible(false);
+    }
+
+    /**
+     * This method draws the selected range of the profile and shows its statistics.
+     */
+    private void updateSelection() {
+        if (elevationProfile.get() == null || Double.isNaN(selectionEnd.get())) return;
+        double from = Math.min(selectionStart.get(), selectionEnd.get());
+        double to = Math.max(selectionStart.get(), selectionEnd.get());
+        double minX = worldToScreen.get().transform(from, 0).getX();
+        double maxX = worldToScreen.get().transform(to, 0).getX();
+        selection.setX(minX);
+        selection.setY(rectangle.get().getMinY());
+        selection.setWidth(maxX - minX);
+        selection.setHeight(rectangle.get().getHeight());
+        selection.setVisible(true);
+        createStats();
+    }
+
     /**
      * This method creates the rectangle's binding.
      */
@@ -289,6 +357,7 @@ public final class ElevationProfileManager {
             createGrid();
             createProfileGraph();
             createStats();
+            updateSelection();
         }
     }
 
@@ -406,29 +475,49 @@ public final class ElevationProfileManager {
 
     /**
      * This method create the polygon representing the profile graph. It adds all points simultaneously
-     * to prevent partial display.
+     * to prevent partial display. The profile gives the lowest and the highest elevations over each column
+     * of pixels, and the polygon goes through both of them in the order the profile follows in the column,
+     * the lowest first when it rises, so that no peak nor valley disappears whatever the length of the route.
      */
     private void createProfileGraph() {
+        ElevationProfile profile = elevationProfile.get();
+        Rectangle2D bounds = rectangle.get();
+        int columns = Math.max(1, (int) bounds.getWidth());
+        float[] mins = new float[columns];
+        float[] maxs = new float[columns];
+        profile.envelopes(0, profile.length(), mins, maxs);
+
+        double columnWidth = bounds.getWidth() / columns;
+        double columnLength = profile.length() / columns;
+        Double[] points = new Double[4 * columns + 8];
+        int index = 0;
+        points[index++] = bounds.getMinX();
+        points[index++] = screenY(profile.elevationAt(0));
+        for (int i = 0; i < columns; i++) {
+            boolean rising = profile.elevationAt((i + 1) * columnLength) >= profile.elevationAt(i * columnLength);
+            points[index++] = bounds.getMinX() + (i + 0.25) * columnWidth;
+            points[index++] = screenY(rising ? mins[i] : maxs[i]);
+            points[index++] = bounds.getMinX() + (i + 0.75) * columnWidth;
+            points[index++] = screenY(rising ? maxs[i] : mins[i]);
+        }
+        points[index++] = bounds.getMaxX();
+        points[index++] = screenY(profile.elevationAt(profile.length()));
+        points[index++] = bounds.getMaxX();
+        points[index++] = bounds.getMaxY();
+        points[index++] = bounds.getMinX();
+        points[index] = bounds.getMaxY();
+
+        profileGraph.getPoints().setAll(points);
+    }
 
-        List<Double> list = IntStream.range((int) rectangle.get().getMinX(), (int) rectangle.get().getMaxX()+1)
-                .mapToDouble(e -> e)
-                .mapMulti((elem, consumer) -> {
-
-                    Point2D pointWorld = screenToWorld.get().transform(elem, 0);
-                    double elevation = elevationProfile.get().elevationAt(pointWorld.getX());
-                    Point2D pointScreen = worldToScreen.get().transform(0, elevation);
-
-                    consumer.accept(elem);
-                    consumer.accept(pointScreen.getY());
-                })
-
-                .boxed()
-                .collect(Collectors.toList());
-
-        Collections.addAll(list, rectangle.get().getMaxX(), rectangle.get().getMaxY(),
-                rectangle.get().getMinX(), rectangle.get().getMaxY());
-
-        profileGraph.getPoints().setAll(list);
+    /**
+     * This method allows us to get the vertical coordinate on screen of an elevation.
+     *
+     * @param elevation the elevation.
+     * @return the y coordinate.
+     */
+    private double screenY(double elevation) {
+        return worldToScreen.get().transform(0, elevation).getY();
     }
 
     /**
@@ -463,6 +552,22 @@ public final class ElevationProfileManager {
      */
     private void createStats() {
         ElevationProfile ele = elevationProfile.get();
+        if (ele == null) return;
+        if (!Double.isNaN(selectionEnd.get())) {
+            double from = Math.min(selectionStart.get(), selectionEnd.get());
+            double to = Math.max(selectionStart.get(), selectionEnd.get());
+            ProfileStatistics stats = ele.statistics(from, to);
+            vboxText.setText(String.format(STATISTICS_SELECTION_MESSAGE +
+                            STATISTICS_ASCENT_MESSAGE +
+                            STATISTICS_DESCENT_MESSAGE +
+                            STATISTICS_ELEVATION_MESSAGE +
+                            STATISTICS_GRADE_MESSAGE,
+                    from / KILOMETER_IN_METERS, to / KILOMETER_IN_METERS,
+                    stats.ascent(), stats.descent(),
+                    stats.minElevation(), stats.maxElevation(), stats.maxGrade() * PERCENT)
+            );
+            return;
+        }
         vboxText.setText(String.format(STATISTICS_LENGTH_MESSAGE +
                         STATISTICS_ASCENT_MESSAGE +
                         STATISTICS_DESCENT_MESSAGE +
@@ -8,15 +8,11 @@ import org.w3c.dom.Element;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -32,6 +28,34 @@ public class GpxGenerator {
      */
     private static final String HEAD_NAME = "Route JaVelo";
 
+    /**
+     * The line separator written between two lines, the one used by the transformer of createGpx.
+     */
+    private static final String NEW_LINE = System.lineSeparator();
+
+    /**
+     * The lines written before the points of the route, as the transformer of createGpx writes them.
+     */
+    private static final String GPX_HEAD = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>" + NEW_LINE
+            + "<gpx creator=\"JaVelo\" version=\"1.1\" "
+            + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+            + "xsi:schemaLocation=\"http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd\" "
+            + "xmlns=\"http://www.topografix.com/GPX/1/1\">" + NEW_LINE
+            + "    <metadata>" + NEW_LINE
+            + "        <name>" + HEAD_NAME + "</name>" + NEW_LINE
+            + "    </metadata>" + NEW_LINE
+            + "    <rte>" + NEW_LINE;
+
+    /**
+     * The lines written after the points of the route.
+     */
+    private static final String GPX_TAIL = "    </rte>" + NEW_LINE + "</gpx>" + NEW_LINE;
+
+    /**
+     * The number of characters of points gathered before being given to the writer.
+     */
+    private static final int FLUSH_CHARS = 1 << 14;
+
     /**
      * Private constructor.
      */
@@ -86,26 +110,65 @@ public class GpxGenerator {
     }
 
     /**
-     * This method creates a document and writes the itinerary's data on it.
+     * This method writes the itinerary's data at the gpx format in a file, producing the same file as
+     * the document of createGpx without building it.
      *
      * @param fileName The name of the file where we write the itinerary's data.
      * @param route    The route of the itinerary.
      * @param profile  The profile of the itinerary.
-     * @throws IOException Due to Writer
+     * @throws IOException Throws an exception if it was unable to write the file.
      */
     public static void writeGpx(String fileName, Route route, ElevationProfile profile) throws IOException {
-        Document doc = createGpx(route, profile);
-        Writer w = new FileWriter(fileName);
-        try {
-            Transformer transformer = TransformerFactory
-                    .newDefaultInstance()
-                    .newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.transform(new DOMSource(doc), new StreamResult(w));
-        } catch (TransformerException ignored) {
+        try (Writer writer = Files.newBufferedWriter(Path.of(fileName), StandardCharsets.UTF_8)) {
+            writeGpx(writer, route, profile);
         }
     }
 
+    /**
+     * This method writes the itinerary's data at the gpx format, point after point, producing the same text as
+     * the document of createGpx once transformed. The points are written in a reused buffer given to the writer
+     * when it is full, so that neither a node nor a string is created per point.
+     *
+     * @param writer  The writer receiving the text, which is not closed.
+     * @param route   The route of the itinerary.
+     * @param profile The profile of the itinerary.
+     * @throws IOException Throws an exception if the writer was unable to write the text.
+     */
+    public static void writeGpx(Writer writer, Route route, ElevationProfile profile) throws IOException {
+        writer.write(GPX_HEAD);
+        StringBuilder buffer = new StringBuilder(2 * FLUSH_CHARS);
+        char[] chars = new char[2 * FLUSH_CHARS];
+        double position = 0;
+        List<PointCh> points = route.points();
+        PointCh previous = null;
+        for (PointCh point : points) {
+            if (previous != null) position += point.distanceTo(previous);
+            previous = point;
+            buffer.append("        <rtept lat=\"").append(Math.toDegrees(point.lat()))
+                    .append("\" lon=\"").append(Math.toDegrees(point.lon())).append("\">").append(NEW_LINE)
+                    .append("            <ele>").append(profile.elevationAt(position)).append("</ele>").append(NEW_LINE)
+                    .append("        </rtept>").append(NEW_LINE);
+            if (buffer.length() >= FLUSH_CHARS) flush(buffer, chars, writer);
+        }
+        flush(buffer, chars, writer);
+        writer.write(GPX_TAIL);
+    }
+
+    /**
+     * This private method gives the content of a buffer to a writer and empties the buffer.
+     *
+     * @param buffer The buffer.
+     * @param chars  The array through which the characters are copied, at least as long as the buffer.
+     * @param writer The writer.
+     * @throws IOException Throws an exception if the writer was unable to write the characters.
+     */
+    private static void flush(StringBuilder buffer, char[] chars, Writer writer) throws IOException {
+        int length = buffer.length();
+        buffer.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+        buffer.setLength(0);
+    }
+
     /**
      * This method creates a document.
      *
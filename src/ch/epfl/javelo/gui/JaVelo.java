@@ -1,10 +1,19 @@
 package ch.epfl.javelo.gui;
 
+import ch.epfl.javelo.data.FederatedGraph;
 import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.RoutingGraph;
 import ch.epfl.javelo.routing.CityBikeCF;
+import ch.epfl.javelo.routing.GraphWarmUp;
 import ch.epfl.javelo.routing.RouteComputer;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.geometry.Orientation;
 import javafx.scene.Scene;
 import javafx.scene.control.Menu;
@@ -19,6 +28,8 @@ import javafx.stage.Stage;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The program's main class.
@@ -68,30 +79,128 @@ public final class JaVelo extends Application {
      * The height of the window.
      */
     private static final int WINDOW_HEIGHT = 600;
+    /**
+     * The name of the parameter giving the files read at startup: "hot", "all" or a list of file names
+     * separated by commas.
+     */
+    private static final String WARM_UP_PARAMETER = "warm-up";
+    /**
+     * The name of the parameter giving the number of routes computed at startup.
+     */
+    private static final String WARM_UP_ROUTES_PARAMETER = "warm-up-routes";
+    /**
+     * The number of routes computed at startup when the files are read but the number of routes is not given.
+     */
+    private static final int DEFAULT_WARM_UP_ROUTES = 20;
+    /**
+     * The name of the parameter asking to print the time taken by the steps of the startup.
+     */
+    private static final String REPORT_STARTUP_PARAMETER = "report-startup";
+    /**
+     * The name of the thread loading the graph.
+     */
+    private static final String LOADER_THREAD_NAME = "graph-loader";
+    /**
+     * The message displayed when the graph could not be loaded.
+     */
+    private static final String GRAPH_ERROR_MESSAGE = "Impossible de charger le réseau !";
+    /**
+     * The message displayed when the warm-up asked on the command line is invalid.
+     */
+    private static final String WARM_UP_ERROR_MESSAGE = "Préchauffage invalide, le réseau est chargé sans lui !";
+    /**
+     * The name of the startup step reached when the first frame is displayed.
+     */
+    private static final String FIRST_FRAME_STEP = "first frame";
+    /**
+     * The name of the startup step reached when the graph is loaded.
+     */
+    private static final String GRAPH_LOADED_STEP = "graph loaded";
+    /**
+     * The name of the startup step reached when the first route is computed.
+     */
+    private static final String FIRST_ROUTE_STEP = "first route";
 
     /**
      * The program's main method used to run it.
      *
-     * @param args Java command line arguments
+     * @param args Java command line arguments, the directories of the graph's files. When there are several ones,
+     *             their graphs are opened together, each one being mapped when first used. A single graph can
+     *             be warmed up at startup with --warm-up=hot, --warm-up=all or --warm-up=nodes.bin,edges.bin
+     *             to read its files in advance, and --warm-up-routes=20 to compute routes in advance.
+     *             The time taken by the steps of the startup is printed when a warm-up is asked or when
+     *             --report-startup is given.
      */
     public static void main(String[] args) {
         launch(args);
     }
 
     /**
-     * The method that starts the program and defines every necessary elements.
+     * This private method allows us to read the warm-up asked on the command line.
+     *
+     * @param parameters The named parameters of the command line.
+     * @return The warm-up, or null if none was asked.
+     * @throws IllegalArgumentException Throws an exception if the number of routes is not a positive integer
+     *                                  or if a file is not one of the mapped files of a graph.
+     */
+    private static GraphWarmUp warmUp(Map<String, String> parameters) {
+        String files = parameters.getOrDefault(WARM_UP_PARAMETER, "");
+        String routes = parameters.get(WARM_UP_ROUTES_PARAMETER);
+        if (files.isEmpty() && routes == null) return null;
+        List<String> fileNames = switch (files) {
+            case "" -> List.of();
+            case "hot" -> GraphWarmUp.HOT_FILES;
+            case "all" -> Graph.MAPPED_FILES;
+            default -> List.of(files.split(","));
+        };
+        return new GraphWarmUp(fileNames, routes == null ? DEFAULT_WARM_UP_ROUTES : Integer.parseInt(routes));
+    }
+
+    /**
+     * This private method allows us to open the graph and to build the indexes and caches used at once,
+     * which is done on a background thread.
+     *
+     * @param graphPaths The directories of the graph's files, the default one being used if there are none.
+     * @param warmUp     The warm-up run on a single graph, whose report is printed, or null if there is none.
+     * @return The graph.
+     * @throws IOException Throws an exception if it was unable to open the graph's files.
+     */
+    private static RoutingGraph loadGraph(List<Path> graphPaths, GraphWarmUp warmUp) throws IOException {
+        if (graphPaths.size() > 1) return FederatedGraph.loadFrom(graphPaths);
+        Graph graph = Graph.loadFrom(graphPaths.isEmpty() ? Path.of(GRAPH_PATH) : graphPaths.get(0));
+        //Building the spatial index used to place the waypoints.
+        graph.nodeGrid();
+        if (warmUp != null) System.out.print(GraphWarmUp.report(warmUp.run(graph)));
+        return graph;
+    }
+
+    /**
+     * This private method allows us to print the time elapsed since the start of the program when a step
+     * of the startup is reached.
+     *
+     * @param step       The name of the step.
+     * @param startNanos The time at which the program started, in nanoseconds.
+     */
+    private static void reportStartup(String step, long startNanos) {
+        System.out.printf("%-20s %8.1f ms%n", step, (System.nanoTime() - startNanos) / 1e6);
+    }
+
+    /**
+     * The method that starts the program and defines every necessary elements. The window is shown at once,
+     * while the graph is loaded on a background thread, the waypoints placed in the meantime being queued.
      *
      * @param primaryStage The stage containing the map and the itinerary's information.
-     * @throws IOException Throws an error when encountering one that has not been handled.
      */
     @Override
-    public void start(Stage primaryStage) throws IOException {
+    public void start(Stage primaryStage) {
+        long startNanos = System.nanoTime();
+        List<Path> graphPaths = getParameters().getUnnamed().stream().map(Path::of).toList();
+        Map<String, String> parameters = getParameters().getNamed();
+        ObjectProperty<RoutingGraph> graph = new SimpleObjectProperty<>();
+        ObjectProperty<RouteComputer> routeComputer = new SimpleObjectProperty<>();
 
-        Graph graph = Graph.loadFrom(Path.of(GRAPH_PATH));
         Path cacheBasePath = Path.of(CACHE_BASE_PATH);
         TileManager tileManager = new TileManager(cacheBasePath, TILE_SERVER_HOST_ADDRESS);
-        CityBikeCF costFunction = new CityBikeCF(graph);
-        RouteComputer routeComputer = new RouteComputer(graph, costFunction);
         RouteBean routeBean = new RouteBean(routeComputer);
         ErrorManager errorManager = new ErrorManager();
 
@@ -154,5 +263,61 @@ public final class JaVelo extends Application {
         primaryStage.setScene(new Scene(mainPane));
         primaryStage.setTitle(WINDOW_TITLE);
         primaryStage.show();
+
+        //Reading the warm-up before loading the graph, so that an invalid one is reported at once.
+        GraphWarmUp warmUp;
+        try {
+            warmUp = warmUp(parameters);
+        } catch (IllegalArgumentException e) {
+            warmUp = null;
+            errorManager.displayError(WARM_UP_ERROR_MESSAGE);
+        }
+        GraphWarmUp validWarmUp = warmUp;
+        boolean reportStartup = validWarmUp != null || parameters.containsKey(REPORT_STARTUP_PARAMETER);
+
+        //Reporting the time taken to display the first frame and to compute the first route.
+        if (reportStartup) reportFirstFrameAndRoute(routeBean, startNanos);
+
+        //Loading the graph in the background.
+        Thread loader = new Thread(() -> {
+            try {
+                RoutingGraph loadedGraph = loadGraph(graphPaths, validWarmUp);
+                RouteComputer computer = new RouteComputer(loadedGraph, new CityBikeCF(loadedGraph));
+                Platform.runLater(() -> {
+                    if (reportStartup) reportStartup(GRAPH_LOADED_STEP, startNanos);
+                    routeComputer.set(computer);
+                    graph.set(loadedGraph);
+                });
+            } catch (IOException | RuntimeException e) {
+                Platform.runLater(() -> errorManager.displayError(GRAPH_ERROR_MESSAGE));
+            }
+        }, LOADER_THREAD_NAME);
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * This private method allows us to print the time elapsed since the start of the program when the first
+     * frame is displayed and when the first route is computed.
+     *
+     * @param routeBean  The bean containing the route.
+     * @param startNanos The time at which the program started, in nanoseconds.
+     */
+    private static void reportFirstFrameAndRoute(RouteBean routeBean, long startNanos) {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                reportStartup(FIRST_FRAME_STEP, startNanos);
+                stop();
+            }
+        }.start();
+        routeBean.getRoute().addListener(new InvalidationListener() {
+            @Override
+            public void invalidated(Observable o) {
+                if (routeBean.getRoute().get() == null) return;
+                reportStartup(FIRST_ROUTE_STEP, startNanos);
+                routeBean.getRoute().removeListener(this);
+            }
+        });
     }
 }
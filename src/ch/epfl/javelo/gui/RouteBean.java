@@ -3,11 +3,12 @@ package ch.epfl.javelo.gui;
 import ch.epfl.javelo.routing.*;
 import javafx.beans.Observable;
 import javafx.beans.property.*;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,12 +31,15 @@ public final class RouteBean {
      */
     private static final int MIN_WAYPOINTS = 2;
 
-    private final RouteComputer routeComputer;
+    private final ObservableValue<? extends RouteComputer> routeComputer;
     private final ObjectProperty<Route> route;
     private final DoubleProperty highlightedPosition;
     private final ObjectProperty<ElevationProfile> elevationProfile;
-    private final Map<Pair, Route> computedRoute = new LinkedHashMap<>();
+    private final Map<Pair, Route> computedRoute = new HashMap<>();
+    private final Map<Pair, ElevationProfile> computedProfiles = new HashMap<>();
     public final ObservableList<Waypoint> waypoints;
+    private RouteComputer lastComputer;
+    private List<Pair> lastPairs = List.of();
 
 
     /**
@@ -44,6 +48,17 @@ public final class RouteBean {
      * @param rc The element allowing us to calculate the best itinerary between two points.
      */
     public RouteBean(RouteComputer rc) {
+        this(new SimpleObjectProperty<>(rc));
+    }
+
+    /**
+     * The constructor used when the graph is still being loaded. No route is computed as long as
+     * the element computing them is null, and the route is computed again once it is set.
+     *
+     * @param rc The observable value containing the element allowing us to calculate the best itinerary
+     *           between two points, null until the graph is loaded.
+     */
+    public RouteBean(ObservableValue<? extends RouteComputer> rc) {
 
         this.highlightedPosition = new SimpleDoubleProperty();
         this.route = new SimpleObjectProperty<>();
@@ -53,10 +68,7 @@ public final class RouteBean {
         this.routeComputer = rc;
 
         waypoints.addListener((Observable o) -> computeRoute());
-
-        route.addListener((p, oldS, newS) -> elevationProfile.set(route.get() == null ?
-                null : ElevationProfileComputer.elevationProfile(route.get(), MAX_STEP_LENGTH))
-        );
+        routeComputer.addListener((Observable o) -> computeRoute());
     }
 
     /**
@@ -106,28 +118,78 @@ public final class RouteBean {
 
     /**
      * This method computes the itinerary between each pair of following waypoints.
+     * The itinerary and the elevation profile of each pair are kept as long as its waypoints follow each other,
+     * so that only the new pairs are computed and sampled. When the waypoints are only added at the end,
+     * the route and the profile are extended from the previous ones instead of being built again from all
+     * the itineraries.
      */
     private void computeRoute() {
-        if (waypoints.size() >= MIN_WAYPOINTS) {
-            List<Route> listRoute = new ArrayList<>();
-            for (int i = 1; i < waypoints.size(); i++) {
-                Waypoint startWaypoint = waypoints.get(i - 1);
-                Waypoint endWaypoint = waypoints.get(i);
-                if (!(startWaypoint.closestNodeId() == endWaypoint.closestNodeId())) {
-                    if (!computedRoute.containsKey(new Pair(startWaypoint, endWaypoint))) {
-                        Route tempRoute = routeComputer.bestRouteBetween(startWaypoint.closestNodeId(),
-                                endWaypoint.closestNodeId());
-                        if (tempRoute == null) {
-                            route.set(null);
-                            return;
-                        }
-                        computedRoute.put(new Pair(startWaypoint, endWaypoint), tempRoute);
-                        listRoute.add(tempRoute);
-                    } else listRoute.add(computedRoute.get(new Pair(startWaypoint, endWaypoint)));
-                }
+        RouteComputer computer = routeComputer.getValue();
+        if (computer != lastComputer) {
+            computedRoute.clear();
+            computedProfiles.clear();
+            lastPairs = List.of();
+            lastComputer = computer;
+        }
+        if (computer == null || waypoints.size() < MIN_WAYPOINTS) {
+            setRoute(null, null);
+            return;
+        }
+
+        List<Pair> pairs = new ArrayList<>();
+        for (int i = 1; i < waypoints.size(); i++) {
+            Waypoint startWaypoint = waypoints.get(i - 1);
+            Waypoint endWaypoint = waypoints.get(i);
+            if (startWaypoint.closestNodeId() != endWaypoint.closestNodeId())
+                pairs.add(new Pair(startWaypoint, endWaypoint));
+        }
+        computedRoute.keySet().retainAll(pairs);
+        computedProfiles.keySet().retainAll(pairs);
+
+        for (Pair pair : pairs) {
+            if (computedRoute.containsKey(pair)) continue;
+            Route pairRoute = computer.bestRouteBetween(pair.a().closestNodeId(), pair.b().closestNodeId());
+            if (pairRoute == null) {
+                lastPairs = List.of();
+                setRoute(null, null);
+                return;
             }
-            route.set((!listRoute.isEmpty()) ? new MultiRoute(listRoute) : null);
-        } else route.set(null);
+            computedRoute.put(pair, pairRoute);
+            computedProfiles.put(pair, ElevationProfileComputer.elevationProfile(pairRoute, MAX_STEP_LENGTH));
+        }
+        if (pairs.isEmpty()) {
+            lastPairs = List.of();
+            setRoute(null, null);
+            return;
+        }
+
+        boolean extended = !lastPairs.isEmpty() && route.get() != null && pairs.size() >= lastPairs.size()
+                && pairs.subList(0, lastPairs.size()).equals(lastPairs);
+        int first = extended ? lastPairs.size() : 0;
+        List<Route> listRoute = new ArrayList<>();
+        List<ElevationProfile> listProfile = new ArrayList<>();
+        if (extended) {
+            listRoute.add(route.get());
+            listProfile.add(elevationProfile.get());
+        }
+        for (Pair pair : pairs.subList(first, pairs.size())) {
+            listRoute.add(computedRoute.get(pair));
+            listProfile.add(computedProfiles.get(pair));
+        }
+        lastPairs = List.copyOf(pairs);
+        if (extended && first == pairs.size()) return;
+        setRoute(new MultiRoute(listRoute), ElevationProfile.concat(listProfile));
+    }
+
+    /**
+     * This method sets the route and then its elevation profile.
+     *
+     * @param newRoute   The new route, or null.
+     * @param newProfile The elevation profile of the new route, or null.
+     */
+    private void setRoute(Route newRoute, ElevationProfile newProfile) {
+        route.set(newRoute);
+        elevationProfile.set(newProfile);
     }
 
     /**
@@ -1,6 +1,5 @@
 package ch.epfl.javelo.gui;
 
-import ch.epfl.javelo.projection.PointCh;
 import ch.epfl.javelo.projection.PointWebMercator;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.geometry.Point2D;
@@ -8,7 +7,6 @@ import javafx.scene.layout.Pane;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Polyline;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -141,8 +139,8 @@ public final class RouteManager {
      */
     private void buildRoute() {
 
-        List<PointCh> toBeStreamed = new ArrayList<>(routeBean.getRoute().get().points());
-        List<Double> pointsOnLine = toBeStreamed.stream().map(PointWebMercator::ofPointCh)
+        List<Double> pointsOnLine = routeBean.getRoute().get().points().stream()
+                .map(PointWebMercator::ofPointCh)
                 .mapMultiToDouble((elem, consumer) -> {
                     consumer.accept(elem.xAtZoomLevel(mapViewParam.get().zoomLevel()));
                     consumer.accept(elem.yAtZoomLevel(mapViewParam.get().zoomLevel()));
@@ -1,12 +1,13 @@
 package ch.epfl.javelo.gui;
 
-import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.RoutingGraph;
 import ch.epfl.javelo.projection.PointCh;
 import ch.epfl.javelo.projection.PointWebMercator;
 import javafx.beans.Observable;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.ObservableList;
 import javafx.geometry.Point2D;
 import javafx.scene.Group;
@@ -73,7 +74,8 @@ public final class WaypointsManager {
      */
     private static final String WAYPOINT_ADDER_ERROR_MESSAGE_1 = "Aucune route à proximité !";
 
-    private final Graph routeNetwork;
+    private final ObservableValue<? extends RoutingGraph> routeNetwork;
+    private final List<PointCh> pendingPoints = new ArrayList<>();
     private final ReadOnlyObjectProperty<MapViewParameters> mapViewParam;
     private final ObservableList<Waypoint> waypoints;
     private final Consumer<String> errorConsumer;
@@ -87,7 +89,23 @@ public final class WaypointsManager {
      * @param wp            a list containing every WayPoints.
      * @param errorConsumer an object allowing to signal errors.
      */
-    public WaypointsManager(Graph routeNetwork, ReadOnlyObjectProperty<MapViewParameters> mvp,
+    public WaypointsManager(RoutingGraph routeNetwork, ReadOnlyObjectProperty<MapViewParameters> mvp,
+                            ObservableList<Waypoint> wp, Consumer<String> errorConsumer) {
+        this(new SimpleObjectProperty<>(routeNetwork), mvp, wp, errorConsumer);
+    }
+
+    /**
+     * The constructor used when the graph is still being loaded. The WayPoints added before the graph is
+     * loaded are queued, and placed on their closest node once it is loaded.
+     *
+     * @param routeNetwork  an observable value containing the graph representing the network of the route,
+     *                      null until it is loaded.
+     * @param mvp           a property containing the parameter of the displayed map.
+     * @param wp            a list containing every WayPoints.
+     * @param errorConsumer an object allowing to signal errors.
+     */
+    public WaypointsManager(ObservableValue<? extends RoutingGraph> routeNetwork,
+                            ReadOnlyObjectProperty<MapViewParameters> mvp,
                             ObservableList<Waypoint> wp, Consumer<String> errorConsumer) {
         this.routeNetwork = routeNetwork;
         this.mapViewParam = mvp;
@@ -100,6 +118,7 @@ public final class WaypointsManager {
 
         mapViewParam.addListener((Observable o) -> paneActualisation());
         waypoints.addListener((Observable o) -> paneActualisation());
+        routeNetwork.addListener((Observable o) -> addPendingWaypoints());
     }
 
     /**
@@ -206,17 +225,39 @@ public final class WaypointsManager {
     }
 
     /**
-     * This method add a new WayPoint on the closest node of the graph.
+     * This method add a new WayPoint on the closest node of the graph, or queues it while the graph is loaded.
      * Give the error consumer a message if no closest Node.
      *
      * @param x coordinate of the WayPoint.
      * @param y coordinate of the WayPoint.
      */
     public void addWaypoint(double x, double y) {
+        if (routeNetwork.getValue() == null) {
+            PointCh point = mapViewParam.get().pointAt(x, y).toPointCh();
+            if (point != null) pendingPoints.add(point);
+            else errorConsumer.accept(WAYPOINT_ADDER_ERROR_MESSAGE_1);
+            return;
+        }
         if (findClosestNode(x, y) != null) waypoints.add(findClosestNode(x, y));
         else errorConsumer.accept(WAYPOINT_ADDER_ERROR_MESSAGE_1);
     }
 
+    /**
+     * This method adds the WayPoints queued while the graph was being loaded, in the order in which
+     * they were placed, once the graph is loaded.
+     */
+    private void addPendingWaypoints() {
+        RoutingGraph graph = routeNetwork.getValue();
+        if (graph == null || pendingPoints.isEmpty()) return;
+        List<Waypoint> added = new ArrayList<>();
+        for (PointCh point : pendingPoints) {
+            Waypoint waypoint = waypointAt(graph, point);
+            if (waypoint != null) added.add(waypoint);
+        }
+        pendingPoints.clear();
+        waypoints.addAll(added);
+    }
+
     /**
      * This method is used to create a WayPoint by finding the closest node to it.
      *
@@ -226,12 +267,25 @@ public final class WaypointsManager {
      */
     private Waypoint findClosestNode(double x, double y) {
         PointCh point = mapViewParam.get().pointAt(x, y).toPointCh();
-        if (point != null) {
-            int nodeId = routeNetwork.nodeClosestTo(point, SEARCH_DISTANCE);
-            if (nodeId == -1) errorConsumer.accept(WAYPOINT_ADDER_ERROR_MESSAGE_1);
-            else return new Waypoint(point, nodeId);
+        RoutingGraph graph = routeNetwork.getValue();
+        return point != null && graph != null ? waypointAt(graph, point) : null;
+    }
+
+    /**
+     * This method is used to create a WayPoint on the closest node of the graph to a point.
+     * Give the error consumer a message if no closest Node.
+     *
+     * @param graph the graph.
+     * @param point the position of the waypoint.
+     * @return the Waypoint construct with coordinate and closest nodeId. Null if no node is close enough.
+     */
+    private Waypoint waypointAt(RoutingGraph graph, PointCh point) {
+        int nodeId = graph.nodeClosestTo(point, SEARCH_DISTANCE);
+        if (nodeId == -1) {
+            errorConsumer.accept(WAYPOINT_ADDER_ERROR_MESSAGE_1);
+            return null;
         }
-        return null;
+        return new Waypoint(point, nodeId);
     }
 
 }
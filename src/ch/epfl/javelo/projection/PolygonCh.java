@@ -0,0 +1,104 @@
+package ch.epfl.javelo.projection;
+
+import java.util.List;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A polygon given in Swiss coordinates, a point being inside if a half-line starting from it crosses
+ * the border of the polygon an odd number of times.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class PolygonCh {
+
+    private final double[] es;
+    private final double[] ns;
+    private final double minE;
+    private final double minN;
+    private final double maxE;
+    private final double maxN;
+
+    /**
+     * Constructs the polygon of the given vertices.
+     *
+     * @param vertices The vertices of the polygon, in order, the last one being linked to the first one.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if there are less than three vertices.
+     */
+    public PolygonCh(List<PointCh> vertices) {
+        checkArgument(vertices.size() >= 3);
+        int count = vertices.size();
+        es = new double[count];
+        ns = new double[count];
+        double smallestE = Double.POSITIVE_INFINITY;
+        double smallestN = Double.POSITIVE_INFINITY;
+        double largestE = Double.NEGATIVE_INFINITY;
+        double largestN = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            es[i] = vertices.get(i).e();
+            ns[i] = vertices.get(i).n();
+            smallestE = Math.min(smallestE, es[i]);
+            smallestN = Math.min(smallestN, ns[i]);
+            largestE = Math.max(largestE, es[i]);
+            largestN = Math.max(largestN, ns[i]);
+        }
+        minE = smallestE;
+        minN = smallestN;
+        maxE = largestE;
+        maxN = largestN;
+    }
+
+    /**
+     * This method allows us to know if a point is inside the polygon.
+     *
+     * @param e The east coordinate of the point.
+     * @param n The north coordinate of the point.
+     * @return True if the half-line going east from the point crosses the border an odd number of times.
+     */
+    public boolean contains(double e, double n) {
+        boolean inside = false;
+        for (int i = 0, j = es.length - 1; i < es.length; j = i++) {
+            if ((ns[i] > n) != (ns[j] > n)
+                    && e < es[i] + (n - ns[i]) * (es[j] - es[i]) / (ns[j] - ns[i]))
+                inside = !inside;
+        }
+        return inside;
+    }
+
+    /**
+     * This method allows us to get the smallest east coordinate of the vertices.
+     *
+     * @return The west side of the bounding rectangle of the polygon.
+     */
+    public double minE() {
+        return minE;
+    }
+
+    /**
+     * This method allows us to get the smallest north coordinate of the vertices.
+     *
+     * @return The south side of the bounding rectangle of the polygon.
+     */
+    public double minN() {
+        return minN;
+    }
+
+    /**
+     * This method allows us to get the largest east coordinate of the vertices.
+     *
+     * @return The east side of the bounding rectangle of the polygon.
+     */
+    public double maxE() {
+        return maxE;
+    }
+
+    /**
+     * This method allows us to get the largest north coordinate of the vertices.
+     *
+     * @return The north side of the bounding rectangle of the polygon.
+     */
+    public double maxN() {
+        return maxN;
+    }
+}
@@ -0,0 +1,27 @@
+package ch.epfl.javelo.routing;
+
+/**
+ * A cost function applying the closures and penalties of a set of edges to another cost function.
+ * The current snapshot of the closures is read at each call, without locking.
+ *
+ * @param costFunction The cost function of the open edges.
+ * @param closures     The closed or penalized edges.
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public record ClosureCF(CostFunction costFunction, RoadClosures closures) implements CostFunction {
+
+    /**
+     * This method allows us to get the factor by which we have to multiply the length of an edge,
+     * which is infinite if the edge is closed.
+     *
+     * @param nodeId Identity of the starting node of the edge.
+     * @param edgeId Identity of the edge to weight.
+     * @return the factor superior or equal to 1.
+     */
+    @Override
+    public double costFactor(int nodeId, int edgeId) {
+        double factor = closures.factor(edgeId);
+        return factor == Double.POSITIVE_INFINITY ? factor : factor * costFunction.costFactor(nodeId, edgeId);
+    }
+}
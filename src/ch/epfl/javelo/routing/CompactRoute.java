@@ -0,0 +1,344 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.RoutingGraph;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.DoubleUnaryOperator;
+
+import static ch.epfl.javelo.Math2.clamp;
+import static ch.epfl.javelo.Math2.interpolate;
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A route made of whole edges of a graph, implementing Route.
+ * Instead of an Edge per edge, it only stores the identities of the edges, the node the first one leaves
+ * and their positions along the route, each following edge leaving the node targeted by the previous one.
+ * The points and the profiles of the edges are read from the graph when they are needed, so that a cache
+ * can hold many of these routes.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class CompactRoute implements Route {
+
+    /**
+     * Index of segment is always the same.
+     */
+    private static final int CONSTANT_INDEX_OF_SEGMENT = 0;
+
+    private final RoutingGraph graph;
+    private final int firstNodeId;
+    private final int[] edgeIds;
+    private final double[] positions;
+    private final List<Edge> edges = new EdgeList();
+    private volatile RouteEdgeTree edgeTree;
+    private volatile EdgeProfile lastProfile;
+
+    /**
+     * The profile of the last edge whose elevation was asked, as the elevations along a route are
+     * usually asked in order.
+     *
+     * @param edgeIndex The index of the edge in the route.
+     * @param profile   The profile of the edge.
+     */
+    private record EdgeProfile(int edgeIndex, DoubleUnaryOperator profile) {
+    }
+
+    /**
+     * Constructs a CompactRoute following the given edges of a graph.
+     *
+     * @param graph       The graph containing the edges.
+     * @param firstNodeId The identity of the node the first edge is leaving.
+     * @param edgeIds     The identities of the edges, in order, each one leaving the target of the previous one.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if there is no edge, or if the
+     *                                  first node is not a node of the graph.
+     */
+    public CompactRoute(RoutingGraph graph, int firstNodeId, int[] edgeIds) {
+        checkArgument(edgeIds.length > 0 && 0 <= firstNodeId && firstNodeId < graph.nodeCount());
+        this.graph = graph;
+        this.firstNodeId = firstNodeId;
+        this.edgeIds = edgeIds.clone();
+        positions = new double[edgeIds.length + 1];
+        for (int i = 0; i < edgeIds.length; i++) positions[i + 1] = positions[i] + graph.edgeLength(edgeIds[i]);
+    }
+
+    /**
+     * This method is not useful for this type of route which contain only one segment.
+     *
+     * @param position position given in meter.
+     * @return 0.
+     */
+    @Override
+    public int indexOfSegmentAt(double position) {
+        return CONSTANT_INDEX_OF_SEGMENT;
+    }
+
+    /**
+     * This method gives us the route's length.
+     *
+     * @return the length.
+     */
+    @Override
+    public double length() {
+        return positions[positions.length - 1];
+    }
+
+    /**
+     * This method allows us to get every edge of the route.
+     * Each call to get builds the Edge from the graph and decodes its profile, so loops over the route
+     * should rather use points, edgePositions and edgeProfile.
+     *
+     * @return immutable list containing all the edges, built from the graph when they are read.
+     */
+    @Override
+    public List<Edge> edges() {
+        return edges;
+    }
+
+    /**
+     * This method allows us to get every point located at the edges' extremity of the route.
+     *
+     * @return immutable list containing every pointCh located to edge extremity, read from the graph
+     * when they are read.
+     */
+    @Override
+    public List<PointCh> points() {
+        return new PointList();
+    }
+
+    /**
+     * This method allows us to find a point located to a given distance on the route.
+     *
+     * @param position position along the route.
+     * @return the point corresponding to the position on the route.
+     */
+    @Override
+    public PointCh pointAt(double position) {
+        double boundedPosition = bounds(position);
+        int edgeIndex = edgeIndex(boundedPosition);
+        PointCh fromPoint = graph.nodePoint(fromNodeId(edgeIndex));
+        double length = graph.edgeLength(edgeIds[edgeIndex]);
+        if (length == 0) return fromPoint;
+        PointCh toPoint = graph.nodePoint(toNodeId(edgeIndex));
+        double x = (boundedPosition - positions[edgeIndex]) / length;
+        return new PointCh(interpolate(fromPoint.e(), toPoint.e(), x), interpolate(fromPoint.n(), toPoint.n(), x));
+    }
+
+    /**
+     * This method allows us to get the height for a given position along the route.
+     *
+     * @param position position along the route.
+     * @return the height corresponding to the position.
+     */
+    @Override
+    public double elevationAt(double position) {
+        double boundedPosition = bounds(position);
+        int edgeIndex = edgeIndex(boundedPosition);
+        EdgeProfile profile = lastProfile;
+        if (profile == null || profile.edgeIndex() != edgeIndex) {
+            profile = new EdgeProfile(edgeIndex, edgeProfile(edgeIndex));
+            lastProfile = profile;
+        }
+        return profile.profile().applyAsDouble(boundedPosition - positions[edgeIndex]);
+    }
+
+    /**
+     * This method allows us to get the NodeId belonging to the route and being the closest to a given position.
+     *
+     * @param position position along the route.
+     * @return the identity of the closest node to the position.
+     */
+    @Override
+    public int nodeClosestTo(double position) {
+        double boundedPosition = bounds(position);
+        int edgeIndex = edgeIndex(boundedPosition);
+        double diff1 = boundedPosition - positions[edgeIndex];
+        double diff2 = positions[edgeIndex + 1] - boundedPosition;
+        return (diff1 <= diff2) ? fromNodeId(edgeIndex) : toNodeId(edgeIndex);
+    }
+
+    /**
+     * This method allows us to get the point closest to another given point.
+     * It uses a tree of the edges of the route built on the first call, so that only the edges close
+     * to the point are examined.
+     *
+     * @param point reference point to find the closest around it.
+     * @return closest point from the point passed in parameter.
+     */
+    @Override
+    public RoutePoint pointClosestTo(PointCh point) {
+        RouteEdgeTree tree = edgeTree;
+        if (tree == null) {
+            synchronized (this) {
+                if (edgeTree == null) edgeTree = buildEdgeTree();
+                tree = edgeTree;
+            }
+        }
+        return tree.pointClosestTo(point);
+    }
+
+    /**
+     * This method allows us to get the position of the start of every edge of the route, followed by its length.
+     *
+     * @return A copy of the positions, the ones at which elevationAt reads each edge.
+     */
+    @Override
+    public double[] edgePositions() {
+        return positions.clone();
+    }
+
+    /**
+     * This method allows us to get the profile of an edge of the route, decoded from the graph.
+     *
+     * @param edgeIndex The index of the edge in the route.
+     * @return The function giving the elevation along the edge.
+     */
+    @Override
+    public DoubleUnaryOperator edgeProfile(int edgeIndex) {
+        return graph.edgeProfile(edgeIds[edgeIndex]);
+    }
+
+    /**
+     * This method allows us to get the identities of the edges of the route.
+     *
+     * @return A copy of the identities of the edges, in order.
+     */
+    public int[] edgeIds() {
+        return edgeIds.clone();
+    }
+
+    /**
+     * This private method allows us to build the tree of the edges of the route from the points of the graph.
+     *
+     * @return The tree of the edges.
+     */
+    private RouteEdgeTree buildEdgeTree() {
+        int edgeCount = edgeIds.length;
+        double[] fromE = new double[edgeCount];
+        double[] fromN = new double[edgeCount];
+        double[] toE = new double[edgeCount];
+        double[] toN = new double[edgeCount];
+        double[] lengths = new double[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            PointCh fromPoint = graph.nodePoint(fromNodeId(i));
+            PointCh toPoint = graph.nodePoint(toNodeId(i));
+            fromE[i] = fromPoint.e();
+            fromN[i] = fromPoint.n();
+            toE[i] = toPoint.e();
+            toN[i] = toPoint.n();
+            lengths[i] = graph.edgeLength(edgeIds[i]);
+        }
+        return new RouteEdgeTree(fromE, fromN, toE, toN, lengths, positions);
+    }
+
+    /**
+     * This method allows us to get the length of an edge of the route, read from the graph.
+     *
+     * @param edgeIndex The index of the edge in the route.
+     * @return The length of the edge.
+     */
+    double edgeLength(int edgeIndex) {
+        return graph.edgeLength(edgeIds[edgeIndex]);
+    }
+
+    /**
+     * This method allows us to get the node left by an edge of the route, which is the first node
+     * or the one targeted by the previous edge.
+     *
+     * @param edgeIndex The index of the edge in the route.
+     * @return The identity of the node.
+     */
+    int fromNodeId(int edgeIndex) {
+        return edgeIndex == 0 ? firstNodeId : toNodeId(edgeIndex - 1);
+    }
+
+    /**
+     * This method allows us to get the node targeted by an edge of the route.
+     *
+     * @param edgeIndex The index of the edge in the route.
+     * @return The identity of the node.
+     */
+    int toNodeId(int edgeIndex) {
+        return graph.edgeTargetNodeId(edgeIds[edgeIndex]);
+    }
+
+    /**
+     * This method allows us to find the edge index at a given positions.
+     *
+     * @param position position, between 0 and the length of the route.
+     * @return the index of the edge.
+     */
+    private int edgeIndex(double position) {
+        int resultSearch = Arrays.binarySearch(positions, position);
+        int edgeIndex = (resultSearch >= 0) ? resultSearch : -resultSearch - 2;
+        return clamp(0, edgeIndex, edgeIds.length - 1);
+    }
+
+    /**
+     * This method allows to clamp a position.
+     *
+     * @param position to be clamped.
+     * @return the clamped position.
+     */
+    private double bounds(double position) {
+        return clamp(0, position, length());
+    }
+
+    /**
+     * The edges of the route, built from the graph when they are read.
+     */
+    private final class EdgeList extends AbstractList<Edge> implements RandomAccess {
+
+        /**
+         * This method allows us to get an edge of the route.
+         *
+         * @param index The index of the edge.
+         * @return The edge, built from the graph.
+         */
+        @Override
+        public Edge get(int index) {
+            return Edge.of(graph, edgeIds[index], fromNodeId(index), toNodeId(index));
+        }
+
+        /**
+         * This method allows us to know the number of edges of the route.
+         *
+         * @return The number of edges.
+         */
+        @Override
+        public int size() {
+            return edgeIds.length;
+        }
+    }
+
+    /**
+     * The points at the extremities of the edges of the route, read from the graph when they are read.
+     */
+    private final class PointList extends AbstractList<PointCh> implements RandomAccess {
+
+        /**
+         * This method allows us to get a point of the route.
+         *
+         * @param index The index of the point.
+         * @return The start of the first edge, or the end of the edge preceding the index.
+         */
+        @Override
+        public PointCh get(int index) {
+            return graph.nodePoint(index == 0 ? firstNodeId : toNodeId(index - 1));
+        }
+
+        /**
+         * This method allows us to know the number of points of the route.
+         *
+         * @return The number of edges plus one.
+         */
+        @Override
+        public int size() {
+            return edgeIds.length + 1;
+        }
+    }
+}
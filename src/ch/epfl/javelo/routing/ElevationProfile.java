@@ -1,22 +1,35 @@
 package ch.epfl.javelo.routing;
 
+import ch.epfl.javelo.SampledFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.DoubleSummaryStatistics;
+import java.util.List;
 
 import static ch.epfl.javelo.Functions.sampled;
+import static ch.epfl.javelo.Math2.clamp;
 import static ch.epfl.javelo.Preconditions.checkArgument;
 
 /**
  * A Profile representing a sequence of elevation.
+ * A profile can also be made of the profiles of consecutive parts of a route, so that changing a part
+ * does not require sampling the whole route again.
  *
  * @author Gaspard Thoral (345230)
  * @author Alexandre Mourot (346365)
  */
 public final class ElevationProfile {
 
-    private final DoubleSummaryStatistics samplesStats = new DoubleSummaryStatistics();
     private final double length;
     private final float[] samples;
+    private final SampledFunction elevations;
+    private final ElevationProfile[] parts;
+    private final double[] partPositions;
+    private final ProfileSummaryTree summaryTree;
 
+    private final double minElevation;
+    private final double maxElevation;
     private final double totalAscent;
     private final double totalDescent;
 
@@ -46,7 +59,70 @@ public final class ElevationProfile {
         totalAscent = ascent;
         totalDescent = Math.abs(descent);
 
+        DoubleSummaryStatistics samplesStats = new DoubleSummaryStatistics();
         for (float sample : samples) samplesStats.accept(sample);
+        minElevation = samplesStats.getMin();
+        maxElevation = samplesStats.getMax();
+        elevations = sampled(samples, length);
+        summaryTree = new ProfileSummaryTree(samples, length);
+        parts = null;
+        partPositions = null;
+    }
+
+    /**
+     * Private constructor of a profile made of the profiles of consecutive parts of a route, whose
+     * statistics are computed from the ones of the parts.
+     *
+     * @param parts The profiles of the parts, none of them being made of parts.
+     */
+    private ElevationProfile(ElevationProfile[] parts) {
+        this.parts = parts;
+        partPositions = new double[parts.length];
+        double position = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double ascent = 0;
+        double descent = 0;
+        for (int i = 0; i < parts.length; i++) {
+            partPositions[i] = position;
+            position += parts[i].length;
+            min = Math.min(min, parts[i].minElevation);
+            max = Math.max(max, parts[i].maxElevation);
+            ascent += parts[i].totalAscent;
+            descent += parts[i].totalDescent;
+            if (i > 0) {
+                float difference = parts[i].firstSample() - parts[i - 1].lastSample();
+                if (difference > 0) ascent += difference;
+                if (difference < 0) descent -= difference;
+            }
+        }
+        length = position;
+        minElevation = min;
+        maxElevation = max;
+        totalAscent = ascent;
+        totalDescent = descent;
+        samples = null;
+        elevations = null;
+        summaryTree = null;
+    }
+
+    /**
+     * This method allows us to build the profile of a route from the profiles of its consecutive parts,
+     * without going through their samples again. Each part keeps its own sampling.
+     *
+     * @param parts The profiles of the consecutive parts of the route.
+     * @return The profile of the whole route, the only part if there is a single one.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if there is no part.
+     */
+    public static ElevationProfile concat(List<ElevationProfile> parts) {
+        checkArgument(!parts.isEmpty());
+        if (parts.size() == 1) return parts.get(0);
+        List<ElevationProfile> blocks = new ArrayList<>();
+        for (ElevationProfile part : parts) {
+            if (part.parts == null) blocks.add(part);
+            else blocks.addAll(Arrays.asList(part.parts));
+        }
+        return new ElevationProfile(blocks.toArray(new ElevationProfile[0]));
     }
 
     /**
@@ -65,7 +141,7 @@ public final class ElevationProfile {
      * @return The minimal elevation.
      */
     public double minElevation() {
-        return samplesStats.getMin();
+        return minElevation;
     }
 
     /**
@@ -75,7 +151,7 @@ public final class ElevationProfile {
      * @return - double : The maximal elevation.
      */
     public double maxElevation() {
-        return samplesStats.getMax();
+        return maxElevation;
     }
 
     /**
@@ -103,11 +179,139 @@ public final class ElevationProfile {
      * @return The elevation at the given position.
      */
     public double elevationAt(double position) {
-        return sampled(samples, length).applyAsDouble(position);
+        if (parts == null) return elevations.applyAsDouble(position);
+        int index = partIndex(position);
+        return parts[index].elevationAt(position - partPositions[index]);
     }
-}
 
+    /**
+     * This method allows us to get the elevations at several positions at once.
+     *
+     * @param positions The positions at which we are computing the elevations.
+     * @param out       The array receiving the elevation at every position, at the same index.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if out is shorter than positions.
+     */
+    public void elevationsAt(double[] positions, float[] out) {
+        if (parts == null) {
+            elevations.applyAll(positions, out);
+            return;
+        }
+        checkArgument(out.length >= positions.length);
+        for (int i = 0; i < positions.length; i++) out[i] = (float) elevationAt(positions[i]);
+    }
+
+    /**
+     * This method allows us to compute the statistics of a range of the profile, in logarithmic time.
+     *
+     * @param from The start of the range, in meters.
+     * @param to   The end of the range, in meters.
+     * @return The statistics of the part of the profile between the two positions, bounded by its length.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if from is after to.
+     */
+    public ProfileStatistics statistics(double from, double to) {
+        checkArgument(from <= to);
+        double boundedFrom = clamp(0, from, length);
+        double boundedTo = clamp(0, to, length);
+        if (parts == null)
+            return summaryTree.statistics(boundedFrom, boundedTo, elevationAt(boundedFrom), elevationAt(boundedTo));
+
+        int first = partIndex(boundedFrom);
+        ProfileStatistics statistics = null;
+        for (int i = first; i < parts.length && (i == first || partPositions[i] < boundedTo); i++) {
+            ProfileStatistics partStatistics = parts[i].statistics(boundedFrom - partPositions[i],
+                    boundedTo - partPositions[i]);
+            statistics = (statistics == null) ? partStatistics
+                    : statistics.followedBy(partStatistics, parts[i].firstSample() - parts[i - 1].lastSample());
+        }
+        return statistics;
+    }
 
+    /**
+     * This method allows us to get the lowest and the highest elevations of consecutive ranges of the same
+     * length, for example one range per column of pixels of a chart. Each envelope is read from the trees
+     * of the elevations of the summary in logarithmic time, so that the time taken barely depends on the
+     * length of the profile.
+     *
+     * @param from The start of the first range, in meters.
+     * @param to   The end of the last range, in meters.
+     * @param mins The array receiving the lowest elevation of each range, its length being the number of ranges.
+     * @param maxs The array receiving the highest elevation of each range.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if from is not before to, or if
+     *                                  mins is empty or of a different length than maxs.
+     */
+    public void envelopes(double from, double to, float[] mins, float[] maxs) {
+        checkArgument(from < to && mins.length > 0 && mins.length == maxs.length);
+        double width = (to - from) / mins.length;
+        for (int i = 0; i < mins.length; i++) envelope(from + i * width, from + (i + 1) * width, mins, maxs, i);
+    }
+
+    /**
+     * This private method allows us to get the lowest and the highest elevations of a range of the profile,
+     * made of the elevations at its bounds and of the samples between them.
+     *
+     * @param from  The start of the range.
+     * @param to    The end of the range, after from.
+     * @param mins  The array receiving the lowest elevation.
+     * @param maxs  The array receiving the highest elevation.
+     * @param index The index of mins and maxs at which the envelope is written.
+     */
+    private void envelope(double from, double to, float[] mins, float[] maxs, int index) {
+        float min;
+        float max;
+        if (parts == null) {
+            float fromElevation = (float) elevationAt(from);
+            float toElevation = (float) elevationAt(to);
+            min = Math.min(fromElevation, toElevation);
+            max = Math.max(fromElevation, toElevation);
+            double gap = length / (samples.length - 1);
+            int first = (int) Math.ceil(clamp(0, from, length) / gap);
+            int last = (int) Math.floor(clamp(0, to, length) / gap);
+            if (first <= last) {
+                min = Math.min(min, summaryTree.minOf(first, last + 1));
+                max = Math.max(max, summaryTree.maxOf(first, last + 1));
+            }
+        } else {
+            min = Float.POSITIVE_INFINITY;
+            max = Float.NEGATIVE_INFINITY;
+            int first = partIndex(from);
+            for (int i = first; i < parts.length && (i == first || partPositions[i] < to); i++) {
+                parts[i].envelope(from - partPositions[i], to - partPositions[i], mins, maxs, index);
+                min = Math.min(min, mins[index]);
+                max = Math.max(max, maxs[index]);
+            }
+        }
+        mins[index] = min;
+        maxs[index] = max;
+    }
 
+    /**
+     * This private method allows us to find the part containing a position.
+     *
+     * @param position The position.
+     * @return The index of the part, the first one for negative positions and the last one for positions
+     * beyond the length.
+     */
+    private int partIndex(double position) {
+        int resultSearch = Arrays.binarySearch(partPositions, position);
+        int index = (resultSearch >= 0) ? resultSearch : -resultSearch - 2;
+        return clamp(0, index, parts.length - 1);
+    }
 
+    /**
+     * This private method allows us to get the first sample of the profile.
+     *
+     * @return The elevation at the start of the profile.
+     */
+    private float firstSample() {
+        return parts == null ? samples[0] : parts[0].firstSample();
+    }
 
+    /**
+     * This private method allows us to get the last sample of the profile.
+     *
+     * @return The elevation at the end of the profile.
+     */
+    private float lastSample() {
+        return parts == null ? samples[samples.length - 1] : parts[parts.length - 1].lastSample();
+    }
+}
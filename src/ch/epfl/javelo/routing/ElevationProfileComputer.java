@@ -1,24 +1,29 @@
 package ch.epfl.javelo.routing;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.function.DoubleUnaryOperator;
 import java.util.stream.IntStream;
 
-import static ch.epfl.javelo.Functions.sampled;
+import static ch.epfl.javelo.Math2.clamp;
 import static ch.epfl.javelo.Math2.interpolate;
 import static ch.epfl.javelo.Preconditions.checkArgument;
 import static java.lang.Float.isNaN;
 
 /**
  * A class intended to build an ElevationProfile
+ * The routes giving the positions of their edges are sampled in a single pass over their edges, the samples
+ * missing inside a pass being interpolated as soon as the next valid sample is found.
  *
  * @author Gaspard Thoral (345230)
  * @author Alexandre Mourot (346365)
  */
 public final class ElevationProfileComputer {
 
+    /**
+     * The smallest number of samples computed by a task when the route is sampled in parallel.
+     */
+    private static final int MIN_PARALLEL_SAMPLES = 4096;
+
     /**
      * A private constructor.
      */
@@ -35,6 +40,21 @@ public final class ElevationProfileComputer {
      *                                  the gap between two edges is negative or null.
      */
     public static ElevationProfile elevationProfile(Route route, double maxStepLength) {
+        return elevationProfile(route, maxStepLength, false);
+    }
+
+    /**
+     * This method allows us to build an ElevationProfile while interpolating the missing data, possibly
+     * sampling parts of the route in parallel. Both ways give the same profile.
+     *
+     * @param route         The route of which we compute the ElevationProfile.
+     * @param maxStepLength The gap between edges.
+     * @param parallel      True to sample parts of long routes in parallel.
+     * @return The ElevationProfile associated to the given route.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if
+     *                                  the gap between two edges is negative or null.
+     */
+    public static ElevationProfile elevationProfile(Route route, double maxStepLength, boolean parallel) {
 
         checkArgument(maxStepLength > 0);
 
@@ -43,74 +63,102 @@ public final class ElevationProfileComputer {
         double length = route.length();
         double spaceBetween = length / (nbSamples - 1);
         float[] samples = new float[nbSamples];
-        List<Integer> indexes = new ArrayList<>();
-
-        IntStream.range(0, nbSamples).forEach(i -> samples[i] = ((float) route.elevationAt(i * spaceBetween)));
-
-        int firstValidIndex = firstValid(samples);
-        int lastValidIndex = lastValid(samples);
-        if (firstValidIndex == -1) return new ElevationProfile(length, new float[nbSamples]);
 
-        Arrays.fill(samples, 0, firstValidIndex, samples[firstValidIndex]);
-        Arrays.fill(samples, lastValidIndex, samples.length, samples[lastValidIndex]);
+        double[] positions = route.edgePositions();
+        if (positions != null) {
+            int taskCount = parallel ? Math.max(1, nbSamples / MIN_PARALLEL_SAMPLES) : 1;
+            if (taskCount == 1) sweep(route, positions, length, spaceBetween, samples, 0, nbSamples);
+            else IntStream.range(0, taskCount).parallel().forEach(t -> sweep(route, positions, length,
+                    spaceBetween, samples, (int) ((long) nbSamples * t / taskCount),
+                    (int) ((long) nbSamples * (t + 1) / taskCount)));
+        } else {
+            // Other routes may not place their positions on their edges the same way
+            IntStream.range(0, nbSamples).forEach(i -> samples[i] = ((float) route.elevationAt(i * spaceBetween)));
+        }
 
-        if (!isNaN(samples[0]) && isNaN(samples[1])) indexes.add(0);
+        if (!fillRemainingGaps(samples)) return new ElevationProfile(length, new float[nbSamples]);
+        return new ElevationProfile(length, samples);
+    }
 
-        //Taking the indexes of values surrounding NaNs to facilitate interpolation.
-        IntStream.range(1, samples.length - 1).forEach(i -> {
-            if (!isNaN(samples[i]) && isNaN(samples[i - 1]) && isNaN(samples[i + 1])) {
-                indexes.add(i);
-                indexes.add(i);
-            } else if (!isNaN(samples[i]) && (isNaN(samples[i - 1])
-                    || isNaN(samples[i + 1]))) {
-                indexes.add(i);
+    /**
+     * This private method allows us to compute a range of samples in a single pass over the edges
+     * of the route, interpolating the missing samples between two valid ones of the range. The profile
+     * of each edge is asked to the route once, without building the edge.
+     *
+     * @param route        The route.
+     * @param positions    The position of the start of every edge, followed by the length of the route.
+     * @param length       The length of the route.
+     * @param spaceBetween The distance between two samples.
+     * @param samples      The array receiving the samples.
+     * @param from         The index of the first sample of the range.
+     * @param to           The index following the last sample of the range.
+     */
+    private static void sweep(Route route, double[] positions, double length, double spaceBetween,
+                              float[] samples, int from, int to) {
+        int lastEdgeIndex = positions.length - 2;
+        int edgeIndex = edgeIndex(positions, lastEdgeIndex, clamp(0, from * spaceBetween, length));
+        DoubleUnaryOperator profile = route.edgeProfile(edgeIndex);
+        int lastValid = -1;
+        for (int i = from; i < to; i++) {
+            double position = clamp(0, i * spaceBetween, length);
+            int previousIndex = edgeIndex;
+            while (edgeIndex < lastEdgeIndex && positions[edgeIndex + 1] <= position) edgeIndex++;
+            if (edgeIndex != previousIndex) profile = route.edgeProfile(edgeIndex);
+
+            float sample = (float) profile.applyAsDouble(position - positions[edgeIndex]);
+            samples[i] = sample;
+            if (!isNaN(sample)) {
+                if (lastValid != -1 && lastValid < i - 1) interpolateGap(samples, lastValid, i);
+                lastValid = i;
             }
-        });
-        if (!isNaN(samples[samples.length - 1]) && isNaN(samples[samples.length - 2])) {
-            indexes.add(samples.length - 1);
         }
+    }
 
-        //Interpolating
-        for (int i = 0; i <= (indexes.size() / 2) - 1; i++) {
-            int quantity = indexes.get(2 * i + 1) - indexes.get(2 * i);
-            if (quantity == 1) {
-                samples[indexes.get(2 * i) + 1] = (float) interpolate(samples[indexes.get(2 * i)],
-                        samples[indexes.get(2 * i) + 1], 0.5);
-            } else {
-                DoubleUnaryOperator func = sampled(new float[]{samples[indexes.get(2 * i)],
-                        samples[indexes.get(2 * i + 1)]}, quantity);
-                for (int j = 1; j < quantity; j++) {
-                    samples[indexes.get(2 * i) + j] = (float) func.applyAsDouble(j);
-                }
-            }
-        }
-        return new ElevationProfile(length, samples);
+    /**
+     * This private method allows us to find the edge containing a position, as done by the routes.
+     *
+     * @param positions     The position of the start of every edge, followed by the length of the route.
+     * @param lastEdgeIndex The index of the last edge.
+     * @param position      The position, between 0 and the length of the route.
+     * @return The index of the edge.
+     */
+    private static int edgeIndex(double[] positions, int lastEdgeIndex, double position) {
+        int resultSearch = Arrays.binarySearch(positions, position);
+        int edgeIndex = (resultSearch >= 0) ? resultSearch : -resultSearch - 2;
+        return clamp(0, edgeIndex, lastEdgeIndex);
     }
 
     /**
-     * This method allows us to compute the first non-NaN value of an array of float.
+     * This private method allows us to fill the samples still missing after the passes: the ones before
+     * the first valid sample and after the last one take their value, and the others are interpolated.
      *
-     * @param floatArray The array we are looking through.
-     * @return The first valid index or -1 if it does not exist.
+     * @param samples The samples.
+     * @return False if there is no valid sample, in which case the array is left unchanged.
      */
-    private static int firstValid(float[] floatArray) {
-        for (int i = 0; i < floatArray.length; i++) {
-            if (!isNaN(floatArray[i])) return i;
+    private static boolean fillRemainingGaps(float[] samples) {
+        int lastValid = -1;
+        for (int i = 0; i < samples.length; i++) {
+            if (isNaN(samples[i])) continue;
+            if (lastValid == -1) Arrays.fill(samples, 0, i, samples[i]);
+            else if (lastValid < i - 1) interpolateGap(samples, lastValid, i);
+            lastValid = i;
         }
-        return -1;
+        if (lastValid == -1) return false;
+        Arrays.fill(samples, lastValid + 1, samples.length, samples[lastValid]);
+        return true;
     }
 
     /**
-     * This method allows us to compute the last non-NaN value of an array of float.
+     * This private method allows us to interpolate linearly the samples between two valid samples.
      *
-     * @param floatArray The array we are looking through.
-     * @return The last valid index or -1 if it does not exist.
+     * @param samples The samples.
+     * @param first   The index of the valid sample preceding the missing ones.
+     * @param last    The index of the valid sample following the missing ones.
      */
-    private static int lastValid(float[] floatArray) {
-        for (int i = floatArray.length - 1; i >= 0; i--) {
-            if (!isNaN(floatArray[i])) return i;
+    private static void interpolateGap(float[] samples, int first, int last) {
+        int quantity = last - first;
+        for (int j = 1; j < quantity; j++) {
+            samples[first + j] = (float) interpolate(samples[first], samples[last], (double) j / quantity);
         }
-        return -1;
     }
-
 }
@@ -0,0 +1,127 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphFiles;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A warm-up of a graph run at startup, so that the first routes asked by the user are computed as fast
+ * as the following ones. It reads the given mapped files of the graph in advance, then computes a number
+ * of routes between random nearby nodes so that the routing code is compiled.
+ *
+ * @param files  The names of the mapped files to read, among Graph.MAPPED_FILES.
+ * @param routes The number of routes to compute.
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public record GraphWarmUp(List<String> files, int routes) {
+
+    /**
+     * The files read by every search of a route.
+     */
+    public static final List<String> HOT_FILES = List.of(GraphFiles.NODES, GraphFiles.SECTORS, GraphFiles.EDGES);
+    /**
+     * The largest distance between the ends of the routes of the warm-up, in meters.
+     */
+    private static final double ROUTE_DISTANCE = 3_000;
+    /**
+     * The search distance used to find the end of a route of the warm-up, in meters.
+     */
+    private static final double SEARCH_DISTANCE = 500;
+    /**
+     * The seed of the random nodes, so that two warm-ups compute the same routes.
+     */
+    private static final long SEED = 2022;
+
+    /**
+     * The time taken by a step of the warm-up.
+     *
+     * @param name  The name of the step.
+     * @param nanos The duration of the step, in nanoseconds.
+     */
+    public record Step(String name, long nanos) {
+    }
+
+    /**
+     * Constructor checking the validity of its arguments.
+     *
+     * @param files  The names of the mapped files to read, among Graph.MAPPED_FILES.
+     * @param routes The number of routes to compute.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if a file is not a mapped file
+     *                                  or if the number of routes is negative.
+     */
+    public GraphWarmUp {
+        checkArgument(Graph.MAPPED_FILES.containsAll(files) && routes >= 0);
+        files = List.copyOf(files);
+    }
+
+    /**
+     * This method allows us to warm up a graph.
+     *
+     * @param graph The graph.
+     * @return The steps of the warm-up, the files in the given order then the routes.
+     */
+    public List<Step> run(Graph graph) {
+        List<Step> steps = new ArrayList<>();
+        for (String file : files) {
+            long start = System.nanoTime();
+            long bytes = graph.prefault(file);
+            steps.add(new Step("%s (%d bytes)".formatted(file, bytes), System.nanoTime() - start));
+        }
+        if (routes > 0 && graph.nodeCount() > 1) {
+            long start = System.nanoTime();
+            int found = computeRoutes(graph);
+            steps.add(new Step("%d routes (%d found)".formatted(routes, found), System.nanoTime() - start));
+        }
+        return List.copyOf(steps);
+    }
+
+    /**
+     * This private method allows us to compute routes between random nodes and nodes close to them.
+     * The routes whose random end has no node within the search distance are skipped rather than
+     * replaced by a route towards an arbitrary node, which could be anywhere in the graph.
+     *
+     * @param graph The graph.
+     * @return The number of routes found.
+     */
+    private int computeRoutes(Graph graph) {
+        RouteComputer computer = new RouteComputer(graph, new CityBikeCF(graph));
+        SplittableRandom random = new SplittableRandom(SEED);
+        int found = 0;
+        for (int i = 0; i < routes; i++) {
+            int startNodeId = random.nextInt(graph.nodeCount());
+            PointCh point = graph.nodePoint(startNodeId);
+            double e = point.e() + random.nextDouble(-ROUTE_DISTANCE, ROUTE_DISTANCE);
+            double n = point.n() + random.nextDouble(-ROUTE_DISTANCE, ROUTE_DISTANCE);
+            int endNodeId = SwissBounds.containsEN(e, n)
+                    ? graph.nodeClosestTo(new PointCh(e, n), SEARCH_DISTANCE)
+                    : -1;
+            if (endNodeId == -1 || endNodeId == startNodeId) continue;
+            if (computer.bestRouteBetween(startNodeId, endNodeId) != null) found++;
+        }
+        return found;
+    }
+
+    /**
+     * This method allows us to describe the steps of a warm-up.
+     *
+     * @param steps The steps.
+     * @return One line per step giving its duration in milliseconds, followed by the total duration.
+     */
+    public static String report(List<Step> steps) {
+        StringBuilder report = new StringBuilder();
+        long total = 0;
+        for (Step step : steps) {
+            report.append("%-40s %8.1f ms%n".formatted(step.name(), step.nanos() / 1e6));
+            total += step.nanos();
+        }
+        return report.append("%-40s %8.1f ms%n".formatted("total", total / 1e6)).toString();
+    }
+}
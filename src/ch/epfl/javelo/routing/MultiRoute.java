@@ -4,10 +4,11 @@ import ch.epfl.javelo.projection.PointCh;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.DoubleUnaryOperator;
 
 import static ch.epfl.javelo.Math2.clamp;
+import static ch.epfl.javelo.Math2.interpolate;
 import static ch.epfl.javelo.Preconditions.checkArgument;
 
 /**
@@ -15,49 +16,155 @@ import static ch.epfl.javelo.Preconditions.checkArgument;
  * Represent a complex itinerary named MultiRoute among this project.
  * It contains consist of several Route (segment) which can be either Single or Multi
  * however at the "end" of the chain there is always SingleRoutes.
- * Several methods used recursive call to reach these last SingleRoutes.
+ * The segments are flattened once at construction into the routes at the end of the chain and contiguous
+ * arrays of the positions, lengths, node identities and coordinates of all their edges, so that a lookup
+ * needs a single binary search. The edges themselves are only built if they are asked for, as a CompactRoute
+ * would otherwise have to build all of its edges and decode their profiles.
  *
  * @author Gaspard Thoral (345230)
  * @author Alexandre Mourot (346365)
  */
 public final class MultiRoute implements Route {
-    private final List<Route> segments;
+
+    private final Route[] leaves;
+    private final int[] segmentEnds;
     private final double[] positions;
+    private final double[] lengths;
+    private final int[] nodeIds;
+    private final double[] coordinates;
+    private final List<PointCh> points;
+    private volatile List<Edge> edges;
+    private volatile RouteEdgeTree edgeTree;
+    private volatile EdgeProfile lastProfile;
 
     /**
-     * This method constructs a MultiRoute with a list of Route given ,and a table (positions)
-     * containing the length at each segment positions.
+     * The profile of the last edge whose elevation was asked, as the elevations along a route are
+     * usually asked in order.
+     *
+     * @param edgeIndex The index of the edge in the route.
+     * @param profile   The profile of the edge.
+     */
+    private record EdgeProfile(int edgeIndex, DoubleUnaryOperator profile) {
+    }
+
+    /**
+     * This method constructs a MultiRoute with a list of Route given, flattening the routes at the end of
+     * their chains and the positions, lengths, node identities and coordinates of their edges, without
+     * building the edges of a CompactRoute.
      *
      * @param seg List containing all the segments constituting this route.
      * @throws IllegalArgumentException (checkArgument) Throws an exception is the list of segment given is empty.
      */
     public MultiRoute(List<Route> seg) {
         checkArgument(!seg.isEmpty());
-        segments = List.copyOf(seg);
-        positions = createPositions(segments);
+        List<Route> allLeaves = new ArrayList<>();
+        int edgeCount = 0;
+        for (Route route : seg) {
+            if (route instanceof MultiRoute multiRoute) {
+                allLeaves.addAll(Arrays.asList(multiRoute.leaves));
+                edgeCount += multiRoute.lengths.length;
+            } else {
+                allLeaves.add(route);
+                edgeCount += route.points().size() - 1;
+            }
+        }
+        leaves = allLeaves.toArray(new Route[0]);
+        segmentEnds = new int[leaves.length];
+        positions = new double[edgeCount + 1];
+        lengths = new double[edgeCount];
+        nodeIds = new int[2 * edgeCount];
+        coordinates = new double[4 * edgeCount];
+
+        int first = 0;
+        int leaf = 0;
+        for (Route route : seg) {
+            if (route instanceof MultiRoute multiRoute) {
+                int count = multiRoute.lengths.length;
+                System.arraycopy(multiRoute.lengths, 0, lengths, first, count);
+                System.arraycopy(multiRoute.nodeIds, 0, nodeIds, 2 * first, 2 * count);
+                System.arraycopy(multiRoute.coordinates, 0, coordinates, 4 * first, 4 * count);
+                for (int end : multiRoute.segmentEnds) segmentEnds[leaf++] = first + end;
+                first += count;
+            } else {
+                first = flatten(route, first);
+                segmentEnds[leaf++] = first;
+            }
+        }
+
+        List<PointCh> allPoints = new ArrayList<>(edgeCount + 1);
+        for (int i = 0; i < edgeCount; i++) {
+            positions[i + 1] = positions[i] + lengths[i];
+            allPoints.add(new PointCh(coordinates[4 * i], coordinates[4 * i + 1]));
+        }
+        allPoints.add(new PointCh(coordinates[4 * edgeCount - 2], coordinates[4 * edgeCount - 1]));
+        points = List.copyOf(allPoints);
+    }
+
+    /**
+     * This private method allows us to copy the lengths, node identities and coordinates of the edges
+     * of a route which is not a MultiRoute, reading those of a CompactRoute from its graph.
+     *
+     * @param route The route.
+     * @param first The index in this route of the first edge of the route.
+     * @return The index in this route following the last edge of the route.
+     */
+    private int flatten(Route route, int first) {
+        if (route instanceof CompactRoute compactRoute) {
+            List<PointCh> routePoints = compactRoute.points();
+            int count = routePoints.size() - 1;
+            for (int i = 0; i < count; i++) {
+                set(first + i, compactRoute.edgeLength(i), compactRoute.fromNodeId(i), compactRoute.toNodeId(i),
+                        routePoints.get(i), routePoints.get(i + 1));
+            }
+            return first + count;
+        }
+        List<Edge> routeEdges = route.edges();
+        int count = routeEdges.size();
+        for (int i = 0; i < count; i++) {
+            Edge edge = routeEdges.get(i);
+            set(first + i, edge.length(), edge.fromNodeId(), edge.toNodeId(), edge.fromPoint(), edge.toPoint());
+        }
+        return first + count;
+    }
+
+    /**
+     * This private method allows us to store the length, node identities and coordinates of an edge.
+     *
+     * @param index      The index of the edge in this route.
+     * @param length     The length of the edge.
+     * @param fromNodeId The identity of the node the edge is leaving.
+     * @param toNodeId   The identity of the node the edge is targeting.
+     * @param fromPoint  The point the edge is leaving.
+     * @param toPoint    The point the edge is targeting.
+     */
+    private void set(int index, double length, int fromNodeId, int toNodeId, PointCh fromPoint, PointCh toPoint) {
+        lengths[index] = length;
+        nodeIds[2 * index] = fromNodeId;
+        nodeIds[2 * index + 1] = toNodeId;
+        coordinates[4 * index] = fromPoint.e();
+        coordinates[4 * index + 1] = fromPoint.n();
+        coordinates[4 * index + 2] = toPoint.e();
+        coordinates[4 * index + 3] = toPoint.n();
     }
 
     /**
      * This method allows us to get the index in terms of SingleRoute to a given position on the route.
      *
      * @param position position given in meter.
-     * @return the index of the SingleRoute linked to the position.
+     * @return the index of the SingleRoute linked to the position, the first one if the position is
+     * at the end of a SingleRoute.
      */
     @Override
     public int indexOfSegmentAt(double position) {
         double boundedPosition = bounds(position);
-        int index = 0;
-        for (Route route : segments) {
-            double length = route.length();
-            if (length < boundedPosition) {
-                index += route.indexOfSegmentAt(route.length()) + 1;
-                boundedPosition -= length;
-            } else {
-                index += route.indexOfSegmentAt(boundedPosition);
-                break;
-            }
+        int low = 0;
+        int high = segmentEnds.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positions[segmentEnds[middle]] < boundedPosition) low = middle + 1;
+            else high = middle;
         }
-        return index;
+        return low;
     }
 
     /**
@@ -73,31 +180,31 @@ public final class MultiRoute implements Route {
     /**
      * This method allows us to get every edge of the MultiRoute.
      *
-     * @return list containing all the edges.
+     * @return immutable list containing all the edges, built from the segments on the first call.
      */
     @Override
     public List<Edge> edges() {
-        List<Edge> edges = new ArrayList<>();
-        for (Route route : segments) {
-            edges.addAll(route.edges());
+        List<Edge> list = edges;
+        if (list == null) {
+            synchronized (this) {
+                if (edges == null) {
+                    List<Edge> allEdges = new ArrayList<>(lengths.length);
+                    for (Route leaf : leaves) allEdges.addAll(leaf.edges());
+                    edges = List.copyOf(allEdges);
+                }
+                list = edges;
+            }
         }
-        return Collections.unmodifiableList(edges);
+        return list;
     }
 
     /**
      * This method allows us to get every point located at the edge's extremity of the route.
      *
-     * @return list containing every pointCh located to edge's extremity.
+     * @return immutable list containing every pointCh located to edge's extremity.
      */
     @Override
     public List<PointCh> points() {
-        List<PointCh> points = new ArrayList<>();
-        for (Route route : segments) {
-            points.addAll(route.points());
-            points.remove(points.size() - 1);
-        }
-        List<PointCh> list = segments.get(segments.size() - 1).points();
-        points.add(list.get(list.size() - 1));
         return points;
     }
 
@@ -110,8 +217,11 @@ public final class MultiRoute implements Route {
     @Override
     public PointCh pointAt(double position) {
         double boundedPosition = bounds(position);
-        int index = indexOfSegmentOnRoute(boundedPosition);
-        return segments.get(index).pointAt(boundedPosition - positions[index]);
+        int index = edgeIndex(boundedPosition);
+        if (lengths[index] == 0) return points.get(index);
+        double x = (boundedPosition - positions[index]) / lengths[index];
+        return new PointCh(interpolate(coordinates[4 * index], coordinates[4 * index + 2], x),
+                interpolate(coordinates[4 * index + 1], coordinates[4 * index + 3], x));
     }
 
     /**
@@ -123,9 +233,43 @@ public final class MultiRoute implements Route {
     @Override
     public double elevationAt(double position) {
         double boundedPosition = bounds(position);
-        int index = indexOfSegmentOnRoute(boundedPosition);
-        return segments.get(index).elevationAt(boundedPosition - positions[index]);
+        int index = edgeIndex(boundedPosition);
+        EdgeProfile profile = lastProfile;
+        if (profile == null || profile.edgeIndex() != index) {
+            profile = new EdgeProfile(index, edgeProfile(index));
+            lastProfile = profile;
+        }
+        return profile.profile().applyAsDouble(boundedPosition - positions[index]);
+    }
+
+    /**
+     * This method allows us to get the position of the start of every edge of the MultiRoute, followed by its length.
+     *
+     * @return A copy of the positions, the ones at which elevationAt reads each edge.
+     */
+    @Override
+    public double[] edgePositions() {
+        return positions.clone();
+    }
 
+    /**
+     * This method allows us to get the profile of an edge of the MultiRoute, asked to the segment containing it
+     * so that the other edges are not built.
+     *
+     * @param edgeIndex The index of the edge in the route.
+     * @return The function giving the elevation along the edge.
+     */
+    @Override
+    public DoubleUnaryOperator edgeProfile(int edgeIndex) {
+        int low = 0;
+        int high = segmentEnds.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (segmentEnds[middle] <= edgeIndex) low = middle + 1;
+            else high = middle;
+        }
+        int leafFirstEdge = low == 0 ? 0 : segmentEnds[low - 1];
+        return leaves[low].edgeProfile(edgeIndex - leafFirstEdge);
     }
 
     /**
@@ -137,57 +281,62 @@ public final class MultiRoute implements Route {
     @Override
     public int nodeClosestTo(double position) {
         double boundedPosition = bounds(position);
-        int index = indexOfSegmentOnRoute(boundedPosition);
-        return segments.get(index).nodeClosestTo(boundedPosition - positions[index]);
+        int index = edgeIndex(boundedPosition);
+        double diff1 = boundedPosition - positions[index];
+        double diff2 = positions[index + 1] - boundedPosition;
+        return (diff1 <= diff2) ? nodeIds[2 * index] : nodeIds[2 * index + 1];
     }
 
     /**
      * This method allows us to get the point closest to an other given point.
+     * It uses a tree of the edges of the route built on the first call, so that only the edges close
+     * to the point are examined.
      *
      * @param point reference point to find the closest around it.
      * @return closest point from the point passed in parameter.
      */
     @Override
     public RoutePoint pointClosestTo(PointCh point) {
-        RoutePoint points = RoutePoint.NONE;
-        int counter = 0;
-        for (Route segment : segments) {
-            points = points.min(segment.pointClosestTo(point)
-                    .withPositionShiftedBy(positions[counter++]));
+        RouteEdgeTree tree = edgeTree;
+        if (tree == null) {
+            synchronized (this) {
+                if (edgeTree == null) edgeTree = buildEdgeTree();
+                tree = edgeTree;
+            }
         }
-        return points;
+        return tree.pointClosestTo(point);
     }
 
     /**
-     * This method create an Array containing the length at a certain segment.
+     * This private method allows us to build the tree of the edges of the route from their coordinates.
      *
-     * @param segments list of route contained in this.
-     * @return the Array containing the lengths of at segment index.
+     * @return The tree of the edges.
      */
-    private double[] createPositions(List<Route> segments) {
-        final double[] positions;
-        double length = 0;
-        positions = new double[segments.size() + 1];
-        positions[0] = 0;
-        for (int i = 0; i < segments.size(); i++) {
-            length += segments.get(i).length();
-            positions[i + 1] = length;
+    private RouteEdgeTree buildEdgeTree() {
+        int edgeCount = lengths.length;
+        double[] fromE = new double[edgeCount];
+        double[] fromN = new double[edgeCount];
+        double[] toE = new double[edgeCount];
+        double[] toN = new double[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            fromE[i] = coordinates[4 * i];
+            fromN[i] = coordinates[4 * i + 1];
+            toE[i] = coordinates[4 * i + 2];
+            toN[i] = coordinates[4 * i + 3];
         }
-        return positions;
+        return new RouteEdgeTree(fromE, fromN, toE, toN, lengths, positions);
     }
 
     /**
-     * Private method to find the right index of segment at the scale of this MultiRoute.
+     * This private method allows us to find the index of the edge at a given position.
      *
-     * @param position position given in meter.
-     * @return the index link to the position.
+     * @param position position, between 0 and the length of the route.
+     * @return the index of the edge.
      */
-    private int indexOfSegmentOnRoute(double position) {
-        double boundedPosition = bounds(position);
-        int resultSearch = Arrays.binarySearch(positions, boundedPosition);
-        int segmentIndex;
-        segmentIndex = (resultSearch >= 0) ? resultSearch : -resultSearch - 2;
-        return clamp(0, segmentIndex, segments.size() - 1);
+    private int edgeIndex(double position) {
+        int resultSearch = Arrays.binarySearch(positions, position);
+        int edgeIndex = (resultSearch >= 0) ? resultSearch : -resultSearch - 2;
+        return clamp(0, edgeIndex, lengths.length - 1);
     }
 
     /**
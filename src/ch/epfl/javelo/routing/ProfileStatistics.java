@@ -0,0 +1,33 @@
+package ch.epfl.javelo.routing;
+
+/**
+ * Record ProfileStatistics represent the statistics of a range of an elevation profile.
+ *
+ * @param minElevation The lowest elevation of the range, in meters.
+ * @param maxElevation The highest elevation of the range, in meters.
+ * @param ascent       The sum of the altitude gains of the range, in meters.
+ * @param descent      The sum of the altitude losses of the range, positive, in meters.
+ * @param maxGrade     The steepest slope of the range, as a ratio which is negative if the range only goes down.
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public record ProfileStatistics(double minElevation, double maxElevation, double ascent, double descent,
+                                double maxGrade) {
+
+    /**
+     * This method allows us to get the statistics of a range followed by another one.
+     *
+     * @param that      The statistics of the following range.
+     * @param junction  The difference between the elevation at the start of the following range and the one
+     *                  at the end of this range, which is not 0 when they come from two parts sampled apart.
+     * @return The statistics of both ranges.
+     */
+    public ProfileStatistics followedBy(ProfileStatistics that, double junction) {
+        return new ProfileStatistics(
+                Math.min(minElevation, that.minElevation),
+                Math.max(maxElevation, that.maxElevation),
+                ascent + that.ascent + Math.max(0, junction),
+                descent + that.descent + Math.max(0, -junction),
+                Math.max(maxGrade, that.maxGrade));
+    }
+}
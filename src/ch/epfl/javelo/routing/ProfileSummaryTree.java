@@ -0,0 +1,141 @@
+package ch.epfl.javelo.routing;
+
+import static ch.epfl.javelo.Math2.clamp;
+
+/**
+ * A summary of the samples of an elevation profile giving the statistics of any range of positions
+ * in logarithmic time. The ascents and descents are stored as prefix sums, and the elevations and the
+ * slopes between two samples in segment trees stored in arrays, the children of the node k being the
+ * nodes 2k and 2k + 1 and the leaves starting at the number of values. The trees of the elevations also
+ * give the envelopes used to draw the profile at any scale.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+final class ProfileSummaryTree {
+
+    private final float[] samples;
+    private final double gap;
+    private final double[] ascents;
+    private final double[] descents;
+    private final float[] minTree;
+    private final float[] maxTree;
+    private final double[] gradeTree;
+
+    /**
+     * Constructor building the summary of samples in linear time.
+     *
+     * @param samples The samples, at least two, which are not copied.
+     * @param length  The length of the profile.
+     */
+    ProfileSummaryTree(float[] samples, double length) {
+        int count = samples.length;
+        this.samples = samples;
+        this.gap = length / (count - 1);
+        ascents = new double[count];
+        descents = new double[count];
+        minTree = new float[2 * count];
+        maxTree = new float[2 * count];
+        gradeTree = new double[2 * (count - 1)];
+        for (int i = 0; i < count; i++) {
+            minTree[count + i] = samples[i];
+            maxTree[count + i] = samples[i];
+            if (i + 1 < count) {
+                float difference = samples[i + 1] - samples[i];
+                ascents[i + 1] = ascents[i] + (difference > 0 ? difference : 0);
+                descents[i + 1] = descents[i] - (difference < 0 ? difference : 0);
+                gradeTree[count - 1 + i] = difference / gap;
+            }
+        }
+        for (int k = count - 1; k > 0; k--) {
+            minTree[k] = Math.min(minTree[2 * k], minTree[2 * k + 1]);
+            maxTree[k] = Math.max(maxTree[2 * k], maxTree[2 * k + 1]);
+        }
+        for (int k = count - 2; k > 0; k--) gradeTree[k] = Math.max(gradeTree[2 * k], gradeTree[2 * k + 1]);
+    }
+
+    /**
+     * This method allows us to compute the statistics of a range of positions.
+     *
+     * @param from          The start of the range, between 0 and the length of the profile.
+     * @param to            The end of the range, between from and the length of the profile.
+     * @param fromElevation The elevation of the profile at the start of the range.
+     * @param toElevation   The elevation of the profile at the end of the range.
+     * @return The statistics of the range.
+     */
+    ProfileStatistics statistics(double from, double to, double fromElevation, double toElevation) {
+        int lastPieceIndex = samples.length - 2;
+        int firstPiece = clamp(0, (int) Math.floor(from / gap), lastPieceIndex);
+        int lastPiece = clamp(firstPiece, (int) Math.ceil(to / gap) - 1, lastPieceIndex);
+        double maxGrade = maxOf(gradeTree, samples.length - 1, firstPiece, lastPiece + 1);
+        double min = Math.min(fromElevation, toElevation);
+        double max = Math.max(fromElevation, toElevation);
+
+        if (firstPiece == lastPiece) {
+            double difference = toElevation - fromElevation;
+            return new ProfileStatistics(min, max, Math.max(0, difference), Math.max(0, -difference), maxGrade);
+        }
+        int firstSample = firstPiece + 1;
+        int lastSample = lastPiece;
+        double first = samples[firstSample] - fromElevation;
+        double last = toElevation - samples[lastSample];
+        return new ProfileStatistics(
+                Math.min(min, minOf(firstSample, lastSample + 1)),
+                Math.max(max, maxOf(firstSample, lastSample + 1)),
+                ascents[lastSample] - ascents[firstSample] + Math.max(0, first) + Math.max(0, last),
+                descents[lastSample] - descents[firstSample] + Math.max(0, -first) + Math.max(0, -last),
+                maxGrade);
+    }
+
+    /**
+     * This method allows us to get the lowest sample of a range of samples in logarithmic time.
+     *
+     * @param from The index of the first sample.
+     * @param to   The index following the last sample.
+     * @return The lowest sample.
+     */
+    float minOf(int from, int to) {
+        float min = Float.POSITIVE_INFINITY;
+        int count = samples.length;
+        for (int l = from + count, r = to + count; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) min = Math.min(min, minTree[l++]);
+            if ((r & 1) == 1) min = Math.min(min, minTree[--r]);
+        }
+        return min;
+    }
+
+    /**
+     * This method allows us to get the highest sample of a range of samples in logarithmic time.
+     *
+     * @param from The index of the first sample.
+     * @param to   The index following the last sample.
+     * @return The highest sample.
+     */
+    float maxOf(int from, int to) {
+        float max = Float.NEGATIVE_INFINITY;
+        int count = samples.length;
+        for (int l = from + count, r = to + count; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) max = Math.max(max, maxTree[l++]);
+            if ((r & 1) == 1) max = Math.max(max, maxTree[--r]);
+        }
+        return max;
+    }
+
+    /**
+     * This private method allows us to get the largest value of a range of the values of a segment tree.
+     *
+     * @param tree  The segment tree.
+     * @param count The number of values of the tree.
+     * @param from  The index of the first value.
+     * @param to    The index following the last value.
+     * @return The largest value.
+     */
+    private static double maxOf(double[] tree, int count, int from, int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int l = from + count, r = to + count; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) max = Math.max(max, tree[l++]);
+            if ((r & 1) == 1) max = Math.max(max, tree[--r]);
+        }
+        return max;
+    }
+}
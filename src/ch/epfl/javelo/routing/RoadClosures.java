@@ -0,0 +1,213 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphSectors;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.PolygonCh;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A set of closed or penalized edges of a graph, which can be changed while routes are being computed.
+ * Every change publishes a new immutable snapshot, so that reading the factors of the edges never
+ * waits for a change in progress.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class RoadClosures {
+
+    /**
+     * The factor of the closed edges.
+     */
+    private static final double CLOSED = Double.POSITIVE_INFINITY;
+    /**
+     * The factor of the edges which are neither closed nor penalized.
+     */
+    private static final double OPEN = 1;
+
+    private volatile Snapshot snapshot = new Snapshot(0, new int[0], new double[0]);
+
+    /**
+     * The closed or penalized edges at a given time.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final int[] edgeIds;
+        private final double[] factors;
+
+        /**
+         * This method is the private constructor of the class Snapshot.
+         *
+         * @param version The number of changes made before this snapshot.
+         * @param edgeIds The identities of the closed or penalized edges, sorted.
+         * @param factors The factor of each edge.
+         */
+        private Snapshot(long version, int[] edgeIds, double[] factors) {
+            this.version = version;
+            this.edgeIds = edgeIds;
+            this.factors = factors;
+        }
+
+        /**
+         * This method allows us to know the number of changes made before this snapshot.
+         *
+         * @return The version of this snapshot.
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * This method allows us to know the number of closed or penalized edges.
+         *
+         * @return The number of edges.
+         */
+        public int size() {
+            return edgeIds.length;
+        }
+
+        /**
+         * This method allows us to get the factor by which the cost of an edge is multiplied.
+         *
+         * @param edgeId The identity of the edge.
+         * @return The factor of the edge, infinite if it is closed and 1 if it is open.
+         */
+        public double factor(int edgeId) {
+            if (edgeIds.length == 0) return OPEN;
+            int index = Arrays.binarySearch(edgeIds, edgeId);
+            return index < 0 ? OPEN : factors[index];
+        }
+    }
+
+    /**
+     * This method allows us to get the closed or penalized edges at the current time.
+     *
+     * @return The current snapshot, which is not affected by later changes.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * This method allows us to get the factor by which the cost of an edge is currently multiplied.
+     *
+     * @param edgeId The identity of the edge.
+     * @return The factor of the edge, infinite if it is closed and 1 if it is open.
+     */
+    public double factor(int edgeId) {
+        return snapshot.factor(edgeId);
+    }
+
+    /**
+     * This method allows us to close edges.
+     *
+     * @param edgeIds The identities of the edges.
+     */
+    public void close(int... edgeIds) {
+        set(edgeIds, CLOSED);
+    }
+
+    /**
+     * This method allows us to penalize edges, multiplying their cost by a factor.
+     *
+     * @param factor  The factor, at least 1.
+     * @param edgeIds The identities of the edges.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the factor is smaller than 1.
+     */
+    public void penalize(double factor, int... edgeIds) {
+        checkArgument(factor >= OPEN);
+        set(edgeIds, factor);
+    }
+
+    /**
+     * This method allows us to open edges again, removing their closure or penalty.
+     *
+     * @param edgeIds The identities of the edges.
+     */
+    public void reopen(int... edgeIds) {
+        set(edgeIds, OPEN);
+    }
+
+    /**
+     * This method allows us to close every edge leaving or reaching a node inside a polygon,
+     * the nodes being searched in the sectors of the graph intersecting the polygon.
+     *
+     * @param graph    The graph.
+     * @param vertices The vertices of the polygon, in order, the last one being linked to the first one.
+     * @return The identities of the closed edges, sorted.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if there are less than three vertices.
+     */
+    public int[] closeArea(Graph graph, List<PointCh> vertices) {
+        int[] edgeIds = edgesInArea(graph, vertices);
+        close(edgeIds);
+        return edgeIds;
+    }
+
+    /**
+     * This method allows us to find every edge leaving or reaching a node inside a polygon.
+     *
+     * @param graph    The graph.
+     * @param vertices The vertices of the polygon, in order, the last one being linked to the first one.
+     * @return The identities of the edges, sorted.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if there are less than three vertices.
+     */
+    public static int[] edgesInArea(Graph graph, List<PointCh> vertices) {
+        PolygonCh polygon = new PolygonCh(vertices);
+        PointCh center = new PointCh((polygon.minE() + polygon.maxE()) / 2, (polygon.minN() + polygon.maxN()) / 2);
+        double distance = Math.max(polygon.maxE() - polygon.minE(), polygon.maxN() - polygon.minN()) / 2;
+
+        IntStream.Builder edgeIds = IntStream.builder();
+        for (GraphSectors.Sector sector : graph.sectorsInArea(center, distance)) {
+            for (int nodeId = sector.startNodeId(); nodeId < sector.endNodeId(); nodeId++) {
+                PointCh point = graph.nodePoint(nodeId);
+                if (!polygon.contains(point.e(), point.n())) continue;
+                for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                    int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                    int targetId = graph.edgeTargetNodeId(edgeId);
+                    edgeIds.add(edgeId);
+                    for (int j = 0; j < graph.nodeOutDegree(targetId); j++) {
+                        int backEdgeId = graph.nodeOutEdgeId(targetId, j);
+                        if (graph.edgeTargetNodeId(backEdgeId) == nodeId) edgeIds.add(backEdgeId);
+                    }
+                }
+            }
+        }
+        return edgeIds.build().sorted().distinct().toArray();
+    }
+
+    /**
+     * This private method allows us to publish a new snapshot in which the given edges have the given factor.
+     * Changes are serialized, while the readers keep using the previous snapshot until it is published.
+     *
+     * @param edgeIds The identities of the edges.
+     * @param factor  The factor of the edges, 1 removing them from the snapshot.
+     */
+    private synchronized void set(int[] edgeIds, double factor) {
+        int[] changed = IntStream.of(edgeIds).sorted().distinct().toArray();
+        Snapshot current = snapshot;
+        int[] newIds = new int[current.edgeIds.length + changed.length];
+        double[] newFactors = new double[newIds.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < current.edgeIds.length || j < changed.length) {
+            if (j == changed.length || (i < current.edgeIds.length && current.edgeIds[i] < changed[j])) {
+                newIds[count] = current.edgeIds[i];
+                newFactors[count++] = current.factors[i++];
+            } else {
+                if (i < current.edgeIds.length && current.edgeIds[i] == changed[j]) i++;
+                if (factor != OPEN) {
+                    newIds[count] = changed[j];
+                    newFactors[count++] = factor;
+                }
+                j++;
+            }
+        }
+        snapshot = new Snapshot(current.version + 1, Arrays.copyOf(newIds, count), Arrays.copyOf(newFactors, count));
+    }
+}
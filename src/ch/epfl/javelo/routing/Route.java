@@ -3,6 +3,7 @@ package ch.epfl.javelo.routing;
 import ch.epfl.javelo.projection.PointCh;
 
 import java.util.List;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Interface Route which describe the behaviour of route.
@@ -72,5 +73,25 @@ public interface Route {
      */
     RoutePoint pointClosestTo(PointCh point);
 
+    /**
+     * This method allows us to get the position of the start of every edge of the route, followed by its length,
+     * for the routes whose elevationAt reads a position on the last edge starting at or before it.
+     *
+     * @return The positions, or null if the route does not place its positions on its edges this way.
+     */
+    default double[] edgePositions() {
+        return null;
+    }
+
+    /**
+     * This method allows us to get the profile of an edge of the route, which the routes storing the identities
+     * of their edges read from their graph without building the other edges.
+     *
+     * @param edgeIndex The index of the edge in the route.
+     * @return The function giving the elevation along the edge.
+     */
+    default DoubleUnaryOperator edgeProfile(int edgeIndex) {
+        return edges().get(edgeIndex).profile();
+    }
 
 }
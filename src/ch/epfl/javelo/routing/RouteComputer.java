@@ -1,8 +1,11 @@
 package ch.epfl.javelo.routing;
 
-import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.EdgePoint;
+import ch.epfl.javelo.data.RoutingGraph;
+import ch.epfl.javelo.projection.PointCh;
 
 import java.util.*;
+import java.util.function.DoubleUnaryOperator;
 
 import static ch.epfl.javelo.Preconditions.checkArgument;
 
@@ -23,7 +26,7 @@ public final class RouteComputer {
      */
     private final static float COMPUTED_DISTANCE = Float.NEGATIVE_INFINITY;
 
-    private final Graph graph;
+    private final RoutingGraph graph;
     private final CostFunction costFunction;
 
 
@@ -34,7 +37,7 @@ public final class RouteComputer {
      * @param costFunction A function used to pick the best path out of several ones
      *                     while not using length as the unique criteria.
      */
-    public RouteComputer(Graph graph, CostFunction costFunction) {
+    public RouteComputer(RoutingGraph graph, CostFunction costFunction) {
         this.graph = graph;
         this.costFunction = costFunction;
     }
@@ -94,30 +97,269 @@ public final class RouteComputer {
     }
 
     /**
-     * This method creates a route from a list of nodes.
+     * This method allows us to compute the best route between two points located in the middle of edges.
+     * The search starts from both extremities of the starting edge, with the cost of the part of the edge
+     * leading to them, and ends on either extremity of the final edge in the same way.
      *
-     * @param backNodes The list of nodes used for back propagation.
-     * @param nodeId    The id of the last node.
-     * @return A new Route.
+     * @param start The point of an edge at which we start our bike session.
+     * @param end   The point of an edge at which we end our bike session.
+     * @return The best route to go from start to end, or null if there is none.
      */
-    private Route createRoute(int[] backNodes, int nodeId) {
-        List<Edge> edges = new ArrayList<>();
-        int id = nodeId;
-        while (backNodes[id] != 0) {
-            boolean found = false;
-            int edgeID = 0;
-            while (!found) {
-                if (graph.edgeTargetNodeId(graph.nodeOutEdgeId(backNodes[id], edgeID)) == id) {
-                    edges.add(Edge.of(graph, graph.nodeOutEdgeId(backNodes[id], edgeID), backNodes[id], id));
-                    found = true;
+    public Route bestRouteBetween(EdgePoint start, EdgePoint end) {
+
+        record WeightedNode(int nodeId, float distance) implements Comparable<WeightedNode> {
+            @Override
+            public int compareTo(WeightedNode that) {
+                return Float.compare(this.distance, that.distance);
+            }
+        }
+
+        double endPosition = endPositionOnStartEdge(start, end);
+        if (endPosition == start.position()) return null;
+        if (!Double.isNaN(endPosition)) {
+            Route direct = routeAlongStartEdge(start, end, endPosition);
+            if (direct != null) return direct;
+        }
+
+        int targetId = graph.nodeCount();
+        float[] distance = new float[targetId + 1];
+        int[] predecessor = new int[targetId + 1];
+        Arrays.fill(distance, POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
+
+        int startToNodeId = graph.edgeTargetNodeId(start.edgeId());
+        int startBackEdgeId = reverseEdgeId(start.edgeId(), start.fromNodeId());
+        int endToNodeId = graph.edgeTargetNodeId(end.edgeId());
+        int endBackEdgeId = reverseEdgeId(end.edgeId(), end.fromNodeId());
+        double endLength = graph.edgeLength(end.edgeId());
+
+        PriorityQueue<WeightedNode> nodesPriorityQueue = new PriorityQueue<>();
+        float forwardCost = (float) partCost(start.fromNodeId(), start.edgeId(),
+                graph.edgeLength(start.edgeId()) - start.position());
+        if (forwardCost < distance[startToNodeId]) {
+            distance[startToNodeId] = forwardCost;
+            nodesPriorityQueue.add(new WeightedNode(startToNodeId, forwardCost));
+        }
+        if (startBackEdgeId != -1) {
+            float backwardCost = (float) partCost(startToNodeId, startBackEdgeId, start.position());
+            if (backwardCost < distance[start.fromNodeId()]) {
+                distance[start.fromNodeId()] = backwardCost;
+                nodesPriorityQueue.add(new WeightedNode(start.fromNodeId(), backwardCost));
+            }
+        }
+
+        while (!nodesPriorityQueue.isEmpty()) {
+            int id = nodesPriorityQueue.remove().nodeId;
+            if (id == targetId) return createRoute(predecessor, start, end);
+            if (COMPUTED_DISTANCE == distance[id]) continue;
+
+            float toEnd = POSITIVE_INFINITY;
+            if (id == end.fromNodeId()) {
+                toEnd = (float) partCost(id, end.edgeId(), end.position());
+            }
+            if (id == endToNodeId && endBackEdgeId != -1) {
+                toEnd = Math.min(toEnd, (float) partCost(id, endBackEdgeId, endLength - end.position()));
+            }
+            if (distance[id] + toEnd < distance[targetId]) {
+                distance[targetId] = distance[id] + toEnd;
+                predecessor[targetId] = id;
+                nodesPriorityQueue.add(new WeightedNode(targetId, distance[targetId]));
+            }
+
+            for (int i = 0; i < graph.nodeOutDegree(id); i++) {
+                int edgeId = graph.nodeOutEdgeId(id, i);
+                int nextNodeId = graph.edgeTargetNodeId(edgeId);
+                if (COMPUTED_DISTANCE == distance[nextNodeId]) continue;
+                float first_distance = (float) (distance[id] +
+                        costFunction.costFactor(id, edgeId) * graph.edgeLength(edgeId));
+                if (first_distance < distance[nextNodeId]) {
+                    distance[nextNodeId] = first_distance;
+                    predecessor[nextNodeId] = id;
+                    nodesPriorityQueue.add(new WeightedNode(nextNodeId, (float) (first_distance
+                            + graph.nodePoint(nextNodeId).distanceTo(end.point()))));
                 }
-                edgeID++;
             }
-            id = backNodes[id];
+            distance[id] = COMPUTED_DISTANCE;
         }
+        return null;
+    }
+
+    /**
+     * This private method allows us to compute the cost of following a part of an edge.
+     * A forbidden edge costs +∞ even for a part of length 0, whose product would not be defined.
+     *
+     * @param nodeId The identity of the node the edge is leaving.
+     * @param edgeId The identity of the edge.
+     * @param length The length of the part of the edge.
+     * @return The cost factor of the edge multiplied by the length, or +∞ if the edge is forbidden.
+     */
+    private double partCost(int nodeId, int edgeId, double length) {
+        double costFactor = costFunction.costFactor(nodeId, edgeId);
+        return costFactor == Double.POSITIVE_INFINITY ? Double.POSITIVE_INFINITY : costFactor * length;
+    }
+
+    /**
+     * This method allows us to compute the position of the final point along the starting edge,
+     * when both points are located on the same edge or on an edge and its reverse.
+     *
+     * @param start The starting point.
+     * @param end   The final point.
+     * @return The position of end along the edge of start, or NaN if they are not on the same edge.
+     */
+    private double endPositionOnStartEdge(EdgePoint start, EdgePoint end) {
+        if (end.edgeId() == start.edgeId()) return end.position();
+        if (end.edgeId() == reverseEdgeId(start.edgeId(), start.fromNodeId()))
+            return graph.edgeLength(start.edgeId()) - end.position();
+        return Double.NaN;
+    }
+
+    /**
+     * This method allows us to build the route between two points located on the same edge
+     * when the edge can be followed directly in the needed direction.
+     *
+     * @param start       The starting point.
+     * @param end         The final point.
+     * @param endPosition The position of the final point along the starting edge.
+     * @return The route following the edge, or null if it cannot be followed in the needed direction.
+     */
+    private Route routeAlongStartEdge(EdgePoint start, EdgePoint end, double endPosition) {
+        int toNodeId = graph.edgeTargetNodeId(start.edgeId());
+        if (endPosition > start.position()) {
+            if (costFunction.costFactor(start.fromNodeId(), start.edgeId()) == Double.POSITIVE_INFINITY) return null;
+            return new SingleRoute(List.of(partialEdge(start.edgeId(), start.fromNodeId(),
+                    start.point(), end.point(), start.position(), endPosition)));
+        }
+        int backEdgeId = reverseEdgeId(start.edgeId(), start.fromNodeId());
+        if (backEdgeId == -1 || costFunction.costFactor(toNodeId, backEdgeId) == Double.POSITIVE_INFINITY)
+            return null;
+        double backLength = graph.edgeLength(backEdgeId);
+        return new SingleRoute(List.of(partialEdge(backEdgeId, toNodeId,
+                start.point(), end.point(), backLength - start.position(), backLength - endPosition)));
+    }
+
+    /**
+     * This method creates a route from the predecessors computed between two points located on edges.
+     *
+     * @param backNodes The predecessor of each node, -1 for the nodes reached directly from the start,
+     *                  the last cell containing the last node before the end.
+     * @param start     The starting point.
+     * @param end       The final point.
+     * @return A new Route, or null if it would be empty.
+     */
+    private Route createRoute(int[] backNodes, EdgePoint start, EdgePoint end) {
+        List<Edge> edges = new ArrayList<>();
+
+        int lastNodeId = backNodes[backNodes.length - 1];
+        if (lastNodeId == end.fromNodeId()) {
+            edges.add(partialEdge(end.edgeId(), lastNodeId, graph.nodePoint(lastNodeId), end.point(),
+                    0, end.position()));
+        } else {
+            int backEdgeId = reverseEdgeId(end.edgeId(), end.fromNodeId());
+            edges.add(partialEdge(backEdgeId, lastNodeId, graph.nodePoint(lastNodeId), end.point(),
+                    0, graph.edgeLength(backEdgeId) - end.position()));
+        }
+
+        int id = lastNodeId;
+        while (backNodes[id] != -1) {
+            int fromNodeId = backNodes[id];
+            edges.add(Edge.of(graph, edgeBetween(fromNodeId, id), fromNodeId, id));
+            id = fromNodeId;
+        }
+
+        if (id == graph.edgeTargetNodeId(start.edgeId())) {
+            edges.add(partialEdge(start.edgeId(), start.fromNodeId(),
+                    start.point(), graph.nodePoint(id), start.position(), graph.edgeLength(start.edgeId())));
+        } else {
+            int backEdgeId = reverseEdgeId(start.edgeId(), start.fromNodeId());
+            double backLength = graph.edgeLength(backEdgeId);
+            edges.add(partialEdge(backEdgeId, graph.edgeTargetNodeId(start.edgeId()),
+                    start.point(), graph.nodePoint(id), backLength - start.position(), backLength));
+        }
+
+        edges.removeIf(edge -> edge.length() == 0);
         Collections.reverse(edges);
         return edges.isEmpty() ? null : new SingleRoute(edges);
     }
-}
 
+    /**
+     * This method allows us to create an Edge representing only a part of an edge of the graph.
+     * Each extremity of the part is given the node of the edge closest to it along the edge, so that
+     * the nodes of the route match its geometry.
+     *
+     * @param edgeId       The identity of the edge of the graph.
+     * @param fromNodeId   The identity of the node the edge of the graph is leaving.
+     * @param fromPoint    The point at which the part starts.
+     * @param toPoint      The point at which the part ends.
+     * @param fromPosition The position of fromPoint along the edge of the graph.
+     * @param toPosition   The position of toPoint along the edge of the graph.
+     * @return The Edge going from fromPoint to toPoint, whose profile is the corresponding part of the edge's.
+     */
+    private Edge partialEdge(int edgeId, int fromNodeId, PointCh fromPoint, PointCh toPoint,
+                             double fromPosition, double toPosition) {
+        DoubleUnaryOperator profile = graph.edgeProfile(edgeId);
+        double halfLength = graph.edgeLength(edgeId) / 2;
+        int toNodeId = graph.edgeTargetNodeId(edgeId);
+        return new Edge(fromPosition <= halfLength ? fromNodeId : toNodeId,
+                toPosition <= halfLength ? fromNodeId : toNodeId,
+                fromPoint, toPoint, toPosition - fromPosition, x -> profile.applyAsDouble(fromPosition + x));
+    }
 
+    /**
+     * This method allows us to find the edge going the opposite way of a given edge.
+     *
+     * @param edgeId     The identity of the edge.
+     * @param fromNodeId The identity of the node the edge is leaving.
+     * @return The identity of the edge going from the target of the given edge to fromNodeId, or -1 if none.
+     */
+    private int reverseEdgeId(int edgeId, int fromNodeId) {
+        int toNodeId = graph.edgeTargetNodeId(edgeId);
+        for (int i = 0; i < graph.nodeOutDegree(toNodeId); i++) {
+            int candidate = graph.nodeOutEdgeId(toNodeId, i);
+            if (graph.edgeTargetNodeId(candidate) == fromNodeId) return candidate;
+        }
+        return -1;
+    }
+
+    /**
+     * This method allows us to find the edge going from a node to another one.
+     *
+     * @param fromNodeId The identity of the node the edge is leaving.
+     * @param toNodeId   The identity of the node the edge is targeting.
+     * @return The identity of the edge, or -1 if none.
+     */
+    private int edgeBetween(int fromNodeId, int toNodeId) {
+        for (int i = 0; i < graph.nodeOutDegree(fromNodeId); i++) {
+            int edgeId = graph.nodeOutEdgeId(fromNodeId, i);
+            if (graph.edgeTargetNodeId(edgeId) == toNodeId) return edgeId;
+        }
+        return -1;
+    }
+
+    /**
+     * This method creates a route from a list of nodes.
+     * The route only stores the identities of its edges, its points and profiles being read from the graph.
+     * The zero-length edges are dropped, the edge following one of them leaving a node at the same point
+     * as the one targeted by the previous edge.
+     *
+     * @param backNodes The list of nodes used for back propagation.
+     * @param nodeId    The id of the last node.
+     * @return A new Route, or null if it would be empty.
+     */
+    private Route createRoute(int[] backNodes, int nodeId) {
+        int edgeCount = 0;
+        for (int id = nodeId; backNodes[id] != 0; id = backNodes[id]) edgeCount++;
+
+        int[] edgeIds = new int[edgeCount];
+        int firstNodeId = -1;
+        int index = edgeCount;
+        for (int id = nodeId; backNodes[id] != 0; id = backNodes[id]) {
+            int edgeId = edgeBetween(backNodes[id], id);
+            if (graph.edgeLength(edgeId) == 0) continue;
+            index--;
+            edgeIds[index] = edgeId;
+            firstNodeId = backNodes[id];
+        }
+        return index == edgeCount ? null
+                : new CompactRoute(graph, firstNodeId, Arrays.copyOfRange(edgeIds, index, edgeCount));
+    }
+}
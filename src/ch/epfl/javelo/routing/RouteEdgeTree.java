@@ -0,0 +1,265 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.util.List;
+
+/**
+ * A bounding-volume hierarchy on the edges of a single route, used to find the point of the route closest
+ * to a given point without going through every edge. As consecutive edges of a route are close to each
+ * other, every node of the tree simply covers a range of consecutive edges, split in two halves.
+ * The tree is stored in arrays, the children of the node k being the nodes 2k + 1 and 2k + 2, and the
+ * closest point is computed with exactly the same arithmetic as a linear scan of the edges.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+final class RouteEdgeTree {
+
+    /**
+     * The largest number of edges of a leaf of the tree.
+     */
+    private static final int LEAF_SIZE = 8;
+    /**
+     * The largest depth of the tree plus one, which is the largest number of nodes waiting to be visited.
+     */
+    private static final int MAX_STACK_SIZE = 64;
+    /**
+     * The relative margin added to the best distance before skipping a box, so that the rounding errors
+     * of the distances never skip an edge whose point is as close as the best one.
+     */
+    private static final double PRUNE_MARGIN = 1e-9;
+
+    private final double[] fromE;
+    private final double[] fromN;
+    private final double[] toE;
+    private final double[] toN;
+    private final double[] lengths;
+    private final double[] positions;
+    private final int[] firstEdges;
+    private final int[] lastEdges;
+    private final double[] boxes;
+
+    /**
+     * Constructor building the tree of the edges of a route given by the coordinates of their extremities.
+     *
+     * @param fromE     The E coordinate of the start of every edge.
+     * @param fromN     The N coordinate of the start of every edge.
+     * @param toE       The E coordinate of the end of every edge.
+     * @param toN       The N coordinate of the end of every edge.
+     * @param lengths   The length of every edge, at least one.
+     * @param positions The position of the start of every edge along the route.
+     */
+    RouteEdgeTree(double[] fromE, double[] fromN, double[] toE, double[] toN, double[] lengths,
+                  double[] positions) {
+        int edgeCount = lengths.length;
+        this.fromE = fromE;
+        this.fromN = fromN;
+        this.toE = toE;
+        this.toN = toN;
+        this.lengths = lengths;
+        this.positions = positions;
+
+        int depth = 0;
+        while (ceilDiv(edgeCount, 1 << depth) > LEAF_SIZE) depth++;
+        int nodeCount = (1 << (depth + 1)) - 1;
+        firstEdges = new int[nodeCount];
+        lastEdges = new int[nodeCount];
+        boxes = new double[4 * nodeCount];
+        build(0, 0, edgeCount);
+    }
+
+    /**
+     * This method allows us to build the tree of the edges of a route.
+     *
+     * @param edges     The edges of the route, which must not be empty.
+     * @param positions The position of the start of every edge along the route.
+     * @return The tree of the edges.
+     */
+    static RouteEdgeTree of(List<Edge> edges, double[] positions) {
+        int edgeCount = edges.size();
+        double[] fromE = new double[edgeCount];
+        double[] fromN = new double[edgeCount];
+        double[] toE = new double[edgeCount];
+        double[] toN = new double[edgeCount];
+        double[] lengths = new double[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            Edge edge = edges.get(i);
+            fromE[i] = edge.fromPoint().e();
+            fromN[i] = edge.fromPoint().n();
+            toE[i] = edge.toPoint().e();
+            toN[i] = edge.toPoint().n();
+            lengths[i] = edge.length();
+        }
+        return new RouteEdgeTree(fromE, fromN, toE, toN, lengths, positions);
+    }
+
+    /**
+     * This method allows us to get the point of the route closest to a given point.
+     *
+     * @param point The point of reference.
+     * @return The closest point of the route, the one of the first edge if several are as close.
+     */
+    RoutePoint pointClosestTo(PointCh point) {
+        double e = point.e();
+        double n = point.n();
+        double bestDistance = Double.POSITIVE_INFINITY;
+        double bestBound = Double.POSITIVE_INFINITY;
+        int bestEdge = -1;
+        double bestPosition = 0;
+
+        int[] stack = new int[MAX_STACK_SIZE];
+        int size = 0;
+        stack[size++] = 0;
+        while (size > 0) {
+            int node = stack[--size];
+            if (squaredDistanceToBox(node, e, n) > bestBound) continue;
+
+            if (lastEdges[node] - firstEdges[node] <= LEAF_SIZE) {
+                for (int i = firstEdges[node]; i < lastEdges[node]; i++) {
+                    double position = positionClosestTo(i, e, n);
+                    double distance = Math.pow(squaredDistanceTo(i, position, e, n), 0.5);
+                    if (distance < bestDistance || (distance == bestDistance && i < bestEdge)) {
+                        bestDistance = distance;
+                        bestBound = bestDistance * bestDistance * (1 + PRUNE_MARGIN) + PRUNE_MARGIN;
+                        bestEdge = i;
+                        bestPosition = position;
+                    }
+                }
+            } else {
+                int left = 2 * node + 1;
+                int right = left + 1;
+                boolean leftFirst = squaredDistanceToBox(left, e, n) <= squaredDistanceToBox(right, e, n);
+                stack[size++] = leftFirst ? right : left;
+                stack[size++] = leftFirst ? left : right;
+            }
+        }
+        return new RoutePoint(pointOf(bestEdge, bestPosition), bestPosition + positions[bestEdge], bestDistance);
+    }
+
+    /**
+     * This private method allows us to build a node of the tree and its children.
+     *
+     * @param node      The index of the node.
+     * @param firstEdge The index of the first edge of the node.
+     * @param lastEdge  The index following the one of the last edge of the node.
+     */
+    private void build(int node, int firstEdge, int lastEdge) {
+        firstEdges[node] = firstEdge;
+        lastEdges[node] = lastEdge;
+        double minE = Double.POSITIVE_INFINITY, minN = Double.POSITIVE_INFINITY;
+        double maxE = Double.NEGATIVE_INFINITY, maxN = Double.NEGATIVE_INFINITY;
+        if (lastEdge - firstEdge <= LEAF_SIZE) {
+            for (int i = firstEdge; i < lastEdge; i++) {
+                minE = Math.min(minE, Math.min(fromE[i], toE[i]));
+                minN = Math.min(minN, Math.min(fromN[i], toN[i]));
+                maxE = Math.max(maxE, Math.max(fromE[i], toE[i]));
+                maxN = Math.max(maxN, Math.max(fromN[i], toN[i]));
+            }
+        } else {
+            int middle = (firstEdge + lastEdge) >>> 1;
+            int left = 2 * node + 1;
+            build(left, firstEdge, middle);
+            build(left + 1, middle, lastEdge);
+            for (int child = left; child <= left + 1; child++) {
+                minE = Math.min(minE, boxes[4 * child]);
+                minN = Math.min(minN, boxes[4 * child + 1]);
+                maxE = Math.max(maxE, boxes[4 * child + 2]);
+                maxN = Math.max(maxN, boxes[4 * child + 3]);
+            }
+        }
+        boxes[4 * node] = minE;
+        boxes[4 * node + 1] = minN;
+        boxes[4 * node + 2] = maxE;
+        boxes[4 * node + 3] = maxN;
+    }
+
+    /**
+     * This private method allows us to compute the square of the distance between a point and the box
+     * of a node.
+     *
+     * @param node The index of the node.
+     * @param e    The E coordinate of the point.
+     * @param n    The N coordinate of the point.
+     * @return The squared distance, 0 if the point is inside the box.
+     */
+    private double squaredDistanceToBox(int node, double e, double n) {
+        return squaredDistanceToBox(boxes[4 * node], boxes[4 * node + 1],
+                boxes[4 * node + 2], boxes[4 * node + 3], e, n);
+    }
+
+    /**
+     * This method allows us to compute the square of the distance between a point and a box.
+     *
+     * @param minE The smallest E coordinate of the box.
+     * @param minN The smallest N coordinate of the box.
+     * @param maxE The largest E coordinate of the box.
+     * @param maxN The largest N coordinate of the box.
+     * @param e    The E coordinate of the point.
+     * @param n    The N coordinate of the point.
+     * @return The squared distance, 0 if the point is inside the box.
+     */
+    static double squaredDistanceToBox(double minE, double minN, double maxE, double maxN, double e, double n) {
+        double dE = Math.max(0, Math.max(minE - e, e - maxE));
+        double dN = Math.max(0, Math.max(minN - n, n - maxN));
+        return Math2.squaredNorm(dE, dN);
+    }
+
+    /**
+     * This private method allows us to compute the position on an edge closest to a point, as done
+     * by Edge.positionClosestTo then bounded by the length of the edge.
+     *
+     * @param edge The index of the edge.
+     * @param e    The E coordinate of the point.
+     * @param n    The N coordinate of the point.
+     * @return The position on the edge.
+     */
+    private double positionClosestTo(int edge, double e, double n) {
+        if (lengths[edge] == 0) return 0;
+        double position = Math2.projectionLength(fromE[edge], fromN[edge], toE[edge], toN[edge], e, n);
+        return Double.isNaN(position) ? 0 : Math2.clamp(0, position, lengths[edge]);
+    }
+
+    /**
+     * This private method allows us to compute the squared distance between a point and the point at
+     * a given position on an edge, as done by Edge.pointAt and PointCh.squaredDistanceTo.
+     *
+     * @param edge     The index of the edge.
+     * @param position The position on the edge.
+     * @param e        The E coordinate of the point.
+     * @param n        The N coordinate of the point.
+     * @return The squared distance.
+     */
+    private double squaredDistanceTo(int edge, double position, double e, double n) {
+        if (lengths[edge] == 0) return Math2.squaredNorm(fromE[edge] - e, fromN[edge] - n);
+        double x = position / lengths[edge];
+        return Math2.squaredNorm(Math2.interpolate(fromE[edge], toE[edge], x) - e,
+                Math2.interpolate(fromN[edge], toN[edge], x) - n);
+    }
+
+    /**
+     * This private method allows us to get the point at a given position on an edge.
+     *
+     * @param edge     The index of the edge.
+     * @param position The position on the edge.
+     * @return The point.
+     */
+    private PointCh pointOf(int edge, double position) {
+        if (lengths[edge] == 0) return new PointCh(fromE[edge], fromN[edge]);
+        double x = position / lengths[edge];
+        return new PointCh(Math2.interpolate(fromE[edge], toE[edge], x),
+                Math2.interpolate(fromN[edge], toN[edge], x));
+    }
+
+    /**
+     * This private method allows us to divide two positive integers, rounding up.
+     *
+     * @param a The dividend.
+     * @param b The divisor.
+     * @return The rounded up quotient.
+     */
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -26,6 +26,7 @@ public final class SingleRoute implements Route {
     private final List<Edge> edges;
     private final double[] positions;
     private final List<PointCh> pointList;
+    private volatile RouteEdgeTree edgeTree;
 
     /**
      * Constructs a SingleRoute with a list of edges (edges) given and a table
@@ -129,21 +130,32 @@ public final class SingleRoute implements Route {
 
     /**
      * This method allows us to get the point closest to another given point.
+     * It uses a tree of the edges of the route built on the first call, so that only the edges close
+     * to the point are examined.
      *
      * @param point reference point to find the closest around it.
      * @return closest point from the point passed in parameter.
      */
     @Override
     public RoutePoint pointClosestTo(PointCh point) {
-        RoutePoint closest = RoutePoint.NONE;
-        int counter = 0;
-        for (Edge edge : edges) {
-            double actualPosition = clamp(0, edge.positionClosestTo(point), edge.length());
-            double position = actualPosition + positions[counter++];
-            closest = closest.min(edge.pointAt(actualPosition), position,
-                    point.distanceTo(edge.pointAt(actualPosition)));
+        RouteEdgeTree tree = edgeTree;
+        if (tree == null) {
+            synchronized (this) {
+                if (edgeTree == null) edgeTree = RouteEdgeTree.of(edges, positions);
+                tree = edgeTree;
+            }
         }
-        return closest;
+        return tree.pointClosestTo(point);
+    }
+
+    /**
+     * This method allows us to get the position of the start of every edge of the route, followed by its length.
+     *
+     * @return A copy of the positions, the ones at which elevationAt reads each edge.
+     */
+    @Override
+    public double[] edgePositions() {
+        return positions.clone();
     }
 
     /**
@@ -0,0 +1,150 @@
+package ch.epfl.javelo.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.DoubleBinaryOperator;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A digital elevation model read from a file in the ESRI ASCII grid format (as the ones distributed by swisstopo),
+ * whose coordinates are Swiss coordinates. The elevation at a point is bilinearly interpolated between the four
+ * closest cells.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class AsciiGridElevationModel implements DoubleBinaryOperator {
+
+    /**
+     * The keys which must be present in the header of the file (the coordinates of the grid
+     * can be given either by its lower left corner or by the center of its lower left cell).
+     */
+    private static final Set<String> REQUIRED_KEYS = Set.of("ncols", "nrows", "cellsize");
+
+    private final int columns;
+    private final int rows;
+    private final double firstCenterE;
+    private final double lastCenterN;
+    private final double cellSize;
+    private final float[] elevations;
+
+    /**
+     * Private constructor, the model is read using the method loadFrom(Path).
+     *
+     * @param columns      The number of columns of the grid.
+     * @param rows         The number of rows of the grid.
+     * @param firstCenterE The east coordinate of the centers of the cells of the first column.
+     * @param lastCenterN  The north coordinate of the centers of the cells of the last (southernmost) row.
+     * @param cellSize     The length in meters of the side of a cell.
+     * @param elevations   The elevations of the cells, row by row from the north, NaN for the unknown ones.
+     */
+    private AsciiGridElevationModel(int columns, int rows, double firstCenterE, double lastCenterN,
+                                    double cellSize, float[] elevations) {
+        this.columns = columns;
+        this.rows = rows;
+        this.firstCenterE = firstCenterE;
+        this.lastCenterN = lastCenterN;
+        this.cellSize = cellSize;
+        this.elevations = elevations;
+    }
+
+    /**
+     * This method allows us to read a model from a file in the ESRI ASCII grid format.
+     *
+     * @param path The path of the file.
+     * @return The model contained in the file.
+     * @throws IOException              Throws an exception if it was unable to read the given file.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the file is not a valid grid.
+     */
+    public static AsciiGridElevationModel loadFrom(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            Map<String, String> header = new HashMap<>();
+            String line = reader.readLine();
+            while (line != null && !line.isBlank() && Character.isLetter(line.trim().charAt(0))) {
+                String[] entry = line.trim().split("\\s+");
+                checkArgument(entry.length == 2);
+                header.put(entry[0].toLowerCase(), entry[1]);
+                line = reader.readLine();
+            }
+            checkArgument(header.keySet().containsAll(REQUIRED_KEYS)
+                    && (header.containsKey("xllcorner") || header.containsKey("xllcenter"))
+                    && (header.containsKey("yllcorner") || header.containsKey("yllcenter")));
+            int columns = Integer.parseInt(header.get("ncols"));
+            int rows = Integer.parseInt(header.get("nrows"));
+            double cellSize = Double.parseDouble(header.get("cellsize"));
+            double noData = Double.parseDouble(header.getOrDefault("nodata_value", "NaN"));
+            double firstCenterE = header.containsKey("xllcenter")
+                    ? Double.parseDouble(header.get("xllcenter"))
+                    : Double.parseDouble(header.get("xllcorner")) + cellSize / 2;
+            double lastCenterN = header.containsKey("yllcenter")
+                    ? Double.parseDouble(header.get("yllcenter"))
+                    : Double.parseDouble(header.get("yllcorner")) + cellSize / 2;
+            checkArgument(columns > 0 && rows > 0 && cellSize > 0);
+
+            float[] elevations = new float[columns * rows];
+            int count = 0;
+            for (; line != null; line = reader.readLine()) {
+                for (String value : line.trim().split("\\s+")) {
+                    if (value.isEmpty()) continue;
+                    checkArgument(count < elevations.length);
+                    double elevation = Double.parseDouble(value);
+                    elevations[count++] = elevation == noData ? Float.NaN : (float) elevation;
+                }
+            }
+            checkArgument(count == elevations.length);
+            return new AsciiGridElevationModel(columns, rows, firstCenterE, lastCenterN, cellSize, elevations);
+        }
+    }
+
+    /**
+     * This method allows us to get the elevation at a given point.
+     *
+     * @param e The east coordinate of the point.
+     * @param n The north coordinate of the point.
+     * @return The elevation in meters, or NaN if the point is outside of the grid or next to an unknown cell.
+     */
+    @Override
+    public double applyAsDouble(double e, double n) {
+        double x = (e - firstCenterE) / cellSize;
+        double y = (n - lastCenterN) / cellSize;
+        if (!(x >= 0 && x <= columns - 1 && y >= 0 && y <= rows - 1)) return Double.NaN;
+        int column = Math.min((int) x, Math.max(columns - 2, 0));
+        int row = Math.min((int) y, Math.max(rows - 2, 0));
+        double dx = x - column;
+        double dy = y - row;
+        return weighted(column, row, (1 - dx) * (1 - dy))
+                + weighted(column + 1, row, dx * (1 - dy))
+                + weighted(column, row + 1, (1 - dx) * dy)
+                + weighted(column + 1, row + 1, dx * dy);
+    }
+
+    /**
+     * This method allows us to get the contribution of a cell to an interpolated elevation.
+     * The cells having no weight are not read, so that an unknown cell only matters when it is actually used.
+     *
+     * @param column The index of the column, from the west.
+     * @param row    The index of the row, from the south.
+     * @param weight The weight of the cell.
+     * @return The elevation of the cell multiplied by its weight, 0 if the weight is 0.
+     */
+    private double weighted(int column, int row, double weight) {
+        return weight == 0 ? 0 : weight * elevation(column, row);
+    }
+
+    /**
+     * This method allows us to get the elevation of a cell.
+     *
+     * @param column The index of the column, from the west.
+     * @param row    The index of the row, from the south.
+     * @return The elevation of the cell, NaN if it is unknown.
+     */
+    private double elevation(int column, int row) {
+        return elevations[(rows - 1 - row) * columns + column];
+    }
+}
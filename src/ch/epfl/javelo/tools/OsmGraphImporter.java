@@ -0,0 +1,563 @@
+package ch.epfl.javelo.tools;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.Q28_4;
+import ch.epfl.javelo.data.Attribute;
+import ch.epfl.javelo.data.GraphFiles;
+import ch.epfl.javelo.projection.Ch1903;
+import ch.epfl.javelo.projection.SwissBounds;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A tool importing an OpenStreetMap extract (in the XML format, possibly compressed with gzip) and writing
+ * the graph it contains in the files read by Graph.loadFrom (including nodes_osmid.bin).
+ * The ways having one of the highway attributes are kept, and each pair of consecutive nodes of a way
+ * gives two opposite edges, the one going against the direction of the way being inverted.
+ * The segments too long for the length of an edge to be represented are split by adding nodes,
+ * whose OpenStreetMap identities are negative. The profiles of the edges are sampled every 2 meters
+ * in the given elevation model and stored with the most compact of the three formats allowing it.
+ * <p>
+ * The file is streamed twice, first to keep the ways and then to keep the nodes they reference,
+ * so that the memory used only depends on the data kept and not on the size of the file. The stages
+ * working on the kept data (projection of the nodes, bucketing of the nodes by sector and computation
+ * of the profiles) are run in parallel.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class OsmGraphImporter {
+
+    /**
+     * The number of sectors on each side of the grid of sectors.
+     */
+    private static final int SECTORS_BY_SIDE = 128;
+    /**
+     * The width and the height in meters of a sector.
+     */
+    private static final double SECTOR_WIDTH = SwissBounds.WIDTH / SECTORS_BY_SIDE;
+    private static final double SECTOR_HEIGHT = SwissBounds.HEIGHT / SECTORS_BY_SIDE;
+    /**
+     * The maximal length in meters of an edge, the segments which are longer are split.
+     */
+    private static final double MAX_EDGE_LENGTH = 4_000;
+    /**
+     * The maximal number of edges leaving a node, the next segments reaching it are ignored.
+     */
+    private static final int MAX_OUT_DEGREE = 15;
+    /**
+     * The maximal number of edges, as their identities are stored on 28 bits.
+     */
+    private static final int MAX_EDGE_COUNT = 1 << 28;
+    /**
+     * The maximal number of nodes or of attribute sets which can be stored as an unsigned short.
+     */
+    private static final int MAX_UNSIGNED_SHORT = 0xFFFF;
+    /**
+     * The maximal spacing in meters between two samples of a profile.
+     */
+    private static final double SAMPLE_SPACING = 2;
+    /**
+     * The elevation above which an elevation cannot be represented as an unsigned Q12.4 value.
+     */
+    private static final double MAX_ELEVATION = 4_096;
+    /**
+     * The numbers of bits of the differences of the compressed profiles, and their types.
+     */
+    private static final int Q4_4_BITS = 8, Q0_4_BITS = 4;
+    private static final int UNCOMPRESSED = 1, Q4_4_DIFFERENCES = 2, Q0_4_DIFFERENCES = 3;
+    /**
+     * The index of the type of a profile in its identity.
+     */
+    private static final int PROFILE_TYPE_INDEX = 30;
+    /**
+     * The numbers of bytes and the offsets of an edge and of a sector.
+     */
+    private static final int EDGE_BYTES = 10, OFFSET_LENGTH = 4, OFFSET_ELEVATION = 6, OFFSET_ATTRIBUTES = 8;
+    private static final int SECTOR_BYTES = Integer.BYTES + Short.BYTES;
+    /**
+     * The number of integers of a node, and the index of its out-degree.
+     */
+    private static final int NODE_INTS = 3, OUT_DEGREE_INDEX = 28;
+    /**
+     * The attributes of the ways, indexed by their key-value pair.
+     */
+    private static final Map<String, Attribute> ATTRIBUTES = Attribute.ALL.stream()
+            .collect(Collectors.toMap(Attribute::keyValue, Function.identity()));
+    /**
+     * The attributes of which a way must have one to be kept.
+     */
+    private static final long HIGHWAYS = Attribute.ALL.stream()
+            .filter(attribute -> attribute.key().equals("highway"))
+            .mapToLong(attribute -> 1L << attribute.ordinal())
+            .reduce(0, (a, b) -> a | b);
+    /**
+     * The profile of the edges along which the elevation is unknown.
+     */
+    private static final Profile NO_PROFILE = new Profile(0, new short[0], 0, 0);
+
+    private OsmGraphImporter() {
+    }
+
+    /**
+     * This method allows us to import a graph from the command line.
+     *
+     * @param args The OpenStreetMap file, the elevation model (in the ESRI ASCII grid format)
+     *             and the directory in which the graph is written.
+     * @throws IOException Throws an exception if it was unable to read or write one of the files.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: OsmGraphImporter <osm file> <elevation grid> <output directory>");
+            System.exit(1);
+        }
+        importGraph(Path.of(args[0]), AsciiGridElevationModel.loadFrom(Path.of(args[1])), Path.of(args[2]));
+    }
+
+    /**
+     * This method allows us to import the graph of an OpenStreetMap file and to write its files.
+     *
+     * @param osmFile         The OpenStreetMap file, in the XML format, compressed with gzip if its name ends with .gz.
+     * @param elevation       The elevation model, giving the elevation at a point (e, n) or NaN if it is unknown.
+     * @param outputDirectory The directory in which the files of the graph are written, created if needed.
+     * @throws IOException              Throws an exception if it was unable to read or write one of the files.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the graph is too large for the format.
+     */
+    public static void importGraph(Path osmFile, DoubleBinaryOperator elevation, Path outputDirectory)
+            throws IOException {
+        Ways ways = readWays(osmFile);
+        long[] osmIds = LongStream.of(ways.nodeIds()).parallel().sorted().distinct().toArray();
+        int[] wayNodes = LongStream.of(ways.nodeIds()).parallel()
+                .mapToInt(osmId -> Arrays.binarySearch(osmIds, osmId)).toArray();
+        Segments segments = segments(ways, wayNodes, readNodes(osmFile, osmIds));
+        Nodes nodes = segments.nodes();
+
+        int nodeCount = nodes.count();
+        int[] sectors = IntStream.range(0, nodeCount).parallel()
+                .map(i -> segments.degrees()[i] == 0 ? -1 : sectorIndex(nodes.e()[i], nodes.n()[i]))
+                .toArray();
+        int sectorCount = SECTORS_BY_SIDE * SECTORS_BY_SIDE;
+        int[] sectorStarts = new int[sectorCount + 1];
+        for (int sector : sectors) if (sector >= 0) sectorStarts[sector + 1]++;
+        for (int s = 0; s < sectorCount; s++) {
+            checkArgument(sectorStarts[s + 1] <= MAX_UNSIGNED_SHORT);
+            sectorStarts[s + 1] += sectorStarts[s];
+        }
+        int[] newIds = new int[nodeCount];
+        int[] nextIds = Arrays.copyOf(sectorStarts, sectorCount);
+        for (int i = 0; i < nodeCount; i++) newIds[i] = sectors[i] < 0 ? -1 : nextIds[sectors[i]]++;
+        int keptCount = sectorStarts[sectorCount];
+
+        int segmentCount = segments.count();
+        checkArgument(2L * segmentCount < MAX_EDGE_COUNT);
+        Profile[] profiles = new Profile[segmentCount];
+        IntStream.range(0, segmentCount).parallel().forEach(s -> {
+            int from = segments.from()[s];
+            int to = segments.to()[s];
+            profiles[s] = profile(nodes.e()[from], nodes.n()[from], nodes.e()[to], nodes.n()[to],
+                    segments.lengths()[s], elevation);
+        });
+
+        int[] firstEdges = new int[keptCount + 1];
+        for (int i = 0; i < nodeCount; i++) if (newIds[i] >= 0) firstEdges[newIds[i] + 1] = segments.degrees()[i];
+        for (int k = 0; k < keptCount; k++) firstEdges[k + 1] += firstEdges[k];
+
+        int sampleCount = Arrays.stream(profiles).mapToInt(profile -> profile.samples().length).sum();
+        ByteBuffer edgesBuffer = ByteBuffer.allocate(2 * segmentCount * EDGE_BYTES);
+        IntBuffer profileIds = IntBuffer.allocate(2 * segmentCount);
+        ShortBuffer elevations = ShortBuffer.allocate(sampleCount);
+        int[] nextEdges = Arrays.copyOf(firstEdges, keptCount);
+        for (int s = 0; s < segmentCount; s++) {
+            Profile profile = profiles[s];
+            int profileId = profile.type() == 0 ? 0 : profile.type() << PROFILE_TYPE_INDEX | elevations.position();
+            elevations.put(profile.samples());
+            int from = newIds[segments.from()[s]];
+            int to = newIds[segments.to()[s]];
+            int attributes = segments.attributes()[s];
+            int length = segments.lengths()[s];
+            putEdge(edgesBuffer, profileIds, nextEdges[from]++, to, length, profile.forwardGain(), attributes, profileId);
+            putEdge(edgesBuffer, profileIds, nextEdges[to]++, ~from, length, profile.backwardGain(), attributes, profileId);
+        }
+
+        IntBuffer nodesBuffer = IntBuffer.allocate(NODE_INTS * keptCount);
+        LongBuffer nodesOsmIds = LongBuffer.allocate(keptCount);
+        for (int i = 0; i < nodeCount; i++) {
+            int k = newIds[i];
+            if (k < 0) continue;
+            nodesBuffer.put(NODE_INTS * k, toQ28_4(nodes.e()[i]));
+            nodesBuffer.put(NODE_INTS * k + 1, toQ28_4(nodes.n()[i]));
+            nodesBuffer.put(NODE_INTS * k + 2, segments.degrees()[i] << OUT_DEGREE_INDEX | firstEdges[k]);
+            nodesOsmIds.put(k, nodes.osmIds()[i]);
+        }
+
+        ByteBuffer sectorsBuffer = ByteBuffer.allocate(sectorCount * SECTOR_BYTES);
+        for (int s = 0; s < sectorCount; s++) {
+            sectorsBuffer.putInt(s * SECTOR_BYTES, sectorStarts[s]);
+            sectorsBuffer.putShort(s * SECTOR_BYTES + Integer.BYTES, (short) (sectorStarts[s + 1] - sectorStarts[s]));
+        }
+
+        Files.createDirectories(outputDirectory);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.NODES), nodesBuffer);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.SECTORS), sectorsBuffer);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.EDGES), edgesBuffer);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.PROFILE_IDS), profileIds);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.ELEVATIONS), elevations.flip());
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.ATTRIBUTES), LongBuffer.wrap(ways.attributeSets()));
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.OSM_IDS), nodesOsmIds);
+    }
+
+    /**
+     * The ways kept, given by the concatenation of the OpenStreetMap identities of their nodes.
+     *
+     * @param nodeIds       The identities of the nodes of all the ways.
+     * @param wayStarts     The index in nodeIds of the first node of each way, followed by the number of nodes.
+     * @param wayAttributes The index of the attribute set of each way.
+     * @param attributeSets The bits of the distinct attribute sets.
+     */
+    private record Ways(long[] nodeIds, int[] wayStarts, int[] wayAttributes, long[] attributeSets) {
+    }
+
+    /**
+     * The nodes, the ones referenced by the ways followed by the ones added to split the long segments.
+     *
+     * @param osmIds The OpenStreetMap identities of the nodes.
+     * @param e      The east coordinates of the nodes, NaN if they are unknown or outside of Switzerland.
+     * @param n      The north coordinates of the nodes.
+     */
+    private record Nodes(long[] osmIds, double[] e, double[] n) {
+        int count() {
+            return osmIds.length;
+        }
+    }
+
+    /**
+     * The segments between two nodes, each of them giving two edges.
+     *
+     * @param nodes      The nodes, including the ones added to split the long segments.
+     * @param from       The index of the first node of each segment.
+     * @param to         The index of the second node of each segment.
+     * @param lengths    The length of each segment, in the Q28.4 representation.
+     * @param attributes The index of the attribute set of each segment.
+     * @param degrees    The number of segments reaching each node.
+     */
+    private record Segments(Nodes nodes, int[] from, int[] to, int[] lengths, int[] attributes, int[] degrees) {
+        int count() {
+            return from.length;
+        }
+    }
+
+    /**
+     * The profile of a segment.
+     *
+     * @param type         The type of the profile, 0 if it is unknown.
+     * @param samples      The encoded samples.
+     * @param forwardGain  The elevation gain along the segment, in the Q28.4 representation.
+     * @param backwardGain The elevation gain along the segment in the opposite direction.
+     */
+    private record Profile(int type, short[] samples, int forwardGain, int backwardGain) {
+    }
+
+    /**
+     * This method allows us to stream the start and the end of the elements of an OpenStreetMap file.
+     *
+     * @param osmFile The OpenStreetMap file.
+     * @param handler The consumer called on the reader at each start and end of an element.
+     * @throws IOException Throws an exception if it was unable to read the file or if it is not valid.
+     */
+    private static void parse(Path osmFile, Consumer<XMLStreamReader> handler) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(osmFile));
+             InputStream input = osmFile.toString().endsWith(".gz") ? new GZIPInputStream(file) : file) {
+            XMLStreamReader reader = factory.createXMLStreamReader(input);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT)
+                        handler.accept(reader);
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * This method allows us to read the ways having one of the highway attributes.
+     *
+     * @param osmFile The OpenStreetMap file.
+     * @return The ways kept.
+     * @throws IOException Throws an exception if it was unable to read the file.
+     */
+    private static Ways readWays(Path osmFile) throws IOException {
+        WayCollector collector = new WayCollector();
+        parse(osmFile, collector);
+        return collector.ways();
+    }
+
+    /**
+     * A consumer of the elements of an OpenStreetMap file keeping the ways having one of the highway attributes.
+     */
+    private static final class WayCollector implements Consumer<XMLStreamReader> {
+        private final LongStream.Builder nodeIds = LongStream.builder();
+        private final IntStream.Builder wayStarts = IntStream.builder();
+        private final IntStream.Builder wayAttributes = IntStream.builder();
+        private final Map<Long, Integer> attributeSets = new LinkedHashMap<>();
+        private long[] wayNodeIds = new long[16];
+        private int wayNodeCount = 0;
+        private long wayAttributeBits = 0;
+        private boolean inWay = false;
+        private int total = 0;
+
+        private WayCollector() {
+            wayStarts.add(0);
+        }
+
+        @Override
+        public void accept(XMLStreamReader reader) {
+            String name = reader.getLocalName();
+            if (reader.getEventType() == XMLStreamConstants.END_ELEMENT) {
+                if (name.equals("way")) endWay();
+            } else if (name.equals("way")) {
+                inWay = true;
+                wayNodeCount = 0;
+                wayAttributeBits = 0;
+            } else if (inWay && name.equals("nd")) {
+                if (wayNodeCount == wayNodeIds.length) wayNodeIds = Arrays.copyOf(wayNodeIds, 2 * wayNodeCount);
+                wayNodeIds[wayNodeCount++] = Long.parseLong(reader.getAttributeValue(null, "ref"));
+            } else if (inWay && name.equals("tag")) {
+                Attribute attribute = ATTRIBUTES.get(reader.getAttributeValue(null, "k")
+                        + "=" + reader.getAttributeValue(null, "v"));
+                if (attribute != null) wayAttributeBits |= 1L << attribute.ordinal();
+            }
+        }
+
+        private void endWay() {
+            inWay = false;
+            if ((wayAttributeBits & HIGHWAYS) == 0 || wayNodeCount < 2) return;
+            for (int i = 0; i < wayNodeCount; i++) nodeIds.add(wayNodeIds[i]);
+            total += wayNodeCount;
+            wayStarts.add(total);
+            wayAttributes.add(attributeSets.computeIfAbsent(wayAttributeBits, bits -> attributeSets.size()));
+        }
+
+        private Ways ways() {
+            checkArgument(attributeSets.size() <= MAX_UNSIGNED_SHORT + 1);
+            return new Ways(nodeIds.build().toArray(), wayStarts.build().toArray(), wayAttributes.build().toArray(),
+                    attributeSets.keySet().stream().mapToLong(Long::longValue).toArray());
+        }
+    }
+
+    /**
+     * This method allows us to read the positions of the given nodes and to project them,
+     * rounding their coordinates as they are stored so that the lengths and the profiles of the edges
+     * are computed from the positions of the nodes of the graph.
+     *
+     * @param osmFile The OpenStreetMap file.
+     * @param osmIds  The sorted OpenStreetMap identities of the nodes.
+     * @return The nodes.
+     * @throws IOException Throws an exception if it was unable to read the file.
+     */
+    private static Nodes readNodes(Path osmFile, long[] osmIds) throws IOException {
+        double[] e = new double[osmIds.length];
+        double[] n = new double[osmIds.length];
+        Arrays.fill(e, Double.NaN);
+        Arrays.fill(n, Double.NaN);
+        parse(osmFile, reader -> {
+            if (reader.getEventType() != XMLStreamConstants.START_ELEMENT || !reader.getLocalName().equals("node"))
+                return;
+            int i = Arrays.binarySearch(osmIds, Long.parseLong(reader.getAttributeValue(null, "id")));
+            if (i < 0) return;
+            e[i] = Double.parseDouble(reader.getAttributeValue(null, "lon"));
+            n[i] = Double.parseDouble(reader.getAttributeValue(null, "lat"));
+        });
+        IntStream.range(0, osmIds.length).parallel().forEach(i -> {
+            double lon = Math.toRadians(e[i]);
+            double lat = Math.toRadians(n[i]);
+            e[i] = Q28_4.asDouble(toQ28_4(Ch1903.e(lon, lat)));
+            n[i] = Q28_4.asDouble(toQ28_4(Ch1903.n(lon, lat)));
+            if (!SwissBounds.containsEN(e[i], n[i])) e[i] = n[i] = Double.NaN;
+        });
+        return new Nodes(osmIds, e, n);
+    }
+
+    /**
+     * This method allows us to build the segments between the consecutive nodes of the ways,
+     * ignoring the nodes outside of Switzerland and splitting the segments which are too long.
+     *
+     * @param ways     The ways.
+     * @param wayNodes The index of each node of the ways.
+     * @param nodes    The nodes, to which the nodes splitting the segments are added.
+     * @return The segments.
+     */
+    private static Segments segments(Ways ways, int[] wayNodes, Nodes nodes) {
+        IntStream.Builder from = IntStream.builder();
+        IntStream.Builder to = IntStream.builder();
+        IntStream.Builder lengths = IntStream.builder();
+        IntStream.Builder attributes = IntStream.builder();
+        long[] osmIds = nodes.osmIds();
+        double[] e = nodes.e();
+        double[] n = nodes.n();
+        int[] degrees = new int[osmIds.length];
+        int nodeCount = osmIds.length;
+        for (int w = 0; w < ways.wayAttributes().length; w++) {
+            for (int i = ways.wayStarts()[w]; i < ways.wayStarts()[w + 1] - 1; i++) {
+                int a = wayNodes[i];
+                int b = wayNodes[i + 1];
+                if (a == b || Double.isNaN(e[a]) || Double.isNaN(e[b])) continue;
+                if (degrees[a] == MAX_OUT_DEGREE || degrees[b] == MAX_OUT_DEGREE) continue;
+                int pieces = (int) Math.ceil(Math.hypot(e[b] - e[a], n[b] - n[a]) / MAX_EDGE_LENGTH);
+                int previous = a;
+                for (int p = 1; p <= pieces; p++) {
+                    int next = b;
+                    if (p < pieces) {
+                        if (nodeCount == osmIds.length) {
+                            osmIds = Arrays.copyOf(osmIds, 2 * nodeCount);
+                            e = Arrays.copyOf(e, 2 * nodeCount);
+                            n = Arrays.copyOf(n, 2 * nodeCount);
+                            degrees = Arrays.copyOf(degrees, 2 * nodeCount);
+                        }
+                        next = nodeCount++;
+                        osmIds[next] = -(next - nodes.count() + 1);
+                        e[next] = Q28_4.asDouble(toQ28_4(Math2.interpolate(e[a], e[b], (double) p / pieces)));
+                        n[next] = Q28_4.asDouble(toQ28_4(Math2.interpolate(n[a], n[b], (double) p / pieces)));
+                    }
+                    from.add(previous);
+                    to.add(next);
+                    lengths.add(toQ28_4(Math.hypot(e[next] - e[previous], n[next] - n[previous])));
+                    attributes.add(ways.wayAttributes()[w]);
+                    degrees[previous]++;
+                    degrees[next]++;
+                    previous = next;
+                }
+            }
+        }
+        Nodes allNodes = new Nodes(Arrays.copyOf(osmIds, nodeCount), Arrays.copyOf(e, nodeCount),
+                Arrays.copyOf(n, nodeCount));
+        return new Segments(allNodes, from.build().toArray(), to.build().toArray(), lengths.build().toArray(),
+                attributes.build().toArray(), Arrays.copyOf(degrees, nodeCount));
+    }
+
+    /**
+     * This method allows us to sample the profile of a segment and to encode it.
+     *
+     * @param fromE     The east coordinate of the first node of the segment.
+     * @param fromN     The north coordinate of the first node of the segment.
+     * @param toE       The east coordinate of the second node of the segment.
+     * @param toN       The north coordinate of the second node of the segment.
+     * @param length    The length of the segment, in the Q28.4 representation.
+     * @param elevation The elevation model.
+     * @return The profile of the segment, or NO_PROFILE if the elevation is unknown somewhere along it.
+     */
+    private static Profile profile(double fromE, double fromN, double toE, double toN, int length,
+                                   DoubleBinaryOperator elevation) {
+        int count = 1 + (int) Math.ceil(Math.scalb((double) length, -4) / SAMPLE_SPACING);
+        int[] samples = new int[count];
+        for (int i = 0; i < count; i++) {
+            double x = count == 1 ? 0 : (double) i / (count - 1);
+            double h = elevation.applyAsDouble(Math2.interpolate(fromE, toE, x), Math2.interpolate(fromN, toN, x));
+            if (!(h >= 0 && h < MAX_ELEVATION)) return NO_PROFILE;
+            samples[i] = Math.min(toQ28_4(h), MAX_UNSIGNED_SHORT);
+        }
+
+        int forwardGain = 0;
+        int backwardGain = 0;
+        int maxDifference = 0;
+        for (int i = 1; i < count; i++) {
+            int difference = samples[i] - samples[i - 1];
+            if (difference > 0) forwardGain += difference;
+            else backwardGain -= difference;
+            maxDifference = Math.max(maxDifference, difference < 0 ? -difference - 1 : difference);
+        }
+        forwardGain = Math.min(forwardGain, MAX_UNSIGNED_SHORT);
+        backwardGain = Math.min(backwardGain, MAX_UNSIGNED_SHORT);
+
+        int bits = maxDifference < 1 << (Q0_4_BITS - 1) ? Q0_4_BITS
+                : maxDifference < 1 << (Q4_4_BITS - 1) ? Q4_4_BITS : Short.SIZE;
+        if (bits == Short.SIZE) {
+            short[] encoded = new short[count];
+            for (int i = 0; i < count; i++) encoded[i] = (short) samples[i];
+            return new Profile(UNCOMPRESSED, encoded, forwardGain, backwardGain);
+        }
+        int perShort = Short.SIZE / bits;
+        short[] encoded = new short[1 + Math2.ceilDiv(count - 1, perShort)];
+        encoded[0] = (short) samples[0];
+        for (int i = 1; i < count; i++) {
+            int difference = (samples[i] - samples[i - 1]) & ((1 << bits) - 1);
+            int shift = Short.SIZE - bits * (1 + (i - 1) % perShort);
+            encoded[1 + (i - 1) / perShort] |= (short) (difference << shift);
+        }
+        return new Profile(bits == Q0_4_BITS ? Q0_4_DIFFERENCES : Q4_4_DIFFERENCES, encoded, forwardGain, backwardGain);
+    }
+
+    /**
+     * This method allows us to write an edge.
+     *
+     * @param edges      The buffer of the edges.
+     * @param profileIds The buffer of the identities of the profiles.
+     * @param edgeId     The identity of the edge.
+     * @param target     The identity of the target node, or its complement if the edge is inverted.
+     * @param length     The length of the edge, in the Q28.4 representation.
+     * @param gain       The elevation gain of the edge, in the Q28.4 representation.
+     * @param attributes The index of the attribute set of the edge.
+     * @param profileId  The identity of the profile of the edge.
+     */
+    private static void putEdge(ByteBuffer edges, IntBuffer profileIds, int edgeId, int target, int length,
+                                int gain, int attributes, int profileId) {
+        edges.putInt(edgeId * EDGE_BYTES, target);
+        edges.putShort(edgeId * EDGE_BYTES + OFFSET_LENGTH, (short) length);
+        edges.putShort(edgeId * EDGE_BYTES + OFFSET_ELEVATION, (short) gain);
+        edges.putShort(edgeId * EDGE_BYTES + OFFSET_ATTRIBUTES, (short) attributes);
+        profileIds.put(edgeId, profileId);
+    }
+
+    /**
+     * This method allows us to get the index of the sector containing a point.
+     *
+     * @param e The east coordinate of the point.
+     * @param n The north coordinate of the point.
+     * @return The index of the sector.
+     */
+    private static int sectorIndex(double e, double n) {
+        int x = Math2.clamp(0, (int) ((e - SwissBounds.MIN_E) / SECTOR_WIDTH), SECTORS_BY_SIDE - 1);
+        int y = Math2.clamp(0, (int) ((n - SwissBounds.MIN_N) / SECTOR_HEIGHT), SECTORS_BY_SIDE - 1);
+        return y * SECTORS_BY_SIDE + x;
+    }
+
+    /**
+     * This method allows us to convert a value to the Q28.4 representation.
+     *
+     * @param value The value.
+     * @return The closest value in the Q28.4 representation.
+     */
+    private static int toQ28_4(double value) {
+        return (int) Math.round(Math.scalb(value, 4));
+    }
+}
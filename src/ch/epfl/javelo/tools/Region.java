@@ -0,0 +1,54 @@
+package ch.epfl.javelo.tools;
+
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.PolygonCh;
+
+import java.util.List;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A region of Switzerland, given in Swiss coordinates, used to select the part of a graph to extract.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+@FunctionalInterface
+public interface Region {
+
+    /**
+     * This method allows us to know if a point is inside the region.
+     *
+     * @param e The east coordinate of the point.
+     * @param n The north coordinate of the point.
+     * @return True if the point is inside the region.
+     */
+    boolean contains(double e, double n);
+
+    /**
+     * This method allows us to get the region delimited by a rectangle, its borders included.
+     *
+     * @param minE The smallest east coordinate.
+     * @param minN The smallest north coordinate.
+     * @param maxE The largest east coordinate.
+     * @param maxN The largest north coordinate.
+     * @return The rectangular region.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if the rectangle is empty.
+     */
+    static Region rectangle(double minE, double minN, double maxE, double maxN) {
+        checkArgument(minE <= maxE && minN <= maxN);
+        return (e, n) -> minE <= e && e <= maxE && minN <= n && n <= maxN;
+    }
+
+    /**
+     * This method allows us to get the region delimited by a polygon, a point being inside if a half-line
+     * starting from it crosses the border of the polygon an odd number of times.
+     *
+     * @param vertices The vertices of the polygon, in order, the last one being linked to the first one.
+     * @return The polygonal region.
+     * @throws IllegalArgumentException (checkArgument) Throws an exception if there are less than three vertices.
+     */
+    static Region polygon(List<PointCh> vertices) {
+        return new PolygonCh(vertices)::contains;
+    }
+}
@@ -0,0 +1,257 @@
+package ch.epfl.javelo.tools;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.data.GraphEdges;
+import ch.epfl.javelo.data.GraphFiles;
+import ch.epfl.javelo.data.GraphNodes;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static ch.epfl.javelo.Preconditions.checkArgument;
+
+/**
+ * A tool extracting the part of a graph contained in a region, and writing it as a new graph in the files
+ * read by Graph.loadFrom. The nodes inside the region are kept, with the edges linking two of them.
+ * The nodes and the edges are renumbered, the sectors are rebuilt, only the attribute sets used are kept
+ * (once each) and only the samples of the profiles of the edges kept are copied.
+ * <p>
+ * The files of the source graph are memory-mapped and read in a single pass in the order of the nodes, which keeps
+ * the nodes sorted by sector, so that the extraction only needs an array of integers as large as the number of nodes.
+ *
+ * @author Gaspard Thoral (345230)
+ * @author Alexandre Mourot (346365)
+ */
+public final class RegionExtractor {
+
+    /**
+     * The number of sectors of a graph.
+     */
+    private static final int SECTOR_COUNT = 128 * 128;
+    /**
+     * The numbers of bytes and the offsets of an edge and of a sector.
+     */
+    private static final int EDGE_BYTES = 10, OFFSET_LENGTH = 4, OFFSET_ELEVATION = 6, OFFSET_ATTRIBUTES = 8;
+    private static final int SECTOR_BYTES = Integer.BYTES + Short.BYTES;
+    /**
+     * The number of integers of a node, and the index of its out-degree.
+     */
+    private static final int NODE_INTS = 3, OUT_DEGREE_INDEX = 28;
+    /**
+     * The index of the type of a profile in its identity, and the mask of the index of its first sample.
+     */
+    private static final int PROFILE_TYPE_INDEX = 30, SAMPLE_INDEX_MASK = (1 << 29) - 1;
+    /**
+     * The number of differences stored in a short by the profiles of type 2 and 3.
+     */
+    private static final int SAMPLES_PER_SHORT_Q4_4 = 2, SAMPLES_PER_SHORT_Q0_4 = 4;
+    /**
+     * The mask of the identity of the first edge of a node.
+     */
+    private static final int EDGE_ID_MASK = (1 << OUT_DEGREE_INDEX) - 1;
+
+    private final GraphNodes nodes;
+    private final GraphEdges edges;
+    private final int[] newIds;
+    private final IntBuffer newNodes;
+    private final IntBuffer newProfileIds;
+    private short[] newElevations = new short[1024];
+    private int newElevationCount = 0;
+
+    /**
+     * Private constructor, the extraction is done using the method extract.
+     *
+     * @param nodes         The nodes of the source graph.
+     * @param edges         The edges of the source graph.
+     * @param newIds        The new identity of each node of the source graph, -1 if it is not kept.
+     * @param newNodes      The buffer of the nodes kept.
+     * @param newProfileIds The buffer of the identities of the profiles of the edges kept.
+     */
+    private RegionExtractor(GraphNodes nodes, GraphEdges edges, int[] newIds, IntBuffer newNodes,
+                            IntBuffer newProfileIds) {
+        this.nodes = nodes;
+        this.edges = edges;
+        this.newIds = newIds;
+        this.newNodes = newNodes;
+        this.newProfileIds = newProfileIds;
+    }
+
+    /**
+     * This method allows us to extract a region from the command line.
+     *
+     * @param args The directory of the source graph, the directory of the extracted graph, then either the
+     *             four coordinates minE minN maxE maxN of a rectangle or the vertices e,n of a polygon.
+     * @throws IOException Throws an exception if it was unable to read or write one of the files.
+     */
+    public static void main(String[] args) throws IOException {
+        Region region;
+        if (args.length == 6 && !args[2].contains(",")) {
+            region = Region.rectangle(Double.parseDouble(args[2]), Double.parseDouble(args[3]),
+                    Double.parseDouble(args[4]), Double.parseDouble(args[5]));
+        } else if (args.length >= 5) {
+            List<PointCh> vertices = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) {
+                String[] coordinates = args[i].split(",");
+                vertices.add(new PointCh(Double.parseDouble(coordinates[0]), Double.parseDouble(coordinates[1])));
+            }
+            region = Region.polygon(vertices);
+        } else {
+            System.err.println("Usage: RegionExtractor <source directory> <output directory> "
+                    + "(<minE> <minN> <maxE> <maxN> | <e,n> <e,n> <e,n>...)");
+            System.exit(1);
+            return;
+        }
+        extract(Path.of(args[0]), region, Path.of(args[1]));
+    }
+
+    /**
+     * This method allows us to extract the part of a graph contained in a region.
+     *
+     * @param sourceDirectory The directory containing the files of the source graph.
+     * @param region          The region.
+     * @param outputDirectory The directory in which the files of the extracted graph are written, created if needed.
+     * @throws IOException Throws an exception if it was unable to read or write one of the files.
+     */
+    public static void extract(Path sourceDirectory, Region region, Path outputDirectory) throws IOException {
+        GraphNodes nodes = new GraphNodes(GraphFiles.map(sourceDirectory.resolve(GraphFiles.NODES)).asIntBuffer());
+        ByteBuffer sectors = GraphFiles.map(sourceDirectory.resolve(GraphFiles.SECTORS));
+        GraphEdges edges = new GraphEdges(GraphFiles.map(sourceDirectory.resolve(GraphFiles.EDGES)),
+                GraphFiles.map(sourceDirectory.resolve(GraphFiles.PROFILE_IDS)).asIntBuffer(),
+                GraphFiles.map(sourceDirectory.resolve(GraphFiles.ELEVATIONS)).asShortBuffer());
+        LongBuffer attributes = GraphFiles.map(sourceDirectory.resolve(GraphFiles.ATTRIBUTES)).asLongBuffer();
+        Path osmIdsPath = sourceDirectory.resolve(GraphFiles.OSM_IDS);
+        LongBuffer osmIds = Files.exists(osmIdsPath) ? GraphFiles.map(osmIdsPath).asLongBuffer() : null;
+
+        int nodeCount = nodes.count();
+        int[] newIds = new int[nodeCount];
+        int keptNodes = 0;
+        int keptEdges = 0;
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++)
+            newIds[nodeId] = region.contains(nodes.nodeE(nodeId), nodes.nodeN(nodeId)) ? keptNodes++ : -1;
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            if (newIds[nodeId] < 0) continue;
+            for (int i = 0; i < nodes.outDegree(nodeId); i++)
+                if (newIds[edges.targetNodeId(nodes.edgeId(nodeId, i))] >= 0) keptEdges++;
+        }
+
+        IntBuffer newNodes = IntBuffer.allocate(NODE_INTS * keptNodes);
+        ByteBuffer newEdges = ByteBuffer.allocate(EDGE_BYTES * keptEdges);
+        IntBuffer newProfileIds = IntBuffer.allocate(keptEdges);
+        LongBuffer newOsmIds = LongBuffer.allocate(osmIds == null ? 0 : keptNodes);
+        int[] newAttributeIndices = new int[attributes.capacity()];
+        Arrays.fill(newAttributeIndices, -1);
+        Map<Long, Integer> attributeSets = new HashMap<>();
+        LongStream.Builder newAttributes = LongStream.builder();
+        RegionExtractor extractor = new RegionExtractor(nodes, edges, newIds, newNodes, newProfileIds);
+        ByteBuffer edgesBuffer = edges.edgesBuffer();
+
+        int newEdgeId = 0;
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            int newId = newIds[nodeId];
+            if (newId < 0) continue;
+            int firstEdgeId = newEdgeId;
+            for (int i = 0; i < nodes.outDegree(nodeId); i++) {
+                int edgeId = nodes.edgeId(nodeId, i);
+                int target = edges.targetNodeId(edgeId);
+                if (newIds[target] < 0) continue;
+                int attributeIndex = edges.attributesIndex(edgeId);
+                if (newAttributeIndices[attributeIndex] < 0) {
+                    long bits = attributes.get(attributeIndex);
+                    Integer index = attributeSets.get(bits);
+                    if (index == null) {
+                        index = attributeSets.size();
+                        attributeSets.put(bits, index);
+                        newAttributes.add(bits);
+                    }
+                    newAttributeIndices[attributeIndex] = index;
+                }
+                int offset = newEdgeId * EDGE_BYTES;
+                int sourceOffset = edgeId * EDGE_BYTES;
+                newEdges.putInt(offset, edges.isInverted(edgeId) ? ~newIds[target] : newIds[target]);
+                newEdges.putShort(offset + OFFSET_LENGTH, edgesBuffer.getShort(sourceOffset + OFFSET_LENGTH));
+                newEdges.putShort(offset + OFFSET_ELEVATION, edgesBuffer.getShort(sourceOffset + OFFSET_ELEVATION));
+                newEdges.putShort(offset + OFFSET_ATTRIBUTES, (short) newAttributeIndices[attributeIndex]);
+                newProfileIds.put(newEdgeId, extractor.copyProfile(edgeId, nodeId, target));
+                newEdgeId++;
+            }
+            newNodes.put(NODE_INTS * newId, nodes.buffer().get(NODE_INTS * nodeId));
+            newNodes.put(NODE_INTS * newId + 1, nodes.buffer().get(NODE_INTS * nodeId + 1));
+            newNodes.put(NODE_INTS * newId + 2, (newEdgeId - firstEdgeId) << OUT_DEGREE_INDEX | firstEdgeId);
+            if (osmIds != null) newOsmIds.put(newId, osmIds.get(nodeId));
+        }
+
+        ByteBuffer newSectors = ByteBuffer.allocate(SECTOR_COUNT * SECTOR_BYTES);
+        int newStart = 0;
+        for (int s = 0; s < SECTOR_COUNT; s++) {
+            int start = sectors.getInt(s * SECTOR_BYTES);
+            int end = start + Short.toUnsignedInt(sectors.getShort(s * SECTOR_BYTES + Integer.BYTES));
+            int count = 0;
+            for (int nodeId = start; nodeId < end; nodeId++) if (newIds[nodeId] >= 0) count++;
+            newSectors.putInt(s * SECTOR_BYTES, newStart);
+            newSectors.putShort(s * SECTOR_BYTES + Integer.BYTES, (short) count);
+            newStart += count;
+        }
+        checkArgument(newStart == keptNodes);
+
+        Files.createDirectories(outputDirectory);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.NODES), newNodes);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.SECTORS), newSectors);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.EDGES), newEdges);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.PROFILE_IDS), newProfileIds);
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.ELEVATIONS),
+                ShortBuffer.wrap(extractor.newElevations, 0, extractor.newElevationCount));
+        GraphFiles.write(outputDirectory.resolve(GraphFiles.ATTRIBUTES), LongBuffer.wrap(newAttributes.build().toArray()));
+        if (osmIds != null) GraphFiles.write(outputDirectory.resolve(GraphFiles.OSM_IDS), newOsmIds);
+    }
+
+    /**
+     * This method allows us to get the identity of the profile of an edge kept in the extracted graph.
+     * The profile of an edge being shared with the opposite edge, the profile of the opposite edge is reused
+     * if it has already been copied, otherwise the samples of the profile are copied.
+     *
+     * @param edgeId The identity of the edge in the source graph.
+     * @param from   The identity of the node the edge is leaving, in the source graph.
+     * @param to     The identity of the node targeted by the edge, in the source graph.
+     * @return The identity of the profile of the edge in the extracted graph.
+     */
+    private int copyProfile(int edgeId, int from, int to) {
+        int profileId = edges.profileIds().get(edgeId);
+        int type = profileId >>> PROFILE_TYPE_INDEX;
+        if (type == 0) return 0;
+
+        if (newIds[to] < newIds[from]) {
+            int firstNewEdgeId = newNodes.get(NODE_INTS * newIds[to] + 2) & EDGE_ID_MASK;
+            int keptIndex = 0;
+            for (int i = 0; i < nodes.outDegree(to); i++) {
+                int opposite = nodes.edgeId(to, i);
+                int oppositeTarget = edges.targetNodeId(opposite);
+                if (newIds[oppositeTarget] < 0) continue;
+                if (oppositeTarget == from && edges.profileIds().get(opposite) == profileId)
+                    return newProfileIds.get(firstNewEdgeId + keptIndex);
+                keptIndex++;
+            }
+        }
+
+        int sampleCount = edges.sampleCount(edgeId);
+        int shortCount = type == 1 ? sampleCount
+                : 1 + Math2.ceilDiv(sampleCount - 1, type == 2 ? SAMPLES_PER_SHORT_Q4_4 : SAMPLES_PER_SHORT_Q0_4);
+        if (newElevationCount + shortCount > newElevations.length)
+            newElevations = Arrays.copyOf(newElevations, Math.max(2 * newElevations.length, newElevationCount + shortCount));
+        edges.elevations().get(profileId & SAMPLE_INDEX_MASK, newElevations, newElevationCount, shortCount);
+        int newProfileId = type << PROFILE_TYPE_INDEX | newElevationCount;
+        newElevationCount += shortCount;
+        return newProfileId;
+    }
+}
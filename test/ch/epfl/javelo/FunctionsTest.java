@@ -97,4 +97,35 @@ class FunctionsTest {
             }
         }
     }
+
+    @Test
+    void functionsSampledDoesNotDependOnTheArrayAfterwards() {
+        var samples = new float[]{1, 2, 3};
+        var f = Functions.sampled(samples, 2);
+        samples[1] = 100;
+        assertEquals(1.5, f.applyAsDouble(0.5));
+        assertEquals(2, f.applyAsDouble(1));
+        assertEquals(1, f.applyAsDouble(-1));
+        assertEquals(3, f.applyAsDouble(2));
+        assertThrows(IllegalArgumentException.class, () -> Functions.sampled(new float[]{1}, 2));
+        assertThrows(IllegalArgumentException.class, () -> Functions.sampled(samples, 0));
+    }
+
+    @Test
+    void sampledFunctionApplyAllGivesTheSameValuesAsApplyAsDouble() {
+        var rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; i += 1) {
+            var samples = new float[rng.nextInt(2, 50)];
+            for (int j = 0; j < samples.length; j += 1) samples[j] = rng.nextFloat(-1000, 1000);
+            var xMax = rng.nextDouble(1, 500);
+            var f = Functions.sampled(samples, xMax);
+            var xs = new double[rng.nextInt(0, 30)];
+            for (int j = 0; j < xs.length; j += 1) xs[j] = rng.nextDouble(-10, xMax + 10);
+            var values = new float[xs.length + 1];
+            f.applyAll(xs, values);
+            for (int j = 0; j < xs.length; j += 1) assertEquals((float) f.applyAsDouble(xs[j]), values[j]);
+            assertEquals(0, values[xs.length]);
+            assertThrows(IllegalArgumentException.class, () -> f.applyAll(new double[2], new float[1]));
+        }
+    }
 }
@@ -0,0 +1,144 @@
+package ch.epfl.javelo;
+
+import ch.epfl.javelo.data.*;
+import ch.epfl.javelo.tools.OsmGraphImporter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.stream.Stream;
+
+public final class TestGraphs {
+    public static final Path SMALL_LAUSANNE_OSM = Path.of("test/ch/epfl/javelo/tools/small-lausanne.osm");
+
+    // A varying elevation, so that the profiles of the imported edges are neither flat nor all alike
+    public static final DoubleBinaryOperator SMALL_LAUSANNE_ELEVATION =
+            (e, n) -> 500 + 40 * Math.sin(e / 70) + 25 * Math.cos(n / 45);
+
+    private static Path smallLausanneDirectory;
+    private static Graph smallLausanne;
+
+    private TestGraphs() {
+    }
+
+    // Creates an empty temporary directory, deleted when the tests end if it is empty by then
+    public static Path temporaryDirectory() throws IOException {
+        var directory = Files.createTempDirectory("javelo");
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+
+    // Marks the files currently inside the directory to be deleted when the tests end
+    public static void deleteOnExit(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> file.toFile().deleteOnExit());
+        }
+    }
+
+    // Imports the given OpenStreetMap file into a new temporary directory and returns it
+    public static Path importGraph(Path osmFile, DoubleBinaryOperator elevation) throws IOException {
+        var directory = temporaryDirectory();
+        OsmGraphImporter.importGraph(osmFile, elevation, directory);
+        deleteOnExit(directory);
+        return directory;
+    }
+
+    // The directory of the small Lausanne fixture, imported once for all the tests, which must not write in it
+    public static synchronized Path importedSmallLausanneDirectory() {
+        if (smallLausanneDirectory == null) {
+            try {
+                smallLausanneDirectory = importGraph(SMALL_LAUSANNE_OSM, SMALL_LAUSANNE_ELEVATION);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return smallLausanneDirectory;
+    }
+
+    // The graph of the small Lausanne fixture, loaded once for all the tests
+    public static synchronized Graph importedSmallLausanne() {
+        if (smallLausanne == null) {
+            try {
+                smallLausanne = Graph.loadFrom(importedSmallLausanneDirectory());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return smallLausanne;
+    }
+
+    // Builds a graph whose nodes are the given (e, n) points and whose edges are the given pairs
+    // of node ids, each pair giving two opposite edges. The nodes are sorted by sector as in the
+    // real data only if the given points are. If elevation is not null, every edge gets an
+    // uncompressed profile sampled from it.
+    public static Graph of(double[][] points, int[][] pairs, DoubleBinaryOperator elevation) {
+        var nodeCount = points.length;
+        var outEdges = new int[nodeCount][];
+        var degree = new int[nodeCount];
+        for (int[] pair : pairs) {
+            degree[pair[0]] += 1;
+            degree[pair[1]] += 1;
+        }
+        for (int i = 0; i < nodeCount; i += 1) outEdges[i] = new int[degree[i]];
+        var fill = new int[nodeCount];
+        for (int[] pair : pairs) {
+            outEdges[pair[0]][fill[pair[0]]++] = pair[1];
+            outEdges[pair[1]][fill[pair[1]]++] = pair[0];
+        }
+
+        var edgeCount = 2 * pairs.length;
+        var nodesBuffer = IntBuffer.allocate(3 * nodeCount);
+        var edgesBuffer = ByteBuffer.allocate(10 * edgeCount);
+        var profileIds = IntBuffer.allocate(edgeCount);
+        var samples = new short[edgeCount * 64];
+        var sampleCount = 0;
+        var edgeId = 0;
+        for (int from = 0; from < nodeCount; from += 1) {
+            nodesBuffer.put(3 * from, (int) Math.round(Math.scalb(points[from][0], 4)));
+            nodesBuffer.put(3 * from + 1, (int) Math.round(Math.scalb(points[from][1], 4)));
+            nodesBuffer.put(3 * from + 2, (outEdges[from].length << 28) | edgeId);
+            for (int to : outEdges[from]) {
+                var dE = points[to][0] - points[from][0];
+                var dN = points[to][1] - points[from][1];
+                var length = Math.hypot(dE, dN);
+                var lengthQ28_4 = (int) Math.round(Math.scalb(length, 4));
+                edgesBuffer.putInt(10 * edgeId, to);
+                edgesBuffer.putShort(10 * edgeId + 4, (short) lengthQ28_4);
+                if (elevation != null) {
+                    var count = 1 + (int) Math.ceil(Math.scalb((double) lengthQ28_4, -4) / 2);
+                    if (sampleCount + count > samples.length)
+                        samples = Arrays.copyOf(samples, 2 * (sampleCount + count));
+                    profileIds.put(edgeId, (1 << 30) | sampleCount);
+                    var gain = 0.0;
+                    var previous = Double.NaN;
+                    for (int i = 0; i < count; i += 1) {
+                        var t = count == 1 ? 0 : (double) i / (count - 1);
+                        var h = elevation.applyAsDouble(points[from][0] + t * dE, points[from][1] + t * dN);
+                        var hQ = (int) Math.round(Math.scalb(h, 4));
+                        samples[sampleCount + i] = (short) hQ;
+                        var rounded = Math.scalb((double) hQ, -4);
+                        if (i > 0 && rounded > previous) gain += rounded - previous;
+                        previous = rounded;
+                    }
+                    edgesBuffer.putShort(10 * edgeId + 6, (short) Math.round(Math.scalb(gain, 4)));
+                    sampleCount += count;
+                }
+                edgeId += 1;
+            }
+        }
+
+        var sectorsBuffer = ByteBuffer.allocate(128 * 128 * 6);
+        var nodes = new GraphNodes(nodesBuffer);
+        var sectors = new GraphSectors(sectorsBuffer);
+        var edges = new GraphEdges(edgesBuffer, profileIds,
+                ShortBuffer.wrap(Arrays.copyOf(samples, Math.max(1, sampleCount))));
+        return new Graph(nodes, sectors, edges, List.of(new AttributeSet(0)));
+    }
+}
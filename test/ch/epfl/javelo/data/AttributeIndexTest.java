@@ -0,0 +1,67 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttributeIndexTest {
+
+    private static int[] edgesWhere(Graph graph, IntPredicate predicate) {
+        return IntStream.range(0, graph.attributeIndex().edgeCount()).filter(predicate).toArray();
+    }
+
+    @Test
+    void attributeIndexGivesTheEdgesOfEachAttribute() {
+        var graph = TestGraphs.importedSmallLausanne();
+        var index = graph.attributeIndex();
+        assertSame(index, graph.attributeIndex());
+        assertTrue(index.edgeCount() > 0);
+        var indexed = 0;
+        for (var attribute : Attribute.ALL) {
+            var expected = edgesWhere(graph, edgeId -> graph.edgeAttributes(edgeId).contains(attribute));
+            assertArrayEquals(expected, index.edges(attribute).toArray());
+            indexed += expected.length;
+        }
+        assertTrue(indexed > 0);
+    }
+
+    @Test
+    void attributeIndexCombinesSetsOfAttributes() {
+        var graph = TestGraphs.importedSmallLausanne();
+        var index = graph.attributeIndex();
+        var any = AttributeSet.of(Attribute.HIGHWAY_RESIDENTIAL, Attribute.HIGHWAY_FOOTWAY);
+        var all = AttributeSet.of(Attribute.HIGHWAY_RESIDENTIAL);
+        var forbidden = AttributeSet.of(Attribute.ONEWAY_YES);
+
+        assertArrayEquals(edgesWhere(graph, edgeId -> graph.edgeAttributes(edgeId).intersects(any)),
+                index.edgesWithAny(any).toArray());
+        assertArrayEquals(edgesWhere(graph, edgeId -> (graph.edgeAttributes(edgeId).bits() & any.bits()) == any.bits()),
+                index.edgesWithAll(any).toArray());
+        assertArrayEquals(edgesWhere(graph, edgeId -> graph.edgeAttributes(edgeId).contains(Attribute.HIGHWAY_RESIDENTIAL)
+                        && !graph.edgeAttributes(edgeId).intersects(forbidden)),
+                index.edgesMatching(all, forbidden).toArray());
+        assertEquals(index.edgeCount(), index.edgesWithAll(new AttributeSet(0)).cardinality());
+        assertEquals(index.edgeCount(),
+                index.edges(Attribute.HIGHWAY_RESIDENTIAL).or(index.edges(Attribute.HIGHWAY_RESIDENTIAL)
+                        .not(index.edgeCount())).cardinality());
+    }
+
+    @Test
+    void attributeIndexGivesTheEdgesOfEachSet() {
+        var graph = TestGraphs.importedSmallLausanne();
+        var index = graph.attributeIndex();
+        var total = 0;
+        for (int i = 0; i < index.attributeSetCount(); i++) {
+            var edges = index.edgesOfSet(i).toArray();
+            for (int edgeId : edges) assertEquals(graph.edgeAttributes(edges[0]), graph.edgeAttributes(edgeId));
+            total += edges.length;
+        }
+        assertEquals(index.edgeCount(), total);
+        assertThrows(IllegalArgumentException.class, () -> index.edgesOfSet(-1));
+        assertThrows(IllegalArgumentException.class, () -> index.edgesOfSet(index.attributeSetCount()));
+    }
+}
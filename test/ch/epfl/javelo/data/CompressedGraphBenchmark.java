@@ -0,0 +1,58 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.routing.CityBikeCF;
+import ch.epfl.javelo.routing.Route;
+import ch.epfl.javelo.routing.RouteComputer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.javelo.TestRandomizer.newRandom;
+
+// Reports the size of the compressed nodes, edges and profile identities of a graph,
+// and compares the time needed to compute routes on the Graph and on the CompressedGraph.
+// The directory must contain the edges of the graph, which the lausanne directory of the repository lacks.
+// Run with: java ch.epfl.javelo.data.CompressedGraphBenchmark [dataDirectory]
+public final class CompressedGraphBenchmark {
+    private static final int ROUTES = 200;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        var basePath = Path.of(args.length > 0 ? args[0] : "lausanne");
+        var graph = Graph.loadFrom(basePath);
+        var compressed = CompressedGraph.loadFrom(basePath);
+        System.out.printf("%d nodes, %d edges%n", compressed.nodeCount(), compressed.edgeCount());
+        System.out.printf("uncompressed %,d bytes, compressed %,d bytes, ratio %.2f%n",
+                compressed.uncompressedBytes(), compressed.compressedBytes(),
+                (double) compressed.uncompressedBytes() / compressed.compressedBytes());
+
+        RandomGenerator rng = newRandom();
+        var starts = new int[ROUTES];
+        var ends = new int[ROUTES];
+        for (int i = 0; i < ROUTES; i += 1) {
+            starts[i] = rng.nextInt(graph.nodeCount());
+            do ends[i] = rng.nextInt(graph.nodeCount()); while (ends[i] == starts[i]);
+        }
+        var expected = run("Graph", new RouteComputer(graph, new CityBikeCF(graph)), starts, ends);
+        var actual = run("CompressedGraph", new RouteComputer(compressed, new CityBikeCF(compressed)), starts, ends);
+        System.out.printf("same results: %b%n", expected == actual);
+    }
+
+    // Returns a checksum of the lengths of the routes, after printing the mean time of the best round.
+    private static long run(String name, RouteComputer computer, int[] starts, int[] ends) {
+        var best = Long.MAX_VALUE;
+        var checksum = 0L;
+        for (int round = 0; round < ROUNDS; round += 1) {
+            checksum = 0;
+            var start = System.nanoTime();
+            for (int i = 0; i < starts.length; i += 1) {
+                Route route = computer.bestRouteBetween(starts[i], ends[i]);
+                checksum = 31 * checksum + (route == null ? -1 : Double.hashCode(route.length()));
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-20s %10.3f ms/route%n", name, best / 1e6 / starts.length);
+        return checksum;
+    }
+}
@@ -0,0 +1,90 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.routing.CityBikeCF;
+import ch.epfl.javelo.routing.RouteComputer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedGraphTest {
+    private static final int SIDE = 12;
+
+    // Imports a grid of SIDE x SIDE nodes about 450 m apart whose rows and columns are streets,
+    // with profiles of the three types
+    private static Path importGrid() throws IOException {
+        var osm = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<osm version=\"0.6\">\n");
+        for (int i = 0; i < SIDE; i++) {
+            for (int j = 0; j < SIDE; j++) {
+                osm.append(String.format(Locale.ROOT, " <node id=\"%d\" lat=\"%.6f\" lon=\"%.6f\"/>%n",
+                        1 + i * SIDE + j, 46.5 + 0.004 * i, 6.6 + 0.006 * j));
+            }
+        }
+        for (int k = 0; k < SIDE; k++) {
+            osm.append(String.format(" <way id=\"%d\">%n", 1_000 + k));
+            for (int j = 0; j < SIDE; j++) osm.append(String.format("  <nd ref=\"%d\"/>%n", 1 + k * SIDE + j));
+            osm.append("  <tag k=\"highway\" v=\"residential\"/>\n </way>\n");
+            osm.append(String.format(" <way id=\"%d\">%n", 2_000 + k));
+            for (int i = 0; i < SIDE; i++) osm.append(String.format("  <nd ref=\"%d\"/>%n", 1 + i * SIDE + k));
+            osm.append("  <tag k=\"highway\" v=\"track\"/>\n <tag k=\"oneway\" v=\"yes\"/>\n </way>\n");
+        }
+        osm.append("</osm>\n");
+        var osmFile = TestGraphs.temporaryDirectory().resolve("grid.osm");
+        Files.writeString(osmFile, osm);
+        osmFile.toFile().deleteOnExit();
+        return TestGraphs.importGraph(osmFile,
+                (e, n) -> 600 + 40 * Math.sin(e / 300) + (n > 1_153_000 ? 0.2 * (n - 1_153_000) : 0));
+    }
+
+    @Test
+    void compressedGraphReadsTheSameDataAsGraph() throws IOException {
+        var directory = importGrid();
+        var graph = Graph.loadFrom(directory);
+        var compressed = CompressedGraph.loadFrom(directory);
+        assertEquals(graph.nodeCount(), compressed.nodeCount());
+        assertEquals(graph.edgeCount(), compressed.edgeCount());
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            assertEquals(graph.nodePoint(nodeId), compressed.nodePoint(nodeId));
+            assertEquals(nodeId, compressed.nodeClosestTo(graph.nodePoint(nodeId), 10));
+            assertEquals(graph.nodeOutDegree(nodeId), compressed.nodeOutDegree(nodeId));
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++)
+                assertEquals(graph.nodeOutEdgeId(nodeId, i), compressed.nodeOutEdgeId(nodeId, i));
+        }
+        for (int edgeId = 0; edgeId < graph.edgeCount(); edgeId++) {
+            assertEquals(graph.edgeTargetNodeId(edgeId), compressed.edgeTargetNodeId(edgeId));
+            assertEquals(graph.edgeIsInverted(edgeId), compressed.edgeIsInverted(edgeId));
+            assertEquals(graph.edgeAttributes(edgeId), compressed.edgeAttributes(edgeId));
+            assertEquals(graph.edgeLength(edgeId), compressed.edgeLength(edgeId));
+            assertEquals(graph.edgeElevationGain(edgeId), compressed.edgeElevationGain(edgeId));
+            var expectedProfile = graph.edgeProfile(edgeId);
+            var actualProfile = compressed.edgeProfile(edgeId);
+            for (double x = 0; x <= graph.edgeLength(edgeId); x += 3)
+                assertEquals(expectedProfile.applyAsDouble(x), actualProfile.applyAsDouble(x));
+        }
+        assertEquals(-1, compressed.nodeClosestTo(new PointCh(2_600_000, 1_200_000), 100));
+    }
+
+    @Test
+    void compressedGraphIsSmallerAndRoutesLikeGraph() throws IOException {
+        var directory = importGrid();
+        var graph = Graph.loadFrom(directory);
+        var compressed = CompressedGraph.loadFrom(directory);
+        // The edges of the grid are much longer than real ones, so they compress less
+        assertTrue(compressed.compressedBytes() < compressed.uncompressedBytes());
+
+        var start = 1;
+        var end = graph.nodeCount() - 1;
+        var expected = new RouteComputer(graph, new CityBikeCF(graph)).bestRouteBetween(start, end);
+        var actual = new RouteComputer(compressed, new CityBikeCF(compressed)).bestRouteBetween(start, end);
+        assertEquals(expected.length(), actual.length());
+        assertEquals(expected.points(), actual.points());
+        for (double x = 0; x <= expected.length(); x += 10)
+            assertEquals(expected.elevationAt(x), actual.elevationAt(x));
+    }
+}
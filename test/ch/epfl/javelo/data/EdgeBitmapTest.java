@@ -0,0 +1,86 @@
+package ch.epfl.javelo.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeBitmapTest {
+    private static final int UNIVERSE = 300_000;
+
+    // Dense in the first chunk, sparse in the others, so that both kinds of chunks are combined
+    private static BitSet randomIds(SplittableRandom random) {
+        var ids = new BitSet();
+        for (int i = 0; i < 20_000; i++) ids.set(random.nextInt(1 << 16));
+        for (int i = 0; i < 2_000; i++) ids.set(random.nextInt(UNIVERSE));
+        return ids;
+    }
+
+    private static EdgeBitmap bitmapOf(BitSet ids) {
+        var builder = new EdgeBitmap.Builder();
+        ids.stream().forEach(builder::add);
+        return builder.build();
+    }
+
+    private static void assertSameIds(BitSet expected, EdgeBitmap actual) {
+        assertArrayEquals(expected.stream().toArray(), actual.toArray());
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+    }
+
+    @Test
+    void edgeBitmapContainsItsIds() {
+        var bitmap = EdgeBitmap.of(7, 3, 70_000, 3, 1 << 20);
+        assertArrayEquals(new int[]{3, 7, 70_000, 1 << 20}, bitmap.toArray());
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(4));
+        assertFalse(bitmap.contains(-1));
+        assertFalse(bitmap.contains(1 << 21));
+        assertEquals(4, bitmap.stream().count());
+        assertTrue(EdgeBitmap.empty().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new EdgeBitmap.Builder().add(5).add(5));
+        assertThrows(IllegalArgumentException.class, () -> EdgeBitmap.of(-1));
+    }
+
+    @Test
+    void edgeBitmapRangeContainsEveryIdBelowItsBound() {
+        for (int count : new int[]{0, 1, 64, 4_000, 5_000, 1 << 16, (1 << 16) + 1, 200_003}) {
+            var expected = new BitSet();
+            expected.set(0, count);
+            assertSameIds(expected, EdgeBitmap.range(count));
+        }
+    }
+
+    @Test
+    void edgeBitmapOperationsWorkOnRandomSets() {
+        var random = new SplittableRandom(2022);
+        for (int round = 0; round < 10; round++) {
+            var a = randomIds(random);
+            var b = randomIds(random);
+            var bitmapA = bitmapOf(a);
+            var bitmapB = bitmapOf(b);
+            assertSameIds(a, bitmapA);
+
+            var and = (BitSet) a.clone();
+            and.and(b);
+            assertSameIds(and, bitmapA.and(bitmapB));
+            var or = (BitSet) a.clone();
+            or.or(b);
+            assertSameIds(or, bitmapA.or(bitmapB));
+            var andNot = (BitSet) a.clone();
+            andNot.andNot(b);
+            assertSameIds(andNot, bitmapA.andNot(bitmapB));
+            var not = new BitSet();
+            not.set(0, UNIVERSE);
+            not.andNot(a);
+            assertSameIds(not, bitmapA.not(UNIVERSE));
+
+            for (int i = 0; i < 1_000; i++) {
+                var id = random.nextInt(UNIVERSE);
+                assertEquals(a.get(id), bitmapA.contains(id));
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeElevationSummariesTest {
+
+    private static void assertSummaryOfEdgeIsTheOneOfItsSamples(Graph graph, EdgeElevationSummaries summaries,
+                                                                int edgeId) {
+        var samples = profileSamples(graph, edgeId);
+        if (samples.length == 0) {
+            assertTrue(Double.isNaN(summaries.minElevation(edgeId)));
+            assertEquals(0, summaries.descent(edgeId));
+            return;
+        }
+        double descent = 0, min = samples[0], max = samples[0];
+        var pieces = new int[EdgeElevationSummaries.GRADE_CLASSES];
+        var pieceLength = graph.edgeLength(edgeId) / (samples.length - 1);
+        for (int i = 1; i < samples.length; i++) {
+            descent += Math.max(0, samples[i - 1] - samples[i]);
+            min = Math.min(min, samples[i]);
+            max = Math.max(max, samples[i]);
+            pieces[EdgeElevationSummaries.gradeClassOf((samples[i] - samples[i - 1]) / pieceLength)] += 1;
+        }
+        assertEquals(descent, summaries.descent(edgeId), 1e-3);
+        assertEquals(min, summaries.minElevation(edgeId));
+        assertEquals(max, summaries.maxElevation(edgeId));
+        for (int c = 0; c < pieces.length; c++) assertEquals(pieces[c], summaries.gradePieces(edgeId, c));
+    }
+
+    private static float[] profileSamples(Graph graph, int edgeId) {
+        var destination = new float[4_096];
+        var offsets = new int[2];
+        var count = graph.edgesProfileSamples(new int[]{edgeId}, destination, offsets);
+        var samples = new float[count];
+        System.arraycopy(destination, 0, samples, 0, count);
+        return samples;
+    }
+
+    @Test
+    void summariesAreTheOnesOfTheSamplesOfEachEdge() {
+        var graph = TestGraphs.importedSmallLausanne();
+        var summaries = graph.elevationSummaries();
+        assertSame(summaries, graph.elevationSummaries());
+        assertEquals(graph.edgeCount(), summaries.count());
+        for (int edgeId = 0; edgeId < graph.edgeCount(); edgeId++)
+            assertSummaryOfEdgeIsTheOneOfItsSamples(graph, summaries, edgeId);
+    }
+
+    @Test
+    void summariesAreWrittenNextToTheGraphAndOpenedWithIt() throws IOException {
+        // The summaries are written in a directory of their own, as the shared one must not change
+        var directory = TestGraphs.importGraph(TestGraphs.SMALL_LAUSANNE_OSM, TestGraphs.SMALL_LAUSANNE_ELEVATION);
+        var graph = Graph.loadFrom(directory);
+        graph.writeElevationSummaries(directory);
+        TestGraphs.deleteOnExit(directory);
+        var loaded = Graph.loadFrom(directory).elevationSummaries();
+        var computed = graph.elevationSummaries();
+        assertEquals(computed.count(), loaded.count());
+        for (int edgeId = 0; edgeId < graph.edgeCount(); edgeId++) {
+            assertEquals(computed.descent(edgeId), loaded.descent(edgeId));
+            assertEquals(computed.minElevation(edgeId), loaded.minElevation(edgeId));
+            assertEquals(computed.maxElevation(edgeId), loaded.maxElevation(edgeId));
+            for (int c = 0; c < EdgeElevationSummaries.GRADE_CLASSES; c++)
+                assertEquals(computed.gradePieces(edgeId, c), loaded.gradePieces(edgeId, c));
+        }
+    }
+
+    @Test
+    void summaryOfARouteAggregatesTheSamplesOfItsEdges() {
+        var graph = TestGraphs.of(
+                new double[][]{{2_600_000, 1_200_000}, {2_600_100, 1_200_000}, {2_600_300, 1_200_050},
+                        {2_600_350, 1_200_400}},
+                new int[][]{{0, 1}, {1, 2}, {2, 3}},
+                (e, n) -> 400 + 0.05 * (e - 2_600_000) - 0.2 * (n - 1_200_000) + 3 * Math.sin(e / 20));
+        var random = new SplittableRandom(345230);
+        for (int r = 0; r < 20; r++) {
+            var edgeIds = new int[1 + random.nextInt(10)];
+            for (int i = 0; i < edgeIds.length; i++) edgeIds[i] = random.nextInt(graph.edgeCount());
+            var summary = graph.elevationSummary(edgeIds);
+
+            double length = 0, ascent = 0, descent = 0;
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            var gradeLengths = new double[EdgeElevationSummaries.GRADE_CLASSES];
+            for (int edgeId : edgeIds) {
+                var samples = profileSamples(graph, edgeId);
+                var pieceLength = graph.edgeLength(edgeId) / (samples.length - 1);
+                length += graph.edgeLength(edgeId);
+                ascent += graph.edgeElevationGain(edgeId);
+                for (int i = 0; i < samples.length; i++) {
+                    min = Math.min(min, samples[i]);
+                    max = Math.max(max, samples[i]);
+                    if (i == 0) continue;
+                    var difference = samples[i] - samples[i - 1];
+                    descent += Math.max(0, -difference);
+                    gradeLengths[EdgeElevationSummaries.gradeClassOf(difference / pieceLength)] += pieceLength;
+                }
+            }
+            assertEquals(length, summary.length(), 1e-9);
+            assertEquals(ascent, summary.ascent(), 1e-9);
+            assertEquals(descent, summary.descent(), 1e-3);
+            assertEquals(min, summary.minElevation());
+            assertEquals(max, summary.maxElevation());
+            assertArrayEquals(gradeLengths, summary.gradeLengths(), 1e-6);
+        }
+    }
+
+    @Test
+    void summaryOfARouteWithoutProfileHasNoElevation() {
+        var graph = TestGraphs.of(new double[][]{{2_600_000, 1_200_000}, {2_600_100, 1_200_000}},
+                new int[][]{{0, 1}}, null);
+        var summary = graph.elevationSummary(new int[]{0, 1});
+        assertEquals(2 * graph.edgeLength(0), summary.length(), 1e-9);
+        assertEquals(0, summary.ascent());
+        assertTrue(Double.isNaN(summary.minElevation()));
+        assertTrue(Double.isNaN(summary.maxElevation()));
+        assertEquals(0, summary.gradeLength(3));
+    }
+
+    @Test
+    void summaryOfARouteWithAZeroLengthEdgeHasNoPieceForIt() {
+        // Nodes 0 and 1 are at the same point, so the edges between them have a profile of a single sample
+        var graph = TestGraphs.of(
+                new double[][]{{2_600_000, 1_200_000}, {2_600_000, 1_200_000}, {2_600_100, 1_200_000}},
+                new int[][]{{0, 1}, {1, 2}},
+                (e, n) -> 500 + (e - 2_600_000) / 20);
+        var summaries = graph.elevationSummaries();
+        assertEquals(0, graph.edgeLength(0));
+        assertEquals(500, summaries.minElevation(0), 1e-3);
+        for (int c = 0; c < EdgeElevationSummaries.GRADE_CLASSES; c++) assertEquals(0, summaries.gradePieces(0, c));
+
+        var summary = graph.elevationSummary(new int[]{0, 2});
+        assertEquals(graph.edgeLength(2), summary.length(), 1e-9);
+        assertEquals(500, summary.minElevation(), 1e-3);
+        var gradeLength = 0.0;
+        for (double length : summary.gradeLengths()) {
+            assertFalse(Double.isNaN(length));
+            gradeLength += length;
+        }
+        assertEquals(summary.length(), gradeLength, 1e-6);
+    }
+
+    @Test
+    void summariesWrittenForAnotherGraphAreNotOpened() throws IOException {
+        var directory = TestGraphs.importGraph(TestGraphs.SMALL_LAUSANNE_OSM, TestGraphs.SMALL_LAUSANNE_ELEVATION);
+        TestGraphs.deleteOnExit(directory);
+        var other = TestGraphs.importGraph(TestGraphs.SMALL_LAUSANNE_OSM, (e, n) -> 1_000);
+        TestGraphs.deleteOnExit(other);
+        var graph = Graph.loadFrom(directory);
+        var summaries = graph.elevationSummaries();
+        Graph.loadFrom(other).writeElevationSummaries(directory);
+
+        var loaded = Graph.loadFrom(directory);
+        assertEquals(graph.edgeCount(), loaded.edgeCount());
+        for (int edgeId = 0; edgeId < graph.edgeCount(); edgeId++)
+            assertEquals(summaries.maxElevation(edgeId), loaded.elevationSummaries().maxElevation(edgeId));
+    }
+
+    @Test
+    void gradeClassesAreOrderedByGrade() {
+        assertEquals(0, EdgeElevationSummaries.gradeClassOf(-0.5));
+        assertEquals(3, EdgeElevationSummaries.gradeClassOf(-0.01));
+        assertEquals(4, EdgeElevationSummaries.gradeClassOf(0));
+        assertEquals(EdgeElevationSummaries.GRADE_CLASSES - 1, EdgeElevationSummaries.gradeClassOf(0.5));
+    }
+}
@@ -0,0 +1,108 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.projection.PointCh;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static ch.epfl.javelo.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.javelo.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeRTreeTest {
+
+    private static Graph randomGraph(int nodesCount) {
+        var rng = newRandom();
+        var points = new double[nodesCount][];
+        for (int i = 0; i < nodesCount; i += 1) {
+            points[i] = new double[]{2_600_000 + 5_000 * rng.nextDouble(), 1_200_000 + 5_000 * rng.nextDouble()};
+        }
+        var pairs = new int[nodesCount - 1][];
+        for (int i = 1; i < nodesCount; i += 1) {
+            // Connect each node to a close previous one, to get short edges.
+            var other = Math.max(0, i - 1 - rng.nextInt(5));
+            pairs[i - 1] = new int[]{other, i};
+        }
+        return TestGraphs.of(points, pairs, null);
+    }
+
+    private static double bruteForceDistance(Graph graph, PointCh point) {
+        var best = Double.POSITIVE_INFINITY;
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId += 1) {
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i += 1) {
+                var a = graph.nodePoint(nodeId);
+                var b = graph.nodePoint(graph.edgeTargetNodeId(graph.nodeOutEdgeId(nodeId, i)));
+                var squaredLength = a.squaredDistanceTo(b);
+                var t = squaredLength == 0 ? 0 : Math2.clamp(0,
+                        Math2.dotProduct(point.e() - a.e(), point.n() - a.n(), b.e() - a.e(), b.n() - a.n())
+                                / squaredLength, 1);
+                var e = Math2.interpolate(a.e(), b.e(), t);
+                var n = Math2.interpolate(a.n(), b.n(), t);
+                best = Math.min(best, Math2.norm(point.e() - e, point.n() - n));
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void edgeRTreeClosestPointWorksOnRandomPoints() {
+        var graph = randomGraph(2_000);
+        var tree = EdgeRTree.of(graph);
+        var rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; i += 1) {
+            var point = new PointCh(2_599_000 + 7_000 * rng.nextDouble(), 1_199_000 + 7_000 * rng.nextDouble());
+            var searchDistance = 500 * rng.nextDouble();
+            var expected = bruteForceDistance(graph, point);
+            var actual = tree.closestPoint(point, searchDistance);
+            if (expected > searchDistance) {
+                assertNull(actual);
+            } else {
+                assertNotNull(actual);
+                assertEquals(expected, actual.distanceToReference(), 1e-6);
+                assertEquals(expected, actual.point().distanceTo(point), 1e-6);
+                assertEquals(actual.fromNodeId(), fromNodeOf(graph, actual.edgeId()));
+                var from = graph.nodePoint(actual.fromNodeId());
+                var fraction = actual.position() / graph.edgeLength(actual.edgeId());
+                assertEquals(from.distanceTo(actual.point()),
+                        fraction * from.distanceTo(graph.nodePoint(graph.edgeTargetNodeId(actual.edgeId()))), 1e-3);
+            }
+        }
+    }
+
+    private static int fromNodeOf(Graph graph, int edgeId) {
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId += 1) {
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i += 1) {
+                if (graph.nodeOutEdgeId(nodeId, i) == edgeId) return nodeId;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void edgeRTreeWorksAfterWritingAndLoading() throws IOException {
+        var graph = randomGraph(500);
+        var tree = EdgeRTree.of(graph);
+        var file = Files.createTempFile("edges_rtree", ".bin");
+        try {
+            tree.writeTo(file);
+            var loaded = EdgeRTree.loadFrom(graph, file);
+            var rng = newRandom();
+            for (int i = 0; i < RANDOM_ITERATIONS; i += 1) {
+                var point = new PointCh(2_599_000 + 7_000 * rng.nextDouble(), 1_199_000 + 7_000 * rng.nextDouble());
+                assertEquals(tree.closestPoint(point, 300), loaded.closestPoint(point, 300));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void edgeRTreeWorksOnGraphWithoutEdges() {
+        var graph = TestGraphs.of(new double[][]{{2_600_000, 1_200_000}}, new int[0][], null);
+        var tree = EdgeRTree.of(graph);
+        assertNull(tree.closestPoint(new PointCh(2_600_000, 1_200_000), 1_000));
+    }
+}
@@ -0,0 +1,147 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+import ch.epfl.javelo.routing.CityBikeCF;
+import ch.epfl.javelo.routing.RouteComputer;
+import ch.epfl.javelo.tools.Region;
+import ch.epfl.javelo.tools.RegionExtractor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FederatedGraphTest {
+    private static Path extract(Path source, Region region) throws IOException {
+        var directory = TestGraphs.temporaryDirectory();
+        RegionExtractor.extract(source, region, directory);
+        TestGraphs.deleteOnExit(directory);
+        return directory;
+    }
+
+    // Splits the fixture in a western region (nodes 1 and 2), an eastern region (nodes 2 to 5 and the track
+    // up to the node splitting it) and a northern region (the node splitting the track and node 10)
+    private static List<Path> regions(Graph source, Path sourceDirectory) throws IOException {
+        var point2 = source.nodePoint(source.nodeIdOfOsmId(2));
+        var split = splitNodePoint(source);
+        var west = extract(sourceDirectory,
+                Region.rectangle(SwissBounds.MIN_E, SwissBounds.MIN_N, point2.e(), SwissBounds.MAX_N));
+        var east = extract(sourceDirectory, (e, n) -> e >= point2.e() && n <= split.n());
+        var north = extract(sourceDirectory, (e, n) -> n >= split.n());
+        return List.of(west, east, north);
+    }
+
+    private static PointCh splitNodePoint(Graph source) {
+        var node10 = source.nodeIdOfOsmId(10);
+        return source.nodePoint(source.edgeTargetNodeId(source.nodeOutEdgeId(node10, 0)));
+    }
+
+    private static int nodeOffset(FederatedGraph graph, int regionIndex) {
+        var offset = 0;
+        for (int i = 0; i < regionIndex; i++) offset += graph.region(i).nodeCount();
+        return offset;
+    }
+
+    private static int federatedNodeOfOsmId(FederatedGraph graph, int regionIndex, long osmId) {
+        return nodeOffset(graph, regionIndex) + graph.region(regionIndex).nodeIdOfOsmId(osmId);
+    }
+
+    @Test
+    void federatedGraphNumbersTheNodesOfTheRegionsOneAfterTheOther() throws IOException {
+        var sourceDirectory = TestGraphs.importedSmallLausanneDirectory();
+        var source = TestGraphs.importedSmallLausanne();
+        var paths = regions(source, sourceDirectory);
+        var graph = FederatedGraph.loadFrom(paths);
+
+        assertEquals(3, graph.regionCount());
+        // Node 2 and the node splitting the track are in two regions
+        assertEquals(source.nodeCount() + 2, graph.nodeCount());
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            var regionIndex = graph.regionOfNode(nodeId);
+            var osmId = graph.region(regionIndex).nodeOsmId(nodeId - nodeOffset(graph, regionIndex));
+            assertEquals(source.nodePoint(source.nodeIdOfOsmId(osmId)), graph.nodePoint(nodeId));
+        }
+    }
+
+    @Test
+    void federatedGraphStitchesTheNodesSharedByTwoRegions() throws IOException {
+        var sourceDirectory = TestGraphs.importedSmallLausanneDirectory();
+        var source = TestGraphs.importedSmallLausanne();
+        var graph = FederatedGraph.loadFrom(regions(source, sourceDirectory));
+
+        var west2 = federatedNodeOfOsmId(graph, 0, 2);
+        var east2 = federatedNodeOfOsmId(graph, 1, 2);
+        assertEquals(graph.region(0).nodeOutDegree(west2) + 1, graph.nodeOutDegree(west2));
+        var stitch = graph.nodeOutEdgeId(west2, graph.nodeOutDegree(west2) - 1);
+        assertEquals(east2, graph.edgeTargetNodeId(stitch));
+        assertEquals(0, graph.edgeLength(stitch));
+        assertEquals(0, graph.edgeElevationGain(stitch));
+        assertFalse(graph.edgeIsInverted(stitch));
+        assertEquals(new AttributeSet(0), graph.edgeAttributes(stitch));
+        var back = graph.nodeOutEdgeId(east2, graph.nodeOutDegree(east2) - 1);
+        assertEquals(west2, graph.edgeTargetNodeId(back));
+
+        // Node 1 is only in the western region
+        var west1 = federatedNodeOfOsmId(graph, 0, 1);
+        assertEquals(source.nodeOutDegree(source.nodeIdOfOsmId(1)), graph.nodeOutDegree(west1));
+        for (int i = 0; i < graph.nodeOutDegree(west1); i++) {
+            var target = graph.edgeTargetNodeId(graph.nodeOutEdgeId(west1, i));
+            assertEquals(0, graph.regionOfNode(target));
+        }
+
+        var split = splitNodePoint(source);
+        var eastSplit = nodeOffset(graph, 1) + graph.region(1).nodeClosestTo(split, 0);
+        var northSplit = nodeOffset(graph, 2) + graph.region(2).nodeClosestTo(split, 0);
+        assertEquals(northSplit, graph.edgeTargetNodeId(
+                graph.nodeOutEdgeId(eastSplit, graph.nodeOutDegree(eastSplit) - 1)));
+        assertEquals(eastSplit, graph.edgeTargetNodeId(
+                graph.nodeOutEdgeId(northSplit, graph.nodeOutDegree(northSplit) - 1)));
+    }
+
+    @Test
+    void federatedGraphRoutesAcrossRegionsLikeTheWholeGraph() throws IOException {
+        var sourceDirectory = TestGraphs.importedSmallLausanneDirectory();
+        var source = TestGraphs.importedSmallLausanne();
+        var graph = FederatedGraph.loadFrom(regions(source, sourceDirectory));
+
+        var sourceRoute = new RouteComputer(source, new CityBikeCF(source))
+                .bestRouteBetween(source.nodeIdOfOsmId(1), source.nodeIdOfOsmId(10));
+        var start = graph.nodeClosestTo(source.nodePoint(source.nodeIdOfOsmId(1)), 10);
+        var end = graph.nodeClosestTo(source.nodePoint(source.nodeIdOfOsmId(10)), 10);
+        assertEquals(0, graph.regionOfNode(start));
+        assertEquals(2, graph.regionOfNode(end));
+        var route = new RouteComputer(graph, new CityBikeCF(graph)).bestRouteBetween(start, end);
+
+        assertNotNull(route);
+        assertEquals(sourceRoute.length(), route.length(), 1e-9);
+        assertEquals(sourceRoute.points(), route.points());
+        assertEquals(sourceRoute.edges().size(), route.edges().size());
+        for (double x = 0; x <= route.length(); x += 5)
+            assertEquals(sourceRoute.elevationAt(x), route.elevationAt(x), 1e-9);
+    }
+
+    @Test
+    void federatedGraphMapsTheRegionsOnlyWhenTheyAreUsed() throws IOException {
+        var sourceDirectory = TestGraphs.importedSmallLausanneDirectory();
+        var source = TestGraphs.importedSmallLausanne();
+        var graph = FederatedGraph.loadFrom(regions(source, sourceDirectory));
+
+        assertTrue(graph.nodeCount() > 0);
+        assertEquals(-1, graph.nodeClosestTo(new PointCh(2_600_000, 1_200_000), 1_000));
+        for (int i = 0; i < graph.regionCount(); i++) assertFalse(graph.regionIsLoaded(i));
+
+        var start = graph.nodeClosestTo(source.nodePoint(source.nodeIdOfOsmId(1)), 10);
+        assertTrue(graph.regionIsLoaded(0));
+        assertFalse(graph.regionIsLoaded(2));
+        var end = graph.nodeClosestTo(source.nodePoint(source.nodeIdOfOsmId(3)), 10);
+        assertNotNull(new RouteComputer(graph, new CityBikeCF(graph)).bestRouteBetween(start, end));
+        assertTrue(graph.regionIsLoaded(1));
+        assertFalse(graph.regionIsLoaded(2));
+
+        assertThrows(IllegalArgumentException.class, () -> FederatedGraph.loadFrom(List.of()));
+    }
+}
@@ -264,6 +264,47 @@ class GraphEdgesTest {
         }
     }
 
+    @Test
+    void graphEdgesBulkProfileSamplesWorksOnMixedEdges() {
+        var edgesBuffer = ByteBuffer.allocate(40);
+        // Edge 0 : type 1, straight, 3 samples.
+        edgesBuffer.putInt(0, 1);
+        edgesBuffer.putShort(4, (short) (4 << 4));
+        // Edge 1 : no profile.
+        edgesBuffer.putInt(10, 2);
+        edgesBuffer.putShort(14, (short) (4 << 4));
+        // Edge 2 : type 3, inverted, 10 samples (same data as the given example).
+        edgesBuffer.putInt(20, ~12);
+        edgesBuffer.putShort(24, (short) 0x10_b);
+        // Edge 3 : type 2, straight, 3 samples.
+        edgesBuffer.putInt(30, 3);
+        edgesBuffer.putShort(34, (short) (4 << 4));
+
+        var profileIds = IntBuffer.wrap(new int[]{(1 << 30), 0, (3 << 30) | 3, (2 << 30) | 8});
+        var elevations = ShortBuffer.wrap(new short[]{
+                (short) 0x2a10, (short) 0x2a20, (short) 0x2a30,
+                (short) 0x180C, (short) 0xFEFF, (short) 0xFFFE, (short) 0xF000, (short) 0,
+                (short) 0x2a2d, (short) 0x0201
+        });
+        var graphEdges = new GraphEdges(edgesBuffer, profileIds, elevations);
+
+        int[] edgeIds = {0, 1, 2, 3, 2};
+        float[] destination = new float[40];
+        int[] offsets = new int[edgeIds.length + 1];
+        int total = graphEdges.profileSamples(edgeIds, destination, offsets);
+
+        assertEquals(26, total);
+        assertArrayEquals(new int[]{0, 3, 3, 13, 16, 26}, offsets);
+        for (int i = 0; i < edgeIds.length; i += 1) {
+            assertArrayEquals(graphEdges.profileSamples(edgeIds[i]),
+                    Arrays.copyOfRange(destination, offsets[i], offsets[i + 1]));
+        }
+        assertEquals(384.0625f, destination[3]);
+        assertEquals(674.8125f, destination[13]);
+        assertThrows(IllegalArgumentException.class,
+                () -> graphEdges.profileSamples(edgeIds, destination, new int[edgeIds.length]));
+    }
+
     private record TestCase(short[] compressed, float[] uncompressed) {
         public float[] uncompressedInverted() {
             float[] array = uncompressed();
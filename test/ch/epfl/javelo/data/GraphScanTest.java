@@ -0,0 +1,124 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphScanTest {
+
+    // The first half of the nodes has 8 edges each, the second half none
+    private static GraphNodes unbalancedNodes(int count) {
+        var buffer = IntBuffer.allocate(3 * count);
+        var edgeId = 0;
+        for (int nodeId = 0; nodeId < count; nodeId++) {
+            var degree = nodeId < count / 2 ? 8 : 0;
+            buffer.put(0).put(0).put(degree << 28 | edgeId);
+            edgeId += degree;
+        }
+        return new GraphNodes(buffer.flip());
+    }
+
+    @Test
+    void nodeSpliteratorSplitsTheNodesByEdges() {
+        var count = 20_000;
+        var nodes = unbalancedNodes(count);
+        var edgeCount = 8 * (count / 2);
+        var spliterator = new NodeSpliterator(nodes, edgeCount, 0, count);
+        assertEquals(count, spliterator.getExactSizeIfKnown());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+
+        var prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        // The prefix holds about half of the edges, so about a quarter of the nodes
+        assertEquals(count / 4, prefix.estimateSize(), 1);
+        assertEquals(count, prefix.estimateSize() + spliterator.estimateSize());
+
+        var ranges = new ArrayList<Spliterator.OfInt>(List.of(prefix, spliterator));
+        for (int round = 0; round < 10; round++) {
+            for (var range : List.copyOf(ranges)) {
+                var split = range.trySplit();
+                if (split != null) ranges.add(split);
+            }
+        }
+        var seen = new boolean[count];
+        for (var range : ranges) {
+            assertTrue(range.estimateSize() >= 1 << 10);
+            range.forEachRemaining((int nodeId) -> {
+                assertFalse(seen[nodeId]);
+                seen[nodeId] = true;
+            });
+        }
+        for (boolean nodeSeen : seen) assertTrue(nodeSeen);
+        assertNull(new NodeSpliterator(nodes, edgeCount, 0, 100).trySplit());
+        assertThrows(IllegalArgumentException.class, () -> new NodeSpliterator(nodes, edgeCount, 10, count + 1));
+    }
+
+    @Test
+    void graphForEachEdgeVisitsEveryEdgeOnce() {
+        var graph = TestGraphs.importedSmallLausanne();
+        var visits = new AtomicIntegerArray(graph.edgeCount());
+        graph.forEachEdge((edgeId, fromNodeId, toNodeId, lengthQ28_4, attributesIndex) -> {
+            visits.incrementAndGet(edgeId);
+            var found = false;
+            for (int i = 0; i < graph.nodeOutDegree(fromNodeId); i++)
+                found |= graph.nodeOutEdgeId(fromNodeId, i) == edgeId;
+            assertTrue(found);
+            assertEquals(graph.edgeTargetNodeId(edgeId), toNodeId);
+            assertEquals(graph.edgeLength(edgeId), lengthQ28_4 / 16.0);
+            assertTrue(graph.attributeIndex().edgesOfSet(attributesIndex).contains(edgeId));
+        });
+        for (int edgeId = 0; edgeId < graph.edgeCount(); edgeId++) assertEquals(1, visits.get(edgeId));
+        assertEquals(graph.nodeCount(), graph.nodeIds().count());
+        assertEquals(graph.edgeCount(), graph.edgeIds().count());
+    }
+
+    // A grid of side x side nodes 100 m apart, large enough for its nodes to be split several times
+    private static Graph grid(int side) {
+        var points = new double[side * side][];
+        var pairs = new ArrayList<int[]>();
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                var id = y * side + x;
+                points[id] = new double[]{2_600_000 + 100 * x, 1_200_000 + 100 * y};
+                if (x + 1 < side) pairs.add(new int[]{id, id + 1});
+                if (y + 1 < side) pairs.add(new int[]{id, id + side});
+            }
+        }
+        return TestGraphs.of(points, pairs.toArray(int[][]::new), null);
+    }
+
+    @Test
+    void graphForEachEdgeInParallelVisitsEveryEdgeOnce() {
+        var graph = grid(64);
+        var first = graph.nodeIds().spliterator();
+        var prefix = first.trySplit();
+        assertNotNull(prefix);
+        assertNotNull(prefix.trySplit());
+        assertNotNull(first.trySplit());
+
+        var visits = new AtomicIntegerArray(graph.edgeCount());
+        var parallelLength = new LongAdder();
+        var parallelCount = new LongAdder();
+        graph.forEachEdgeInParallel((edgeId, fromNodeId, toNodeId, lengthQ28_4, attributesIndex) -> {
+            visits.incrementAndGet(edgeId);
+            parallelLength.add(lengthQ28_4);
+            parallelCount.increment();
+        });
+        for (int edgeId = 0; edgeId < graph.edgeCount(); edgeId++) assertEquals(1, visits.get(edgeId));
+        assertEquals(graph.edgeCount(), parallelCount.sum());
+
+        var sequentialLength = new LongAdder();
+        graph.forEachEdge((edgeId, fromNodeId, toNodeId, lengthQ28_4, attributesIndex) ->
+                sequentialLength.add(lengthQ28_4));
+        assertEquals(sequentialLength.sum(), parallelLength.sum());
+        assertEquals(graph.nodeIds().sum(), graph.nodeIds().parallel().sum());
+    }
+}
@@ -0,0 +1,86 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.projection.PointCh;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.List;
+
+import static ch.epfl.javelo.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.javelo.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeCoordinatesTest {
+
+    private static final int NODES_COUNT = 2_000;
+
+    private static GraphNodes randomNodes() {
+        var rng = newRandom();
+        var buffer = IntBuffer.allocate(3 * NODES_COUNT);
+        for (int i = 0; i < NODES_COUNT; i += 1) {
+            buffer.put(3 * i, (int) Math.scalb(2_600_000 + 2_000 * rng.nextDouble(), 4));
+            buffer.put(3 * i + 1, (int) Math.scalb(1_200_000 + 2_000 * rng.nextDouble(), 4));
+        }
+        return new GraphNodes(buffer);
+    }
+
+    @Test
+    void nodeCoordinatesClosestNodeIdWorksOnRandomRanges() {
+        var nodes = randomNodes();
+        var coordinates = NodeCoordinates.of(nodes);
+        var rng = newRandom();
+        assertEquals(NODES_COUNT, coordinates.count());
+        for (int i = 0; i < RANDOM_ITERATIONS; i += 1) {
+            var start = rng.nextInt(NODES_COUNT);
+            var end = start + rng.nextInt(NODES_COUNT - start + 1);
+            var e = 2_600_000 + 2_000 * rng.nextDouble();
+            var n = 1_200_000 + 2_000 * rng.nextDouble();
+            var squaredDistance = 40_000 * rng.nextDouble();
+            var expected = -1;
+            var best = squaredDistance;
+            for (int id = start; id < end; id += 1) {
+                var dE = nodes.nodeE(id) - e;
+                var dN = nodes.nodeN(id) - n;
+                if (dE * dE + dN * dN <= best) {
+                    best = dE * dE + dN * dN;
+                    expected = id;
+                }
+            }
+            var actual = coordinates.closestNodeId(start, end, e, n, squaredDistance);
+            assertEquals(expected, actual);
+            if (actual != -1) assertEquals(best, coordinates.squaredDistance(actual, e, n), 1e-6);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinates.closestNodeId(10, 5, 2_600_000, 1_200_000, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinates.closestNodeId(0, NODES_COUNT + 1, 2_600_000, 1_200_000, 1));
+    }
+
+    @Test
+    void graphNodeClosestToGivesSameResultWithNodeCoordinates() {
+        var nodes = randomNodes();
+        var sectors = ByteBuffer.allocate(128 * 128 * 6);
+        // All the nodes in the sector containing (2_600_000, 1_200_000).
+        var sector = (int) ((1_200_000 - 1_075_000) / (221_000 / 128.0)) * 128
+                + (int) ((2_600_000 - 2_485_000) / (349_000 / 128.0));
+        sectors.putInt(6 * sector, 0);
+        sectors.putShort(6 * sector + 4, (short) NODES_COUNT);
+        var graph = new Graph(nodes, new GraphSectors(sectors),
+                new GraphEdges(ByteBuffer.allocate(10), IntBuffer.allocate(1), ShortBuffer.allocate(1)),
+                List.of());
+        var rng = newRandom();
+        var points = new PointCh[100];
+        var expected = new int[points.length];
+        for (int i = 0; i < points.length; i += 1) {
+            points[i] = new PointCh(2_600_000 + 1_000 * rng.nextDouble(),
+                    1_200_000 + 1_000 * rng.nextDouble());
+            expected[i] = graph.nodeClosestTo(points[i], 100);
+        }
+        graph.nodeCoordinates();
+        for (int i = 0; i < points.length; i += 1) {
+            assertEquals(expected[i], graph.nodeClosestTo(points[i], 100));
+        }
+    }
+}
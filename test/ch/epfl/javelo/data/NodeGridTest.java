@@ -0,0 +1,114 @@
+package ch.epfl.javelo.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static ch.epfl.javelo.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.javelo.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeGridTest {
+
+    private static final int NODES_COUNT = 5_000;
+
+    private static GraphNodes randomNodes() {
+        var rng = newRandom();
+        var buffer = IntBuffer.allocate(3 * NODES_COUNT);
+        for (int i = 0; i < NODES_COUNT; i += 1) {
+            buffer.put(3 * i, (int) Math.scalb(2_530_000 + 10_000 * rng.nextDouble(), 4));
+            buffer.put(3 * i + 1, (int) Math.scalb(1_150_000 + 8_000 * rng.nextDouble(), 4));
+        }
+        return new GraphNodes(buffer);
+    }
+
+    private static double squaredDistance(GraphNodes nodes, int nodeId, double e, double n) {
+        double dE = nodes.nodeE(nodeId) - e;
+        double dN = nodes.nodeN(nodeId) - n;
+        return dE * dE + dN * dN;
+    }
+
+    private static int bruteForceClosest(GraphNodes nodes, double e, double n, double searchDistance) {
+        int closest = -1;
+        double best = searchDistance * searchDistance;
+        for (int i = 0; i < nodes.count(); i += 1) {
+            double distance = squaredDistance(nodes, i, e, n);
+            if (distance <= best) {
+                best = distance;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    @Test
+    void nodeGridNodeClosestToWorksOnRandomPoints() {
+        var nodes = randomNodes();
+        var grid = NodeGrid.of(nodes);
+        var rng = newRandom();
+        assertEquals(NODES_COUNT, grid.count());
+        for (int i = 0; i < RANDOM_ITERATIONS; i += 1) {
+            var e = 2_528_000 + 14_000 * rng.nextDouble();
+            var n = 1_148_000 + 12_000 * rng.nextDouble();
+            var searchDistance = 1_000 * rng.nextDouble();
+            var expected = bruteForceClosest(nodes, e, n, searchDistance);
+            var actual = grid.nodeClosestTo(e, n, searchDistance);
+            if (expected == -1) assertEquals(-1, actual);
+            else assertEquals(squaredDistance(nodes, expected, e, n), squaredDistance(nodes, actual, e, n));
+        }
+    }
+
+    @Test
+    void nodeGridNodesClosestToWorksOnRandomPoints() {
+        var nodes = randomNodes();
+        var grid = NodeGrid.of(nodes);
+        var rng = newRandom();
+        int[] ids = new int[8];
+        double[] distances = new double[8];
+        for (int i = 0; i < RANDOM_ITERATIONS; i += 1) {
+            var e = 2_530_000 + 10_000 * rng.nextDouble();
+            var n = 1_150_000 + 8_000 * rng.nextDouble();
+            var searchDistance = 500 * rng.nextDouble();
+            double[] expected = IntStream.range(0, NODES_COUNT)
+                    .mapToDouble(id -> squaredDistance(nodes, id, e, n))
+                    .filter(d -> d <= searchDistance * searchDistance)
+                    .sorted()
+                    .limit(ids.length)
+                    .toArray();
+            int found = grid.nodesClosestTo(e, n, searchDistance, ids, distances);
+            assertEquals(expected.length, found);
+            assertArrayEquals(expected, Arrays.copyOf(distances, found));
+            for (int j = 0; j < found; j += 1) {
+                assertEquals(distances[j], squaredDistance(nodes, ids[j], e, n));
+            }
+        }
+    }
+
+    @Test
+    void nodeGridBatchNodesClosestToMatchesSingleQueries() {
+        var nodes = randomNodes();
+        var grid = NodeGrid.of(nodes);
+        var rng = newRandom();
+        double[] e = new double[100];
+        double[] n = new double[100];
+        for (int i = 0; i < e.length; i += 1) {
+            e[i] = 2_500_000 + 60_000 * rng.nextDouble();
+            n[i] = 1_140_000 + 30_000 * rng.nextDouble();
+        }
+        int[] result = new int[e.length];
+        grid.nodesClosestTo(e, n, 300, result);
+        for (int i = 0; i < e.length; i += 1) {
+            assertEquals(grid.nodeClosestTo(e[i], n[i], 300), result[i]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> grid.nodesClosestTo(e, n, 300, new int[1]));
+    }
+
+    @Test
+    void nodeGridWorksOnEmptyGraph() {
+        var grid = NodeGrid.of(new GraphNodes(IntBuffer.allocate(0)));
+        assertEquals(-1, grid.nodeClosestTo(2_600_000, 1_200_000, 1_000));
+        assertEquals(0, grid.nodesClosestTo(2_600_000, 1_200_000, 1_000, new int[3], new double[3]));
+    }
+}
@@ -0,0 +1,71 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.projection.PointCh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import static ch.epfl.javelo.TestRandomizer.newRandom;
+
+// Compares the nearest-node searches on the lausanne nodes and sectors:
+// the sector scan reading the node buffer, the sector scan over NodeCoordinates and the NodeGrid.
+// Run with: java ch.epfl.javelo.data.NodeScanBenchmark [dataDirectory]
+public final class NodeScanBenchmark {
+    private static final int QUERIES = 50_000;
+    private static final int ROUNDS = 5;
+    private static final double SEARCH_DISTANCE = 500;
+
+    public static void main(String[] args) throws IOException {
+        var basePath = Path.of(args.length > 0 ? args[0] : "lausanne");
+        var nodes = new GraphNodes(map(basePath.resolve("nodes.bin")).asIntBuffer());
+        var sectors = new GraphSectors(map(basePath.resolve("sectors.bin")));
+
+        var rng = newRandom();
+        var points = new PointCh[QUERIES];
+        for (int i = 0; i < QUERIES; i += 1) {
+            var nodeId = rng.nextInt(nodes.count());
+            points[i] = new PointCh(nodes.nodeE(nodeId) + 400 * (rng.nextDouble() - 0.5),
+                    nodes.nodeN(nodeId) + 400 * (rng.nextDouble() - 0.5));
+        }
+
+        var buffered = newGraph(nodes, sectors);
+        var coordinates = newGraph(nodes, sectors);
+        coordinates.nodeCoordinates();
+        var grid = newGraph(nodes, sectors);
+        grid.nodeGrid();
+
+        var expected = run("sector scan, node buffer", points, p -> buffered.nodeClosestTo(p, SEARCH_DISTANCE));
+        var actual1 = run("sector scan, NodeCoordinates", points, p -> coordinates.nodeClosestTo(p, SEARCH_DISTANCE));
+        var actual2 = run("NodeGrid", points, p -> grid.nodeClosestTo(p, SEARCH_DISTANCE));
+        System.out.printf("same results: %b, %b%n", expected == actual1, expected == actual2);
+    }
+
+    private static Graph newGraph(GraphNodes nodes, GraphSectors sectors) {
+        return new Graph(nodes, sectors, new GraphEdges(ByteBuffer.allocate(0),
+                ByteBuffer.allocate(0).asIntBuffer(), ByteBuffer.allocate(0).asShortBuffer()), List.of());
+    }
+
+    // Returns a checksum of the results, after printing the mean time of the best round.
+    private static long run(String name, PointCh[] points, ToIntFunction<PointCh> query) {
+        var best = Long.MAX_VALUE;
+        var checksum = 0L;
+        for (int round = 0; round < ROUNDS; round += 1) {
+            checksum = 0;
+            var start = System.nanoTime();
+            for (PointCh point : points) checksum = 31 * checksum + query.applyAsInt(point);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-30s %8.0f ns/query%n", name, (double) best / points.length);
+        return checksum;
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ch.epfl.javelo.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+
+import static ch.epfl.javelo.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.javelo.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsmNodeIndexTest {
+
+    private static LongBuffer randomOsmIds(int count) {
+        var rng = newRandom();
+        var ids = LongBuffer.allocate(count);
+        var id = 0L;
+        for (int i = 0; i < count; i += 1) {
+            // Unevenly spread identities, with a few large gaps
+            id += 1 + (rng.nextInt(100) == 0 ? rng.nextInt(1_000_000_000) : rng.nextInt(20));
+            ids.put(i, id);
+        }
+        for (int i = count - 1; i > 0; i -= 1) {
+            var j = rng.nextInt(i + 1);
+            var tmp = ids.get(i);
+            ids.put(i, ids.get(j));
+            ids.put(j, tmp);
+        }
+        return ids;
+    }
+
+    @Test
+    void osmNodeIndexNodeIdWorksOnRandomIds() {
+        var osmIds = randomOsmIds(5_000);
+        var index = OsmNodeIndex.of(osmIds);
+        assertEquals(5_000, index.count());
+        for (int nodeId = 0; nodeId < osmIds.capacity(); nodeId += 1)
+            assertEquals(nodeId, index.nodeId(osmIds.get(nodeId)));
+
+        var rng = newRandom();
+        var known = new HashSet<Long>();
+        for (int i = 0; i < osmIds.capacity(); i += 1) known.add(osmIds.get(i));
+        for (int i = 0; i < RANDOM_ITERATIONS; i += 1) {
+            var id = rng.nextLong(0, 60_000_000_000L);
+            if (!known.contains(id)) assertEquals(-1, index.nodeId(id));
+        }
+        assertEquals(-1, index.nodeId(0));
+        assertEquals(-1, index.nodeId(Long.MAX_VALUE));
+        assertEquals(-1, OsmNodeIndex.of(LongBuffer.allocate(0)).nodeId(1));
+    }
+
+    @Test
+    void osmNodeIndexNodeIdsWorksInBulk() {
+        var osmIds = randomOsmIds(1_000);
+        var index = OsmNodeIndex.of(osmIds);
+        var queries = new long[]{osmIds.get(17), -4, osmIds.get(999), osmIds.get(0)};
+        var destination = new int[5];
+        index.nodeIds(queries, destination);
+        assertArrayEquals(new int[]{17, -1, 999, 0, 0}, destination);
+        assertThrows(IllegalArgumentException.class, () -> index.nodeIds(queries, new int[3]));
+    }
+
+    @Test
+    void osmNodeIndexOfThrowsOnDuplicateIds() {
+        assertThrows(IllegalArgumentException.class, () -> OsmNodeIndex.of(LongBuffer.wrap(new long[]{3, 8, 3})));
+    }
+
+    @Test
+    void osmNodeIndexWriteToAndLoadFromWork() throws IOException {
+        var osmIds = randomOsmIds(2_000);
+        var index = OsmNodeIndex.of(osmIds);
+        var path = Files.createTempFile("osm-index", ".bin");
+        try {
+            index.writeTo(path);
+            var loaded = OsmNodeIndex.loadFrom(path);
+            assertEquals(index.count(), loaded.count());
+            for (int nodeId = 0; nodeId < osmIds.capacity(); nodeId += 1)
+                assertEquals(nodeId, loaded.nodeId(osmIds.get(nodeId)));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void osmNodeIndexWorksOnLausanneIds() throws IOException {
+        LongBuffer osmIds;
+        try (var channel = FileChannel.open(Path.of("lausanne/nodes_osmid.bin"))) {
+            osmIds = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+        }
+        var index = OsmNodeIndex.of(osmIds);
+        for (int nodeId = 0; nodeId < osmIds.capacity(); nodeId += 1)
+            assertEquals(nodeId, index.nodeId(osmIds.get(nodeId)));
+        assertEquals(109350, index.nodeId(3389153419L));
+    }
+
+    @Test
+    void graphMapsOsmIdsBothWays() {
+        var nodes = new GraphNodes(IntBuffer.allocate(3 * 3));
+        var edges = new GraphEdges(ByteBuffer.allocate(0), IntBuffer.allocate(0), ShortBuffer.allocate(0));
+        var sectors = new GraphSectors(ByteBuffer.allocate(128 * 128 * 6));
+        var graph = new Graph(nodes, sectors, edges, List.of(), LongBuffer.wrap(new long[]{900, 12, 345}));
+        assertEquals(12, graph.nodeOsmId(1));
+        assertEquals(2, graph.nodeIdOfOsmId(345));
+        assertEquals(-1, graph.nodeIdOfOsmId(346));
+
+        var withoutIds = new Graph(nodes, sectors, edges, List.of());
+        assertEquals(-1, withoutIds.nodeOsmId(1));
+        assertEquals(-1, withoutIds.nodeIdOfOsmId(12));
+        assertThrows(IllegalArgumentException.class,
+                () -> new Graph(nodes, sectors, edges, List.of(), LongBuffer.allocate(2)));
+    }
+}
@@ -0,0 +1,154 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.routing.CityBikeCF;
+import ch.epfl.javelo.routing.RouteComputer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedGraphTest {
+    private static final int SIDE = 12;
+
+    // Imports a grid of SIDE x SIDE nodes about 450 m apart, spanning several sectors,
+    // whose rows and columns are streets
+    private static Path importGrid() throws IOException {
+        var osm = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<osm version=\"0.6\">\n");
+        for (int i = 0; i < SIDE; i++) {
+            for (int j = 0; j < SIDE; j++) {
+                osm.append(String.format(Locale.ROOT, " <node id=\"%d\" lat=\"%.6f\" lon=\"%.6f\"/>%n",
+                        1 + i * SIDE + j, 46.5 + 0.004 * i, 6.6 + 0.006 * j));
+            }
+        }
+        for (int k = 0; k < SIDE; k++) {
+            osm.append(String.format(" <way id=\"%d\">%n", 1_000 + k));
+            for (int j = 0; j < SIDE; j++) osm.append(String.format("  <nd ref=\"%d\"/>%n", 1 + k * SIDE + j));
+            osm.append("  <tag k=\"highway\" v=\"residential\"/>\n </way>\n");
+            osm.append(String.format(" <way id=\"%d\">%n", 2_000 + k));
+            for (int i = 0; i < SIDE; i++) osm.append(String.format("  <nd ref=\"%d\"/>%n", 1 + i * SIDE + k));
+            osm.append("  <tag k=\"highway\" v=\"track\"/>\n <tag k=\"surface\" v=\"gravel\"/>\n </way>\n");
+        }
+        osm.append("</osm>\n");
+        var osmFile = TestGraphs.temporaryDirectory().resolve("grid.osm");
+        Files.writeString(osmFile, osm);
+        osmFile.toFile().deleteOnExit();
+        return TestGraphs.importGraph(osmFile,
+                (e, n) -> 600 + 40 * Math.sin(e / 300) + (n > 1_153_000 ? 0.2 * (n - 1_153_000) : 0));
+    }
+
+    private static void assertSameGraph(Graph expected, PagedGraph actual) {
+        assertEquals(expected.nodeCount(), actual.nodeCount());
+        for (int nodeId = 0; nodeId < expected.nodeCount(); nodeId++) {
+            assertEquals(expected.nodePoint(nodeId), actual.nodePoint(nodeId));
+            assertEquals(nodeId, actual.nodeClosestTo(expected.nodePoint(nodeId), 10));
+            assertEquals(expected.nodeOutDegree(nodeId), actual.nodeOutDegree(nodeId));
+            for (int i = 0; i < expected.nodeOutDegree(nodeId); i++) {
+                var edgeId = expected.nodeOutEdgeId(nodeId, i);
+                assertEquals(edgeId, actual.nodeOutEdgeId(nodeId, i));
+                assertEquals(expected.edgeTargetNodeId(edgeId), actual.edgeTargetNodeId(edgeId));
+                assertEquals(expected.edgeIsInverted(edgeId), actual.edgeIsInverted(edgeId));
+                assertEquals(expected.edgeAttributes(edgeId), actual.edgeAttributes(edgeId));
+                assertEquals(expected.edgeLength(edgeId), actual.edgeLength(edgeId));
+                assertEquals(expected.edgeElevationGain(edgeId), actual.edgeElevationGain(edgeId));
+                var expectedProfile = expected.edgeProfile(edgeId);
+                var actualProfile = actual.edgeProfile(edgeId);
+                for (double x = 0; x <= expected.edgeLength(edgeId); x += 3)
+                    assertEquals(expectedProfile.applyAsDouble(x), actualProfile.applyAsDouble(x));
+            }
+        }
+    }
+
+    @Test
+    void pagedGraphReadsTheSameDataAsGraph() throws IOException {
+        var directory = importGrid();
+        var graph = Graph.loadFrom(directory);
+        var large = PagedGraph.loadFrom(directory, 64 << 20);
+        assertEquals(1, large.pageCount());
+        assertSameGraph(graph, large);
+        assertEquals(0, large.statistics().evictions());
+        assertEquals(1, large.statistics().faults());
+
+        var small = PagedGraph.loadFrom(directory, 1, 1);
+        assertTrue(small.pageCount() > 4);
+        assertSameGraph(graph, small);
+        var statistics = small.statistics();
+        // The nodes are read in order and each edge is in the page of its node
+        assertEquals(small.pageCount(), statistics.faults());
+        assertEquals(statistics.faults() - 1, statistics.evictions());
+        assertEquals(1, statistics.residentPages());
+        assertTrue(statistics.hits() > statistics.faults());
+    }
+
+    @Test
+    void pagedGraphRoutesLikeGraph() throws IOException {
+        var directory = importGrid();
+        var graph = Graph.loadFrom(directory);
+        var paged = PagedGraph.loadFrom(directory, 8_000, 1);
+        var start = graph.nodeClosestTo(graph.nodePoint(0), 1);
+        var end = graph.nodeCount() - 1;
+        var expected = new RouteComputer(graph, new CityBikeCF(graph)).bestRouteBetween(start, end);
+        var actual = new RouteComputer(paged, new CityBikeCF(paged)).bestRouteBetween(start, end);
+        assertEquals(expected.length(), actual.length());
+        assertEquals(expected.points(), actual.points());
+        for (double x = 0; x <= expected.length(); x += 10)
+            assertEquals(expected.elevationAt(x), actual.elevationAt(x));
+    }
+
+    @Test
+    void pagedGraphKeepsItsPagesWithinTheBudget() throws IOException {
+        var directory = importGrid();
+        // With a budget of one byte, a single page is kept in memory
+        var onePage = PagedGraph.loadFrom(directory, 1, 1);
+        var largestPage = 0L;
+        for (int nodeId = 0; nodeId < onePage.nodeCount(); nodeId++) {
+            onePage.nodePoint(nodeId);
+            largestPage = Math.max(largestPage, onePage.statistics().residentBytes());
+        }
+        var budget = 3 * largestPage;
+        var graph = PagedGraph.loadFrom(directory, budget, 1);
+        for (int round = 0; round < 3; round++) {
+            for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId += 7) {
+                graph.nodePoint(nodeId);
+                assertTrue(graph.statistics().residentBytes() <= budget);
+            }
+        }
+        var statistics = graph.statistics();
+        assertTrue(statistics.evictions() > 0);
+        assertTrue(statistics.residentPages() > 1);
+
+        graph.nodePoint(0);
+        var faults = graph.statistics().faults();
+        var hits = graph.statistics().hits();
+        graph.nodePoint(0);
+        assertEquals(faults, graph.statistics().faults());
+        assertEquals(hits + 1, graph.statistics().hits());
+        assertThrows(IllegalArgumentException.class, () -> PagedGraph.loadFrom(directory, 0));
+    }
+
+    @Test
+    void pagedGraphNeverEvictsPinnedPages() throws IOException {
+        var directory = importGrid();
+        var graph = PagedGraph.loadFrom(directory, 1, 1);
+        var corner = Graph.loadFrom(directory).nodePoint(0);
+        var pin = graph.pinArea(corner, 10);
+        var faults = graph.statistics().faults();
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) graph.nodePoint(nodeId);
+        var afterScan = graph.statistics().faults();
+        assertTrue(afterScan > faults);
+        graph.nodePoint(0);
+        assertEquals(afterScan, graph.statistics().faults());
+        assertEquals(2, graph.statistics().residentPages());
+        pin.close();
+        pin.close();
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) graph.nodePoint(nodeId);
+        assertEquals(1, graph.statistics().residentPages());
+        var unpinnedFaults = graph.statistics().faults();
+        graph.nodePoint(0);
+        assertEquals(unpinnedFaults + 1, graph.statistics().faults());
+    }
+}
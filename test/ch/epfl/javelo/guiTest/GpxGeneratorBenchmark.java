@@ -0,0 +1,67 @@
+package ch.epfl.javelo.guiTest;
+
+import ch.epfl.javelo.gui.GpxGenerator;
+import ch.epfl.javelo.routing.ElevationProfile;
+import ch.epfl.javelo.routing.ElevationProfileComputer;
+import ch.epfl.javelo.routing.Route;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+// Compares the time needed to write the GPX file of a route of about 1,000 km by building its document
+// and transforming it, as writeGpx used to do, and by writing it point after point, and checks that
+// both files are identical.
+// Run with: java ch.epfl.javelo.guiTest.GpxGeneratorBenchmark
+public final class GpxGeneratorBenchmark {
+    private static final int EDGES = 50_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException, TransformerException {
+        Route route = GpxGeneratorTest.randomRoute(new SplittableRandom(345230), EDGES);
+        ElevationProfile profile = ElevationProfileComputer.elevationProfile(route, 5);
+        System.out.printf("%,.0f km, %,d points%n", route.length() / 1_000, route.points().size());
+
+        var documentFile = Files.createTempFile("javelo-document", ".gpx");
+        var streamFile = Files.createTempFile("javelo-stream", ".gpx");
+        try {
+            var bestDocument = Long.MAX_VALUE;
+            var bestStream = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round += 1) {
+                var start = System.nanoTime();
+                writeDocument(documentFile, route, profile);
+                bestDocument = Math.min(bestDocument, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                GpxGenerator.writeGpx(streamFile.toString(), route, profile);
+                bestStream = Math.min(bestStream, System.nanoTime() - start);
+            }
+            System.out.printf("%-10s %10.1f ms%n", "document", bestDocument / 1e6);
+            System.out.printf("%-10s %10.1f ms%n", "stream", bestStream / 1e6);
+            System.out.printf("%,d bytes, same files: %b%n", Files.size(streamFile),
+                    Files.mismatch(documentFile, streamFile) == -1);
+        } finally {
+            Files.delete(documentFile);
+            Files.delete(streamFile);
+        }
+    }
+
+    // The former writeGpx, which builds the whole document before transforming it
+    private static void writeDocument(Path file, Route route, ElevationProfile profile)
+            throws IOException, TransformerException {
+        try (Writer writer = new FileWriter(file.toFile())) {
+            Transformer transformer = TransformerFactory.newDefaultInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            transformer.transform(new DOMSource(GpxGenerator.createGpx(route, profile)), new StreamResult(writer));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ch.epfl.javelo.guiTest;
+
+import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.gui.GpxGenerator;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.routing.Edge;
+import ch.epfl.javelo.routing.ElevationProfile;
+import ch.epfl.javelo.routing.ElevationProfileComputer;
+import ch.epfl.javelo.routing.MultiRoute;
+import ch.epfl.javelo.routing.Route;
+import ch.epfl.javelo.routing.SingleRoute;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GpxGeneratorTest {
+    private static final double E = 2_600_000;
+    private static final double N = 1_200_000;
+
+    // A route of consecutive edges going back and forth between east and west, with varying profiles
+    public static Route randomRoute(SplittableRandom random, int edgeCount) {
+        var edges = new ArrayList<Edge>();
+        var from = new PointCh(E, N);
+        var direction = 1;
+        for (int i = 0; i < edgeCount; i++) {
+            if (Math.abs(from.e() - E) > 100_000) direction = from.e() > E ? -1 : 1;
+            var to = new PointCh(from.e() + direction * random.nextDouble(1, 40),
+                    from.n() + random.nextDouble(-20, 20));
+            var length = from.distanceTo(to);
+            var samples = new float[2 + random.nextInt(6)];
+            for (int j = 0; j < samples.length; j++) samples[j] = (float) random.nextDouble(400, 1_200);
+            edges.add(new Edge(i, i + 1, from, to, length, Functions.sampled(samples, length)));
+            from = to;
+        }
+        return new SingleRoute(edges);
+    }
+
+    // The text of the document of createGpx, transformed as writeGpx used to do it
+    public static String transformedDocument(Route route, ElevationProfile profile) throws TransformerException {
+        Transformer transformer = TransformerFactory.newDefaultInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        var writer = new StringWriter();
+        transformer.transform(new DOMSource(GpxGenerator.createGpx(route, profile)), new StreamResult(writer));
+        return writer.toString();
+    }
+
+    @Test
+    void writeGpxProducesTheTransformedDocument() throws IOException, TransformerException {
+        var random = new SplittableRandom(345230);
+        for (int r = 0; r < 20; r++) {
+            var route = randomRoute(random, 1 + random.nextInt(2_000));
+            var profile = ElevationProfileComputer.elevationProfile(route, 5);
+            var writer = new StringWriter();
+            GpxGenerator.writeGpx(writer, route, profile);
+            assertEquals(transformedDocument(route, profile), writer.toString());
+        }
+    }
+
+    @Test
+    void writeGpxWritesAndClosesTheFile() throws IOException, TransformerException {
+        var random = new SplittableRandom(346365);
+        var first = randomRoute(random, 300);
+        var route = new MultiRoute(List.of((SingleRoute) first, (SingleRoute) first));
+        var profile = ElevationProfileComputer.elevationProfile(route, 5);
+        var file = Files.createTempFile("javelo", ".gpx");
+        try {
+            GpxGenerator.writeGpx(file.toString(), route, profile);
+            assertEquals(transformedDocument(route, profile), Files.readString(file, StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
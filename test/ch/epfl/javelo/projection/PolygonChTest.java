@@ -0,0 +1,42 @@
+package ch.epfl.javelo.projection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolygonChTest {
+    private static final double E = 2_600_000;
+    private static final double N = 1_200_000;
+
+    // A U shape open to the north: two 100 m wide arms joined by a 100 m high base.
+    private static final PolygonCh U = new PolygonCh(List.of(
+            new PointCh(E, N), new PointCh(E + 300, N), new PointCh(E + 300, N + 300),
+            new PointCh(E + 200, N + 300), new PointCh(E + 200, N + 100), new PointCh(E + 100, N + 100),
+            new PointCh(E + 100, N + 300), new PointCh(E, N + 300)));
+
+    @Test
+    void polygonChConstructorThrowsOnTooFewVertices() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PolygonCh(List.of(new PointCh(E, N), new PointCh(E + 1, N))));
+    }
+
+    @Test
+    void polygonChContainsWorksOnConcavePolygon() {
+        assertTrue(U.contains(E + 50, N + 250));
+        assertTrue(U.contains(E + 150, N + 50));
+        assertTrue(U.contains(E + 250, N + 250));
+        assertFalse(U.contains(E + 150, N + 200));
+        assertFalse(U.contains(E - 10, N + 50));
+        assertFalse(U.contains(E + 150, N + 310));
+    }
+
+    @Test
+    void polygonChBoundsAreTheOnesOfItsVertices() {
+        assertEquals(E, U.minE());
+        assertEquals(N, U.minN());
+        assertEquals(E + 300, U.maxE());
+        assertEquals(N + 300, U.maxN());
+    }
+}
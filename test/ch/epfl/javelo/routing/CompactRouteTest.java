@@ -0,0 +1,172 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.projection.PointCh;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRouteTest {
+    private static final double E = 2_600_000;
+    private static final double N = 1_200_000;
+    private static final int SIDE = 12;
+
+    // A grid of SIDE x SIDE nodes 100 m apart with a varying elevation, and an isolated node 0
+    private static Graph grid() {
+        var points = new double[SIDE * SIDE + 1][];
+        points[0] = new double[]{E + 5_000, N + 5_000};
+        var pairs = new ArrayList<int[]>();
+        for (int y = 0; y < SIDE; y++) {
+            for (int x = 0; x < SIDE; x++) {
+                var id = 1 + y * SIDE + x;
+                points[id] = new double[]{E + 100 * x + 7 * y, N + 100 * y + 3 * x};
+                if (x + 1 < SIDE) pairs.add(new int[]{id, id + 1});
+                if (y + 1 < SIDE) pairs.add(new int[]{id, id + SIDE});
+            }
+        }
+        return TestGraphs.of(points, pairs.toArray(int[][]::new),
+                (e, n) -> 500 + 20 * Math.sin((e - E) / 150) + 10 * Math.cos((n - N) / 90));
+    }
+
+    private static SingleRoute singleRouteOf(Graph graph, int[] edgeIds, int[] fromNodeIds) {
+        var edges = new ArrayList<Edge>();
+        for (int i = 0; i < edgeIds.length; i++)
+            edges.add(Edge.of(graph, edgeIds[i], fromNodeIds[i], graph.edgeTargetNodeId(edgeIds[i])));
+        return new SingleRoute(edges);
+    }
+
+    @Test
+    void compactRouteBehavesLikeTheSingleRouteOfItsEdges() {
+        var graph = grid();
+        var random = new SplittableRandom(345230);
+        for (int r = 0; r < 10; r++) {
+            var edgeCount = 1 + random.nextInt(60);
+            var edgeIds = new int[edgeCount];
+            var fromNodeIds = new int[edgeCount];
+            var nodeId = 1 + random.nextInt(SIDE * SIDE);
+            for (int i = 0; i < edgeCount; i++) {
+                var edgeId = graph.nodeOutEdgeId(nodeId, random.nextInt(graph.nodeOutDegree(nodeId)));
+                edgeIds[i] = edgeId;
+                fromNodeIds[i] = nodeId;
+                nodeId = graph.edgeTargetNodeId(edgeId);
+            }
+            var compact = new CompactRoute(graph, fromNodeIds[0], edgeIds);
+            var single = singleRouteOf(graph, edgeIds, fromNodeIds);
+
+            assertEquals(single.length(), compact.length());
+            assertEquals(single.points(), compact.points());
+            assertEquals(single.edges().size(), compact.edges().size());
+            assertSame(compact.edges(), compact.edges());
+            for (int i = 0; i < edgeCount; i++) {
+                var expected = single.edges().get(i);
+                var actual = compact.edges().get(i);
+                assertEquals(expected.fromNodeId(), actual.fromNodeId());
+                assertEquals(expected.toNodeId(), actual.toNodeId());
+                assertEquals(expected.fromPoint(), actual.fromPoint());
+                assertEquals(expected.toPoint(), actual.toPoint());
+                assertEquals(expected.length(), actual.length());
+            }
+            for (int i = 0; i < 200; i++) {
+                var position = random.nextDouble(-20, single.length() + 20);
+                assertEquals(single.pointAt(position), compact.pointAt(position));
+                assertEquals(single.elevationAt(position), compact.elevationAt(position));
+                assertEquals(single.nodeClosestTo(position), compact.nodeClosestTo(position));
+                var point = new PointCh(E + random.nextDouble(-100, 1_300), N + random.nextDouble(-100, 1_300));
+                assertEquals(single.pointClosestTo(point), compact.pointClosestTo(point));
+            }
+            assertArrayEquals(edgeIds, compact.edgeIds());
+        }
+    }
+
+    @Test
+    void multiRouteOfCompactRoutesBehavesLikeTheOneOfTheirSingleRoutes() {
+        var graph = grid();
+        var random = new SplittableRandom(346365);
+        var compacts = new ArrayList<Route>();
+        var singles = new ArrayList<Route>();
+        var nodeId = 1 + random.nextInt(SIDE * SIDE);
+        for (int s = 0; s < 4; s++) {
+            var edgeCount = 1 + random.nextInt(20);
+            var edgeIds = new int[edgeCount];
+            var fromNodeIds = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                var edgeId = graph.nodeOutEdgeId(nodeId, random.nextInt(graph.nodeOutDegree(nodeId)));
+                edgeIds[i] = edgeId;
+                fromNodeIds[i] = nodeId;
+                nodeId = graph.edgeTargetNodeId(edgeId);
+            }
+            compacts.add(new CompactRoute(graph, fromNodeIds[0], edgeIds));
+            singles.add(singleRouteOf(graph, edgeIds, fromNodeIds));
+        }
+        var compact = new MultiRoute(List.of(new MultiRoute(compacts.subList(0, 2)), compacts.get(2), compacts.get(3)));
+        var single = new MultiRoute(singles);
+
+        assertEquals(single.length(), compact.length());
+        assertEquals(single.points(), compact.points());
+        for (int i = 0; i < 200; i++) {
+            var position = random.nextDouble(-20, single.length() + 20);
+            assertEquals(single.indexOfSegmentAt(position), compact.indexOfSegmentAt(position));
+            assertEquals(single.pointAt(position), compact.pointAt(position));
+            assertEquals(single.elevationAt(position), compact.elevationAt(position));
+            assertEquals(single.nodeClosestTo(position), compact.nodeClosestTo(position));
+            var point = new PointCh(E + random.nextDouble(-100, 1_300), N + random.nextDouble(-100, 1_300));
+            assertEquals(single.pointClosestTo(point), compact.pointClosestTo(point));
+        }
+        assertEquals(single.edges().size(), compact.edges().size());
+        for (int i = 0; i < single.edges().size(); i++)
+            assertEquals(single.edges().get(i).toNodeId(), compact.edges().get(i).toNodeId());
+    }
+
+    @Test
+    void elevationProfileOfACompactRouteIsTheOneOfItsSingleRoute() {
+        var graph = grid();
+        var random = new SplittableRandom(1_234);
+        var edgeCount = 40;
+        var edgeIds = new int[edgeCount];
+        var fromNodeIds = new int[edgeCount];
+        var nodeId = 1 + random.nextInt(SIDE * SIDE);
+        for (int i = 0; i < edgeCount; i++) {
+            var edgeId = graph.nodeOutEdgeId(nodeId, random.nextInt(graph.nodeOutDegree(nodeId)));
+            edgeIds[i] = edgeId;
+            fromNodeIds[i] = nodeId;
+            nodeId = graph.edgeTargetNodeId(edgeId);
+        }
+        var single = singleRouteOf(graph, edgeIds, fromNodeIds);
+        var compact = new CompactRoute(graph, fromNodeIds[0], edgeIds);
+        assertArrayEquals(single.edgePositions(), compact.edgePositions());
+        var expected = ElevationProfileComputer.elevationProfile(single, 7);
+        for (Route route : List.of(compact, new MultiRoute(List.of(compact)))) {
+            var profile = ElevationProfileComputer.elevationProfile(route, 7);
+            for (int i = 0; i < 500; i++) {
+                var position = random.nextDouble(0, single.length());
+                assertEquals(expected.elevationAt(position), profile.elevationAt(position), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void compactRouteIsReturnedByRouteComputer() {
+        var graph = grid();
+        var route = new RouteComputer(graph, new CityBikeCF(graph)).bestRouteBetween(1, SIDE * SIDE);
+        assertTrue(route instanceof CompactRoute);
+        var compact = (CompactRoute) route;
+        assertEquals(2 * (SIDE - 1), compact.edgeIds().length);
+        assertEquals(graph.nodePoint(1), route.points().get(0));
+        assertEquals(graph.nodePoint(SIDE * SIDE), route.points().get(route.points().size() - 1));
+        assertEquals(SIDE * SIDE, route.nodeClosestTo(route.length()));
+    }
+
+    @Test
+    void compactRouteConstructorThrowsOnInvalidArguments() {
+        var graph = grid();
+        assertThrows(IllegalArgumentException.class, () -> new CompactRoute(graph, 1, new int[0]));
+        assertThrows(IllegalArgumentException.class, () -> new CompactRoute(graph, -1, new int[]{0}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CompactRoute(graph, graph.nodeCount(), new int[]{0}));
+    }
+}
@@ -0,0 +1,95 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.projection.PointCh;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static ch.epfl.javelo.Math2.interpolate;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ElevationProfileComputerSweepTest {
+    private static final double E = 2_600_000;
+    private static final double N = 1_200_000;
+
+    // Edges whose profiles are sometimes missing, sometimes partly missing
+    private static List<Edge> randomEdges(SplittableRandom random, int count) {
+        var edges = new ArrayList<Edge>();
+        var from = new PointCh(E, N);
+        for (int i = 0; i < count; i++) {
+            var to = new PointCh(from.e() + random.nextDouble(1, 80), from.n() + random.nextDouble(-40, 40));
+            var length = from.distanceTo(to);
+            var kind = random.nextInt(4);
+            var samples = new float[2 + random.nextInt(8)];
+            for (int j = 0; j < samples.length; j++)
+                samples[j] = kind == 1 && random.nextBoolean() ? Float.NaN : (float) random.nextDouble(400, 600);
+            var profile = kind == 0 ? Functions.constant(Double.NaN) : Functions.sampled(samples, length);
+            edges.add(new Edge(i + 1, i + 2, from, to, length, profile));
+            from = to;
+        }
+        return edges;
+    }
+
+    // The computation done before the sampling went over the edges in a single pass
+    private static float[] expectedSamples(Route route, double maxStepLength) {
+        var nbSamples = (int) Math.ceil(route.length() / maxStepLength) + 1;
+        var spaceBetween = route.length() / (nbSamples - 1);
+        var samples = new float[nbSamples];
+        for (int i = 0; i < nbSamples; i++) samples[i] = (float) route.elevationAt(i * spaceBetween);
+        var valid = new ArrayList<Integer>();
+        for (int i = 0; i < nbSamples; i++) if (!Float.isNaN(samples[i])) valid.add(i);
+        if (valid.isEmpty()) return new float[nbSamples];
+        for (int i = 0; i < valid.get(0); i++) samples[i] = samples[valid.get(0)];
+        for (int i = valid.get(valid.size() - 1) + 1; i < nbSamples; i++) samples[i] = samples[valid.get(valid.size() - 1)];
+        for (int k = 1; k < valid.size(); k++) {
+            int a = valid.get(k - 1), b = valid.get(k);
+            for (int j = 1; j < b - a; j++) samples[a + j] = (float) interpolate(samples[a], samples[b], (double) j / (b - a));
+        }
+        return samples;
+    }
+
+    private static void assertSameProfile(float[] expected, ElevationProfile profile, double spaceBetween) {
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], (float) profile.elevationAt(i * spaceBetween), 1e-3);
+    }
+
+    @Test
+    void elevationProfileIsTheSameAsWhenSamplingEveryPosition() {
+        var random = new SplittableRandom(345230);
+        for (int r = 0; r < 30; r++) {
+            var edges = randomEdges(random, 1 + random.nextInt(100));
+            var middle = edges.size() / 2;
+            Route route = middle == 0 || random.nextBoolean()
+                    ? new SingleRoute(edges)
+                    : new MultiRoute(List.of(new SingleRoute(edges.subList(0, middle)),
+                    new SingleRoute(edges.subList(middle, edges.size()))));
+            var step = random.nextDouble(1, 20);
+            var expected = expectedSamples(route, step);
+            var profile = ElevationProfileComputer.elevationProfile(route, step);
+            assertSameProfile(expected, profile, route.length() / (expected.length - 1));
+        }
+    }
+
+    @Test
+    void elevationProfileIsTheSameWhenComputedInParallel() {
+        var random = new SplittableRandom(346365);
+        var edges = randomEdges(random, 3_000);
+        var route = new SingleRoute(edges);
+        var sequential = ElevationProfileComputer.elevationProfile(route, 2);
+        var parallel = ElevationProfileComputer.elevationProfile(route, 2, true);
+        assertEquals(sequential.length(), parallel.length());
+        assertEquals(sequential.minElevation(), parallel.minElevation());
+        assertEquals(sequential.maxElevation(), parallel.maxElevation());
+        assertEquals(sequential.totalAscent(), parallel.totalAscent());
+        assertEquals(sequential.totalDescent(), parallel.totalDescent());
+        for (int i = 0; i < 10_000; i++) {
+            var position = random.nextDouble(0, route.length());
+            assertEquals(sequential.elevationAt(position), parallel.elevationAt(position));
+        }
+        var expected = expectedSamples(route, 2);
+        assertSameProfile(expected, parallel, route.length() / (expected.length - 1));
+    }
+}
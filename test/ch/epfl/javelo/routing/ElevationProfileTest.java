@@ -2,7 +2,10 @@ package ch.epfl.javelo.routing;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.SplittableRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -134,5 +137,181 @@ public class ElevationProfileTest {
 //        assertEquals(4.1f, elevProf.elevationAt(1));
     }
 
+    @Test
+    void elevationsAtGivesTheElevationAtEveryPosition() {
+        float[] elevationSamples = {2f, 5.5f, 3f, 57f, 38f, 102f, 12.1f};
+        ElevationProfile elevProf = new ElevationProfile(10, elevationSamples);
+        double[] positions = {-1, 0, 0.7, 3.3, 5, 9.99, 10, 11};
+        float[] elevations = new float[positions.length];
+        elevProf.elevationsAt(positions, elevations);
+        for (int i = 0; i < positions.length; i++)
+            assertEquals((float) elevProf.elevationAt(positions[i]), elevations[i]);
+        assertThrows(IllegalArgumentException.class, () -> elevProf.elevationsAt(positions, new float[1]));
+    }
+
+    @Test
+    void concatenatedProfileCombinesTheStatisticsOfItsParts() {
+        ElevationProfile first = new ElevationProfile(10, new float[]{100, 110, 105});
+        ElevationProfile second = new ElevationProfile(4, new float[]{107, 90});
+        ElevationProfile third = new ElevationProfile(6, new float[]{90, 95, 100, 130});
+        ElevationProfile profile = ElevationProfile.concat(List.of(ElevationProfile.concat(List.of(first, second)), third));
+        ElevationProfile whole = new ElevationProfile(20, new float[]{100, 110, 105, 107, 90, 90, 95, 100, 130});
+
+        assertEquals(20, profile.length());
+        assertEquals(90, profile.minElevation());
+        assertEquals(130, profile.maxElevation());
+        assertEquals(whole.totalAscent(), profile.totalAscent(), 1e-9);
+        assertEquals(whole.totalDescent(), profile.totalDescent(), 1e-9);
+        assertEquals(100, profile.elevationAt(-1));
+        assertEquals(107.5, profile.elevationAt(7.5));
+        assertEquals(102.75, profile.elevationAt(11));
+        assertEquals(96.25, profile.elevationAt(16.5));
+        assertEquals(130, profile.elevationAt(25));
+
+        double[] positions = {0, 5, 12, 19};
+        float[] elevations = new float[positions.length];
+        profile.elevationsAt(positions, elevations);
+        for (int i = 0; i < positions.length; i++)
+            assertEquals((float) profile.elevationAt(positions[i]), elevations[i]);
+
+        assertSame(first, ElevationProfile.concat(List.of(first)));
+        assertThrows(IllegalArgumentException.class, () -> ElevationProfile.concat(List.of()));
+    }
+
+    // The statistics of the points of the profile inside the range, computed one after the other
+    private static ProfileStatistics linearStatistics(ElevationProfile profile, float[] samples, double from, double to) {
+        var gap = profile.length() / (samples.length - 1);
+        var points = new ArrayList<double[]>();
+        points.add(new double[]{from, profile.elevationAt(from)});
+        for (int i = 0; i < samples.length; i++)
+            if (from < i * gap && i * gap < to) points.add(new double[]{i * gap, samples[i]});
+        points.add(new double[]{to, profile.elevationAt(to)});
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, ascent = 0, descent = 0;
+        double maxGrade = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < points.size(); i++) {
+            min = Math.min(min, points.get(i)[1]);
+            max = Math.max(max, points.get(i)[1]);
+            if (i > 0) {
+                var difference = points.get(i)[1] - points.get(i - 1)[1];
+                ascent += Math.max(0, difference);
+                descent += Math.max(0, -difference);
+            }
+        }
+        for (int i = 0; i + 1 < samples.length; i++) {
+            var pieceFrom = i * gap;
+            var pieceTo = (i + 1) * gap;
+            if ((pieceFrom < to && from < pieceTo) || (from == to && pieceFrom <= from && from <= pieceTo))
+                maxGrade = Math.max(maxGrade, (samples[i + 1] - samples[i]) / gap);
+        }
+        return new ProfileStatistics(min, max, ascent, descent, maxGrade);
+    }
+
+    @Test
+    void statisticsOfARangeAreTheOnesOfItsPoints() {
+        var random = new SplittableRandom(345230);
+        for (int r = 0; r < 200; r++) {
+            var samples = new float[2 + random.nextInt(300)];
+            for (int i = 0; i < samples.length; i++) samples[i] = (float) random.nextDouble(300, 700);
+            var profile = new ElevationProfile(random.nextDouble(10, 5_000), samples);
+            for (int q = 0; q < 20; q++) {
+                var a = random.nextDouble(0, profile.length());
+                var b = random.nextInt(10) == 0 ? a : random.nextDouble(0, profile.length());
+                var expected = linearStatistics(profile, samples, Math.min(a, b), Math.max(a, b));
+                var actual = profile.statistics(Math.min(a, b), Math.max(a, b));
+                assertEquals(expected.minElevation(), actual.minElevation(), 1e-3);
+                assertEquals(expected.maxElevation(), actual.maxElevation(), 1e-3);
+                assertEquals(expected.ascent(), actual.ascent(), 1e-2);
+                assertEquals(expected.descent(), actual.descent(), 1e-2);
+                assertEquals(expected.maxGrade(), actual.maxGrade(), 1e-6);
+            }
+            var whole = profile.statistics(-10, profile.length() + 10);
+            assertEquals(profile.minElevation(), whole.minElevation());
+            assertEquals(profile.maxElevation(), whole.maxElevation());
+            assertEquals(profile.totalAscent(), whole.ascent(), 1e-2);
+            assertEquals(profile.totalDescent(), whole.descent(), 1e-2);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ElevationProfile(1, new float[]{1, 2}).statistics(1, 0));
+    }
 
+    @Test
+    void statisticsOfAConcatenatedProfileCombineTheOnesOfItsParts() {
+        ElevationProfile first = new ElevationProfile(10, new float[]{100, 110, 105});
+        ElevationProfile second = new ElevationProfile(4, new float[]{107, 90});
+        ElevationProfile third = new ElevationProfile(6, new float[]{90, 95, 100, 130});
+        ElevationProfile profile = ElevationProfile.concat(List.of(first, second, third));
+
+        var whole = profile.statistics(0, 20);
+        assertEquals(new ProfileStatistics(90, 130, profile.totalAscent(), profile.totalDescent(), 15), whole);
+
+        var range = profile.statistics(7.5, 12);
+        assertEquals(98.5, range.minElevation(), 1e-9);
+        assertEquals(107.5, range.maxElevation(), 1e-9);
+        assertEquals(2, range.ascent(), 1e-9);
+        assertEquals(11, range.descent(), 1e-9);
+        assertEquals(-1, range.maxGrade(), 1e-6);
+
+        var point = profile.statistics(10, 10);
+        assertEquals(107, point.minElevation());
+        assertEquals(107, point.maxElevation());
+        assertEquals(0, point.ascent());
+    }
+
+    // The lowest and highest elevations at the bounds of the range and at the samples between them
+    private static float[] exactEnvelope(ElevationProfile profile, float[] samples, double from, double to) {
+        var gap = profile.length() / (samples.length - 1);
+        var min = (float) Math.min(profile.elevationAt(from), profile.elevationAt(to));
+        var max = (float) Math.max(profile.elevationAt(from), profile.elevationAt(to));
+        for (int i = 0; i < samples.length; i++) {
+            if (from <= i * gap && i * gap <= to) {
+                min = Math.min(min, samples[i]);
+                max = Math.max(max, samples[i]);
+            }
+        }
+        return new float[]{min, max};
+    }
+
+    @Test
+    void envelopesAreTheLowestAndHighestElevationsOfEachRange() {
+        var random = new SplittableRandom(346365);
+        for (int r = 0; r < 100; r++) {
+            var samples = new float[2 + random.nextInt(20_000)];
+            for (int i = 0; i < samples.length; i++) samples[i] = (float) random.nextDouble(200, 2_000);
+            var profile = new ElevationProfile(random.nextDouble(100, 200_000), samples);
+            var columns = 1 + random.nextInt(1_000);
+            var mins = new float[columns];
+            var maxs = new float[columns];
+            profile.envelopes(0, profile.length(), mins, maxs);
+            var width = profile.length() / columns;
+            for (int c = 0; c < columns; c++) {
+                var from = c * width;
+                var to = (c + 1) * width;
+                var exact = exactEnvelope(profile, samples, from, to);
+                assertEquals(exact[0], mins[c]);
+                assertEquals(exact[1], maxs[c]);
+            }
+        }
+    }
+
+    @Test
+    void envelopesOfAConcatenatedProfileCombineTheOnesOfItsParts() {
+        ElevationProfile first = new ElevationProfile(10, new float[]{100, 110, 105});
+        ElevationProfile second = new ElevationProfile(4, new float[]{107, 90});
+        ElevationProfile third = new ElevationProfile(6, new float[]{90, 95, 100, 130});
+        ElevationProfile profile = ElevationProfile.concat(List.of(first, second, third));
+
+        var mins = new float[4];
+        var maxs = new float[4];
+        profile.envelopes(0, 20, mins, maxs);
+        assertArrayEquals(new float[]{100, 105, 90, 92.5f}, mins);
+        assertArrayEquals(new float[]{110, 110, 107, 130}, maxs);
+
+        var whole = new float[1];
+        var wholeMax = new float[1];
+        profile.envelopes(0, 20, whole, wholeMax);
+        assertEquals(profile.minElevation(), whole[0]);
+        assertEquals(profile.maxElevation(), wholeMax[0]);
+
+        assertThrows(IllegalArgumentException.class, () -> profile.envelopes(0, 20, new float[2], new float[3]));
+        assertThrows(IllegalArgumentException.class, () -> profile.envelopes(5, 5, new float[2], new float[2]));
+    }
 }
@@ -0,0 +1,97 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.projection.PointCh;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlattenedMultiRouteTest {
+    private static final double E = 2_600_000;
+    private static final double N = 1_200_000;
+
+    private static List<Edge> chainedEdges(SplittableRandom random, int count) {
+        var edges = new ArrayList<Edge>();
+        var from = new PointCh(E, N);
+        for (int i = 0; i < count; i++) {
+            var to = new PointCh(from.e() + random.nextDouble(0, 100), from.n() + random.nextDouble(-50, 50));
+            var slope = random.nextDouble(-0.1, 0.1);
+            var start = 500 + i;
+            edges.add(new Edge(i, i + 1, from, to, from.distanceTo(to), x -> start + slope * x));
+            from = to;
+        }
+        return edges;
+    }
+
+    // Splits the edges in SingleRoutes of random sizes nested in MultiRoutes of random depths
+    private static Route nestedRoute(SplittableRandom random, List<Edge> edges, int depth) {
+        if (depth == 0 || edges.size() < 4) return new SingleRoute(edges);
+        var segments = new ArrayList<Route>();
+        int start = 0;
+        while (start < edges.size()) {
+            int end = Math.min(edges.size(), start + 1 + random.nextInt(edges.size() / 2));
+            segments.add(nestedRoute(random, edges.subList(start, end), depth - 1));
+            start = end;
+        }
+        return new MultiRoute(segments);
+    }
+
+    private static int singleRouteCount(Route route) {
+        return route.indexOfSegmentAt(route.length()) + 1;
+    }
+
+    @Test
+    void flattenedMultiRouteBehavesLikeTheSingleRouteOfItsEdges() {
+        var random = new SplittableRandom(345230);
+        for (int i = 0; i < 20; i++) {
+            var edges = chainedEdges(random, 1 + random.nextInt(300));
+            var single = new SingleRoute(edges);
+            var multi = new MultiRoute(List.of(nestedRoute(random, edges, 3), nestedRoute(random, edges, 2)));
+
+            assertEquals(2 * edges.size(), multi.edges().size());
+            assertEquals(2 * edges.size() + 1, multi.points().size());
+            assertEquals(2 * single.length(), multi.length(), 1e-6);
+            for (int j = 0; j < 200; j++) {
+                var position = random.nextDouble(-10, single.length());
+                var shifted = position + single.length();
+                var point = single.pointAt(position);
+                assertEquals(point.e(), multi.pointAt(position).e(), 1e-6);
+                assertEquals(point.n(), multi.pointAt(position).n(), 1e-6);
+                assertEquals(single.elevationAt(position), multi.elevationAt(position), 1e-6);
+                assertEquals(single.nodeClosestTo(position), multi.nodeClosestTo(position));
+                if (position > 0) {
+                    assertEquals(point.e(), multi.pointAt(shifted).e(), 1e-6);
+                    assertEquals(single.nodeClosestTo(position), multi.nodeClosestTo(shifted));
+                }
+            }
+        }
+    }
+
+    @Test
+    void flattenedMultiRouteIndexOfSegmentAtCountsTheNestedSingleRoutes() {
+        var random = new SplittableRandom(346365);
+        var edges = chainedEdges(random, 200);
+        var first = nestedRoute(random, edges.subList(0, 100), 3);
+        var second = nestedRoute(random, edges.subList(100, 200), 3);
+        var multi = new MultiRoute(List.of(first, second));
+        assertEquals(singleRouteCount(first) + singleRouteCount(second), singleRouteCount(multi));
+        assertEquals(singleRouteCount(first) - 1, multi.indexOfSegmentAt(first.length()));
+        assertEquals(singleRouteCount(first), multi.indexOfSegmentAt(first.length() + 1e-3));
+        assertEquals(0, multi.indexOfSegmentAt(-1));
+    }
+
+    @Test
+    void flattenedMultiRouteListsAreNotCopied() {
+        var random = new SplittableRandom(2022);
+        var edges = chainedEdges(random, 50);
+        var multi = new MultiRoute(List.of(new SingleRoute(edges.subList(0, 20)), new SingleRoute(edges.subList(20, 50))));
+        assertSame(multi.points(), multi.points());
+        assertSame(multi.edges(), multi.edges());
+        assertEquals(edges, multi.edges());
+        assertThrows(UnsupportedOperationException.class, () -> multi.points().clear());
+        assertEquals(new SingleRoute(edges).points(), multi.points());
+    }
+}
@@ -0,0 +1,42 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.data.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphWarmUpTest {
+
+    @Test
+    void graphPrefaultReadsTheMappedFiles() throws IOException {
+        var directory = TestGraphs.importedSmallLausanneDirectory();
+        var graph = TestGraphs.importedSmallLausanne();
+        for (var file : Graph.MAPPED_FILES)
+            assertEquals(Files.size(directory.resolve(file)), graph.prefault(file));
+        assertThrows(IllegalArgumentException.class, () -> graph.prefault("attributes.bin"));
+    }
+
+    @Test
+    void graphWarmUpReportsEachStep() {
+        var graph = TestGraphs.importedSmallLausanne();
+        var steps = new GraphWarmUp(GraphWarmUp.HOT_FILES, 5).run(graph);
+        assertEquals(GraphWarmUp.HOT_FILES.size() + 1, steps.size());
+        for (int i = 0; i < GraphWarmUp.HOT_FILES.size(); i++)
+            assertTrue(steps.get(i).name().startsWith(GraphWarmUp.HOT_FILES.get(i)));
+        assertTrue(steps.get(steps.size() - 1).name().startsWith("5 routes"));
+        for (var step : steps) assertTrue(step.nanos() >= 0);
+
+        var report = GraphWarmUp.report(steps);
+        assertEquals(steps.size() + 1, report.lines().count());
+        assertTrue(report.lines().reduce((a, b) -> b).orElseThrow().startsWith("total"));
+
+        assertTrue(new GraphWarmUp(List.of(), 0).run(graph).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new GraphWarmUp(List.of("unknown.bin"), 0));
+        assertThrows(IllegalArgumentException.class, () -> new GraphWarmUp(List.of(), -1));
+    }
+}
@@ -0,0 +1,127 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.RoutingGraph;
+import ch.epfl.javelo.projection.PointCh;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoadClosuresTest {
+    private static final double E = 2_600_000;
+    private static final double N = 1_200_000;
+
+    // 4 - 5 - 6
+    // |   |   |
+    // 1 - 2 - 3    and an isolated node 0, as RouteComputer cannot go through node 0
+    private static final Graph GRID = TestGraphs.of(new double[][]{
+            {E + 1_000, N + 1_000},
+            {E, N}, {E + 100, N}, {E + 200, N}, {E, N + 100}, {E + 100, N + 100}, {E + 200, N + 100}
+    }, new int[][]{{1, 2}, {2, 3}, {4, 5}, {5, 6}, {1, 4}, {2, 5}, {3, 6}}, null);
+
+    private static int edgeBetween(RoutingGraph graph, int fromNodeId, int toNodeId) {
+        for (int i = 0; i < graph.nodeOutDegree(fromNodeId); i++) {
+            var edgeId = graph.nodeOutEdgeId(fromNodeId, i);
+            if (graph.edgeTargetNodeId(edgeId) == toNodeId) return edgeId;
+        }
+        return -1;
+    }
+
+    @Test
+    void roadClosuresChangeTheComputedRoutes() {
+        var closures = new RoadClosures();
+        var computer = new RouteComputer(GRID, new ClosureCF(new CityBikeCF(GRID), closures));
+        assertEquals(200, computer.bestRouteBetween(1, 3).length(), 1e-9);
+
+        closures.penalize(10, edgeBetween(GRID, 2, 3));
+        var route = computer.bestRouteBetween(1, 3);
+        assertEquals(400, route.length(), 1e-9);
+        assertEquals(new PointCh(E + 100, N + 100), route.points().get(2));
+        // The penalty only applies in one direction
+        assertEquals(200, computer.bestRouteBetween(3, 1).length(), 1e-9);
+
+        closures.close(edgeBetween(GRID, 1, 2));
+        route = computer.bestRouteBetween(1, 3);
+        assertEquals(400, route.length(), 1e-9);
+        assertEquals(new PointCh(E, N + 100), route.points().get(1));
+
+        closures.reopen(edgeBetween(GRID, 1, 2), edgeBetween(GRID, 2, 3));
+        assertEquals(200, computer.bestRouteBetween(1, 3).length(), 1e-9);
+        assertEquals(0, closures.snapshot().size());
+        assertThrows(IllegalArgumentException.class, () -> closures.penalize(0.5, 0));
+    }
+
+    @Test
+    void roadClosuresSnapshotsAreNotAffectedByLaterChanges() {
+        var closures = new RoadClosures();
+        closures.close(3, 1, 3);
+        closures.penalize(2, 5);
+        var snapshot = closures.snapshot();
+        assertEquals(2, snapshot.version());
+        assertEquals(3, snapshot.size());
+
+        closures.reopen(1);
+        closures.penalize(4, 3, 7);
+        assertEquals(Double.POSITIVE_INFINITY, snapshot.factor(1));
+        assertEquals(Double.POSITIVE_INFINITY, snapshot.factor(3));
+        assertEquals(2, snapshot.factor(5));
+        assertEquals(1, snapshot.factor(7));
+
+        assertEquals(4, closures.snapshot().version());
+        assertEquals(1, closures.factor(1));
+        assertEquals(4, closures.factor(3));
+        assertEquals(2, closures.factor(5));
+        assertEquals(4, closures.factor(7));
+    }
+
+    @Test
+    void roadClosuresCanBeChangedWhileRoutesAreComputed() throws InterruptedException {
+        var closures = new RoadClosures();
+        var computer = new RouteComputer(GRID, new ClosureCF(new CityBikeCF(GRID), closures));
+        var edge12 = edgeBetween(GRID, 1, 2);
+        var writer = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                if (i % 2 == 0) closures.close(edge12);
+                else closures.reopen(edge12);
+            }
+        });
+        writer.start();
+        for (int i = 0; i < 2_000; i++) {
+            var length = computer.bestRouteBetween(1, 3).length();
+            assertTrue(Math.abs(length - 200) < 1e-9 || Math.abs(length - 400) < 1e-9);
+        }
+        writer.join();
+        assertEquals(2_000, closures.snapshot().version());
+        assertEquals(1, closures.factor(edge12));
+    }
+
+    @Test
+    void roadClosuresCloseTheEdgesOfTheNodesInsideAPolygon() {
+        var graph = TestGraphs.importedSmallLausanne();
+        var node1 = graph.nodeIdOfOsmId(1);
+        var node2 = graph.nodeIdOfOsmId(2);
+        var node3 = graph.nodeIdOfOsmId(3);
+        var point2 = graph.nodePoint(node2);
+        var square = List.of(new PointCh(point2.e() - 5, point2.n() - 5), new PointCh(point2.e() + 5, point2.n() - 5),
+                new PointCh(point2.e() + 5, point2.n() + 5), new PointCh(point2.e() - 5, point2.n() + 5));
+
+        var closures = new RoadClosures();
+        var computer = new RouteComputer(graph, new ClosureCF(new CityBikeCF(graph), closures));
+        assertNotNull(computer.bestRouteBetween(node1, node3));
+        var closed = closures.closeArea(graph, square);
+        assertEquals(2 * graph.nodeOutDegree(node2), closed.length);
+        for (int i = 0; i < graph.nodeOutDegree(node2); i++) {
+            var edgeId = graph.nodeOutEdgeId(node2, i);
+            assertEquals(Double.POSITIVE_INFINITY, closures.factor(edgeId));
+            assertEquals(Double.POSITIVE_INFINITY,
+                    closures.factor(edgeBetween(graph, graph.edgeTargetNodeId(edgeId), node2)));
+        }
+        assertNull(computer.bestRouteBetween(node1, node3));
+
+        closures.reopen(closed);
+        assertNotNull(computer.bestRouteBetween(node1, node3));
+    }
+}
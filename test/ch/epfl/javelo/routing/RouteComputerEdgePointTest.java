@@ -0,0 +1,107 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.data.EdgePoint;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.projection.PointCh;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteComputerEdgePointTest {
+
+    // Four nodes on a line, 100 m apart, with a 5 m/100 m slope.
+    private static final Graph LINE = TestGraphs.of(
+            new double[][]{{2_600_000, 1_200_000}, {2_600_100, 1_200_000},
+                    {2_600_200, 1_200_000}, {2_600_300, 1_200_000}},
+            new int[][]{{0, 1}, {1, 2}, {2, 3}},
+            (e, n) -> 500 + (e - 2_600_000) / 20);
+
+    private static int edgeBetween(int from, int to) {
+        for (int i = 0; i < LINE.nodeOutDegree(from); i += 1) {
+            var edgeId = LINE.nodeOutEdgeId(from, i);
+            if (LINE.edgeTargetNodeId(edgeId) == to) return edgeId;
+        }
+        throw new AssertionError();
+    }
+
+    private static EdgePoint pointOn(int from, int to, double position) {
+        var a = LINE.nodePoint(from);
+        var b = LINE.nodePoint(to);
+        var t = position / LINE.edgeLength(edgeBetween(from, to));
+        return new EdgePoint(edgeBetween(from, to), from,
+                new PointCh(a.e() + t * (b.e() - a.e()), a.n() + t * (b.n() - a.n())), position, 0);
+    }
+
+    @Test
+    void bestRouteBetweenEdgePointsStartsAndEndsInsideEdges() {
+        var rc = new RouteComputer(LINE, (nodeId, edgeId) -> 1);
+        var route = rc.bestRouteBetween(pointOn(0, 1, 30), pointOn(3, 2, 50));
+        assertNotNull(route);
+        assertEquals(220, route.length(), 1e-9);
+        assertEquals(2_600_030, route.pointAt(0).e(), 1e-9);
+        assertEquals(2_600_250, route.pointAt(route.length()).e(), 1e-9);
+        assertEquals(501.5, route.elevationAt(0), 1e-9);
+        assertEquals(512.5, route.elevationAt(route.length()), 1e-9);
+        assertEquals(3, route.edges().size());
+    }
+
+    @Test
+    void bestRouteBetweenEdgePointsGivesPartialEdgesTheirClosestNodes() {
+        var rc = new RouteComputer(LINE, (nodeId, edgeId) -> 1);
+        var route = rc.bestRouteBetween(pointOn(0, 1, 80), pointOn(3, 2, 70));
+        assertEquals(150, route.length(), 1e-9);
+        assertEquals(1, route.nodeClosestTo(0));
+        assertEquals(2, route.nodeClosestTo(route.length()));
+        assertEquals(1, route.edges().get(0).fromNodeId());
+        assertEquals(2, route.edges().get(route.edges().size() - 1).toNodeId());
+    }
+
+    @Test
+    void bestRouteBetweenEdgePointsCanGoBackward() {
+        var rc = new RouteComputer(LINE, (nodeId, edgeId) -> 1);
+        var route = rc.bestRouteBetween(pointOn(2, 3, 50), pointOn(0, 1, 40));
+        assertNotNull(route);
+        assertEquals(210, route.length(), 1e-9);
+        assertEquals(2_600_250, route.pointAt(0).e(), 1e-9);
+        assertEquals(2_600_040, route.pointAt(route.length()).e(), 1e-9);
+        assertEquals(512.5, route.elevationAt(0), 1e-9);
+        assertEquals(502, route.elevationAt(route.length()), 1e-9);
+    }
+
+    @Test
+    void bestRouteBetweenEdgePointsOnSameEdge() {
+        var rc = new RouteComputer(LINE, (nodeId, edgeId) -> 1);
+        var forward = rc.bestRouteBetween(pointOn(1, 2, 20), pointOn(1, 2, 70));
+        assertEquals(50, forward.length(), 1e-9);
+        assertEquals(2_600_170, forward.pointAt(50).e(), 1e-9);
+
+        var backward = rc.bestRouteBetween(pointOn(1, 2, 70), pointOn(2, 1, 80));
+        assertEquals(50, backward.length(), 1e-9);
+        assertEquals(2_600_170, backward.pointAt(0).e(), 1e-9);
+        assertEquals(2_600_120, backward.pointAt(50).e(), 1e-9);
+        assertEquals(506, backward.elevationAt(50), 1e-9);
+
+        assertNull(rc.bestRouteBetween(pointOn(1, 2, 20), pointOn(2, 1, 80)));
+    }
+
+    @Test
+    void bestRouteBetweenEdgePointsAvoidsForbiddenEdges() {
+        var forbidden = edgeBetween(2, 1);
+        var rc = new RouteComputer(LINE, (nodeId, edgeId) ->
+                edgeId == forbidden ? Double.POSITIVE_INFINITY : 1);
+        assertNull(rc.bestRouteBetween(pointOn(1, 2, 70), pointOn(1, 2, 20)));
+        assertNull(rc.bestRouteBetween(pointOn(2, 3, 50), pointOn(0, 1, 40)));
+        assertEquals(220, rc.bestRouteBetween(pointOn(0, 1, 30), pointOn(2, 3, 50)).length(), 1e-9);
+    }
+
+    @Test
+    void bestRouteBetweenEdgePointsAvoidsForbiddenEdgesAtTheirExtremities() {
+        var forbidden = edgeBetween(0, 1);
+        var rc = new RouteComputer(LINE, (nodeId, edgeId) ->
+                edgeId == forbidden ? Double.POSITIVE_INFINITY : 1);
+        assertNull(rc.bestRouteBetween(pointOn(0, 1, 100), pointOn(2, 3, 50)));
+        assertEquals(250, rc.bestRouteBetween(pointOn(2, 3, 50), pointOn(0, 1, 0)).length(), 1e-9);
+        assertNull(rc.bestRouteBetween(pointOn(1, 0, 0), pointOn(2, 3, 50)));
+    }
+}
@@ -0,0 +1,103 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.projection.PointCh;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static ch.epfl.javelo.Math2.clamp;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteEdgeTreeTest {
+    private static final double E = 2_600_000;
+    private static final double N = 1_200_000;
+
+    // A random walk, with some edges of length 0 and some going back on the previous one
+    private static List<Edge> randomEdges(SplittableRandom random, int count, int firstNodeId) {
+        var edges = new ArrayList<Edge>();
+        var from = new PointCh(E + random.nextDouble(0, 1_000), N + random.nextDouble(0, 1_000));
+        for (int i = 0; i < count; i++) {
+            PointCh to;
+            if (random.nextInt(20) == 0) to = from;
+            else if (random.nextInt(20) == 0 && i > 0) to = edges.get(i - 1).fromPoint();
+            else to = new PointCh(from.e() + random.nextDouble(-50, 60), from.n() + random.nextDouble(-50, 60));
+            edges.add(new Edge(firstNodeId + i, firstNodeId + i + 1, from, to, from.distanceTo(to), x -> 0));
+            from = to;
+        }
+        return edges;
+    }
+
+    // The linear scan done by SingleRoute before the tree
+    private static RoutePoint linearPointClosestTo(List<Edge> edges, PointCh point) {
+        var closest = RoutePoint.NONE;
+        var start = 0.0;
+        for (var edge : edges) {
+            var actualPosition = edge.length() == 0 ? 0 : clamp(0, edge.positionClosestTo(point), edge.length());
+            closest = closest.min(edge.pointAt(actualPosition), actualPosition + start,
+                    point.distanceTo(edge.pointAt(actualPosition)));
+            start += edge.length();
+        }
+        return closest;
+    }
+
+    private static PointCh randomPointAround(SplittableRandom random, Route route) {
+        var point = route.pointAt(random.nextDouble(0, route.length()));
+        return new PointCh(point.e() + random.nextDouble(-300, 300), point.n() + random.nextDouble(-300, 300));
+    }
+
+    @Test
+    void singleRoutePointClosestToIsTheOneOfALinearScan() {
+        var random = new SplittableRandom(2022);
+        for (var count : new int[]{1, 2, 7, 8, 9, 100, 5_000}) {
+            var edges = randomEdges(random, count, 1);
+            var route = new SingleRoute(edges);
+            for (int i = 0; i < 500; i++) {
+                var point = randomPointAround(random, route);
+                assertEquals(linearPointClosestTo(edges, point), route.pointClosestTo(point));
+            }
+            for (var edge : edges) {
+                assertEquals(linearPointClosestTo(edges, edge.toPoint()), route.pointClosestTo(edge.toPoint()));
+            }
+        }
+    }
+
+    @Test
+    void singleRoutePointClosestToReturnsTheFirstOfEquallyClosePoints() {
+        var a = new PointCh(E, N);
+        var b = new PointCh(E + 100, N);
+        var edges = new ArrayList<Edge>();
+        for (int i = 0; i < 40; i++) {
+            edges.add(new Edge(i, i + 1, a, b, 100, x -> 0));
+            edges.add(new Edge(i + 1, i + 2, b, a, 100, x -> 0));
+        }
+        var route = new SingleRoute(edges);
+        var closest = route.pointClosestTo(new PointCh(E + 30, N + 40));
+        assertEquals(new PointCh(E + 30, N), closest.point());
+        assertEquals(30, closest.position());
+        assertEquals(40, closest.distanceToReference());
+    }
+
+    @Test
+    void multiRoutePointClosestToIsTheOneOfALinearScan() {
+        var random = new SplittableRandom(346365);
+        var segments = new ArrayList<Route>();
+        var allEdges = new ArrayList<Edge>();
+        for (int i = 0; i < 30; i++) {
+            var edges = randomEdges(random, 1 + random.nextInt(200), allEdges.size() + 1);
+            allEdges.addAll(edges);
+            segments.add(new SingleRoute(edges));
+        }
+        var route = new MultiRoute(List.of(new MultiRoute(segments.subList(0, 10)),
+                new MultiRoute(segments.subList(10, 30))));
+        for (int i = 0; i < 2_000; i++) {
+            var point = randomPointAround(random, route);
+            var expected = linearPointClosestTo(allEdges, point);
+            var actual = route.pointClosestTo(point);
+            assertEquals(expected.point(), actual.point());
+            assertEquals(expected.distanceToReference(), actual.distanceToReference());
+            assertEquals(expected.position(), actual.position(), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ch.epfl.javelo.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsciiGridElevationModelTest {
+
+    private static AsciiGridElevationModel modelOf(String content) throws IOException {
+        var path = Files.createTempFile("grid", ".asc");
+        try {
+            Files.writeString(path, content);
+            return AsciiGridElevationModel.loadFrom(path);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void asciiGridElevationModelInterpolatesBetweenCells() throws IOException {
+        var model = modelOf("""
+                ncols 3
+                nrows 2
+                xllcorner 2600000
+                yllcorner 1200000
+                cellsize 10
+                NODATA_value -9999
+                400 410 420
+                300 310 -9999
+                """);
+        // Centers of the cells
+        assertEquals(300, model.applyAsDouble(2_600_005, 1_200_005));
+        assertEquals(410, model.applyAsDouble(2_600_015, 1_200_015));
+        assertEquals(420, model.applyAsDouble(2_600_025, 1_200_015));
+        // Between four cells, and along the edges of the grid
+        assertEquals(355, model.applyAsDouble(2_600_010, 1_200_010), 1e-9);
+        assertEquals(305, model.applyAsDouble(2_600_010, 1_200_005), 1e-9);
+        assertEquals(415, model.applyAsDouble(2_600_020, 1_200_015), 1e-9);
+        // Next to an unknown cell, or outside of the grid
+        assertTrue(Double.isNaN(model.applyAsDouble(2_600_020, 1_200_010)));
+        assertTrue(Double.isNaN(model.applyAsDouble(2_600_025, 1_200_005)));
+        assertTrue(Double.isNaN(model.applyAsDouble(2_600_004, 1_200_010)));
+        assertTrue(Double.isNaN(model.applyAsDouble(2_600_010, 1_200_016)));
+    }
+
+    @Test
+    void asciiGridElevationModelAcceptsCentersAndNoNoData() throws IOException {
+        var model = modelOf("""
+                NCOLS 2
+                NROWS 2
+                XLLCENTER 2600000
+                YLLCENTER 1200000
+                CELLSIZE 2
+                1 2
+                3 4.5
+                """);
+        assertEquals(3, model.applyAsDouble(2_600_000, 1_200_000));
+        assertEquals(2, model.applyAsDouble(2_600_002, 1_200_002));
+        assertEquals(2.625, model.applyAsDouble(2_600_001, 1_200_001), 1e-9);
+    }
+
+    @Test
+    void asciiGridElevationModelThrowsOnInvalidGrid() {
+        assertThrows(IllegalArgumentException.class, () -> modelOf("""
+                ncols 2
+                nrows 2
+                xllcorner 0
+                yllcorner 0
+                cellsize 1
+                1 2 3
+                """));
+        assertThrows(IllegalArgumentException.class, () -> modelOf("""
+                ncols 1
+                nrows 1
+                cellsize 1
+                1
+                """));
+    }
+}
@@ -0,0 +1,124 @@
+package ch.epfl.javelo.tools;
+
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.data.Attribute;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.routing.CityBikeCF;
+import ch.epfl.javelo.routing.RouteComputer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsmGraphImporterTest {
+    private static Graph importFixture(DoubleBinaryOperator elevation) throws IOException {
+        return Graph.loadFrom(TestGraphs.importGraph(TestGraphs.SMALL_LAUSANNE_OSM, elevation));
+    }
+
+    private static int edgeCount(Graph graph) {
+        var count = 0;
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId += 1) count += graph.nodeOutDegree(nodeId);
+        return count;
+    }
+
+    @Test
+    void importedGraphContainsTheHighwaysOfTheFixture() throws IOException {
+        var graph = importFixture((e, n) -> 500);
+
+        // Nodes 1, 2, 3, 4, 5 and 10, plus one node splitting the 4.3 km long track 4-10
+        assertEquals(7, graph.nodeCount());
+        assertEquals(12, edgeCount(graph));
+        for (long osmId : new long[]{1, 2, 3, 4, 5, 10}) assertNotEquals(-1, graph.nodeIdOfOsmId(osmId));
+        for (long osmId : new long[]{6, 7, 8, 9, 11, 12}) assertEquals(-1, graph.nodeIdOfOsmId(osmId));
+        var splitNodeId = graph.nodeIdOfOsmId(-1);
+        assertNotEquals(-1, splitNodeId);
+
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId += 1) {
+            assertEquals(nodeId, graph.nodeClosestTo(graph.nodePoint(nodeId), 1));
+            assertEquals(nodeId, graph.nodeIdOfOsmId(graph.nodeOsmId(nodeId)));
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i += 1) {
+                var edgeId = graph.nodeOutEdgeId(nodeId, i);
+                var target = graph.edgeTargetNodeId(edgeId);
+                assertEquals(graph.nodePoint(nodeId).distanceTo(graph.nodePoint(target)),
+                        graph.edgeLength(edgeId), 1.0 / 16);
+                assertTrue(graph.edgeLength(edgeId) < 4_096);
+                var hasReverse = false;
+                for (int j = 0; j < graph.nodeOutDegree(target); j += 1) {
+                    var reverse = graph.nodeOutEdgeId(target, j);
+                    hasReverse |= graph.edgeTargetNodeId(reverse) == nodeId
+                            && graph.edgeIsInverted(reverse) != graph.edgeIsInverted(edgeId);
+                }
+                assertTrue(hasReverse);
+            }
+        }
+
+        var node1 = graph.nodeIdOfOsmId(1);
+        var node2 = graph.nodeIdOfOsmId(2);
+        var firstEdge = graph.nodeOutEdgeId(node1, 0);
+        assertEquals(1, graph.nodeOutDegree(node1));
+        assertEquals(node2, graph.edgeTargetNodeId(firstEdge));
+        assertFalse(graph.edgeIsInverted(firstEdge));
+        var attributes = graph.edgeAttributes(firstEdge);
+        assertTrue(attributes.contains(Attribute.HIGHWAY_RESIDENTIAL));
+        assertTrue(attributes.contains(Attribute.SURFACE_ASPHALT));
+        assertTrue(attributes.contains(Attribute.ONEWAY_YES));
+        assertFalse(attributes.contains(Attribute.ICN_YES));
+        assertEquals(3, graph.nodeOutDegree(node2));
+        assertEquals(2, graph.nodeOutDegree(splitNodeId));
+    }
+
+    @Test
+    void importedGraphProfilesFollowTheElevationModel() throws IOException {
+        // A gentle slope, a steeper one and a bumpy terrain, giving the three formats of profiles
+        DoubleBinaryOperator[] elevations = {
+                (e, n) -> 600 + 0.02 * (n - 1_152_000) + 0.01 * (e - 2_538_000),
+                (e, n) -> 600 + 0.5 * (n - 1_152_000),
+                (e, n) -> 1_000 + 30 * Math.sin(n / 2) + 0.1 * (e - 2_538_000)
+        };
+        for (DoubleBinaryOperator elevation : elevations) {
+            var graph = importFixture(elevation);
+            for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId += 1) {
+                for (int i = 0; i < graph.nodeOutDegree(nodeId); i += 1) {
+                    var edgeId = graph.nodeOutEdgeId(nodeId, i);
+                    var from = graph.nodePoint(nodeId);
+                    var to = graph.nodePoint(graph.edgeTargetNodeId(edgeId));
+                    var length = graph.edgeLength(edgeId);
+                    var profile = graph.edgeProfile(edgeId);
+                    var sampleCount = 1 + (int) Math.ceil(length / 2);
+                    var gain = 0.0;
+                    for (int j = 0; j < sampleCount; j += 1) {
+                        var t = (double) j / (sampleCount - 1);
+                        var point = new PointCh(from.e() + t * (to.e() - from.e()), from.n() + t * (to.n() - from.n()));
+                        var expected = elevation.applyAsDouble(point.e(), point.n());
+                        assertEquals(expected, profile.applyAsDouble(t * length), 1.0 / 32 + 1e-3);
+                        if (j > 0) gain += Math.max(0, profile.applyAsDouble(t * length)
+                                - profile.applyAsDouble((double) (j - 1) / (sampleCount - 1) * length));
+                    }
+                    // The gain is stored as an unsigned Q12.4 value
+                    assertEquals(Math.min(gain, 4_095.9375), graph.edgeElevationGain(edgeId), 1e-3);
+                }
+            }
+        }
+    }
+
+    @Test
+    void importedGraphHasNoProfileWhereTheElevationIsUnknown() throws IOException {
+        var graph = importFixture((e, n) -> n > 1_153_000 ? Double.NaN : 450);
+        var node1 = graph.nodeIdOfOsmId(1);
+        var node10 = graph.nodeIdOfOsmId(10);
+        assertEquals(450, graph.edgeProfile(graph.nodeOutEdgeId(node1, 0)).applyAsDouble(1));
+        assertTrue(Double.isNaN(graph.edgeProfile(graph.nodeOutEdgeId(node10, 0)).applyAsDouble(1)));
+    }
+
+    @Test
+    void importedGraphCanBeRouted() throws IOException {
+        var graph = importFixture((e, n) -> 500);
+        var routeComputer = new RouteComputer(graph, new CityBikeCF(graph));
+        var route = routeComputer.bestRouteBetween(graph.nodeIdOfOsmId(5), graph.nodeIdOfOsmId(10));
+        assertNotNull(route);
+        assertEquals(graph.nodePoint(graph.nodeIdOfOsmId(10)), route.pointAt(route.length()));
+    }
+}
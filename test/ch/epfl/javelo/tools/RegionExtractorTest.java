@@ -0,0 +1,149 @@
+package ch.epfl.javelo.tools;
+
+import ch.epfl.javelo.TestGraphs;
+import ch.epfl.javelo.data.Attribute;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionExtractorTest {
+    private static Graph extract(Path source, Region region) throws IOException {
+        var directory = TestGraphs.temporaryDirectory();
+        RegionExtractor.extract(source, region, directory);
+        TestGraphs.deleteOnExit(directory);
+        return Graph.loadFrom(directory);
+    }
+
+    // Checks that every node of the extracted graph has the same position and the same edges as in the source
+    private static void assertSameAsSource(Graph source, Graph extracted) {
+        for (int nodeId = 0; nodeId < extracted.nodeCount(); nodeId += 1) {
+            var sourceNodeId = source.nodeIdOfOsmId(extracted.nodeOsmId(nodeId));
+            assertEquals(source.nodePoint(sourceNodeId), extracted.nodePoint(nodeId));
+            assertEquals(nodeId, extracted.nodeClosestTo(extracted.nodePoint(nodeId), 1));
+            for (int i = 0; i < extracted.nodeOutDegree(nodeId); i += 1) {
+                var edgeId = extracted.nodeOutEdgeId(nodeId, i);
+                var targetOsmId = extracted.nodeOsmId(extracted.edgeTargetNodeId(edgeId));
+                var found = false;
+                for (int j = 0; j < source.nodeOutDegree(sourceNodeId); j += 1) {
+                    var sourceEdgeId = source.nodeOutEdgeId(sourceNodeId, j);
+                    if (source.nodeOsmId(source.edgeTargetNodeId(sourceEdgeId)) != targetOsmId) continue;
+                    found = true;
+                    assertEquals(source.edgeIsInverted(sourceEdgeId), extracted.edgeIsInverted(edgeId));
+                    assertEquals(source.edgeLength(sourceEdgeId), extracted.edgeLength(edgeId));
+                    assertEquals(source.edgeElevationGain(sourceEdgeId), extracted.edgeElevationGain(edgeId));
+                    assertEquals(source.edgeAttributes(sourceEdgeId), extracted.edgeAttributes(edgeId));
+                    var length = source.edgeLength(sourceEdgeId);
+                    for (double x = 0; x <= length; x += 0.5) {
+                        assertEquals(source.edgeProfile(sourceEdgeId).applyAsDouble(x),
+                                extracted.edgeProfile(edgeId).applyAsDouble(x));
+                    }
+                }
+                assertTrue(found);
+            }
+        }
+    }
+
+    @Test
+    void regionExtractorKeepsTheNodesAndEdgesInsideARectangle() throws IOException {
+        var sourceDirectory = TestGraphs.importedSmallLausanneDirectory();
+        var source = TestGraphs.importedSmallLausanne();
+        var minE = Double.POSITIVE_INFINITY;
+        var minN = Double.POSITIVE_INFINITY;
+        var maxE = Double.NEGATIVE_INFINITY;
+        var maxN = Double.NEGATIVE_INFINITY;
+        for (long osmId : new long[]{1, 2, 3, 5}) {
+            var point = source.nodePoint(source.nodeIdOfOsmId(osmId));
+            minE = Math.min(minE, point.e());
+            minN = Math.min(minN, point.n());
+            maxE = Math.max(maxE, point.e());
+            maxN = Math.max(maxN, point.n());
+        }
+        var extracted = extract(sourceDirectory, Region.rectangle(minE, minN, maxE, maxN));
+
+        assertEquals(4, extracted.nodeCount());
+        var edgeCount = 0;
+        for (int nodeId = 0; nodeId < extracted.nodeCount(); nodeId += 1) edgeCount += extracted.nodeOutDegree(nodeId);
+        assertEquals(6, edgeCount);
+        assertEquals(-1, extracted.nodeIdOfOsmId(4));
+        assertSameAsSource(source, extracted);
+
+        var node2 = extracted.nodeIdOfOsmId(2);
+        var hasFootway = false;
+        for (int i = 0; i < extracted.nodeOutDegree(node2); i += 1)
+            hasFootway |= extracted.edgeAttributes(extracted.nodeOutEdgeId(node2, i)).contains(Attribute.HIGHWAY_FOOTWAY);
+        assertTrue(hasFootway);
+    }
+
+    @Test
+    void regionExtractorCompactsTheExtractedFiles() throws IOException {
+        var sourceDirectory = TestGraphs.importedSmallLausanneDirectory();
+        var source = TestGraphs.importedSmallLausanne();
+        var point1 = source.nodePoint(source.nodeIdOfOsmId(1));
+        var point2 = source.nodePoint(source.nodeIdOfOsmId(2));
+        var outputDirectory = TestGraphs.temporaryDirectory();
+        RegionExtractor.extract(sourceDirectory, Region.rectangle(
+                Math.min(point1.e(), point2.e()), Math.min(point1.n(), point2.n()),
+                Math.max(point1.e(), point2.e()), Math.max(point1.n(), point2.n())), outputDirectory);
+        TestGraphs.deleteOnExit(outputDirectory);
+
+        assertEquals(8, Files.size(outputDirectory.resolve("attributes.bin")));
+        var sourceSamples = Files.size(sourceDirectory.resolve("elevations.bin")) / 2;
+        var extractedSamples = Files.size(outputDirectory.resolve("elevations.bin")) / 2;
+        var length = point1.distanceTo(point2);
+        // The two edges share the samples of their profile
+        assertTrue(extractedSamples <= 1 + Math.ceil(length / 2) + 1);
+        assertTrue(extractedSamples < sourceSamples);
+        assertSameAsSource(source, Graph.loadFrom(outputDirectory));
+    }
+
+    @Test
+    void regionExtractorWorksWithAPolygonAndTheWholeGraph() throws IOException {
+        var sourceDirectory = TestGraphs.importedSmallLausanneDirectory();
+        var source = TestGraphs.importedSmallLausanne();
+        var p1 = source.nodePoint(source.nodeIdOfOsmId(1));
+        var p2 = source.nodePoint(source.nodeIdOfOsmId(2));
+        var p5 = source.nodePoint(source.nodeIdOfOsmId(5));
+        var centerE = (p1.e() + p2.e() + p5.e()) / 3;
+        var centerN = (p1.n() + p2.n() + p5.n()) / 3;
+        // The triangle 1, 2, 5 slightly enlarged around its center
+        var vertices = Stream.of(p1, p2, p5)
+                .map(p -> new PointCh(centerE + 1.1 * (p.e() - centerE), centerN + 1.1 * (p.n() - centerN)))
+                .toList();
+        var triangle = extract(sourceDirectory, Region.polygon(vertices));
+        assertEquals(3, triangle.nodeCount());
+        assertSameAsSource(source, triangle);
+
+        var whole = extract(sourceDirectory,
+                Region.rectangle(SwissBounds.MIN_E, SwissBounds.MIN_N, SwissBounds.MAX_E, SwissBounds.MAX_N));
+        assertEquals(source.nodeCount(), whole.nodeCount());
+        assertSameAsSource(source, whole);
+    }
+
+    @Test
+    void regionPolygonContainsWorks() {
+        var square = Region.polygon(List.of(
+                new PointCh(2_600_000, 1_200_000), new PointCh(2_600_100, 1_200_000),
+                new PointCh(2_600_100, 1_200_100), new PointCh(2_600_000, 1_200_100)));
+        assertTrue(square.contains(2_600_050, 1_200_050));
+        assertFalse(square.contains(2_600_150, 1_200_050));
+        assertFalse(square.contains(2_599_950, 1_200_050));
+        var concave = Region.polygon(List.of(
+                new PointCh(2_600_000, 1_200_000), new PointCh(2_600_100, 1_200_000),
+                new PointCh(2_600_050, 1_200_050), new PointCh(2_600_100, 1_200_100),
+                new PointCh(2_600_000, 1_200_100)));
+        assertTrue(concave.contains(2_600_020, 1_200_050));
+        assertFalse(concave.contains(2_600_090, 1_200_050));
+        assertThrows(IllegalArgumentException.class, () -> Region.polygon(List.of(
+                new PointCh(2_600_000, 1_200_000), new PointCh(2_600_100, 1_200_000))));
+        assertThrows(IllegalArgumentException.class, () -> Region.rectangle(1, 0, 0, 1));
+    }
+}